@@ -0,0 +1,79 @@
+package org.kframework.backend.java.benchmark;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.MapUpdate;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.SymbolicConstraint;
+import org.kframework.backend.java.util.KSorts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures updates of a {@link BuiltinMap} of {@code size} entries, both through
+ * {@link MapUpdate} (as produced by rules rewriting a store) and through {@link BuiltinMap#put},
+ * and matching the pattern {@code key |-> V M} against the map modulo AC (as done by rules
+ * reading a store when compiled with kompile --ac-matching).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BuiltinMapBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private BuiltinMap map;
+    private BuiltinMap pattern;
+    private Term key;
+    private Term value;
+
+    @Setup
+    public void setUp() {
+        Map<Term, Term> entries = new HashMap<Term, Term>();
+        for (int i = 0; i < size; ++i) {
+            entries.put(IntToken.of(i), IntToken.of(i));
+        }
+        map = new BuiltinMap(entries);
+        key = IntToken.of(size / 2);
+        value = IntToken.of(-1);
+        pattern = new BuiltinMap(
+                Collections.singletonMap(key, (Term) new Variable("V", IntToken.SORT_NAME)),
+                new Variable("M", KSorts.MAP));
+    }
+
+    @Benchmark
+    public Term mapUpdate() {
+        MapUpdate update = new MapUpdate(
+                map,
+                Collections.<Term>emptySet(),
+                Collections.singletonMap(key, value));
+        return update.evaluateUpdate();
+    }
+
+    @Benchmark
+    public Term copyAndPut() {
+        BuiltinMap result = new BuiltinMap(map.getEntries());
+        result.put(key, value);
+        return result;
+    }
+
+    @Benchmark
+    public SymbolicConstraint.TruthValue matchEntry(KompiledDefinition kompiled) {
+        SymbolicConstraint constraint = new SymbolicConstraint(kompiled.context);
+        constraint.add(map, pattern);
+        return constraint.simplify();
+    }
+}
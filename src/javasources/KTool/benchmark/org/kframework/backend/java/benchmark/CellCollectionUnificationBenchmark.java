@@ -0,0 +1,74 @@
+package org.kframework.backend.java.benchmark;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Cell;
+import org.kframework.backend.java.kil.CellCollection;
+import org.kframework.backend.java.kil.Kind;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.SymbolicConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the unification of a starred cell collection of {@code size} {@code thread} cells
+ * against a pattern selecting two of them by their {@code id} cell plus a frame, as done when
+ * matching rules of multi-threaded definitions. The {@code id} cells are the keys by which the
+ * subject threads are paired with the pattern ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CellCollectionUnificationBenchmark {
+
+    private static final String THREAD = "thread";
+    private static final String ID = "id";
+    private static final String K = "k";
+
+    @Param({"2", "8", "32"})
+    public int size;
+
+    private CellCollection subject;
+    private CellCollection pattern;
+
+    @Setup
+    public void setUp() {
+        Multimap<String, Cell> subjectCells = HashMultimap.create();
+        for (int i = 0; i < size; ++i) {
+            subjectCells.put(THREAD, thread(IntToken.of(i), IntToken.of(i)));
+        }
+        subject = new CellCollection(subjectCells, true);
+
+        Multimap<String, Cell> patternCells = HashMultimap.create();
+        patternCells.put(THREAD, thread(IntToken.of(0), new Variable("T1", IntToken.SORT_NAME)));
+        patternCells.put(THREAD, thread(IntToken.of(size - 1), new Variable("T2", IntToken.SORT_NAME)));
+        pattern = new CellCollection(
+                patternCells,
+                new Variable("Rest", Kind.CELL_COLLECTION.toString()),
+                true);
+    }
+
+    private static Cell<CellCollection> thread(Term id, Term content) {
+        Multimap<String, Cell> cells = HashMultimap.create();
+        cells.put(ID, new Cell<Term>(ID, id));
+        cells.put(K, new Cell<Term>(K, content));
+        return new Cell<CellCollection>(THREAD, new CellCollection(cells, false));
+    }
+
+    @Benchmark
+    public SymbolicConstraint.TruthValue unify(KompiledDefinition kompiled) {
+        SymbolicConstraint constraint = new SymbolicConstraint(kompiled.context);
+        constraint.add(subject, pattern);
+        return constraint.simplify();
+    }
+}
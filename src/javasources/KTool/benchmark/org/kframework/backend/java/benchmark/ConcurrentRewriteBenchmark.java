@@ -0,0 +1,90 @@
+package org.kframework.backend.java.benchmark;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.BuiltinFunction;
+import org.kframework.backend.java.symbolic.SymbolicRewriter;
+import org.kframework.krun.api.io.BinaryReader;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stress test for running several rewriting sessions concurrently in one JVM: each benchmark
+ * thread rewrites the same initial configuration in its own {@link TermContext} and checks that
+ * it reaches the final configuration computed by a single thread during the setup.
+ * <p/>
+ * If the {@code separateDefinitions} parameter is set, each thread also loads its own copy of the
+ * definition, so several definitions are live at the same time. The number of threads can be
+ * changed with the JMH option {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class ConcurrentRewriteBenchmark {
+
+    @Param("tutorial/1_k/2_imp/lesson_1/sum.imp.bin")
+    public String configuration;
+
+    @Param({"false", "true"})
+    public boolean separateDefinitions;
+
+    private org.kframework.kil.Term kilTerm;
+    private Term expectedResult;
+
+    @Setup
+    public void setUp(KompiledDefinition kompiled) {
+        kilTerm = BinaryReader.loadTerm(configuration, kompiled.definition.context());
+        expectedResult = rewrite(kompiled.definition, Term.of(kilTerm, kompiled.definition));
+    }
+
+    /**
+     * The rewriting session of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        Definition definition;
+        Term initialTerm;
+
+        @Setup
+        public void setUp(KompiledDefinition kompiled, ConcurrentRewriteBenchmark benchmark) {
+            if (benchmark.separateDefinitions) {
+                definition = KompiledDefinition.load(kompiled.kompiled);
+                BuiltinFunction.init(definition);
+            } else {
+                definition = kompiled.definition;
+            }
+            initialTerm = Term.of(benchmark.kilTerm, definition);
+        }
+    }
+
+    @Benchmark
+    public Term rewrite(Session session) {
+        Term result = rewrite(session.definition, session.initialTerm);
+        if (!result.equals(expectedResult)) {
+            throw new IllegalStateException("concurrent rewriting reached " + result
+                    + " instead of " + expectedResult);
+        }
+        return result;
+    }
+
+    private static Term rewrite(Definition definition, Term initialTerm) {
+        TermContext context = new TermContext(definition, new PortableFileSystem());
+        SymbolicRewriter rewriter = new SymbolicRewriter(definition);
+        ConstrainedTerm result = rewriter.rewrite(
+                new ConstrainedTerm(initialTerm.evaluate(context), context));
+        return result.term();
+    }
+}
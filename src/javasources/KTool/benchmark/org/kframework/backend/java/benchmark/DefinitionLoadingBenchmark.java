@@ -0,0 +1,30 @@
+package org.kframework.backend.java.benchmark;
+
+import org.kframework.backend.java.kil.Definition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the deserialization of a definition kompiled with the Java backend, which krun
+ * pays on every run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DefinitionLoadingBenchmark {
+
+    @Param("tutorial/1_k/2_imp/lesson_1/imp-kompiled")
+    public String kompiled;
+
+    @Benchmark
+    public Definition load() {
+        return KompiledDefinition.load(kompiled);
+    }
+}
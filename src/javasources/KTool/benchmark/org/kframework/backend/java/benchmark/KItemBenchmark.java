@@ -0,0 +1,51 @@
+package org.kframework.backend.java.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of a {@link KItem}, which computes the sort of the application from
+ * the productions of its label, and its evaluation as a function application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KItemBenchmark {
+
+    @Param("'_+Int_")
+    public String label;
+
+    private KLabelConstant kLabel;
+    private KList kList;
+
+    @Setup
+    public void setUp(KompiledDefinition kompiled) {
+        kLabel = KLabelConstant.of(label, kompiled.definition.context());
+        kList = new KList(ImmutableList.<Term>of(IntToken.of(1), IntToken.of(2)));
+    }
+
+    @Benchmark
+    public KItem construct(KompiledDefinition kompiled) {
+        return new KItem(kLabel, kList, kompiled.definition.context());
+    }
+
+    @Benchmark
+    public Term evaluate(KompiledDefinition kompiled) {
+        return new KItem(kLabel, kList, kompiled.definition.context())
+                .evaluateFunction(kompiled.context);
+    }
+}
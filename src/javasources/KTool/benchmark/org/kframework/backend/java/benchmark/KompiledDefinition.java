@@ -0,0 +1,45 @@
+package org.kframework.backend.java.benchmark;
+
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.BuiltinFunction;
+import org.kframework.backend.java.symbolic.JavaSymbolicBackend;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.utils.BinaryLoader;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+
+/**
+ * Benchmark state holding a definition kompiled with the Java backend. The {@code kompiled}
+ * parameter is the directory produced by {@code kompile --backend java}; the Ant target
+ * {@code benchmark} kompiles the default one before running the benchmarks.
+ */
+@State(Scope.Benchmark)
+public class KompiledDefinition {
+
+    @Param("tutorial/1_k/2_imp/lesson_1/imp-kompiled")
+    public String kompiled;
+
+    public Definition definition;
+    public TermContext context;
+
+    @Setup
+    public void setUp() {
+        definition = load(kompiled);
+        BuiltinFunction.init(definition);
+        context = new TermContext(definition, new PortableFileSystem());
+    }
+
+    public static Definition load(String kompiled) {
+        Definition definition = (Definition) BinaryLoader.load(
+                new File(kompiled, JavaSymbolicBackend.DEFINITION_FILENAME).toString());
+        if (definition == null) {
+            throw new IllegalStateException("cannot load the definition kompiled in " + kompiled);
+        }
+        return definition;
+    }
+}
@@ -0,0 +1,46 @@
+package org.kframework.backend.java.benchmark;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.symbolic.SymbolicRewriter;
+import org.kframework.krun.api.io.BinaryReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SymbolicRewriter#rewrite} from the initial configuration of a sample program
+ * to its final configuration.
+ * <p/>
+ * The initial configuration is read from the binary file given by the {@code configuration}
+ * parameter, as saved by {@code krun --backend java --depth 0 --output-mode binary -o <file>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RewriteBenchmark {
+
+    @Param("tutorial/1_k/2_imp/lesson_1/sum.imp.bin")
+    public String configuration;
+
+    private Term initialTerm;
+
+    @Setup
+    public void setUp(KompiledDefinition kompiled) {
+        org.kframework.kil.Term kilTerm = BinaryReader.loadTerm(configuration, kompiled.definition.context());
+        initialTerm = Term.of(kilTerm, kompiled.definition).evaluate(kompiled.context);
+    }
+
+    @Benchmark
+    public ConstrainedTerm rewrite(KompiledDefinition kompiled) {
+        SymbolicRewriter rewriter = new SymbolicRewriter(kompiled.definition);
+        return rewriter.rewrite(new ConstrainedTerm(initialTerm, kompiled.context));
+    }
+}
@@ -0,0 +1,49 @@
+package org.kframework.backend.java.benchmark;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.SymbolicConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and simplifying a {@link SymbolicConstraint} made of a chain of
+ * {@code size} equalities {@code X0 = X1, X1 = X2, ..., Xn = 0}; every equality added forces the
+ * constraint to be normalized against the substitution computed so far.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SymbolicConstraintBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Variable[] variables;
+
+    @Setup
+    public void setUp() {
+        variables = new Variable[size + 1];
+        for (int i = 0; i <= size; ++i) {
+            variables[i] = new Variable("X" + i, IntToken.SORT_NAME);
+        }
+    }
+
+    @Benchmark
+    public SymbolicConstraint.TruthValue addChain(KompiledDefinition kompiled) {
+        SymbolicConstraint constraint = new SymbolicConstraint(kompiled.context);
+        for (int i = 0; i < size; ++i) {
+            constraint.add(variables[i], variables[i + 1]);
+        }
+        constraint.add(variables[size], IntToken.of(0));
+        return constraint.simplify();
+    }
+}
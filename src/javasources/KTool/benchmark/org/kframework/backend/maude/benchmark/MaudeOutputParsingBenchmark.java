@@ -0,0 +1,104 @@
+package org.kframework.backend.maude.benchmark;
+
+import org.apache.commons.cli.CommandLine;
+import org.kframework.backend.maude.krun.MaudeKRun;
+import org.kframework.backend.maude.krun.MaudeXmlParser;
+import org.kframework.compile.FlattenModules;
+import org.kframework.compile.transformers.AddTopCellConfig;
+import org.kframework.kil.Definition;
+import org.kframework.kil.Term;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.XmlUtil;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.general.GlobalSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of the terms in a Maude output captured by krun, reading the whole output
+ * as a DOM first as krun used to, and with a {@link MaudeXmlParser} streaming the output.
+ * <p/>
+ * The {@code maudeKompiled} parameter is the directory produced by {@code kompile --backend maude}
+ * and {@code maudeOutput} is the {@code maudeoutput.xml} file which {@code krun --debug-info}
+ * leaves in its temporary directory; the Ant target {@code maude-output} captures the default
+ * ones before running this benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MaudeOutputParsingBenchmark {
+
+    @Param("tutorial/1_k/2_imp/lesson_1/maude/imp-kompiled")
+    public String maudeKompiled;
+
+    @Param("tutorial/1_k/2_imp/lesson_1/maude/maudeoutput.xml")
+    public String maudeOutput;
+
+    private Context context;
+
+    /* the same steps as krun before running a definition kompiled with the Maude backend */
+    @Setup
+    public void setUp() throws Exception {
+        context = new Context();
+        Definition definition = (Definition) BinaryLoader.load(maudeKompiled + "/defx-maude.bin");
+        if (definition == null) {
+            throw new IllegalStateException("cannot load the definition kompiled in " + maudeKompiled);
+        }
+        definition = new FlattenModules(context).compile(definition, null);
+        definition = (Definition) definition.accept(new AddTopCellConfig(context));
+        definition.preprocess(context);
+
+        CommandLine compileOptions = (CommandLine) BinaryLoader.load(maudeKompiled + "/compile-options.bin");
+        GlobalSettings.sortedCells = compileOptions.hasOption("sortCells");
+    }
+
+    @Benchmark
+    public List<Term> dom() {
+        List<Term> terms = new ArrayList<Term>();
+        Document doc = XmlUtil.readXMLFromFile(maudeOutput);
+        NodeList results = doc.getElementsByTagName("result");
+        for (int i = 0; i < results.getLength(); i++) {
+            for (Element term : XmlUtil.getChildElements(results.item(i))) {
+                terms.add(MaudeKRun.parseXML(term, context));
+            }
+        }
+        return terms;
+    }
+
+    @Benchmark
+    public List<Term> streaming() throws Exception {
+        List<Term> terms = new ArrayList<Term>();
+        MaudeXmlParser parser = new MaudeXmlParser(context);
+        try (InputStream input = new BufferedInputStream(new FileInputStream(maudeOutput))) {
+            XMLStreamReader reader = XmlUtil.createXMLStreamReader(input);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && reader.getLocalName().equals("result")) {
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        terms.add(parser.parse(reader));
+                    }
+                }
+            }
+            reader.close();
+        }
+        return terms;
+    }
+}
@@ -1,14 +1,15 @@
 package org.kframework.backend.java.builtins;
 
 import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Unifier;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.kil.ASTNode;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -20,11 +21,8 @@ public class Int32Token extends Token {
 
     public static final String SORT_NAME = "Int32";
 
-    /* Int32Token cache */
-    private static final Map<Integer, Int32Token> cache = new HashMap<Integer, Int32Token>();
-
-    /* counter for generating fresh Int32Token values */
-    private static int freshValue = 0;
+    /* Int32Token cache; shared by all definitions and threads since tokens are immutable */
+    private static final ConcurrentMap<Integer, Int32Token> cache = new ConcurrentHashMap<Integer, Int32Token>();
 
     /* Integer value wrapped by this Int32Token */
     private final int value;
@@ -33,9 +31,12 @@ public class Int32Token extends Token {
         this.value = value;
     }
 
-    public static Int32Token fresh() {
-        ++freshValue;
-        return of(freshValue);
+    /**
+     * Returns a fresh {@code Int32Token}; the values are generated by the counter of the given
+     * {@link TermContext}, so they are only unique within one rewriting session.
+     */
+    public static Int32Token fresh(TermContext context) {
+        return of((int) context.nextFreshValue());
     }
 
     /**
@@ -48,7 +49,10 @@ public class Int32Token extends Token {
         Int32Token intToken = cache.get(value);
         if (intToken == null) {
             intToken = new Int32Token(value);
-            cache.put(value, intToken);
+            Int32Token cachedToken = cache.putIfAbsent(value, intToken);
+            if (cachedToken != null) {
+                intToken = cachedToken;
+            }
         }
         return intToken;
     }
@@ -124,12 +128,8 @@ public class Int32Token extends Token {
      * instance.
      */
     private Object readResolve() {
-        Int32Token intToken = cache.get(value);
-        if (intToken == null) {
-            intToken = this;
-            cache.put(value, intToken);
-        }
-        return intToken;
+        Int32Token intToken = cache.putIfAbsent(value, this);
+        return intToken != null ? intToken : this;
     }
 
 }
@@ -1,6 +1,7 @@
 package org.kframework.backend.java.builtins;
 
 import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Unifier;
 import org.kframework.backend.java.symbolic.Transformer;
@@ -8,8 +9,8 @@ import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.kil.ASTNode;
 
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -21,11 +22,8 @@ public class IntToken extends Token {
 
     public static final String SORT_NAME = "Int";
 
-    /* IntToken cache */
-    private static final Map<BigInteger, IntToken> cache = new HashMap<BigInteger, IntToken>();
-
-    /* counter for generating fresh IntToken values */
-    private static BigInteger freshValue = BigInteger.valueOf(0);
+    /* IntToken cache; shared by all definitions and threads since tokens are immutable */
+    private static final ConcurrentMap<BigInteger, IntToken> cache = new ConcurrentHashMap<BigInteger, IntToken>();
 
     /* BigInteger value wrapped by this IntToken */
     private final BigInteger value;
@@ -34,9 +32,12 @@ public class IntToken extends Token {
         this.value = value;
     }
 
-    public static IntToken fresh() {
-        freshValue = freshValue.add(BigInteger.valueOf(1));
-        return of(freshValue);
+    /**
+     * Returns a fresh {@code IntToken}; the values are generated by the counter of the given
+     * {@link TermContext}, so they are only unique within one rewriting session.
+     */
+    public static IntToken fresh(TermContext context) {
+        return of(context.nextFreshValue());
     }
 
     /**
@@ -50,7 +51,10 @@ public class IntToken extends Token {
         IntToken intToken = cache.get(value);
         if (intToken == null) {
             intToken = new IntToken(value);
-            cache.put(value, intToken);
+            IntToken cachedToken = cache.putIfAbsent(value, intToken);
+            if (cachedToken != null) {
+                intToken = cachedToken;
+            }
         }
         return intToken;
     }
@@ -158,12 +162,8 @@ public class IntToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        IntToken intToken = cache.get(value);
-        if (intToken == null) {
-            intToken = this;
-            cache.put(value, intToken);
-        }
-        return intToken;
+        IntToken intToken = cache.putIfAbsent(value, this);
+        return intToken != null ? intToken : this;
     }
 
 }
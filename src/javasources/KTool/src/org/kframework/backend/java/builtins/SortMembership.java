@@ -5,6 +5,7 @@ import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.Sorted;
 import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
 import org.kframework.kil.loader.Context;
 
 
@@ -13,15 +14,8 @@ import org.kframework.kil.loader.Context;
  */
 public class SortMembership {
 
-    private static Context context = null;
-
-    public static void init(Context context) {
-        assert SortMembership.context == null;
-
-        SortMembership.context = context;
-    }
-
-    public static Term check(KItem kItem) {
+    public static Term check(KItem kItem, TermContext termContext) {
+        Context context = termContext.definition().context();
         String sortName = ((KLabelConstant) kItem.kLabel()).label().substring("is".length());
         Sorted sorted = (Sorted) kItem.kList().getItems().get(0);
 
@@ -15,8 +15,8 @@ import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A string token. String tokens represent a sequence of unicode code points.
@@ -29,8 +29,8 @@ public class StringToken extends Token {
 
     public static final String SORT_NAME = "String";
 
-    /* StringToken cache */
-    private static final Map<String, StringToken> cache = new HashMap<String, StringToken>();
+    /* StringToken cache; shared by all definitions and threads since tokens are immutable */
+    private static final ConcurrentMap<String, StringToken> cache = new ConcurrentHashMap<String, StringToken>();
 
     /* String value wrapped by this StringToken */
     private final String value;
@@ -52,7 +52,10 @@ public class StringToken extends Token {
         StringToken stringToken = cache.get(value);
         if (stringToken == null) {
             stringToken = new StringToken(value);
-            cache.put(value, stringToken);
+            StringToken cachedToken = cache.putIfAbsent(value, stringToken);
+            if (cachedToken != null) {
+                stringToken = cachedToken;
+            }
         }
         return stringToken;
     }
@@ -142,12 +145,8 @@ public class StringToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        StringToken stringToken = cache.get(value);
-        if (stringToken == null) {
-            stringToken = this;
-            cache.put(value, stringToken);
-        }
-        return stringToken;
+        StringToken stringToken = cache.putIfAbsent(value, this);
+        return stringToken != null ? stringToken : this;
     }
 
 }
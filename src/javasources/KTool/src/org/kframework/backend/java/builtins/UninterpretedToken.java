@@ -7,8 +7,8 @@ import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.kil.ASTNode;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -18,8 +18,9 @@ import java.util.Map;
  */
 public class UninterpretedToken extends Token {
 
-    /* Token cache */
-    private static final Map<String, Map <String, UninterpretedToken>> cache = new HashMap<String, Map <String, UninterpretedToken>>();
+    /* Token cache; shared by all definitions and threads since tokens are immutable */
+    private static final ConcurrentMap<String, ConcurrentMap<String, UninterpretedToken>> cache
+            = new ConcurrentHashMap<String, ConcurrentMap<String, UninterpretedToken>>();
 
     private final String sort;
     private final String value;
@@ -35,21 +36,32 @@ public class UninterpretedToken extends Token {
      * this method with the same sort and value return the same {@code UninterpretedToken} object).
      */
     public static UninterpretedToken of(String sort, String value) {
-        Map<String, UninterpretedToken> sortCache = cache.get(sort);
-        if (sortCache == null) {
-            sortCache = new HashMap<String, UninterpretedToken>();
-            cache.put(sort, sortCache);
-        }
-
+        ConcurrentMap<String, UninterpretedToken> sortCache = getSortCache(sort);
         UninterpretedToken cachedGenericToken = sortCache.get(value);
         if (cachedGenericToken == null) {
-            cachedGenericToken = new UninterpretedToken(sort, value);
-            sortCache.put(value, cachedGenericToken);
+            UninterpretedToken genericToken = new UninterpretedToken(sort, value);
+            cachedGenericToken = sortCache.putIfAbsent(value, genericToken);
+            if (cachedGenericToken == null) {
+                cachedGenericToken = genericToken;
+            }
         }
 
         return cachedGenericToken;
     }
 
+    private static ConcurrentMap<String, UninterpretedToken> getSortCache(String sort) {
+        ConcurrentMap<String, UninterpretedToken> sortCache = cache.get(sort);
+        if (sortCache == null) {
+            ConcurrentMap<String, UninterpretedToken> newSortCache
+                    = new ConcurrentHashMap<String, UninterpretedToken>();
+            sortCache = cache.putIfAbsent(sort, newSortCache);
+            if (sortCache == null) {
+                sortCache = newSortCache;
+            }
+        }
+        return sortCache;
+    }
+
     /**
      * Returns a {@code String} representation of the sort of this UninterpretedToken.
      */
@@ -92,19 +104,8 @@ public class UninterpretedToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        Map<String, UninterpretedToken> sortCache = cache.get(sort);
-        if (sortCache == null) {
-            sortCache = new HashMap<String, UninterpretedToken>();
-            cache.put(sort, sortCache);
-        }
-
-        UninterpretedToken cachedGenericToken = sortCache.get(value);
-        if (cachedGenericToken == null) {
-            cachedGenericToken = this;
-            sortCache.put(value, cachedGenericToken);
-        }
-
-        return cachedGenericToken;
+        UninterpretedToken cachedGenericToken = getSortCache(sort).putIfAbsent(value, this);
+        return cachedGenericToken != null ? cachedGenericToken : this;
     }
 
 }
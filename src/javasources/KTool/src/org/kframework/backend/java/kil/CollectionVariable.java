@@ -8,7 +8,16 @@ public class CollectionVariable extends Variable {
     private final int concreteSize;
 
     public CollectionVariable(String name, String sort, boolean anonymous, int concreteSize) {
-        super(name, sort, anonymous);
+        this(name, sort, anonymous, concreteSize, -1);
+    }
+
+    public CollectionVariable(
+            String name,
+            String sort,
+            boolean anonymous,
+            int concreteSize,
+            int ordinal) {
+        super(name, sort, anonymous, ordinal);
         this.concreteSize = concreteSize;
     }
 
@@ -29,4 +38,14 @@ public class CollectionVariable extends Variable {
                 concreteSize);
     }
 
+    @Override
+    public CollectionVariable getFreshCopy(int number) {
+        return new CollectionVariable(VARIABLE_PREFIX + number, sort(), true, concreteSize);
+    }
+
+    @Override
+    public CollectionVariable getNumberedCopy(int ordinal) {
+        return new CollectionVariable(name(), sort(), isAnonymous(), concreteSize, ordinal);
+    }
+
 }
@@ -125,6 +125,22 @@ public class ConstrainedTerm extends Term {
      * @return solutions to the unification problem
      */
     public Collection<SymbolicConstraint> unify(ConstrainedTerm constrainedTerm) {
+        return unify(constrainedTerm, null);
+    }
+
+    /**
+     * Unifies this constrained term with the left-hand side of a rule. The solutions which
+     * falsify a guard of the rule (see {@link Rule#checkGuards}) are discarded as soon as the
+     * unification constraint is solved, before the lookups and the side condition of the rule
+     * are added to them.
+     *
+     * @param constrainedTerm
+     *            the left-hand side of the rule, constrained by its lookups and side condition
+     * @param rule
+     *            the rule, or {@code null} if there are no guards to check
+     * @return solutions to the unification problem
+     */
+    public Collection<SymbolicConstraint> unify(ConstrainedTerm constrainedTerm, Rule rule) {
         if (!term.kind.equals(constrainedTerm.term.kind)) {
             return Collections.emptyList();
         }
@@ -138,6 +154,11 @@ public class ConstrainedTerm extends Term {
 
         Collection<SymbolicConstraint> solutions = new ArrayList<SymbolicConstraint>();
         for (SymbolicConstraint solution : unificationConstraint.getMultiConstraints()) {
+            if (rule != null && !rule.checkGuards(solution.substitution(), constrainedTerm.termContext())) {
+                constrainedTerm.termContext().profiler().guardFailed();
+                continue;
+            }
+
             if (SymbolicConstraint.TruthValue.FALSE == solution.addAll(constrainedTerm.lookups)) continue;
             if (SymbolicConstraint.TruthValue.FALSE == solution.addAll(constrainedTerm.constraint)) continue;
             if (SymbolicConstraint.TruthValue.FALSE == solution.addAll(constraint)) continue;
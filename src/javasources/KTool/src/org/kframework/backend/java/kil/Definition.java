@@ -6,11 +6,13 @@ import org.kframework.kil.ASTNode;
 import org.kframework.kil.Attribute;
 import org.kframework.kil.loader.Context;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.HashMultimap;
@@ -37,6 +39,11 @@ public class Definition extends JavaSymbolicObject {
     private final Set<KLabelConstant> kLabels;
     private final Set<KLabelConstant> frozenKLabels;
     private final Context context;
+    /*
+     * Java implementations of the builtin (hooked) operations of this definition; not
+     * serialized, initialized by {@code BuiltinFunction#init} once the definition is loaded
+     */
+    private transient Map<KLabelConstant, Method> builtinFunctions;
 
     public Definition(Context context) {
         this.context = context;
@@ -82,6 +89,15 @@ public class Definition extends JavaSymbolicObject {
         }
     }
 
+    public Map<KLabelConstant, Method> builtinFunctions() {
+        return builtinFunctions != null
+               ? builtinFunctions : Collections.<KLabelConstant, Method>emptyMap();
+    }
+
+    public void setBuiltinFunctions(Map<KLabelConstant, Method> builtinFunctions) {
+        this.builtinFunctions = Collections.unmodifiableMap(builtinFunctions);
+    }
+
     public Context context() {
         return context;
     }
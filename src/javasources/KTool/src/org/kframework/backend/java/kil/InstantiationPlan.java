@@ -0,0 +1,296 @@
+package org.kframework.backend.java.kil;
+
+import org.kframework.backend.java.symbolic.SubstituteAndEvaluateTransformer;
+import org.kframework.kil.Production;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+
+
+/**
+ * The right-hand side of a rule compiled into a flat list of instructions which build its
+ * instances bottom-up on a stack, given the terms substituted for the numbered variables of the
+ * rule (see {@link Variable#ordinal()}).
+ * <p>
+ * Subterms which contain neither variables nor pending operations are pushed as shared
+ * constants, and the sorts of {@link KItem}s are computed once when the sort of an instance
+ * cannot differ. {@code KItem}s which represent functions are evaluated right after they are
+ * built, so the instance does not need to be traversed again; whether a {@code KItem} whose
+ * {@code KLabel} is not a constant represents a function is decided for each instance. Subterms of other kinds
+ * (builtin collections, lookups and updates, frames of {@code KList}s) are instantiated by a
+ * {@link SubstituteAndEvaluateTransformer}.
+ */
+public class InstantiationPlan implements Serializable {
+
+    private enum Opcode { CONSTANT, VARIABLE, TRANSFORM, KITEM, KLIST, KSEQUENCE, CELL, CELL_COLLECTION }
+
+    private static class Instruction implements Serializable {
+        final Opcode opcode;
+        /* the number of operands popped from the stack */
+        final int arity;
+        final Object data;
+        final boolean flag;
+
+        Instruction(Opcode opcode, int arity, Object data, boolean flag) {
+            this.opcode = opcode;
+            this.arity = arity;
+            this.data = data;
+            this.flag = flag;
+        }
+    }
+
+    private final Instruction[] instructions;
+    private final int stackSize;
+
+    private InstantiationPlan(Instruction[] instructions, int stackSize) {
+        this.instructions = instructions;
+        this.stackSize = stackSize;
+    }
+
+    /**
+     * Compiles the given right-hand side; all its variables must be numbered.
+     */
+    public static InstantiationPlan compile(Term rightHandSide) {
+        Compiler compiler = new Compiler();
+        compiler.compile(rightHandSide);
+        return new InstantiationPlan(
+                compiler.instructions.toArray(new Instruction[compiler.instructions.size()]),
+                compiler.maxSize);
+    }
+
+    /**
+     * Returns the instance of the compiled term obtained by substituting each variable of
+     * ordinal {@code i} with {@code terms[i]} (if not {@code null}) and evaluating the pending
+     * functions.
+     */
+    public Term instantiate(Variable[] variables, Term[] terms, TermContext context) {
+        SubstituteAndEvaluateTransformer transformer
+                = new SubstituteAndEvaluateTransformer(variables, terms, context);
+        Term[] stack = new Term[stackSize];
+        int size = 0;
+
+        for (Instruction instruction : instructions) {
+            Term result;
+            int base = size - instruction.arity;
+            switch (instruction.opcode) {
+                case CONSTANT:
+                    result = (Term) instruction.data;
+                    break;
+                case VARIABLE:
+                case TRANSFORM:
+                    result = (Term) ((Term) instruction.data).accept(transformer);
+                    break;
+                case KITEM:
+                    KItem kItem;
+                    if (instruction.data != null) {
+                        kItem = new KItem(
+                                (KLabel) stack[base],
+                                (KList) stack[base + 1],
+                                (String) instruction.data);
+                    } else {
+                        kItem = new KItem(
+                                (KLabel) stack[base],
+                                (KList) stack[base + 1],
+                                context.definition().context());
+                    }
+                    result = instruction.flag && kItem.kLabel().isFunction()
+                             ? kItem.evaluateFunction(context)
+                             : kItem;
+                    break;
+                case KLIST:
+                    result = new KList(ImmutableList.copyOf(slice(stack, base, size)));
+                    break;
+                case KSEQUENCE:
+                    result = makeKSequence(stack, base, size, instruction.flag);
+                    break;
+                case CELL:
+                    result = new Cell<Term>((String) instruction.data, stack[base]);
+                    break;
+                case CELL_COLLECTION:
+                    result = makeCellCollection(stack, base, size, instruction.flag,
+                            (Boolean) instruction.data);
+                    break;
+                default:
+                    assert false : "unexpected opcode " + instruction.opcode;
+                    return null;
+            }
+
+            for (int i = base; i < size; ++i) {
+                stack[i] = null;
+            }
+            stack[base] = result;
+            size = base + 1;
+        }
+
+        assert size == 1;
+        return stack[0];
+    }
+
+    private static List<Term> slice(Term[] stack, int begin, int end) {
+        List<Term> items = new ArrayList<Term>(end - begin);
+        for (int i = begin; i < end; ++i) {
+            items.add(stack[i]);
+        }
+        return items;
+    }
+
+    /**
+     * Builds a {@code KSequence} from the operands on the stack, the last of which is the frame
+     * if {@code hasFrame} holds; follows {@code CopyOnWriteTransformer#transform(KSequence)}.
+     */
+    private static Term makeKSequence(Term[] stack, int begin, int end, boolean hasFrame) {
+        if (!hasFrame) {
+            List<Term> items = slice(stack, begin, end);
+            return items.size() == 1 ? items.get(0) : new KSequence(ImmutableList.copyOf(items));
+        }
+
+        List<Term> items = slice(stack, begin, end - 1);
+        Term frame = stack[end - 1];
+        Variable frameVariable;
+        if (frame.kind() == Kind.K) {
+            if (frame instanceof KSequence) {
+                KSequence kSequence = (KSequence) frame;
+                items.addAll(kSequence.getItems());
+                frameVariable = kSequence.hasFrame() ? kSequence.frame() : null;
+            } else if (frame instanceof KCollectionFragment) {
+                KCollectionFragment fragment = (KCollectionFragment) frame;
+                Iterables.addAll(items, fragment);
+                frameVariable = fragment.hasFrame() ? fragment.frame() : null;
+            } else {
+                frameVariable = (Variable) frame;
+            }
+        } else {
+            assert frame.kind() == Kind.KITEM;
+            items.add(frame);
+            frameVariable = null;
+        }
+
+        if (frameVariable != null) {
+            return new KSequence(ImmutableList.copyOf(items), frameVariable);
+        } else {
+            return items.size() == 1 ? items.get(0) : new KSequence(ImmutableList.copyOf(items));
+        }
+    }
+
+    /**
+     * Builds a {@code CellCollection} from the cells on the stack, the last of which is the frame
+     * if {@code hasFrame} holds; follows {@code CopyOnWriteTransformer#transform(CellCollection)}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static Term makeCellCollection(
+            Term[] stack,
+            int begin,
+            int end,
+            boolean hasFrame,
+            boolean isStar) {
+        Multimap<String, Cell> cells = HashMultimap.create();
+        for (int i = begin; i < (hasFrame ? end - 1 : end); ++i) {
+            Cell<?> cell = (Cell<?>) stack[i];
+            cells.put(cell.getLabel(), cell);
+        }
+
+        Variable frame = null;
+        if (hasFrame) {
+            if (stack[end - 1] instanceof CellCollection) {
+                CellCollection cellCollection = (CellCollection) stack[end - 1];
+                isStar = isStar || cellCollection.isStar();
+                cells.putAll(cellCollection.cellMap());
+                frame = cellCollection.hasFrame() ? cellCollection.frame() : null;
+            } else {
+                frame = (Variable) stack[end - 1];
+            }
+        }
+
+        return new CellCollection(cells, frame, isStar);
+    }
+
+    private static class Compiler {
+        final List<Instruction> instructions = new ArrayList<Instruction>();
+        int size = 0;
+        int maxSize = 0;
+
+        void emit(Opcode opcode, int arity, Object data, boolean flag) {
+            instructions.add(new Instruction(opcode, arity, data, flag));
+            size = size - arity + 1;
+            maxSize = Math.max(maxSize, size);
+        }
+
+        void compile(Term term) {
+            if (term.isGround() && !term.hasPendingOperations()) {
+                emit(Opcode.CONSTANT, 0, term, false);
+            } else if (term instanceof Variable) {
+                emit(Opcode.VARIABLE, 0, term, false);
+            } else if (term instanceof KItem) {
+                KItem kItem = (KItem) term;
+                compile(kItem.kLabel());
+                compile(kItem.kList());
+                /* a KLabel which is not a constant may be instantiated with a function */
+                emit(Opcode.KITEM, 2, getInvariantSort(kItem),
+                        !(kItem.kLabel() instanceof KLabelConstant) || kItem.kLabel().isFunction());
+            } else if (term instanceof KList && !((KList) term).hasFrame()) {
+                KList kList = (KList) term;
+                for (Term item : kList.getItems()) {
+                    compile(item);
+                }
+                emit(Opcode.KLIST, kList.size(), null, false);
+            } else if (term instanceof KSequence) {
+                KSequence kSequence = (KSequence) term;
+                for (Term item : kSequence.getItems()) {
+                    compile(item);
+                }
+                if (kSequence.hasFrame()) {
+                    compile(kSequence.frame());
+                }
+                emit(Opcode.KSEQUENCE, kSequence.size() + (kSequence.hasFrame() ? 1 : 0), null,
+                        kSequence.hasFrame());
+            } else if (term instanceof Cell) {
+                Cell<?> cell = (Cell<?>) term;
+                compile(cell.getContent());
+                emit(Opcode.CELL, 1, cell.getLabel(), false);
+            } else if (term instanceof CellCollection) {
+                CellCollection cellCollection = (CellCollection) term;
+                for (Cell<?> cell : cellCollection.cells()) {
+                    compile(cell);
+                }
+                if (cellCollection.hasFrame()) {
+                    compile(cellCollection.frame());
+                }
+                emit(Opcode.CELL_COLLECTION,
+                        cellCollection.cells().size() + (cellCollection.hasFrame() ? 1 : 0),
+                        cellCollection.isStar(),
+                        cellCollection.hasFrame());
+            } else {
+                emit(Opcode.TRANSFORM, 0, term, false);
+            }
+        }
+
+        /**
+         * Returns the sort of the given {@code KItem} if every instance has the same sort, i.e.
+         * if all the productions of its {@code KLabel} have the sort computed for the
+         * {@code KItem}; returns {@code null} otherwise.
+         */
+        String getInvariantSort(KItem kItem) {
+            if (!(kItem.kLabel() instanceof KLabelConstant)) {
+                return null;
+            }
+
+            List<Production> productions = ((KLabelConstant) kItem.kLabel()).productions();
+            if (productions.isEmpty()) {
+                return null;
+            }
+            for (Production production : productions) {
+                if (!production.getSort().equals(kItem.sort())) {
+                    return null;
+                }
+            }
+            return kItem.sort();
+        }
+    }
+
+}
@@ -8,6 +8,7 @@ import org.kframework.backend.java.symbolic.Unifier;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Utils;
 import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Production;
 import org.kframework.kil.loader.Context;
@@ -17,7 +18,6 @@ import org.kframework.utils.general.GlobalSettings;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 
@@ -91,6 +91,18 @@ public class KItem extends Term implements Sorted {
         }
     }
 
+    /**
+     * Constructs a {@code KItem} whose sort is already known, e.g. computed once for all the
+     * instances of a rule right-hand side (see {@link InstantiationPlan}).
+     */
+    KItem(KLabel kLabel, KList kList, String sort) {
+        super(Kind.KITEM);
+
+        this.kLabel = kLabel;
+        this.kList = kList;
+        this.sort = sort;
+    }
+
     /**
      * Evaluates this {@code KItem} if it is a predicate or function
      * 
@@ -107,7 +119,7 @@ public class KItem extends Term implements Sorted {
         /* evaluate a sort membership predicate */
         if (kLabelConstant.label().startsWith("is") && kList.getItems().size() == 1
                 && kList.getItems().get(0) instanceof Sorted) {
-            return SortMembership.check(this);
+            return SortMembership.check(this, context);
         }
 
         /* apply rules for user defined functions */
@@ -115,50 +127,50 @@ public class KItem extends Term implements Sorted {
             ConstrainedTerm constrainedTerm = new ConstrainedTerm(kList, context);
 
             for (Rule rule : definition.functionRules().get((KLabelConstant) kLabel)) {
-                SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(context);
-                leftHandSideConstraint.addAll(rule.condition());
-                for (Variable variable : rule.freshVariables()) {
-                    leftHandSideConstraint.add(variable, IntToken.fresh());
-                }
-
-                ConstrainedTerm leftHandSide = new ConstrainedTerm(
-                        ((KItem) rule.leftHandSide()).kList,
-                        rule.lookups().getSymbolicConstraint(context),
-                        leftHandSideConstraint,
-                        context);
+                context.profiler().enterRule(rule, true);
+                try {
+                    SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(context);
+                    leftHandSideConstraint.addAll(rule.condition());
+                    for (Variable variable : rule.freshVariables()) {
+                        leftHandSideConstraint.add(variable, IntToken.fresh(context));
+                    }
 
-                Collection<SymbolicConstraint> solutions = constrainedTerm.unify(leftHandSide);
+                    ConstrainedTerm leftHandSide = new ConstrainedTerm(
+                            ((KItem) rule.leftHandSide()).kList,
+                            rule.lookups().getSymbolicConstraint(context),
+                            leftHandSideConstraint,
+                            context);
 
-                assert solutions.size() <= 1 : "function definition is not deterministic";
+                    context.profiler().setPhase(RuleProfiler.Phase.UNIFY);
+                    Collection<SymbolicConstraint> solutions = constrainedTerm.unify(leftHandSide, rule);
 
-                if (solutions.isEmpty()) {
-                    continue;
-                }
+                    assert solutions.size() <= 1 : "function definition is not deterministic";
 
-                SymbolicConstraint constraint = solutions.iterator().next();
+                    if (solutions.isEmpty()) {
+                        continue;
+                    }
 
-                if (!constraint.isSubstitution()) {
-                    continue;
-                }
+                    SymbolicConstraint constraint = solutions.iterator().next();
 
-                /* rename rule variables in the constraints */
-                Map<Variable, Variable> freshSubstitution = constraint.rename(rule.variableSet());
+                    if (!constraint.isSubstitution()) {
+                        continue;
+                    }
+                    context.profiler().unificationSucceeded();
 
-                Term result = rule.rightHandSide();
-                /* rename rule variables in the rule RHS */
-                result = result.substitute(freshSubstitution, context);
-                /* apply the constraints substitution on the rule RHS */
-                result = result.substitute(constraint.substitution(), context);
-                /* evaluate pending functions in the rule RHS */
-                result = result.evaluate(context);
-                /* eliminate anonymous variables */
-                constraint.eliminateAnonymousVariables();
+                    context.profiler().setPhase(RuleProfiler.Phase.SUBSTITUTION);
+                    /* rename rule variables, substitute and evaluate pending functions in the rule RHS */
+                    Term result = rule.instantiateRightHandSide(constraint, context);
+                    /* eliminate anonymous variables */
+                    constraint.eliminateAnonymousVariables();
 
-                return result;
+                    return result;
+                } finally {
+                    context.profiler().exit();
+                }
             }
         }
 
-        if (!BuiltinFunction.isBuiltinKLabel(kLabelConstant)) {
+        if (!BuiltinFunction.isBuiltinKLabel(kLabelConstant, definition)) {
             return this;
         }
 
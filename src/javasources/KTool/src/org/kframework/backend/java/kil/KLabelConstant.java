@@ -8,9 +8,12 @@ import org.kframework.kil.Attribute;
 import org.kframework.kil.Production;
 import org.kframework.kil.loader.Context;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableList;
 
@@ -22,8 +25,13 @@ import com.google.common.collect.ImmutableList;
  */
 public class KLabelConstant extends KLabel {
 
-    /* KLabelConstant cache */
-    private static final HashMap<String, KLabelConstant> cache = new HashMap<String, KLabelConstant>();
+    /*
+     * KLabelConstant cache; one per definition, since the productions of a label depend on the
+     * definition
+     */
+    private static final Map<Context, ConcurrentMap<String, KLabelConstant>> cache
+            = Collections.synchronizedMap(
+                    new WeakHashMap<Context, ConcurrentMap<String, KLabelConstant>>());
 
     /* un-escaped label */
     private final String label;
@@ -60,8 +68,8 @@ public class KLabelConstant extends KLabel {
 
     /**
      * Returns a {@code KLabelConstant} representation of label. The {@code KLabelConstant}
-     * instances are cached to ensure uniqueness (subsequent invocations
-     * of this method with the same label return the same {@code KLabelConstant} object).
+     * instances are cached per definition (subsequent invocations of this method with the same
+     * label and context return the same {@code KLabelConstant} object).
      *
      * @param label string representation of the KLabel; must not be '`' escaped;
      * @return AST term representation the the KLabel;
@@ -69,10 +77,22 @@ public class KLabelConstant extends KLabel {
     public static KLabelConstant of(String label, Context context) {
         assert label != null;
 
-        KLabelConstant kLabelConstant = cache.get(label);
+        ConcurrentMap<String, KLabelConstant> contextCache;
+        synchronized (cache) {
+            contextCache = cache.get(context);
+            if (contextCache == null) {
+                contextCache = new ConcurrentHashMap<String, KLabelConstant>();
+                cache.put(context, contextCache);
+            }
+        }
+
+        KLabelConstant kLabelConstant = contextCache.get(label);
         if (kLabelConstant == null) {
-            kLabelConstant = new KLabelConstant(label, context);
-            cache.put(label, kLabelConstant);
+            KLabelConstant newKLabelConstant = new KLabelConstant(label, context);
+            kLabelConstant = contextCache.putIfAbsent(label, newKLabelConstant);
+            if (kLabelConstant == null) {
+                kLabelConstant = newKLabelConstant;
+            }
         }
         return kLabelConstant;
     }
@@ -108,8 +128,15 @@ public class KLabelConstant extends KLabel {
 
     @Override
     public boolean equals(Object object) {
-        /* {@code KLabelConstant} objects are cached to ensure uniqueness */
-        return this == object;
+        /*
+         * {@code KLabelConstant} objects are cached, but a de-serialized definition may hold
+         * other instances than the ones created at run time
+         */
+        if (this == object) {
+            return true;
+        }
+
+        return object instanceof KLabelConstant && label.equals(((KLabelConstant) object).label);
     }
 
     @Override
@@ -137,17 +164,4 @@ public class KLabelConstant extends KLabel {
         return transformer.transform(this);
     }
 
-    /**
-     * Returns the cached instance rather than the de-serialized instance if there is a cached
-     * instance.
-     */
-    private Object readResolve() {
-        KLabelConstant kLabelConstant = cache.get(label);
-        if (kLabelConstant == null) {
-            kLabelConstant = this;
-            cache.put(label, kLabelConstant);
-        }
-        return kLabelConstant;
-    }
-
 }
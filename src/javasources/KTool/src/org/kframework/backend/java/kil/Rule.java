@@ -1,5 +1,6 @@
 package org.kframework.backend.java.kil;
 
+import org.kframework.backend.java.builtins.BoolToken;
 import org.kframework.backend.java.indexing.IndexingPair;
 import org.kframework.backend.java.indexing.TopIndex;
 import org.kframework.backend.java.symbolic.BottomUpVisitor;
@@ -7,12 +8,18 @@ import org.kframework.backend.java.symbolic.SymbolicConstraint;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.UninterpretedConstraint;
 import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Attribute;
 import org.kframework.kil.Attributes;
+import org.kframework.kil.Production;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -22,6 +29,12 @@ import java.util.Map;
  */
 public class Rule extends JavaSymbolicObject {
 
+    /**
+     * The prefix of the hooks of the IO operations (see
+     * {@link org.kframework.backend.java.builtins.BuiltinIOOperations}), which have side effects.
+     */
+    private static final String IO_HOOK_PREFIX = "#IO:";
+
     private final Term leftHandSide;
     private final Term rightHandSide;
     private final Collection<Term> condition;
@@ -29,6 +42,21 @@ public class Rule extends JavaSymbolicObject {
     private final UninterpretedConstraint lookups;
     private final IndexingPair indexingPair;
     private final boolean containsKCell;
+    /**
+     * The variables of this rule indexed by their ordinals, or {@code null} if they are not
+     * numbered consistently.
+     */
+    private final Variable[] variables;
+    /**
+     * The right-hand side compiled for instantiation, or {@code null} if its variables are not
+     * numbered consistently.
+     */
+    private final InstantiationPlan rightHandSidePlan;
+    /**
+     * The conjuncts of the side condition which can be decided as soon as their variables are
+     * bound by unification with the left-hand side (see {@link #isGuard(Term)}).
+     */
+    private final List<Term> guards;
 
     public Rule(
             Term leftHandSide,
@@ -43,6 +71,15 @@ public class Rule extends JavaSymbolicObject {
         this.freshVariables = freshVariables;
         this.lookups = lookups;
 
+        guards = new ArrayList<Term>();
+        if (condition != null) {
+            for (Term term : condition) {
+                if (isGuard(term)) {
+                    guards.add(term);
+                }
+            }
+        }
+
         Collection<IndexingPair> indexingPairs = leftHandSide.getIndexingPairs();
         /*
          * Compute indexing information only if the left-hand side of this rule has precisely one
@@ -66,9 +103,86 @@ public class Rule extends JavaSymbolicObject {
         });
         containsKCell = tempContainsKCell;
 
+        variables = indexVariables(variableSet());
+        rightHandSidePlan = variables != null ?
+                InstantiationPlan.compile(rightHandSide) : null;
+
         super.setAttributes(attributes);
     }
 
+    /**
+     * Returns the given variables indexed by their ordinals, or {@code null} if some variable is
+     * not numbered or two variables have the same ordinal.
+     */
+    private static Variable[] indexVariables(Set<Variable> variableSet) {
+        List<Variable> variables = new ArrayList<Variable>();
+        for (Variable variable : variableSet) {
+            int ordinal = variable.ordinal();
+            if (ordinal < 0) {
+                return null;
+            }
+
+            while (variables.size() <= ordinal) {
+                variables.add(null);
+            }
+            if (variables.get(ordinal) != null) {
+                return null;
+            }
+            variables.set(ordinal, variable);
+        }
+        return variables.toArray(new Variable[variables.size()]);
+    }
+
+    /**
+     * Returns {@code true} if the given conjunct of a side condition is a sort membership
+     * predicate (e.g. {@code isKResult(V)}) or a builtin predicate (e.g. a comparison of
+     * integers) applied only to variables and tokens, and thus cheap to evaluate once its
+     * variables are bound. Builtin operations with side effects, such as the IO operations, are
+     * left to the side condition, so that they are evaluated only when the rule applies.
+     */
+    private static boolean isGuard(Term term) {
+        if (!(term instanceof KItem) || !(((KItem) term).kLabel() instanceof KLabelConstant)) {
+            return false;
+        }
+
+        KLabelConstant kLabel = (KLabelConstant) ((KItem) term).kLabel();
+        KList kList = ((KItem) term).kList();
+        if (kList.hasFrame()) {
+            return false;
+        }
+
+        boolean isBuiltin = kLabel.label().startsWith("is") && kList.size() == 1;
+        if (!isBuiltin && !kLabel.productions().isEmpty()) {
+            isBuiltin = true;
+            for (Production production : kLabel.productions()) {
+                isBuiltin = isBuiltin && isBuiltinPredicate(production);
+            }
+        }
+        if (!isBuiltin) {
+            return false;
+        }
+
+        boolean hasVariables = false;
+        for (Term argument : kList.getItems()) {
+            if (argument instanceof Variable) {
+                hasVariables = true;
+            } else if (!(argument instanceof Token)) {
+                return false;
+            }
+        }
+        return hasVariables;
+    }
+
+    /**
+     * Returns {@code true} if the given production is hooked to a builtin operation without side
+     * effects (see {@link #IO_HOOK_PREFIX}) which returns a {@code Bool}.
+     */
+    private static boolean isBuiltinPredicate(Production production) {
+        return production.containsAttribute(Attribute.HOOK_KEY)
+                && !production.getAttribute(Attribute.HOOK_KEY).startsWith(IO_HOOK_PREFIX)
+                && production.getSort().equals(BoolToken.SORT_NAME);
+    }
+
     private boolean tempContainsKCell = false;
 
     /*
@@ -89,6 +203,21 @@ public class Rule extends JavaSymbolicObject {
         return condition;
     }
 
+    /**
+     * Returns {@code false} if one of the guards of this rule whose variables are all bound by
+     * the given substitution evaluates to false. The guards are part of the side condition, so
+     * this is only a cheap check done before the side condition is added to the constraint.
+     */
+    public boolean checkGuards(Map<Variable, Term> substitution, TermContext context) {
+        for (Term guard : guards) {
+            if (substitution.keySet().containsAll(guard.variableSet())
+                    && guard.substitute(substitution, context).evaluate(context).equals(BoolToken.FALSE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Collection<Variable> freshVariables() {
         return freshVariables;
     }
@@ -100,10 +229,16 @@ public class Rule extends JavaSymbolicObject {
     }
 
     /**
-     * Returns a copy of this {@code Rule} with each {@link Variable} renamed to a fresh name.
+     * Returns a copy of this {@code Rule} with each {@link Variable} renamed to a fresh name and
+     * numbered from 0 (see {@link Variable#ordinal()}).
      */
     public Rule getFreshRule(TermContext context) {
-        return this.substitute(Variable.getFreshSubstitution(variableSet()), context);
+        Map<Variable, Variable> freshSubstitution = Variable.getFreshSubstitution(variableSet());
+        int ordinal = 0;
+        for (Map.Entry<Variable, Variable> entry : freshSubstitution.entrySet()) {
+            entry.setValue(entry.getValue().getNumberedCopy(ordinal++));
+        }
+        return this.substitute(freshSubstitution, context);
     }
 
     public IndexingPair indexingPair() {
@@ -126,6 +261,31 @@ public class Rule extends JavaSymbolicObject {
         return rightHandSide;
     }
 
+    /**
+     * Renames the variables of this rule to fresh variables in the given constraint (see
+     * {@link SymbolicConstraint#rename}), and returns the instance of the right-hand side of this
+     * rule under the constraint. If the variables of this rule are numbered, they are renamed by
+     * {@link SymbolicConstraint#renameNumbered}, and the right-hand side is instantiated from the
+     * resulting array by its {@link InstantiationPlan}; otherwise renaming, substitution and
+     * evaluation of pending functions are done through maps.
+     */
+    public Term instantiateRightHandSide(SymbolicConstraint constraint, TermContext context) {
+        if (variables != null) {
+            Term[] terms = constraint.renameNumbered(variables);
+            context.profiler().setPhase(RuleProfiler.Phase.EVALUATION);
+            return rightHandSidePlan.instantiate(variables, terms, context);
+        }
+
+        Map<Variable, Variable> freshSubstitution = constraint.rename(variableSet());
+        context.profiler().setPhase(RuleProfiler.Phase.EVALUATION);
+        Map<Variable, Term> substitution = new HashMap<Variable, Term>(freshSubstitution.size());
+        for (Map.Entry<Variable, Variable> entry : freshSubstitution.entrySet()) {
+            Term term = constraint.substitution().get(entry.getValue());
+            substitution.put(entry.getKey(), term != null ? term : entry.getValue());
+        }
+        return rightHandSide.substituteAndEvaluate(substitution, context);
+    }
+
     /**
      * Returns a new {@code Rule} instance obtained from this rule by applying substitution.
      */
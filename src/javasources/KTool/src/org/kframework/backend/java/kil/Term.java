@@ -18,6 +18,12 @@ public abstract class Term extends JavaSymbolicObject implements Transformable,
     protected final Kind kind;
     //protected final boolean normalized;
 
+    /**
+     * Caches the result of {@link #hasPendingOperations()}; not serialized, for the same reason
+     * as {@link JavaSymbolicObject#variableSet}.
+     */
+    private transient Boolean hasPendingOperations = null;
+
     protected Term(Kind kind) {
         this.kind = kind;
     }
@@ -81,7 +87,54 @@ public abstract class Term extends JavaSymbolicObject implements Transformable,
     }
 
     /**
-     * Returns a new {@code Term} instance obtained from this term by applying substitution.
+     * Returns {@code true} if this term contains function or predicate operations, or lookups and
+     * updates of builtin collections, which evaluation may rewrite.
+     */
+    public boolean hasPendingOperations() {
+        if (hasPendingOperations == null) {
+            final boolean[] found = new boolean[1];
+            accept(new BottomUpVisitor() {
+                @Override
+                public void visit(KItem kItem) {
+                    if (kItem.kLabel().isFunction()) {
+                        found[0] = true;
+                    }
+                    super.visit(kItem);
+                }
+
+                @Override
+                public void visit(ListLookup listLookup) {
+                    found[0] = true;
+                }
+
+                @Override
+                public void visit(MapLookup mapLookup) {
+                    found[0] = true;
+                }
+
+                @Override
+                public void visit(MapUpdate mapUpdate) {
+                    found[0] = true;
+                }
+
+                @Override
+                public void visit(SetLookup setLookup) {
+                    found[0] = true;
+                }
+
+                @Override
+                public void visit(SetUpdate setUpdate) {
+                    found[0] = true;
+                }
+            });
+            hasPendingOperations = found[0];
+        }
+        return hasPendingOperations;
+    }
+
+    /**
+     * Returns a new {@code Term} instance obtained from this term by applying substitution and
+     * evaluating pending functions, in a single pass which shares the unchanged subterms.
      */
     public Term substituteAndEvaluate(Map<Variable, ? extends Term> substitution, TermContext context) {
 
@@ -89,10 +142,7 @@ public abstract class Term extends JavaSymbolicObject implements Transformable,
             return this;
         }
 
-        SubstitutionTransformer transformer = new SubstitutionTransformer(substitution, context);
-        transformer.getPostTransformer().addTransformer(new LocalEvaluator(context));
-
-        return (Term) accept(transformer);
+        return (Term) accept(new SubstituteAndEvaluateTransformer(substitution, context));
     }
 
      /**
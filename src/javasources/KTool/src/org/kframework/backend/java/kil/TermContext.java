@@ -2,28 +2,52 @@ package org.kframework.backend.java.kil;
 
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.kil.ASTNode;
 import org.kframework.krun.api.io.FileSystem;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 
 /**
  * An object containing context specific to a particular configuration.
+ * <p>
+ * Besides the (shared, read-only) {@link Definition}, a term context holds the mutable state of
+ * one rewriting session, such as the counter used to generate fresh values, so that several
+ * sessions can run concurrently, and one after another, in the same JVM. The term contexts of
+ * the successive runs and steps of one session share its counter and its {@link RuleProfiler}.
  */
 public class TermContext extends JavaSymbolicObject {
 
     private final Definition def;
     private final FileSystem fs;
+    /* counter for generating fresh values (see {@code IntToken#fresh}) */
+    private final AtomicLong freshValue;
+    private final RuleProfiler profiler;
+    /* statistics of the unification of cell collections with multiplicity '*' (see
+     * {@code SymbolicUnifier}), reported by {@code RuleProfiler} */
+    private long prunedCellPairings = 0;
+    private long triedCellPairings = 0;
 
     public TermContext(Definition def, FileSystem fs) {
+        this(def, fs, new AtomicLong(), RuleProfiler.DISABLED);
+    }
+
+    /**
+     * Creates a term context which generates fresh values from the given counter of a session,
+     * and charges the rules applied to the given profiler of the session.
+     */
+    public TermContext(Definition def, FileSystem fs, AtomicLong freshValue, RuleProfiler profiler) {
         this.def = def;
         this.fs = fs;
+        this.freshValue = freshValue;
+        this.profiler = profiler;
     }
 
     // this constructor should never be used except in cases where the Term is part of a Definition
     // instead of part of a ConstrainedTerm.
     public TermContext(Definition def) {
-        this.def = def;
-        this.fs = null;
+        this(def, null);
     }
 
 
@@ -35,6 +59,44 @@ public class TermContext extends JavaSymbolicObject {
         return fs;
     }
 
+    /**
+     * Returns a value which has not been returned before by this term context, nor by the other
+     * term contexts sharing its counter.
+     */
+    public long nextFreshValue() {
+        return freshValue.incrementAndGet();
+    }
+
+    /**
+     * Returns the profiler of the rules applied in this term context.
+     */
+    public RuleProfiler profiler() {
+        return profiler;
+    }
+
+    /**
+     * Counts pairings of pattern and subject cells with multiplicity '*' discarded because their
+     * keys differ.
+     */
+    public void addPrunedCellPairings(long count) {
+        prunedCellPairings += count;
+    }
+
+    /**
+     * Counts an assignment of subject cells to pattern cells with multiplicity '*' being tried.
+     */
+    public void addTriedCellPairing() {
+        ++triedCellPairings;
+    }
+
+    public long prunedCellPairings() {
+        return prunedCellPairings;
+    }
+
+    public long triedCellPairings() {
+        return triedCellPairings;
+    }
+
     @Override
     public ASTNode accept(Transformer transformer) {
         throw new UnsupportedOperationException();
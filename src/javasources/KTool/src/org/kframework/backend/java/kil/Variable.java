@@ -9,6 +9,7 @@ import org.kframework.kil.ASTNode;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -19,27 +20,52 @@ import java.util.Set;
 public class Variable extends Term implements Sorted {
 
     protected static final String VARIABLE_PREFIX = "__var__";
-    protected static int counter = 0;
-    private static Map<Integer, Variable> deserializationAnonymousVariableMap = new HashMap<>();
+    protected static final AtomicInteger counter = new AtomicInteger();
+    /* guarded by itself, since definitions may be de-serialized concurrently */
+    private static final Map<Integer, Variable> deserializationAnonymousVariableMap = new HashMap<>();
 
+    /**
+     * Returns a substitution renaming each variable in the given set to a fresh variable; the
+     * fresh variables are numbered consecutively from an offset reserved at once for the set.
+     */
     public static Map<Variable, Variable> getFreshSubstitution(Set<Variable> variableSet) {
-        Map<Variable, Variable> substitution = new HashMap<Variable, Variable>();
+        Map<Variable, Variable> substitution = new HashMap<Variable, Variable>(
+                variableSet.size() * 4 / 3 + 1);
+        int offset = reserveFreshNumbers(variableSet.size());
         for (Variable variable : variableSet) {
-            substitution.put(variable, variable.getFreshCopy());
+            substitution.put(variable, variable.getFreshCopy(offset++));
         }
         return substitution;
     }
 
+    /**
+     * Reserves the given number of consecutive numbers for fresh variables (see
+     * {@link #getFreshCopy(int)}), and returns the first one.
+     */
+    public static int reserveFreshNumbers(int count) {
+        return counter.getAndAdd(count);
+    }
+
     public static Variable getFreshVariable(String sort) {
-        return new Variable(VARIABLE_PREFIX + (counter++), sort, true);
+        return new Variable(VARIABLE_PREFIX + counter.getAndIncrement(), sort, true);
     }
     
     /* TODO(AndreiS): cache the variables */
     private final String name;
     private final String sort;
     private final boolean anonymous;
+    /**
+     * The index of this variable in the rule it belongs to (see {@link Rule#getFreshRule}), or
+     * -1 if this variable is not numbered.
+     */
+    private final int ordinal;
+    /**
+     * Caches the hash code; computed lazily, like {@link String#hashCode()}, so that it is not
+     * read from a partially de-serialized variable.
+     */
+    private transient int hashCode = 0;
 
-    public Variable(String name, String sort, boolean anonymous) {
+    public Variable(String name, String sort, boolean anonymous, int ordinal) {
         super(Kind.of(sort));
 
         assert name != null && sort != null;
@@ -47,6 +73,11 @@ public class Variable extends Term implements Sorted {
         this.name = name;
         this.sort = sort;
         this.anonymous = anonymous;
+        this.ordinal = ordinal;
+    }
+
+    public Variable(String name, String sort, boolean anonymous) {
+        this(name, sort, anonymous, -1);
     }
 
     public Variable(String name, String sort) {
@@ -61,6 +92,21 @@ public class Variable extends Term implements Sorted {
         return Variable.getFreshVariable(sort);
     }
 
+    /**
+     * Returns a fresh copy of this variable named after the given number, which must have been
+     * reserved by {@link #reserveFreshNumbers(int)}.
+     */
+    public Variable getFreshCopy(int number) {
+        return new Variable(VARIABLE_PREFIX + number, sort, true);
+    }
+
+    /**
+     * Returns a copy of this variable with the given index in the rule it belongs to.
+     */
+    public Variable getNumberedCopy(int ordinal) {
+        return new Variable(name, sort, anonymous, ordinal);
+    }
+
     /**
      * Returns a {@code String} representation of the name of this variable.
      */
@@ -72,6 +118,10 @@ public class Variable extends Term implements Sorted {
         return anonymous;
     }
 
+    public int ordinal() {
+        return ordinal;
+    }
+
     /**
      * Returns a {@code String} representation of the sort of this variable.
      */
@@ -96,15 +146,19 @@ public class Variable extends Term implements Sorted {
         }
 
         Variable variable = (Variable) object;
-        return name.equals(variable.name) && sort.equals(variable.sort);
+        return hashCode() == variable.hashCode()
+                && name.equals(variable.name) && sort.equals(variable.sort);
 	}
 
 	@Override
 	public int hashCode() {
-        int hash = 1;
-        hash = hash * Utils.HASH_PRIME + name.hashCode();
-        hash = hash * Utils.HASH_PRIME + sort.hashCode();
-		return hash;
+        if (hashCode == 0) {
+            int hash = 1;
+            hash = hash * Utils.HASH_PRIME + name.hashCode();
+            hash = hash * Utils.HASH_PRIME + sort.hashCode();
+            hashCode = hash;
+        }
+		return hashCode;
 	}
 
     @Override
@@ -134,16 +188,22 @@ public class Variable extends Term implements Sorted {
     private Object readResolve() {
         if (anonymous) {
             int id = Integer.parseInt(name.substring(VARIABLE_PREFIX.length()));
-            if (id < counter) {
-                Variable variable = deserializationAnonymousVariableMap.get(id);
-                if (variable == null) {
-                    variable = getFreshVariable(sort);
-                    deserializationAnonymousVariableMap.put(id, variable);
+            synchronized (deserializationAnonymousVariableMap) {
+                if (id < counter.get()) {
+                    /*
+                     * the same id may occur in several rules (or definitions) with different
+                     * ordinals, so only the renaming is shared
+                     */
+                    Variable variable = deserializationAnonymousVariableMap.get(id);
+                    if (variable == null) {
+                        variable = getFreshCopy(counter.getAndIncrement());
+                        deserializationAnonymousVariableMap.put(id, variable);
+                    }
+                    return ordinal >= 0 ? variable.getNumberedCopy(ordinal) : variable;
+                } else {
+                    counter.set(id + 1);
+                    return this;
                 }
-                return variable;
-            } else {
-                counter = id + 1;
-                return this;
             }
         } else {
             return this;
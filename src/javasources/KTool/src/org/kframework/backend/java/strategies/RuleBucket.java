@@ -0,0 +1,53 @@
+package org.kframework.backend.java.strategies;
+
+import org.kframework.backend.java.kil.Rule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The candidate rules for a term, partitioned once and for all into the subsets selected by
+ * each {@link Strategy}. A rule is structural if it lacks one of the transition tags, and a
+ * transition if it has one of them.
+ */
+public class RuleBucket {
+  public RuleBucket(Collection<Rule> rules, List<String> tags) {
+    List<Rule> structuralRules = new ArrayList<Rule>();
+    List<Rule> transitionRules = new ArrayList<Rule>();
+    for (Rule r : rules) {
+      for (String s : tags) {
+        if (!r.containsAttribute(s)) {
+          structuralRules.add(r);
+          break;
+        }
+      }
+      for (String s : tags) {
+        if (r.containsAttribute(s)) {
+          transitionRules.add(r);
+          break;
+        }
+      }
+    }
+
+    this.rules = rules.toArray(new Rule[rules.size()]);
+    this.structuralRules = structuralRules.toArray(new Rule[structuralRules.size()]);
+    this.transitionRules = transitionRules.toArray(new Rule[transitionRules.size()]);
+  }
+
+  public Rule[] rules() {
+    return rules;
+  }
+
+  public Rule[] structuralRules() {
+    return structuralRules;
+  }
+
+  public Rule[] transitionRules() {
+    return transitionRules;
+  }
+
+  private final Rule[] rules;
+  private final Rule[] structuralRules;
+  private final Rule[] transitionRules;
+}
@@ -2,10 +2,29 @@ package org.kframework.backend.java.strategies;
 
 import org.kframework.backend.java.kil.Rule;
 
-import java.util.Collection;
-
+/**
+ * Iterates through the rules of a {@link RuleBucket} selected by the strategy. The selection
+ * is precomputed by the bucket, so applying a strategy does not allocate.
+ */
 public abstract class Strategy {
-  public abstract void apply(Collection<Rule> rules);
-  public abstract Rule next();
-  public abstract boolean hasNext();
+  public void apply(RuleBucket bucket) {
+    rules = select(bucket);
+    index = 0;
+  }
+
+  protected abstract Rule[] select(RuleBucket bucket);
+
+  public Rule next() {
+    if (index < rules.length) {
+      return rules[index++];
+    }
+    return null;
+  }
+
+  public boolean hasNext() {
+    return index < rules.length;
+  }
+
+  private Rule[] rules = new Rule[0];
+  private int index = 0;
 }
@@ -5,17 +5,58 @@ import org.kframework.backend.java.kil.*;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.Int32Token;
 import org.kframework.backend.java.builtins.UninterpretedToken;
+import org.kframework.utils.TraversalStack;
 
+import java.util.List;
 import java.util.Map;
 
 
 /**
  * A bottom-up implementation of the visitor pattern.
+ * <p>
+ * The children of a node are visited from an explicit {@link TraversalStack} rather than
+ * by recursive calls, so deep terms do not overflow the Java stack. When a node is reached
+ * through the traversal, its children are visited after its {@code visit} method returns;
+ * an overriding method may therefore do its own work before delegating to the
+ * {@code super} implementation, but not after it. Overriding methods which need to
+ * interleave their work with the visit of the children call {@code accept} on the
+ * children themselves.
  *
  * @author AndreiS
  */
 public class BottomUpVisitor implements Visitor {
 
+    private static final int VISIT = 0;
+    private static final int POST_TERM = 1;
+    private static final int POST_COLLECTION = 2;
+    private static final int POST_KLABEL_INJECTION = 3;
+    private static final int POST_KLABEL = 4;
+
+    private final TraversalStack stack = new TraversalStack(new TraversalStack.Handler() {
+        @Override
+        public void handle(Object node, int action) {
+            switch (action) {
+                case VISIT:
+                    ((Visitable) node).accept(BottomUpVisitor.this);
+                    break;
+                case POST_TERM:
+                    visit((Term) node);
+                    break;
+                case POST_COLLECTION:
+                    visit((Collection) node);
+                    break;
+                case POST_KLABEL_INJECTION:
+                    visit((KLabelInjection) node);
+                    break;
+                case POST_KLABEL:
+                    visit((KLabel) node);
+                    break;
+                default:
+                    assert false : "unknown traversal action " + action;
+            }
+        }
+    });
+
     @Override
     public String getName() {
         return this.getClass().toString();
@@ -28,51 +69,63 @@ public class BottomUpVisitor implements Visitor {
 
     @Override
     public void visit(BuiltinList node) {
-        if (node.hasFrame()) node.frame().accept(this);
-        for (Term t : node.elementsLeft()) t.accept(this);
-        for (Term t : node.elementsRight()) t.accept(this);
+        stack.begin(node);
+        if (node.hasFrame()) stack.push(node.frame(), VISIT);
+        for (Term t : node.elementsLeft()) stack.push(t, VISIT);
+        for (Term t : node.elementsRight()) stack.push(t, VISIT);
+        stack.end();
     }
 
     @Override
     public void visit(BuiltinMap builtinMap) {
+        stack.begin(builtinMap);
         for (java.util.Map.Entry<Term, Term> entry : builtinMap.getEntries().entrySet()) {
-            entry.getKey().accept(this);
-            entry.getValue().accept(this);
+            stack.push(entry.getKey(), VISIT);
+            stack.push(entry.getValue(), VISIT);
         }
-        visit((Collection) builtinMap);
+        stack.push(builtinMap, POST_COLLECTION);
+        stack.end();
     }
 
     @Override
     public void visit(BuiltinSet builtinSet) {
+        stack.begin(builtinSet);
         for (Term term : builtinSet.elements()) {
-            term.accept(this);
+            stack.push(term, VISIT);
         }
 //        for (BuiltinSet.Operation operation : builtinSet.operations()) {
 //            operation.element().accept(this);
 //        }
-        visit((Collection) builtinSet);
+        stack.push(builtinSet, POST_COLLECTION);
+        stack.end();
     }
 
     @Override
     public void visit(Cell cell) {
-        cell.getContent().accept(this);
-        visit((Term) cell);
+        stack.begin(cell);
+        stack.push(cell.getContent(), VISIT);
+        stack.push(cell, POST_TERM);
+        stack.end();
     }
 
     @Override
     public void visit(CellCollection cellCollection) {
+        stack.begin(cellCollection);
         for (Cell cell : cellCollection.cells()) {
-            cell.accept(this);
+            stack.push(cell, VISIT);
         }
-        visit((Collection) cellCollection);
+        stack.push(cellCollection, POST_COLLECTION);
+        stack.end();
     }
 
     @Override
     public void visit(Collection collection) {
+        stack.begin(collection);
         if (collection.hasFrame()) {
-            collection.frame().accept(this);
+            stack.push(collection.frame(), VISIT);
         }
-        visit((Term) collection);
+        stack.push(collection, POST_TERM);
+        stack.end();
     }
 
     @Override
@@ -102,37 +155,48 @@ public class BottomUpVisitor implements Visitor {
 
     @Override
     public void visit(KLabelFreezer kLabelFreezer) {
-        kLabelFreezer.term().accept(this);
-        visit((KLabelInjection) kLabelFreezer);
+        stack.begin(kLabelFreezer);
+        stack.push(kLabelFreezer.term(), VISIT);
+        stack.push(kLabelFreezer, POST_KLABEL_INJECTION);
+        stack.end();
     }
 
     @Override
     public void visit(KLabelInjection kLabelInjection) {
-        kLabelInjection.term().accept(this);
-        visit((KLabel) kLabelInjection);
+        stack.begin(kLabelInjection);
+        stack.push(kLabelInjection.term(), VISIT);
+        stack.push(kLabelInjection, POST_KLABEL);
+        stack.end();
     }
 
     @Override
     public void visit(KItem kItem) {
-        kItem.kLabel().accept(this);
-        kItem.kList().accept(this);
-        visit((Term) kItem);
+        stack.begin(kItem);
+        stack.push(kItem.kLabel(), VISIT);
+        stack.push(kItem.kList(), VISIT);
+        stack.push(kItem, POST_TERM);
+        stack.end();
     }
 
     @Override
     public void visit(KCollection kCollection) {
-        for (Term term : kCollection) {
-            term.accept(this);
+        stack.begin(kCollection);
+        List<Term> items = kCollection.getItems();
+        for (int index = 0; index < items.size(); ++index) {
+            stack.push(items.get(index), VISIT);
         }
-        visit((Collection) kCollection);
+        stack.push(kCollection, POST_COLLECTION);
+        stack.end();
     }
 
     @Override
     public void visit(KCollectionFragment kCollectionFragment) {
+        stack.begin(kCollectionFragment);
         for (Term term : kCollectionFragment) {
-            term.accept(this);
+            stack.push(term, VISIT);
         }
-        visit((Collection) kCollectionFragment);
+        stack.push(kCollectionFragment, POST_COLLECTION);
+        stack.end();
     }
 
     @Override
@@ -152,27 +216,33 @@ public class BottomUpVisitor implements Visitor {
 
     @Override
     public void visit(ListLookup listLookup) {
-        listLookup.list().accept(this);
-        listLookup.key().accept(this);
+        stack.begin(listLookup);
+        stack.push(listLookup.list(), VISIT);
+        stack.push(listLookup.key(), VISIT);
+        stack.end();
     }
 
     @Override
     public void visit(MapLookup mapLookup) {
-        mapLookup.map().accept(this);
-        mapLookup.key().accept(this);
-        visit((Term) mapLookup);
+        stack.begin(mapLookup);
+        stack.push(mapLookup.map(), VISIT);
+        stack.push(mapLookup.key(), VISIT);
+        stack.push(mapLookup, POST_TERM);
+        stack.end();
     }
 
     @Override
     public void visit(MapUpdate mapUpdate) {
-        mapUpdate.map().accept(this);
+        stack.begin(mapUpdate);
+        stack.push(mapUpdate.map(), VISIT);
         for (Term key : mapUpdate.removeSet()) {
-            key.accept(this);
+            stack.push(key, VISIT);
         }
         for (java.util.Map.Entry<Term, Term> entry : mapUpdate.updateMap().entrySet()) {
-            entry.getKey().accept(this);
-            entry.getValue().accept(this);
+            stack.push(entry.getKey(), VISIT);
+            stack.push(entry.getValue(), VISIT);
         }
+        stack.end();
     }
 
     @Override
@@ -182,42 +252,50 @@ public class BottomUpVisitor implements Visitor {
 
     @Override
     public void visit(Rule rule) {
-        rule.leftHandSide().accept(this);
-        rule.rightHandSide().accept(this);
-        rule.lookups().accept(this);
+        stack.begin(rule);
+        stack.push(rule.leftHandSide(), VISIT);
+        stack.push(rule.rightHandSide(), VISIT);
+        stack.push(rule.lookups(), VISIT);
         for (Term term : rule.condition()) {
-            term.accept(this);
+            stack.push(term, VISIT);
         }
         for (Variable variable : rule.freshVariables()) {
-            variable.accept(this);
+            stack.push(variable, VISIT);
         }
+        stack.end();
     }
 
     @Override
     public void visit(SetLookup setLookup) {
-        setLookup.base().accept(this);
-        setLookup.key().accept(this);
-        visit((Term) setLookup);
+        stack.begin(setLookup);
+        stack.push(setLookup.base(), VISIT);
+        stack.push(setLookup.key(), VISIT);
+        stack.push(setLookup, POST_TERM);
+        stack.end();
     }
 
     @Override
     public void visit(SetUpdate setUpdate) {
-        setUpdate.base().accept(this);
+        stack.begin(setUpdate);
+        stack.push(setUpdate.base(), VISIT);
         for (Term key : setUpdate.removeSet()) {
-            key.accept(this);
+            stack.push(key, VISIT);
         }
+        stack.end();
     }
 
     @Override
     public void visit(SymbolicConstraint node) {
+        stack.begin(node);
         for (Map.Entry<Variable, Term> entry : node.substitution().entrySet()) {
-            entry.getKey().accept(this);
-            entry.getValue().accept(this);
+            stack.push(entry.getKey(), VISIT);
+            stack.push(entry.getValue(), VISIT);
         }
         for (SymbolicConstraint.Equality equality : node.equalities()) {
-            equality.leftHandSide().accept(this);
-            equality.rightHandSide().accept(this);
+            stack.push(equality.leftHandSide(), VISIT);
+            stack.push(equality.rightHandSide(), VISIT);
         }
+        stack.end();
     }
 
     @Override public void visit(Term term) { }
@@ -229,10 +307,12 @@ public class BottomUpVisitor implements Visitor {
 
     @Override
     public void visit(UninterpretedConstraint uninterpretedConstraint) {
+        stack.begin(uninterpretedConstraint);
         for (UninterpretedConstraint.Equality equality : uninterpretedConstraint.equalities()) {
-            equality.leftHandSide().accept(this);
-            equality.rightHandSide().accept(this);
+            stack.push(equality.leftHandSide(), VISIT);
+            stack.push(equality.rightHandSide(), VISIT);
         }
+        stack.end();
     }
 
     @Override
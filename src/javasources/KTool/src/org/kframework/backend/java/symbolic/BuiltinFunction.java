@@ -1,7 +1,5 @@
 package org.kframework.backend.java.symbolic;
 
-import org.kframework.backend.java.builtins.MetaK;
-import org.kframework.backend.java.builtins.SortMembership;
 import org.kframework.backend.java.kil.Definition;
 import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.Term;
@@ -27,13 +25,12 @@ import java.util.Properties;
 public class BuiltinFunction {
 
     /**
-     * Map of {@link KLabelConstant} representation of builtin (hooked) operations to
-     * {@link Method} representation of Java implementation of said operations.
+     * Initializes the map of {@link KLabelConstant} representation of builtin (hooked)
+     * operations of the given definition to {@link Method} representation of Java implementation
+     * of said operations (see {@link Definition#builtinFunctions()}).
      */
-    private static final Map<KLabelConstant, Method> table = new HashMap<KLabelConstant, Method>();
-
     public static void init(Definition definition) {
-        /* initialize {@code table} */
+        Map<KLabelConstant, Method> table = new HashMap<KLabelConstant, Method>();
         try {
             String separator = System.getProperty("file.separator");
             String path = KPaths.getKBase(false) + separator + "include" + separator + "java";
@@ -67,9 +64,7 @@ public class BuiltinFunction {
             e.printStackTrace();
         }
 
-        /* initialize sort information in {@code SortMembership} */
-        SortMembership.init(definition.context());
-
+        definition.setBuiltinFunctions(table);
     }
 
     public static Term invoke(TermContext context, KLabelConstant label, Term ... arguments)
@@ -77,7 +72,7 @@ public class BuiltinFunction {
         Object[] args =  Arrays.copyOf(arguments, arguments.length + 1, Object[].class);
         args[arguments.length] =  context;
         try {
-            Term t = (Term) table.get(label).invoke(null, args);
+            Term t = (Term) context.definition().builtinFunctions().get(label).invoke(null, args);
             return t;
         } catch (InvocationTargetException e) {
             Throwable t = e.getTargetException();
@@ -92,8 +87,8 @@ public class BuiltinFunction {
         }
     }
 
-    public static boolean isBuiltinKLabel(KLabelConstant label) {
-        return table.containsKey(label);
+    public static boolean isBuiltinKLabel(KLabelConstant label, Definition definition) {
+        return definition.builtinFunctions().containsKey(label);
     }
 
 }
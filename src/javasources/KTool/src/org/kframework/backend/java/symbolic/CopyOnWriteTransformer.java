@@ -37,6 +37,9 @@ import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.kil.ASTNode;
+import org.kframework.kil.visitors.Visitor;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.utils.TraversalStack;
 
 import java.util.*;
 
@@ -52,13 +55,79 @@ import com.google.common.collect.Multimap;
  * the target node to return unless it is actually going to be mutated.
  * <p>
  * COW strategy allows safe sub-term sharing.
+ * <p>
+ * Cells, K items, K lists, K sequences and K label injections are transformed from an
+ * explicit {@link TraversalStack} rather than by recursive calls, so deep terms (such as
+ * long cons-lists) do not overflow the Java stack. A subclass which overrides the
+ * {@code transform} method of one of these classes disables the explicit traversal for
+ * that class; subclasses which only need to process such a node before or after its
+ * children should override {@link #preTransform} and {@link #postTransform} instead.
  * 
  * @author AndreiS
  */
 public class CopyOnWriteTransformer implements Transformer {
 
+    /**
+     * The classes of the nodes which may be transformed from the explicit stack, each
+     * corresponding to a bit of {@link #deferredClasses}.
+     */
+    private static final Class<?>[] DEFERRABLE_CLASSES = new Class<?>[] {
+            Cell.class, KItem.class, KList.class, KSequence.class,
+            KLabelInjection.class, KLabelFreezer.class};
+
+    private static final ClassValue<Integer> DEFERRED_CLASSES = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> transformerClass) {
+            int deferredClasses = 0;
+            for (int i = 0; i < DEFERRABLE_CLASSES.length; ++i) {
+                try {
+                    if (transformerClass.getMethod("transform", DEFERRABLE_CLASSES[i])
+                            .getDeclaringClass() == CopyOnWriteTransformer.class) {
+                        deferredClasses |= 1 << i;
+                    }
+                } catch (NoSuchMethodException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            return deferredClasses;
+        }
+    };
+
+    private static final int TRANSFORM = 0;
+    private static final int REBUILD = 1;
+
     protected final TermContext context;
     protected final Definition definition;
+
+    /**
+     * Bit set of the classes in {@link #DEFERRABLE_CLASSES} whose {@code transform} method is
+     * not overridden by this transformer.
+     */
+    private final int deferredClasses = DEFERRED_CLASSES.get(getClass());
+
+    private final TraversalStack stack = new TraversalStack(new TraversalStack.Handler() {
+        @Override
+        public void handle(Object node, int action) {
+            if (action == TRANSFORM) {
+                Term term = (Term) node;
+                if (isDeferred(term)) {
+                    ASTNode astNode = preTransform(term);
+                    if (astNode == null) {
+                        stack.pushValue(term);
+                    } else if (astNode instanceof DoneTransforming) {
+                        stack.pushValue(((DoneTransforming) astNode).getContents());
+                    } else {
+                        schedule((Term) astNode);
+                    }
+                } else {
+                    stack.pushValue(term.accept(CopyOnWriteTransformer.this));
+                }
+            } else {
+                Term term = (Term) node;
+                stack.pushValue(postTransform(term, rebuild(term)));
+            }
+        }
+    });
 	
 	public CopyOnWriteTransformer(TermContext context) {
 		this.context = context;
@@ -79,9 +148,123 @@ public class CopyOnWriteTransformer implements Transformer {
         return this.getClass().toString();
     }
 
+    /**
+     * Processes a cell, K item, K list, K sequence or K label injection before its children
+     * are transformed. Returns the node whose children are to be transformed (of the same
+     * class as the given node), {@code null} if the given node is to be left unchanged, or a
+     * {@link DoneTransforming} holding the result of the transformation of the given node.
+     */
+    protected ASTNode preTransform(Term term) {
+        return term;
+    }
+
+    /**
+     * Processes the result of transforming the children of a node returned by
+     * {@link #preTransform}, and returns the result of the transformation of that node.
+     */
+    protected ASTNode postTransform(Term term, Term transformedTerm) {
+        return transformedTerm;
+    }
+
+    private boolean isDeferred(Term term) {
+        if (deferredClasses == 0) {
+            return false;
+        }
+        Class<?> termClass = term.getClass();
+        for (int i = 0; i < DEFERRABLE_CLASSES.length; ++i) {
+            if (termClass == DEFERRABLE_CLASSES[i]) {
+                return (deferredClasses & 1 << i) != 0;
+            }
+        }
+        return false;
+    }
+
+    private ASTNode transformDeferred(Term term) {
+        ASTNode astNode = preTransform(term);
+        if (astNode == null) {
+            return term;
+        } else if (astNode instanceof DoneTransforming) {
+            return ((DoneTransforming) astNode).getContents();
+        }
+
+        int base = stack.size();
+        schedule((Term) astNode);
+        stack.run(base);
+        return (ASTNode) stack.popValue();
+    }
+
+    /**
+     * Schedules the transformation of the children of the given node, followed by its
+     * reconstruction. The children are pushed in reverse order, so that they are transformed
+     * from left to right, as in a recursive traversal.
+     */
+    private void schedule(Term term) {
+        stack.push(term, REBUILD);
+        if (term instanceof Cell) {
+            stack.push(((Cell) term).getContent(), TRANSFORM);
+        } else if (term instanceof KItem) {
+            stack.push(((KItem) term).kList(), TRANSFORM);
+            stack.push(((KItem) term).kLabel(), TRANSFORM);
+        } else if (term instanceof KCollection) {
+            KCollection kCollection = (KCollection) term;
+            if (kCollection.hasFrame()) {
+                stack.push(kCollection.frame(), TRANSFORM);
+            }
+            List<Term> items = kCollection.getItems();
+            for (int index = items.size() - 1; index >= 0; --index) {
+                stack.push(items.get(index), TRANSFORM);
+            }
+        } else {
+            stack.push(((KLabelInjection) term).term(), TRANSFORM);
+        }
+    }
+
+    /**
+     * Reconstructs the given node from the transformed children on top of the value stack.
+     */
+    private Term rebuild(Term term) {
+        if (term instanceof Cell) {
+            return rebuild((Cell) term, (Term) stack.popValue());
+        } else if (term instanceof KItem) {
+            KList kList = (KList) stack.popValue();
+            KLabel kLabel = (KLabel) stack.popValue();
+            return rebuild((KItem) term, kLabel, kList);
+        } else if (term instanceof KCollection) {
+            KCollection kCollection = (KCollection) term;
+            Term frame = kCollection.hasFrame() ? (Term) stack.popValue() : null;
+            List<Term> items = kCollection.getItems();
+            List<Term> transformedItems = items;
+            int size = items.size();
+            for (int index = 0; index < size; ++index) {
+                Term transformedItem = (Term) stack.peekValue(size - 1 - index);
+                if (transformedItems != items) {
+                    transformedItems.add(transformedItem);
+                } else if (transformedItem != items.get(index)) {
+                    transformedItems = new ArrayList<Term>(size);
+                    transformedItems.addAll(items.subList(0, index));
+                    transformedItems.add(transformedItem);
+                }
+            }
+            stack.dropValues(size);
+
+            if (term instanceof KList) {
+                return rebuild((KList) term, transformedItems, (Variable) frame);
+            } else {
+                return rebuild((KSequence) term, transformedItems, frame);
+            }
+        } else if (term instanceof KLabelFreezer) {
+            return rebuild((KLabelFreezer) term, (Term) stack.popValue());
+        } else {
+            return rebuild((KLabelInjection) term, (Term) stack.popValue());
+        }
+    }
+
     @Override
     public ASTNode transform(Cell cell) {
-        Term content = (Term) cell.getContent().accept(this);
+        return transformDeferred(cell);
+    }
+
+    private Cell rebuild(Cell cell, Term content) {
         if (content != cell.getContent()) {
             cell = new Cell<Term>(cell.getLabel(), content);
         }
@@ -146,7 +329,10 @@ public class CopyOnWriteTransformer implements Transformer {
 
     @Override
     public ASTNode transform(KLabelFreezer kLabelFreezer) {
-        Term term = (Term) kLabelFreezer.term().accept(this);
+        return transformDeferred(kLabelFreezer);
+    }
+
+    private KLabelFreezer rebuild(KLabelFreezer kLabelFreezer, Term term) {
         if (term != kLabelFreezer.term()) {
             kLabelFreezer = new KLabelFreezer(term);
         }
@@ -160,7 +346,10 @@ public class CopyOnWriteTransformer implements Transformer {
 
     @Override
     public ASTNode transform(KLabelInjection kLabelInjection) {
-        Term term = (Term) kLabelInjection.term().accept(this);
+        return transformDeferred(kLabelInjection);
+    }
+
+    private KLabelInjection rebuild(KLabelInjection kLabelInjection, Term term) {
         if (term != kLabelInjection.term()) {
             kLabelInjection = new KLabelInjection(term);
         }
@@ -169,8 +358,10 @@ public class CopyOnWriteTransformer implements Transformer {
 
     @Override
     public ASTNode transform(KItem kItem) {
-        KLabel kLabel = (KLabel) kItem.kLabel().accept(this);
-        KList kList = (KList) kItem.kList().accept(this);
+        return transformDeferred(kItem);
+    }
+
+    private KItem rebuild(KItem kItem, KLabel kLabel, KList kList) {
         if (kLabel != kItem.kLabel() || kList != kItem.kList()) {
             kItem = new KItem(kLabel, kList, context.definition().context());
         }
@@ -229,10 +420,11 @@ public class CopyOnWriteTransformer implements Transformer {
 
     @Override
     public ASTNode transform(KList kList) {
-        List<Term> items = transformList(kList.getItems());
+        return transformDeferred(kList);
+    }
 
+    private KList rebuild(KList kList, List<Term> items, Variable frame) {
         if (kList.hasFrame()) {
-            Variable frame = (Variable) kList.frame().accept(this);
             if (items != kList.getItems() || frame != kList.frame()) {
                 kList = new KList(ImmutableList.<Term>copyOf(items), frame);
             }
@@ -247,12 +439,12 @@ public class CopyOnWriteTransformer implements Transformer {
 
     @Override
     public ASTNode transform(KSequence kSequence) {
-        List<Term> items = transformList(kSequence.getItems());
+        return transformDeferred(kSequence);
+    }
 
+    private Term rebuild(KSequence kSequence, List<Term> items, Term transformedFrame) {
         if (kSequence.hasFrame()) {
             Variable frame;
-            Term transformedFrame = (Term) kSequence.frame().accept(this);
-
             if (transformedFrame.kind() == Kind.K) {
                 if (transformedFrame instanceof KSequence) {
                     if (items == kSequence.getItems()) {
@@ -611,4 +803,33 @@ public class CopyOnWriteTransformer implements Transformer {
         }
     }
 
+    /**
+     * Wraps the result of a transformation completed by {@link #preTransform}.
+     */
+    protected class DoneTransforming extends ASTNode {
+        public DoneTransforming(ASTNode node) {
+            contents = node;
+        }
+
+        @Override
+        public ASTNode shallowCopy() {
+            throw new UnsupportedOperationException();
+        }
+
+        public ASTNode getContents() {
+            return contents;
+        }
+
+        private final ASTNode contents;
+
+        @Override
+        public ASTNode accept(org.kframework.kil.visitors.Transformer transformer) throws TransformerException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void accept(Visitor visitor) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
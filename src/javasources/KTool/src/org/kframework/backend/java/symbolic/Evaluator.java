@@ -21,8 +21,8 @@ public class Evaluator extends CopyOnWriteTransformer {
     }
 
     @Override
-    public ASTNode transform(KItem kItem) {
-        return ((Term) super.transform(kItem)).accept(localEvaluator);
+    protected ASTNode postTransform(Term term, Term transformedTerm) {
+        return term instanceof KItem ? transformedTerm.accept(localEvaluator) : transformedTerm;
     }
 
     @Override
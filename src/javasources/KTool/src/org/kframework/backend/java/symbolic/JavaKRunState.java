@@ -0,0 +1,38 @@
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.Term;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.api.KRunState;
+
+
+/**
+ * A {@link KRunState} of the Java Rewrite Engine which translates its term back to KIL only when
+ * the KIL term is first requested.
+ */
+public class JavaKRunState extends KRunState {
+
+    private final Term term;
+    private org.kframework.kil.Term kilTerm;
+
+    public JavaKRunState(Term term, Context context) {
+        super(null, context);
+        this.term = term;
+    }
+
+    /**
+     * Returns the term of this state in the Java backend representation.
+     */
+    public Term term() {
+        return term;
+    }
+
+    @Override
+    public org.kframework.kil.Term getRawResult() {
+        if (kilTerm == null) {
+            kilTerm = (org.kframework.kil.Term) term.accept(
+                    new BackendJavaKILtoKILTranslation(context));
+        }
+        return kilTerm;
+    }
+
+}
@@ -163,7 +163,9 @@ public class JavaSymbolicBackend extends BasicBackend {
         /* data structure related stuff */
         steps.add(new CompileDataStructures(context));
         steps.add(new Cell2Map(context));
-        steps.add(new DataStructureToLookupUpdate(context));
+        if (!GlobalSettings.acMatching) {
+            steps.add(new DataStructureToLookupUpdate(context));
+        }
 
         if (GlobalSettings.sortedCells) {
             steps.add(new SortCells(context));
@@ -0,0 +1,366 @@
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.unparser.UnparserFilter;
+import org.kframework.compile.utils.RuleCompilerSteps;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.krun.K;
+import org.kframework.krun.api.KRunApiDebugger;
+import org.kframework.krun.api.KRunDebugger;
+import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.SearchResult;
+import org.kframework.krun.api.SearchResults;
+import org.kframework.krun.api.Transition;
+import org.kframework.krun.api.Transition.TransitionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+import edu.uci.ics.jung.graph.util.Pair;
+
+
+/**
+ * Debugger of the Java Rewrite Engine which steps from the live {@link ConstrainedTerm}s of the
+ * explored states, instead of running krun again from a configuration at each step as
+ * {@link KRunApiDebugger} does.
+ * <p>
+ * The search graph is only expanded on demand, and each state is rewritten at most once per
+ * kind of step. The states are translated back to KIL (to {@link KRunState}s) only when they are
+ * requested, e.g. to print them, and the JUNG graph is only updated by {@link #getGraph()}, with
+ * the states and transitions explored since it was last requested.
+ */
+public class JavaSymbolicDebugger implements KRunDebugger {
+
+    private final Definition definition;
+    private final Context context;
+    private final TermContext termContext;
+    private final SymbolicRewriter rewriter;
+
+    /* explored states, indexed by state number, and the number of each state */
+    private final Map<Integer, ConstrainedTerm> terms = new HashMap<Integer, ConstrainedTerm>();
+    private final Map<ConstrainedTerm, Integer> stateNumbers = new HashMap<ConstrainedTerm, Integer>();
+    /* explored transitions, indexed by origin and destination state number */
+    private final Map<Integer, Map<Integer, Transition>> transitions
+            = new HashMap<Integer, Map<Integer, Transition>>();
+    /* the successor of each state by one step ({@code null} for final states) */
+    private final Map<Integer, Integer> nextStates = new HashMap<Integer, Integer>();
+    /* all the successors of each state, as explored by stepAll */
+    private final Map<Integer, List<Integer>> successors = new HashMap<Integer, List<Integer>>();
+
+    /* states translated to KIL so far */
+    private final Map<Integer, KRunState> states = new HashMap<Integer, KRunState>();
+    /* the graph as last returned by getGraph, and the states and transitions explored since */
+    private final DirectedGraph<KRunState, Transition> graph
+            = new DirectedSparseGraph<KRunState, Transition>();
+    private final List<Integer> pendingStates = new ArrayList<Integer>();
+    private final List<Pair<Integer>> pendingTransitions = new ArrayList<Pair<Integer>>();
+
+    private Integer currentState;
+    /* the compiled default search pattern, needed to build the results of stepAll */
+    private RuleCompilerSteps defaultPatternInfo;
+
+    /**
+     * Creates a debugger starting from the given configuration; the current state is the
+     * configuration with its functions evaluated, as after a step of 0 transitions. The states
+     * are rewritten in the given term context, e.g. one sharing the fresh values of a krun session.
+     */
+    public JavaSymbolicDebugger(
+            Definition definition,
+            Context context,
+            TermContext termContext,
+            org.kframework.kil.Term cfg) {
+        this(definition, context, termContext);
+
+        Term term = Term.of(cfg, definition);
+        int initialState = addState(new ConstrainedTerm(term, termContext));
+        int reducedState = addState(new ConstrainedTerm(term.evaluate(termContext), termContext));
+        addTransition(initialState, reducedState, Transition.reduce(context));
+        currentState = reducedState;
+    }
+
+    /**
+     * Creates a debugger exploring the given graph further, e.g. a graph computed by search; no
+     * state is selected.
+     */
+    public JavaSymbolicDebugger(
+            Definition definition,
+            Context context,
+            TermContext termContext,
+            DirectedGraph<KRunState, Transition> graph) {
+        this(definition, context, termContext);
+
+        Map<KRunState, Integer> numbers = new HashMap<KRunState, Integer>();
+        for (KRunState state : graph.getVertices()) {
+            int stateNum = addState(new ConstrainedTerm(
+                    Term.of(state.getRawResult(), definition),
+                    termContext));
+            numbers.put(state, stateNum);
+            if (!states.containsKey(stateNum)) {
+                state.setStateId(stateNum);
+                states.put(stateNum, state);
+            }
+        }
+        for (Transition edge : graph.getEdges()) {
+            Pair<KRunState> endpoints = graph.getEndpoints(edge);
+            addTransition(numbers.get(endpoints.getFirst()), numbers.get(endpoints.getSecond()), edge);
+        }
+        currentState = null;
+    }
+
+    private JavaSymbolicDebugger(Definition definition, Context context, TermContext termContext) {
+        this.definition = definition;
+        this.context = context;
+        this.termContext = termContext;
+        rewriter = new SymbolicRewriter(definition);
+    }
+
+    /**
+     * Returns the number of the given state, numbering it if it has not been explored yet.
+     */
+    private int addState(ConstrainedTerm term) {
+        Integer stateNum = stateNumbers.get(term);
+        if (stateNum == null) {
+            stateNum = K.stateCounter++;
+            stateNumbers.put(term, stateNum);
+            terms.put(stateNum, term);
+            pendingStates.add(stateNum);
+        }
+        return stateNum;
+    }
+
+    private void addTransition(int state1, int state2, Transition transition) {
+        Map<Integer, Transition> outgoing = transitions.get(state1);
+        if (outgoing == null) {
+            outgoing = new LinkedHashMap<Integer, Transition>();
+            transitions.put(state1, outgoing);
+        }
+        Transition existing = outgoing.get(state2);
+        if (existing == null || existing.getType() == TransitionType.UNLABELLED) {
+            outgoing.put(state2, transition);
+            pendingTransitions.add(new Pair<Integer>(state1, state2));
+        }
+    }
+
+    @Override
+    public DirectedGraph<KRunState, Transition> getGraph() {
+        for (Integer stateNum : pendingStates) {
+            graph.addVertex(getState(stateNum));
+        }
+        pendingStates.clear();
+        for (Pair<Integer> endpoints : pendingTransitions) {
+            KRunState first = getState(endpoints.getFirst());
+            KRunState second = getState(endpoints.getSecond());
+            Transition edge = getEdge(endpoints.getFirst(), endpoints.getSecond());
+            Transition existingEdge = graph.findEdge(first, second);
+            if (existingEdge != edge) {
+                if (existingEdge != null) {
+                    graph.removeEdge(existingEdge);
+                }
+                graph.addEdge(edge, first, second);
+            }
+        }
+        pendingTransitions.clear();
+        return graph;
+    }
+
+    @Override
+    public Integer getCurrentState() {
+        return currentState;
+    }
+
+    @Override
+    public void setCurrentState(Integer stateNum) {
+        if (stateNum == null || terms.containsKey(stateNum)) {
+            currentState = stateNum;
+        } else {
+            throw new IllegalArgumentException("Must set current state to a state number already in the graph.");
+        }
+    }
+
+    @Override
+    public KRunState getState(int stateNum) {
+        KRunState state = states.get(stateNum);
+        if (state == null) {
+            ConstrainedTerm term = terms.get(stateNum);
+            if (term == null) {
+                throw new IllegalArgumentException("Selected state does not exist in the graph.");
+            }
+            org.kframework.kil.Term kilTerm = (org.kframework.kil.Term) term.term().accept(
+                    new BackendJavaKILtoKILTranslation(context));
+            state = new KRunState(kilTerm, stateNum, context);
+            states.put(stateNum, state);
+        }
+        return state;
+    }
+
+    @Override
+    public Transition getEdge(int state1, int state2) {
+        Map<Integer, Transition> outgoing = transitions.get(state1);
+        Transition edge = outgoing != null ? outgoing.get(state2) : null;
+        if (edge == null) throw new IllegalArgumentException("Edge between states " + state1 + " and " + state2 + " does not exist");
+        return edge;
+    }
+
+    private void steppingLoop(Integer steps) {
+        if (currentState == null) {
+            throw new IllegalStateException("Cannot step without a current state to step from.");
+        }
+        for (int i = 0; steps == null || i < steps; i++) {
+            Integer nextState;
+            if (nextStates.containsKey(currentState)) {
+                nextState = nextStates.get(currentState);
+            } else {
+                ConstrainedTerm result = rewriter.getOneSuccessor(terms.get(currentState));
+                nextState = result != null ? addState(result) : null;
+                nextStates.put(currentState, nextState);
+                if (nextState != null) {
+                    addTransition(currentState, nextState, Transition.unlabelled(context));
+                }
+            }
+
+            if (nextState == null) {
+                /* we have reached a final state */
+                return;
+            }
+            currentState = nextState;
+        }
+    }
+
+    @Override
+    public void step(int steps) {
+        steppingLoop(steps);
+    }
+
+    @Override
+    public void resume() {
+        steppingLoop(null);
+    }
+
+    @Override
+    public SearchResults stepAll(int steps) {
+        if (currentState == null) {
+            throw new IllegalStateException("Cannot step without a current state to step from.");
+        }
+
+        /* breadth-first search of the states reachable in 1 to steps transitions */
+        DirectedGraph<KRunState, Transition> searchGraph = new DirectedSparseGraph<KRunState, Transition>();
+        searchGraph.addVertex(getState(currentState));
+        Set<Integer> reached = new LinkedHashSet<Integer>();
+        List<Integer> queue = Collections.singletonList(currentState);
+        for (int depth = 0; depth < steps && !queue.isEmpty(); ++depth) {
+            List<Integer> nextQueue = new ArrayList<Integer>();
+            for (Integer stateNum : queue) {
+                for (Integer successor : getSuccessors(stateNum)) {
+                    if (reached.add(successor)) {
+                        nextQueue.add(successor);
+                    }
+                    searchGraph.addEdge(getEdge(stateNum, successor), getState(stateNum), getState(successor));
+                }
+            }
+            queue = nextQueue;
+        }
+
+        if (defaultPatternInfo == null) {
+            defaultPatternInfo = KRunApiDebugger.compileDefaultPattern(context);
+        }
+        List<SearchResult> solutions = new ArrayList<SearchResult>();
+        for (Integer stateNum : reached) {
+            KRunState state = getState(stateNum);
+            solutions.add(new SearchResult(
+                    state,
+                    Collections.singletonMap("B:Bag", state.getRawResult()),
+                    defaultPatternInfo,
+                    context));
+        }
+        currentState = null;
+        /* the graph of the search only, so that the whole graph is not updated at each step */
+        return new SearchResults(solutions, searchGraph, true, context);
+    }
+
+    private List<Integer> getSuccessors(int stateNum) {
+        List<Integer> result = successors.get(stateNum);
+        if (result == null) {
+            result = new ArrayList<Integer>();
+            for (ConstrainedTerm successor : rewriter.getSuccessors(terms.get(stateNum))) {
+                int successorNum = addState(successor);
+                addTransition(stateNum, successorNum, Transition.unlabelled(context));
+                if (!result.contains(successorNum)) {
+                    result.add(successorNum);
+                }
+            }
+            successors.put(stateNum, result);
+        }
+        return result;
+    }
+
+    @Override
+    public String printState(int stateNum) {
+        KRunState state = getState(stateNum);
+        UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
+        state.getResult().accept(unparser);
+        return state.toString() + ":\n" + unparser.getResult();
+    }
+
+    @Override
+    public String printEdge(int state1, int state2) {
+        Transition edge = getEdge(state1, state2);
+        String rule;
+        if (edge.getType() == TransitionType.RULE) {
+            UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
+            edge.getRule().accept(unparser);
+            rule = unparser.getResult();
+        } else if (edge.getType() == TransitionType.LABEL) {
+            rule = "rule [" + edge.getLabel() + "]: ...";
+        } else {
+            rule = "rule ...";
+        }
+
+        return rule + "\n" + printState(state1) + "\n=>\n" + printState(state2);
+    }
+
+    @Override
+    public void readFromStdin(String s) {
+        if (currentState == null) {
+            throw new IllegalStateException("Wrong command: If you previously used the step-all " +
+                "command you must select\nfirst a solution with the select command before " +
+                "executing a read from stdin.");
+        }
+        org.kframework.kil.Term configuration = getState(currentState).getRawResult();
+        KRunApiDebugger.AppendToStdin transformer = new KRunApiDebugger.AppendToStdin(s, context);
+        org.kframework.kil.Term result;
+        try {
+            result = (org.kframework.kil.Term) configuration.accept(transformer);
+        } catch (TransformerException e) {
+            assert false;
+            result = null; //for static purposes
+        }
+        if (!transformer.getSucceeded()) {
+            throw new IllegalStateException("Cannot perform command: Configuration does not " +
+                "have an stdin buffer");
+        }
+
+        int newState = addState(new ConstrainedTerm(Term.of(result, definition), termContext));
+        if (getEdgeOrNull(currentState, newState) == null) {
+            addTransition(currentState, newState, Transition.stdin(s, context));
+        }
+        currentState = newState;
+    }
+
+    private Transition getEdgeOrNull(int state1, int state2) {
+        Map<Integer, Transition> outgoing = transitions.get(state1);
+        return outgoing != null ? outgoing.get(state2) : null;
+    }
+
+}
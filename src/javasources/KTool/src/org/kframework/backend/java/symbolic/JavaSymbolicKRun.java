@@ -7,12 +7,14 @@ import org.kframework.backend.java.kil.ConstrainedTerm;
 import org.kframework.backend.java.kil.Rule;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.compile.transformers.DataStructureToLookupUpdate;
 import org.kframework.compile.utils.MetaK;
 import org.kframework.compile.utils.RuleCompilerSteps;
 //import org.kframework.kil.*;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.krun.K;
 import org.kframework.krun.KRunExecutionException;
 import org.kframework.krun.api.*;
 import org.kframework.krun.api.io.FileSystem;
@@ -24,9 +26,11 @@ import java.util.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
 
 
 /**
@@ -39,25 +43,68 @@ public class JavaSymbolicKRun implements KRun {
     private final Definition definition;
 	private final Context context;
     private final KILtoBackendJavaKILTransformer transformer;
+    /**
+     * The counter generating the fresh values of this krun session, shared by its runs and steps
+     * so that a step of a configuration reached by a previous one does not reuse its values.
+     */
+    private final AtomicLong freshValue = new AtomicLong();
+    /** The per-rule profile of this krun session (krun --profile), also shared by its runs and steps. */
+    private final RuleProfiler profiler;
+
+    /**
+     * Definitions already loaded by this JVM, indexed by kompiled directory; only used when krun
+     * runs several times in the same JVM (see {@link #setReuseDefinitions(boolean)}).
+     */
+    private static final Map<File, Definition> loadedDefinitions = new HashMap<File, Definition>();
+    private static boolean reuseDefinitions = false;
+
+    public static void setReuseDefinitions(boolean reuseDefinitions) {
+        JavaSymbolicKRun.reuseDefinitions = reuseDefinitions;
+    }
 
     public JavaSymbolicKRun(Context context) throws KRunExecutionException {
         /* context is unused for directory paths; the actual context is de-serialized */
-        /* load the definition from a binary file */
-        definition = (Definition) BinaryLoader.load(
-            new File(context.kompiled, JavaSymbolicBackend.DEFINITION_FILENAME).toString());
-
-        if (definition == null) {
-            throw new KRunExecutionException("cannot load definition");
-        }
-
-        /* initialize the builtin function table */
-        BuiltinFunction.init(definition);
+        definition = loadDefinition(context.kompiled);
 
         this.context = definition.context();
         this.context.kompiled = context.kompiled;
         transformer = new KILtoBackendJavaKILTransformer(this.context);
+
+        profiler = new RuleProfiler(K.profile);
 	}
 
+    private static synchronized Definition loadDefinition(File kompiled)
+            throws KRunExecutionException {
+        Definition definition = reuseDefinitions ? loadedDefinitions.get(kompiled) : null;
+        if (definition == null) {
+            /* load the definition from a binary file */
+            definition = (Definition) BinaryLoader.load(
+                new File(kompiled, JavaSymbolicBackend.DEFINITION_FILENAME).toString());
+
+            if (definition == null) {
+                throw new KRunExecutionException("cannot load definition");
+            }
+
+            /* initialize the builtin function table */
+            BuiltinFunction.init(definition);
+
+            if (reuseDefinitions) {
+                loadedDefinitions.put(kompiled, definition);
+            }
+        }
+        return definition;
+    }
+
+    /**
+     * Prints the per-rule profile collected so far and saves it as JSON in the krun directory.
+     */
+    private void printRuleProfile(TermContext termContext) {
+        if (profiler.isEnabled()) {
+            profiler.printReport(termContext);
+            profiler.saveJson(K.krunDir + K.fileSeparator + "rule-profile.json");
+        }
+    }
+
     @Override
     public KRunResult<KRunState> run(org.kframework.kil.Term cfg) throws KRunExecutionException {
         return internalRun(cfg, -1);
@@ -66,10 +113,14 @@ public class JavaSymbolicKRun implements KRun {
     private KRunResult<KRunState> internalRun(org.kframework.kil.Term cfg, int bound) throws KRunExecutionException {
         SymbolicRewriter symbolicRewriter = new SymbolicRewriter(definition);
         Term term = Term.of(cfg, definition);
-        TermContext termContext = new TermContext(definition, new PortableFileSystem());
+        TermContext termContext = new TermContext(definition, new PortableFileSystem(), freshValue, profiler);
         term = term.evaluate(termContext);
         ConstrainedTerm constrainedTerm = new ConstrainedTerm(term, termContext);
         ConstrainedTerm result = symbolicRewriter.rewrite(constrainedTerm, bound);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new KRunExecutionException("Execution interrupted.");
+        }
+        printRuleProfile(termContext);
         org.kframework.kil.Term kilTerm = (org.kframework.kil.Term) result.term().accept(
                 new BackendJavaKILtoKILTranslation(context));
         return new KRunResult<KRunState>(new KRunState(kilTerm, context));
@@ -92,6 +143,7 @@ public class JavaSymbolicKRun implements KRun {
             }
 
             SymbolicRewriter symbolicRewriter = new SymbolicRewriter(definition);
+            TermContext termContext = new TermContext(definition, new PortableFileSystem(), freshValue, profiler);
             for (org.kframework.kil.ModuleItem moduleItem : module.getItems()) {
                 org.kframework.kil.Rule kilRule = (org.kframework.kil.Rule) moduleItem;
                 org.kframework.kil.Term kilLeftHandSide
@@ -109,7 +161,6 @@ public class JavaSymbolicKRun implements KRun {
                                 (org.kframework.kil.Rule) moduleItem.accept(mapTransformer),
                                 definition).variableSet());
 
-                TermContext termContext = new TermContext(definition, new PortableFileSystem());
                 SymbolicConstraint initialConstraint = new SymbolicConstraint(termContext);
                 //initialConstraint.addAll(rule.condition());
                 initialConstraint.add(
@@ -147,6 +198,7 @@ public class JavaSymbolicKRun implements KRun {
 
                 proofResults.addAll(symbolicRewriter.proveRule(initialTerm, targetTerm, rules));
             }
+            printRuleProfile(termContext);
 
             System.err.println(proofResults.isEmpty());
             System.err.println(proofResults);
@@ -167,35 +219,47 @@ public class JavaSymbolicKRun implements KRun {
             org.kframework.kil.Rule pattern,
             org.kframework.kil.Term cfg,
             RuleCompilerSteps compilationInfo) throws KRunExecutionException {
+        return search(bound, depth, searchType, pattern, cfg, compilationInfo, null);
+    }
+
+    @Override
+    public KRunResult<SearchResults> search(
+            final Integer bound,
+            Integer depth,
+            SearchType searchType,
+            org.kframework.kil.Rule pattern,
+            org.kframework.kil.Term cfg,
+            final RuleCompilerSteps compilationInfo,
+            final SearchResultListener listener) throws KRunExecutionException {
 
         SymbolicRewriter symbolicRewriter = new SymbolicRewriter(definition);
         FileSystem fs = new PortableFileSystem();
-        TermContext termContext = new TermContext(definition, fs);
+        TermContext termContext = new TermContext(definition, fs, freshValue, profiler);
         ConstrainedTerm initialTerm = new ConstrainedTerm(Term.of(cfg, definition), termContext);
         ConstrainedTerm targetTerm = new ConstrainedTerm(Term.of(cfg, definition), termContext);
         List<Rule> claims = Collections.emptyList();
-        if (bound == null) {
-            bound = -1;
-        }
         if (depth == null) {
             depth = -1;
         }
 
-        List<SearchResult> searchResults = new ArrayList<SearchResult>();
-        List<ConstrainedTerm> hits = symbolicRewriter.search(initialTerm, targetTerm, claims, bound, depth);
-
-
-        for (ConstrainedTerm result :hits ) {
-
-            org.kframework.kil.Term kilTerm = (org.kframework.kil.Term) result.term().accept(
-                    new BackendJavaKILtoKILTranslation(context));
-
-            searchResults.add(new SearchResult(
-                    new KRunState(kilTerm, context),
-                    Collections.singletonMap("B:Bag", kilTerm),
-                    compilationInfo,
-                    context));
-        }
+        /* the solutions are only translated back to KIL when the listener prints them */
+        final List<SearchResult> searchResults = new ArrayList<SearchResult>();
+        symbolicRewriter.search(initialTerm, targetTerm, claims, depth,
+                new SymbolicRewriter.SearchListener() {
+                    @Override
+                    public boolean resultFound(ConstrainedTerm result) {
+                        SearchResult solution = new SearchResult(
+                                new JavaKRunState(result.term(), context),
+                                compilationInfo,
+                                context);
+                        searchResults.add(solution);
+                        if (listener != null && !listener.solutionFound(solution, true)) {
+                            return false;
+                        }
+                        return bound == null || searchResults.size() != bound;
+                    }
+                });
+        printRuleProfile(termContext);
 
         return new KRunResult<SearchResults>(new SearchResults(
                 searchResults,
@@ -219,7 +283,7 @@ public class JavaSymbolicKRun implements KRun {
         }
         
         SymbolicRewriter symbolicRewriter = new SymbolicRewriter(definition);
-        TermContext termContext = new TermContext(definition, new PortableFileSystem());
+        TermContext termContext = new TermContext(definition, new PortableFileSystem(), freshValue, profiler);
         ConstrainedTerm initCfg = new ConstrainedTerm(Term.of(cfg, definition), termContext);
 
         List<TestGenResult> generatorResults = new ArrayList<TestGenResult>();
@@ -235,6 +299,7 @@ public class JavaSymbolicKRun implements KRun {
             depth = -1;
         }
         List<ConstrainedTerm> resultCfgs = symbolicRewriter.generate(initCfg, null, null, bound, depth);
+        printRuleProfile(termContext);
 
         for (ConstrainedTerm result : resultCfgs) {
             if(result.constraint().substitution().isEmpty()){
@@ -270,7 +335,54 @@ public class JavaSymbolicKRun implements KRun {
     public KRunProofResult<DirectedGraph<KRunState, Transition>> modelCheck(
             org.kframework.kil.Term formula,
             org.kframework.kil.Term cfg) throws KRunExecutionException {
-        throw new UnsupportedBackendOptionException("--ltlmc");
+        LTLModelChecker.checkLtl2ba();
+
+        SymbolicRewriter symbolicRewriter = new SymbolicRewriter(definition);
+        TermContext termContext = new TermContext(definition, new PortableFileSystem(), freshValue, profiler);
+        Term term = Term.of(cfg, definition).evaluate(termContext);
+        ConstrainedTerm initialTerm = new ConstrainedTerm(term, termContext);
+
+        LTLModelChecker modelChecker = new LTLModelChecker(symbolicRewriter, termContext);
+        LTLModelChecker.Counterexample counterexample = modelChecker.check(
+                Term.of(formula, definition),
+                initialTerm);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new KRunExecutionException("Execution interrupted.");
+        }
+        printRuleProfile(termContext);
+
+        if (counterexample == null) {
+            return new KRunProofResult<DirectedGraph<KRunState, Transition>>(true, null);
+        }
+
+        /* build the counterexample graph like the Maude backend: the path, then the cycle */
+        DirectedGraph<KRunState, Transition> graph
+                = new DirectedOrderedSparseMultigraph<KRunState, Transition>();
+        List<LTLModelChecker.State> states = new ArrayList<LTLModelChecker.State>();
+        states.addAll(counterexample.prefix());
+        states.addAll(counterexample.cycle());
+        List<KRunState> vertices = new ArrayList<KRunState>();
+        for (int i = 0; i < states.size(); ++i) {
+            LTLModelChecker.State state = states.get(i);
+            KRunState vertex;
+            if (i < states.size() - 1) {
+                org.kframework.kil.Term kilTerm = (org.kframework.kil.Term) state.term().term()
+                        .accept(new BackendJavaKILtoKILTranslation(context));
+                vertex = new KRunState(kilTerm, context);
+                graph.addVertex(vertex);
+            } else {
+                /* the last state closes the cycle */
+                vertex = vertices.get(counterexample.prefix().size());
+            }
+            if (i > 0) {
+                Transition transition = state.isDeadlock()
+                        ? Transition.deadlock(context) : Transition.unlabelled(context);
+                graph.addEdge(transition, vertices.get(i - 1), vertex);
+            }
+            vertices.add(vertex);
+        }
+
+        return new KRunProofResult<DirectedGraph<KRunState, Transition>>(false, graph);
     }
 
     @Override
@@ -281,12 +393,23 @@ public class JavaSymbolicKRun implements KRun {
 
     @Override
     public KRunDebugger debug(org.kframework.kil.Term cfg) {
-        throw new UnsupportedBackendOptionException("--debug");
+        return new JavaSymbolicDebugger(
+                definition,
+                context,
+                new TermContext(definition, new PortableFileSystem(), freshValue, profiler),
+                cfg);
     }
 
     @Override
     public KRunDebugger debug(DirectedGraph<KRunState, Transition> graph) {
-        throw new UnsupportedBackendOptionException("--debug");
+        if (graph == null) {
+            throw new UnsupportedBackendOptionException("--debug");
+        }
+        return new JavaSymbolicDebugger(
+                definition,
+                context,
+                new TermContext(definition, new PortableFileSystem(), freshValue, profiler),
+                graph);
     }
 
     @Override
@@ -501,14 +501,22 @@ public class KILtoBackendJavaKILTransformer extends CopyOnWriteTransformer {
         Module singletonModule = node.getSingletonModule();
 
         for (org.kframework.kil.Rule rule : singletonModule.getRules()) {
+            /* the atomic propositions of LTL are defined by anywhere rules for _|=Ltl_ */
+            boolean isSatisfactionRule = rule.containsAttribute(Attribute.ANYWHERE.getKey())
+                    && isSatisfactionRule(rule);
             if (!rule.containsAttribute(SymbolicBackend.SYMBOLIC)
                 || rule.containsAttribute(Attribute.PREDICATE.getKey())
-                || rule.containsAttribute(Attribute.ANYWHERE.getKey())) {
+                || (rule.containsAttribute(Attribute.ANYWHERE.getKey()) && !isSatisfactionRule)) {
                 continue;
             }
 
             try {
-                definition.addRule((Rule) rule.accept(this));
+                Rule javaRule = (Rule) rule.accept(this);
+                if (isSatisfactionRule) {
+                    /* applied by the model checker like the rules of a function */
+                    javaRule.addAttribute(Attribute.FUNCTION_KEY, "");
+                }
+                definition.addRule(javaRule);
             } catch (TransformerException e) {
                 System.err.println(rule);
                 System.err.flush();
@@ -531,6 +539,17 @@ public class KILtoBackendJavaKILTransformer extends CopyOnWriteTransformer {
         return definition;
     }
 
+    private static boolean isSatisfactionRule(org.kframework.kil.Rule rule) {
+        if (!(rule.getBody() instanceof org.kframework.kil.Rewrite)) {
+            return false;
+        }
+        org.kframework.kil.Term left = ((org.kframework.kil.Rewrite) rule.getBody()).getLeft();
+        return left instanceof org.kframework.kil.KApp
+                && ((org.kframework.kil.KApp) left).getLabel() instanceof org.kframework.kil.KLabelConstant
+                && ((org.kframework.kil.KLabelConstant) ((org.kframework.kil.KApp) left).getLabel())
+                        .getLabel().equals(LTLModelChecker.SATISFACTION_KLABEL);
+    }
+
     private static void flattenKSequence(
             List<org.kframework.kil.Term> flatList,
             List<org.kframework.kil.Term> nestedList) {
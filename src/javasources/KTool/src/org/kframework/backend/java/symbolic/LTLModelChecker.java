@@ -0,0 +1,415 @@
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.pdmc.pda.buchi.BuchiState;
+import org.kframework.backend.pdmc.pda.buchi.Evaluator;
+import org.kframework.backend.pdmc.pda.buchi.Identifier;
+import org.kframework.backend.pdmc.pda.buchi.PromelaBuchi;
+import org.kframework.backend.pdmc.pda.buchi.parser.ParseException;
+import org.kframework.backend.pdmc.pda.buchi.parser.PromelaBuchiParser;
+import org.kframework.krun.KRunExecutionException;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
+import org.kframework.utils.errorsystem.KException.KExceptionGroup;
+import org.kframework.utils.general.GlobalSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+
+/**
+ * On-the-fly LTL model checker for the Java Rewrite Engine.
+ * <p>
+ * The negation of the formula is translated into a Büchi automaton (a Promela never claim
+ * generated by the external tool {@code ltl2ba}, which must be in the {@code PATH}; see
+ * {@link #checkLtl2ba()} and the INSTALL file). The product
+ * of the automaton with the transition system explored by {@link SymbolicRewriter#search} is
+ * then built on the fly and searched for an accepting cycle by a nested depth-first search.
+ * Deadlocked states loop on themselves, as in the Maude model checker.
+ * <p>
+ * The states of the product are only stored as 64-bit fingerprints of the term and of the state
+ * of the automaton, so a collision (unlikely, but possible) may hide a counterexample. The atomic
+ * propositions are evaluated with the rules of {@code _|=Ltl_} of the definition.
+ */
+public class LTLModelChecker {
+
+    public static final String SATISFACTION_KLABEL = "'_|=Ltl_";
+    public static final String LTL2BA = "ltl2ba";
+
+    private static final Map<String, String> UNARY_OPERATORS = ImmutableMap.of(
+            "'~Ltl_", "!",
+            "'OLtl_", "X",
+            "'<>Ltl_", "<>",
+            "'[]Ltl_", "[]");
+    private static final Map<String, String> BINARY_OPERATORS = ImmutableMap.of(
+            "'_/\\Ltl_", "&&",
+            "'_\\/Ltl_", "||",
+            "'_ULtl_", "U",
+            "'_RLtl_", "V",
+            "'_->Ltl_", "->");
+
+    private static final HashFunction fingerprintFunction = Hashing.murmur3_128();
+
+    /**
+     * A state of the product of the transition system with the Büchi automaton.
+     */
+    public static class State {
+        private final ConstrainedTerm term;
+        private final BuchiState buchiState;
+        private final long fingerprint;
+        private final boolean deadlock;
+
+        private State(ConstrainedTerm term, long termFingerprint, BuchiState buchiState,
+                boolean deadlock) {
+            this.term = term;
+            this.buchiState = buchiState;
+            this.fingerprint = termFingerprint * 31 + buchiState.toString().hashCode();
+            this.deadlock = deadlock;
+        }
+
+        public ConstrainedTerm term() {
+            return term;
+        }
+
+        /**
+         * Returns true iff this state was reached by looping on a deadlocked state.
+         */
+        public boolean isDeadlock() {
+            return deadlock;
+        }
+    }
+
+    /**
+     * A counterexample: a path from the initial state followed by a cycle which is repeated
+     * forever; the last state of the cycle is its first state again.
+     */
+    public static class Counterexample {
+        private final List<State> prefix;
+        private final List<State> cycle;
+
+        private Counterexample(List<State> prefix, List<State> cycle) {
+            this.prefix = prefix;
+            this.cycle = cycle;
+        }
+
+        public List<State> prefix() {
+            return prefix;
+        }
+
+        public List<State> cycle() {
+            return cycle;
+        }
+    }
+
+    private static class Frame {
+        final State state;
+        final Iterator<State> successors;
+
+        Frame(State state, Iterator<State> successors) {
+            this.state = state;
+            this.successors = successors;
+        }
+    }
+
+    private final TermContext context;
+    private final SymbolicRewriter rewriter;
+    private final KLabelConstant satisfaction;
+
+    /* atomic propositions of the formula, named p0, p1, ... in the never claim */
+    private final Map<Term, String> propositionNames = new HashMap<Term, String>();
+    private final Map<String, Term> propositions = new HashMap<String, Term>();
+    private final PropositionEvaluator evaluator = new PropositionEvaluator();
+    private PromelaBuchi automaton;
+
+    private final Set<Long> blueStates = new HashSet<Long>();
+    private final Set<Long> redStates = new HashSet<Long>();
+
+    public LTLModelChecker(SymbolicRewriter rewriter, TermContext context) {
+        this.rewriter = rewriter;
+        this.context = context;
+        satisfaction = KLabelConstant.of(SATISFACTION_KLABEL, context.definition().context());
+    }
+
+    /**
+     * Reports a critical error unless {@code ltl2ba} is found in the {@code PATH}, so that a
+     * missing translator is reported before any rewriting rather than when the formula is
+     * translated.
+     */
+    public static void checkLtl2ba() {
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String directory : path.split(File.pathSeparator)) {
+                for (String name : new String[] { LTL2BA, LTL2BA + ".exe" }) {
+                    File file = new File(directory, name);
+                    if (file.isFile() && file.canExecute()) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        GlobalSettings.kem.register(new KException(ExceptionType.ERROR, KExceptionGroup.CRITICAL,
+                "LTL model checking with the Java backend needs " + LTL2BA + " to translate the"
+                + " formula, but it was not found in the PATH.\n"
+                + "Please install it (see the INSTALL file) or use the Maude backend."));
+    }
+
+    /**
+     * Checks the given formula on all the paths starting from the given term; returns
+     * {@code null} if the formula holds, or a counterexample otherwise.
+     */
+    public Counterexample check(Term formula, ConstrainedTerm initialTerm)
+            throws KRunExecutionException {
+        automaton = getNeverClaim(translate(formula));
+        if (automaton == null) {
+            /* the negation of the formula is unsatisfiable */
+            return null;
+        }
+
+        blueStates.clear();
+        redStates.clear();
+        State initialState = new State(
+                initialTerm,
+                fingerprint(initialTerm),
+                automaton.initialState(),
+                false);
+        Counterexample counterexample = blueSearch(initialState);
+        System.err.println("[" + blueStates.size() + " states, " + redStates.size()
+                + " states in cycle searches]");
+        return counterexample;
+    }
+
+    private Counterexample blueSearch(State initialState) {
+        Deque<Frame> blueStack = new ArrayDeque<Frame>();
+        blueStates.add(initialState.fingerprint);
+        blueStack.push(new Frame(initialState, successors(initialState)));
+        while (!blueStack.isEmpty()) {
+            /* stop early if the thread running krun has been interrupted */
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+
+            Frame frame = blueStack.peek();
+            if (frame.successors.hasNext()) {
+                State successor = frame.successors.next();
+                if (blueStates.add(successor.fingerprint)) {
+                    blueStack.push(new Frame(successor, successors(successor)));
+                }
+            } else {
+                blueStack.pop();
+                /* accepting states are seeds of cycle searches in post-order */
+                if (frame.state.buchiState.isFinal()) {
+                    List<State> cycle = redSearch(frame.state);
+                    if (cycle != null) {
+                        List<State> prefix = new ArrayList<State>();
+                        for (Iterator<Frame> iterator = blueStack.descendingIterator();
+                                iterator.hasNext();) {
+                            prefix.add(iterator.next().state);
+                        }
+                        return new Counterexample(prefix, cycle);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches for a cycle through the given accepting state; returns the states of the cycle,
+     * starting and ending with the given one, or {@code null} if there is none.
+     */
+    private List<State> redSearch(State seed) {
+        Deque<Frame> redStack = new ArrayDeque<Frame>();
+        redStates.add(seed.fingerprint);
+        redStack.push(new Frame(seed, successors(seed)));
+        while (!redStack.isEmpty()) {
+            Frame frame = redStack.peek();
+            if (frame.successors.hasNext()) {
+                State successor = frame.successors.next();
+                if (successor.fingerprint == seed.fingerprint) {
+                    List<State> cycle = new ArrayList<State>();
+                    for (Iterator<Frame> iterator = redStack.descendingIterator();
+                            iterator.hasNext();) {
+                        cycle.add(iterator.next().state);
+                    }
+                    cycle.add(successor);
+                    return cycle;
+                }
+                if (redStates.add(successor.fingerprint)) {
+                    redStack.push(new Frame(successor, successors(successor)));
+                }
+            } else {
+                redStack.pop();
+            }
+        }
+        return null;
+    }
+
+    private Iterator<State> successors(State state) {
+        List<ConstrainedTerm> terms = rewriter.getSuccessors(state.term);
+        boolean deadlock = terms.isEmpty();
+        if (deadlock) {
+            terms = Collections.singletonList(state.term);
+        }
+
+        evaluator.setState(state.term);
+        Set<BuchiState> buchiStates = automaton.getSuccessors(state.buchiState, evaluator);
+        if (buchiStates.isEmpty()) {
+            return Collections.<State>emptyList().iterator();
+        }
+
+        List<State> successors = new ArrayList<State>(terms.size() * buchiStates.size());
+        for (ConstrainedTerm term : terms) {
+            long termFingerprint = fingerprint(term);
+            for (BuchiState buchiState : buchiStates) {
+                successors.add(new State(term, termFingerprint, buchiState, deadlock));
+            }
+        }
+        return successors.iterator();
+    }
+
+    private static long fingerprint(ConstrainedTerm constrainedTerm) {
+        return fingerprintFunction.newHasher()
+                .putString(constrainedTerm.term().toString())
+                .putString(constrainedTerm.constraint().toString())
+                .hash().asLong();
+    }
+
+    /**
+     * Translates the given K LTL formula into the syntax of ltl2ba, naming its atomic
+     * propositions.
+     */
+    private String translate(Term formula) {
+        if (formula instanceof KItem && ((KItem) formula).kLabel() instanceof KLabelConstant) {
+            String label = ((KLabelConstant) ((KItem) formula).kLabel()).label();
+            List<Term> arguments = ((KItem) formula).kList().getItems();
+
+            if (label.equals("'TrueLtl") && arguments.isEmpty()) {
+                return "true";
+            } else if (label.equals("'FalseLtl") && arguments.isEmpty()) {
+                return "false";
+            } else if (UNARY_OPERATORS.containsKey(label) && arguments.size() == 1) {
+                return UNARY_OPERATORS.get(label) + " (" + translate(arguments.get(0)) + ")";
+            } else if (arguments.size() == 2) {
+                String left = translate(arguments.get(0));
+                String right = translate(arguments.get(1));
+                if (BINARY_OPERATORS.containsKey(label)) {
+                    return "(" + left + ") " + BINARY_OPERATORS.get(label) + " (" + right + ")";
+                } else if (label.equals("'_<->Ltl_")) {
+                    return "(" + left + ") <-> (" + right + ")";
+                } else if (label.equals("'_WLtl_")) {
+                    return "((" + left + ") U (" + right + ")) || [] (" + left + ")";
+                } else if (label.equals("'_|->Ltl_")) {
+                    return "[] ((" + left + ") -> <> (" + right + "))";
+                } else if (label.equals("'_=>Ltl_")) {
+                    return "[] ((" + left + ") -> (" + right + "))";
+                } else if (label.equals("'_<=>Ltl_")) {
+                    return "[] ((" + left + ") <-> (" + right + "))";
+                }
+            }
+        }
+
+        /* an atomic proposition */
+        String name = propositionNames.get(formula);
+        if (name == null) {
+            name = "p" + propositions.size();
+            propositionNames.put(formula, name);
+            propositions.put(name, formula);
+        }
+        return name;
+    }
+
+    /**
+     * Runs ltl2ba on the negation of the given formula and parses the never claim; returns
+     * {@code null} if the never claim accepts nothing.
+     */
+    private static PromelaBuchi getNeverClaim(String formula) throws KRunExecutionException {
+        String neverClaim;
+        try {
+            Process process = new ProcessBuilder(LTL2BA, "-f", "!(" + formula + ")").start();
+            InputStream output = process.getInputStream();
+            neverClaim = new String(ByteStreams.toByteArray(output), Charsets.UTF_8);
+            if (process.waitFor() != 0) {
+                throw new KRunExecutionException(LTL2BA + " failed to translate the formula "
+                        + formula);
+            }
+        } catch (IOException e) {
+            throw new KRunExecutionException("cannot run " + LTL2BA
+                    + " to translate the LTL formula; please make sure it is in the PATH", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KRunExecutionException("Execution interrupted.");
+        }
+
+        /* ltl2ba writes the claim of an unsatisfiable formula as a single "false;" state */
+        if (neverClaim.matches("(?s).*:\\s*false;.*")) {
+            return null;
+        }
+
+        try {
+            return PromelaBuchiParser.parse(new ByteArrayInputStream(
+                    neverClaim.getBytes(Charsets.UTF_8)));
+        } catch (ParseException e) {
+            throw new KRunExecutionException("cannot parse the never claim generated by "
+                    + LTL2BA + ":\n" + neverClaim, e);
+        }
+    }
+
+    /**
+     * Evaluates the atomic propositions of the formula in a given state by applying the rules
+     * for {@code _|=Ltl_}; a proposition holds iff they rewrite it to {@code true}.
+     */
+    private class PropositionEvaluator implements Evaluator {
+        private ConstrainedTerm state;
+        private final Map<String, Boolean> values = new HashMap<String, Boolean>();
+
+        @Override
+        public void setState(Object state) {
+            this.state = (ConstrainedTerm) state;
+            values.clear();
+        }
+
+        @Override
+        public boolean evaluate(Identifier id) {
+            Boolean value = values.get(id.toString());
+            if (value == null) {
+                Term proposition = propositions.get(id.toString());
+                assert proposition != null : "unknown atomic proposition " + id;
+
+                KItem kItem = new KItem(
+                        satisfaction,
+                        new KList(ImmutableList.<Term>of(state.term(), proposition)),
+                        context.definition().context());
+                value = kItem.evaluateFunction(context).equals(BoolToken.TRUE);
+                values.put(id.toString(), value);
+            }
+            return value;
+        }
+    }
+
+}
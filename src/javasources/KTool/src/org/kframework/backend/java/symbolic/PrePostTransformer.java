@@ -12,8 +12,6 @@ import org.kframework.backend.java.builtins.UninterpretedToken;
 import org.kframework.backend.java.kil.*;
 import org.kframework.backend.java.kil.Collection;
 import org.kframework.kil.ASTNode;
-import org.kframework.kil.visitors.Visitor;
-import org.kframework.kil.visitors.exceptions.TransformerException;
 
 import java.util.*;
 
@@ -68,15 +66,19 @@ public abstract class PrePostTransformer extends CopyOnWriteTransformer {
     }
 
     @Override
-    public ASTNode transform(Cell cell) {
-        ASTNode astNode = cell.accept(preTransformer);
-        if (astNode instanceof DoneTransforming) {
-            return ((DoneTransforming) astNode).getContents();
+    protected ASTNode preTransform(Term term) {
+        ASTNode astNode = term.accept(preTransformer);
+        assert astNode instanceof DoneTransforming || astNode.getClass() == term.getClass()
+                : "preTransformer should not modify type";
+        return astNode;
+    }
+
+    @Override
+    protected ASTNode postTransform(Term term, Term transformedTerm) {
+        if (term instanceof KSequence && !(transformedTerm instanceof KSequence)) {
+            return transformedTerm;
         }
-        assert astNode instanceof Cell : "preTransformer should not modify type";
-        cell = (Cell) astNode;
-        cell = (Cell) super.transform(cell);
-        return cell.accept(postTransformer);
+        return transformedTerm.accept(postTransformer);
     }
 
     @Override
@@ -113,18 +115,6 @@ public abstract class PrePostTransformer extends CopyOnWriteTransformer {
         return kLabelConstant.accept(postTransformer);
     }
 
-    @Override
-    public ASTNode transform(KLabelFreezer kLabelFreezer) {
-        ASTNode astNode = kLabelFreezer.accept(preTransformer);
-        if (astNode instanceof DoneTransforming) {
-            return ((DoneTransforming) astNode).getContents();
-        }
-        assert astNode instanceof KLabelFreezer : "preTransformer should not modify type";
-        kLabelFreezer = (KLabelFreezer) astNode;
-        kLabelFreezer = (KLabelFreezer) super.transform(kLabelFreezer);
-        return kLabelFreezer.accept(postTransformer);
-    }
-
     @Override
     public ASTNode transform(Hole hole) {
         ASTNode astNode = hole.accept(preTransformer);
@@ -137,30 +127,6 @@ public abstract class PrePostTransformer extends CopyOnWriteTransformer {
         return hole.accept(postTransformer);
     }
 
-    @Override
-    public ASTNode transform(KLabelInjection kLabelInjection) {
-        ASTNode astNode = kLabelInjection.accept(preTransformer);
-        if (astNode instanceof DoneTransforming) {
-            return ((DoneTransforming) astNode).getContents();
-        }
-        assert astNode instanceof KLabelInjection : "preTransformer should not modify type";
-        kLabelInjection = (KLabelInjection) astNode;
-        kLabelInjection = (KLabelInjection) super.transform(kLabelInjection);
-        return kLabelInjection.accept(postTransformer);
-    }
-
-    @Override
-    public ASTNode transform(KItem kItem) {
-        ASTNode astNode = kItem.accept(preTransformer);
-        if (astNode instanceof DoneTransforming) {
-            return ((DoneTransforming) astNode).getContents();
-        }
-        assert astNode instanceof KItem : "preTransformer should not modify type";
-        kItem = (KItem) astNode;
-        kItem = (KItem) super.transform(kItem);
-        return kItem.accept(postTransformer);
-    }
-
     @Override
     public ASTNode transform(Token token) {
         ASTNode astNode = token.accept(preTransformer);
@@ -215,32 +181,6 @@ public abstract class PrePostTransformer extends CopyOnWriteTransformer {
         return kLabel.accept(postTransformer);
     }
 
-    @Override
-    public ASTNode transform(KList kList) {
-        ASTNode astNode = kList.accept(preTransformer);
-        if (astNode instanceof DoneTransforming) {
-            return ((DoneTransforming) astNode).getContents();
-        }
-        assert astNode instanceof KList : "preTransformer should not modify type";
-        kList = (KList) astNode;
-        kList = (KList) super.transform(kList);
-        return kList.accept(postTransformer);
-    }
-
-    @Override
-    public ASTNode transform(KSequence kSequence) {
-        ASTNode astNode = kSequence.accept(preTransformer);
-        if (astNode instanceof DoneTransforming) {
-            return ((DoneTransforming) astNode).getContents();
-        }
-        assert astNode instanceof KSequence : "preTransformer should not modify type";
-        kSequence = (KSequence) astNode;
-        Term t =  (Term) super.transform(kSequence);
-        if (t instanceof KSequence)
-            t = (KSequence) t.accept(postTransformer);
-        return t;
-    }
-
     @Override
     public ASTNode transform(ListLookup listLookup) {
         ASTNode astNode = listLookup.accept(preTransformer);
@@ -395,31 +335,4 @@ public abstract class PrePostTransformer extends CopyOnWriteTransformer {
         variable = (Variable) super.transform(variable);
         return variable.accept(postTransformer);
     }
-
-    protected class DoneTransforming extends ASTNode {
-        public DoneTransforming(ASTNode node) {
-            contents = node;
-        }
-
-        @Override
-        public ASTNode shallowCopy() {
-            throw new UnsupportedOperationException();
-        }
-
-        public ASTNode getContents() {
-            return contents;
-        }
-
-        private final ASTNode contents;
-
-        @Override
-        public ASTNode accept(org.kframework.kil.visitors.Transformer transformer) throws TransformerException {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public void accept(Visitor visitor) {
-            throw new UnsupportedOperationException();
-        }
-    }
 }
@@ -5,17 +5,37 @@ import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.Int32Token;
 import org.kframework.backend.java.builtins.UninterpretedToken;
 import org.kframework.backend.java.kil.*;
+import org.kframework.utils.TraversalStack;
 
+import java.util.List;
 import java.util.Map;
 
 
 /**
  * A bottom-up implementation of the visitor pattern.
+ * <p>
+ * The children of a node are visited from an explicit {@link TraversalStack} rather than
+ * by recursive calls, so deep terms do not overflow the Java stack; the order in which
+ * nodes are pre- and post-visited is the same as in a recursive traversal.
  *
  * @author Traian
  */
 public class PrePostVisitor implements Visitor {
 
+    private static final int VISIT = 0;
+    private static final int POST_VISIT = 1;
+
+    private final TraversalStack stack = new TraversalStack(new TraversalStack.Handler() {
+        @Override
+        public void handle(Object node, int action) {
+            if (action == VISIT) {
+                ((Visitable) node).accept(PrePostVisitor.this);
+            } else {
+                ((Visitable) node).accept(postVisitor);
+            }
+        }
+    });
+
     public CombinedLocalVisitor getPreVisitor() {
         return preVisitor;
     }
@@ -45,14 +65,16 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         builtinMap.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(builtinMap);
         for (Map.Entry<Term, Term> entry : builtinMap.getEntries().entrySet()) {
-            entry.getKey().accept(this);
-            entry.getValue().accept(this);
+            stack.push(entry.getKey(), VISIT);
+            stack.push(entry.getValue(), VISIT);
         }
         if (builtinMap.hasFrame()) {
-            builtinMap.frame().accept(this);
+            stack.push(builtinMap.frame(), VISIT);
         }
-        builtinMap.accept(postVisitor);
+        stack.push(builtinMap, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -60,13 +82,15 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         builtinSet.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(builtinSet);
         for (Term term : builtinSet.elements()) {
-            term.accept(this);
+            stack.push(term, VISIT);
         }
         if (builtinSet.hasFrame()) {
-            builtinSet.frame().accept(this);
+            stack.push(builtinSet.frame(), VISIT);
         }
-        builtinSet.accept(postVisitor);
+        stack.push(builtinSet, POST_VISIT);
+        stack.end();
     }
 
     @Override public void visit(Term term) {
@@ -81,8 +105,10 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         cell.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        cell.getContent().accept(this);
-        cell.accept(postVisitor);
+        stack.begin(cell);
+        stack.push(cell.getContent(), VISIT);
+        stack.push(cell, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -90,13 +116,15 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         cellCollection.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(cellCollection);
         for (Cell cell : cellCollection.cells()) {
-            cell.accept(this);
+            stack.push(cell, VISIT);
         }
         if (cellCollection.hasFrame()) {
-            cellCollection.frame().accept(this);
+            stack.push(cellCollection.frame(), VISIT);
         }
-        cellCollection.accept(postVisitor);
+        stack.push(cellCollection, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -104,10 +132,12 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         collection.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(collection);
         if (collection.hasFrame()) {
-            collection.frame().accept(this);
+            stack.push(collection.frame(), VISIT);
         }
-        collection.accept(postVisitor);
+        stack.push(collection, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -131,8 +161,10 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         kLabelFreezer.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        kLabelFreezer.term().accept(this);
-        kLabelFreezer.accept(postVisitor);
+        stack.begin(kLabelFreezer);
+        stack.push(kLabelFreezer.term(), VISIT);
+        stack.push(kLabelFreezer, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -140,8 +172,10 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         kLabelInjection.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        kLabelInjection.term().accept(this);
-        kLabelInjection.accept(postVisitor);
+        stack.begin(kLabelInjection);
+        stack.push(kLabelInjection.term(), VISIT);
+        stack.push(kLabelInjection, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -149,9 +183,11 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         kItem.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        kItem.kLabel().accept(this);
-        kItem.kList().accept(this);
-        kItem.accept(postVisitor);
+        stack.begin(kItem);
+        stack.push(kItem.kLabel(), VISIT);
+        stack.push(kItem.kList(), VISIT);
+        stack.push(kItem, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -167,13 +203,15 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         uninterpretedConstraint.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(uninterpretedConstraint);
 
         for (UninterpretedConstraint.Equality equality : uninterpretedConstraint.equalities()) {
-            equality.leftHandSide().accept(this);
-            equality.rightHandSide().accept(this);
+            stack.push(equality.leftHandSide(), VISIT);
+            stack.push(equality.rightHandSide(), VISIT);
         }
 
-        uninterpretedConstraint.accept(postVisitor);
+        stack.push(uninterpretedConstraint, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -213,12 +251,15 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         kCollection.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        for (Term term : kCollection) {
-            term.accept(this);
+        stack.begin(kCollection);
+        List<Term> items = kCollection.getItems();
+        for (int index = 0; index < items.size(); ++index) {
+            stack.push(items.get(index), VISIT);
         }
         if (kCollection.hasFrame())
-            kCollection.frame().accept(this);
-        kCollection.accept(postVisitor);
+            stack.push(kCollection.frame(), VISIT);
+        stack.push(kCollection, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -226,12 +267,14 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         kCollectionFragment.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(kCollectionFragment);
         for (Term term : kCollectionFragment) {
-            term.accept(this);
+            stack.push(term, VISIT);
         }
         if (kCollectionFragment.hasFrame())
-            kCollectionFragment.frame().accept(this);
-        kCollectionFragment.accept(postVisitor);
+            stack.push(kCollectionFragment.frame(), VISIT);
+        stack.push(kCollectionFragment, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -257,9 +300,11 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         mapLookup.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        mapLookup.map().accept(this);
-        mapLookup.key().accept(this);
-        mapLookup.accept(postVisitor);
+        stack.begin(mapLookup);
+        stack.push(mapLookup.map(), VISIT);
+        stack.push(mapLookup.key(), VISIT);
+        stack.push(mapLookup, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -267,15 +312,17 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         mapUpdate.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        mapUpdate.map().accept(this);
+        stack.begin(mapUpdate);
+        stack.push(mapUpdate.map(), VISIT);
         for (Term key : mapUpdate.removeSet()) {
-            key.accept(this);
+            stack.push(key, VISIT);
         }
         for (Map.Entry<Term, Term> entry : mapUpdate.updateMap().entrySet()) {
-            entry.getKey().accept(this);
-            entry.getValue().accept(this);
+            stack.push(entry.getKey(), VISIT);
+            stack.push(entry.getValue(), VISIT);
         }
-        mapUpdate.accept(postVisitor);
+        stack.push(mapUpdate, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -283,9 +330,11 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         setLookup.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        setLookup.base().accept(this);
-        setLookup.key().accept(this);
-        setLookup.accept(postVisitor);
+        stack.begin(setLookup);
+        stack.push(setLookup.base(), VISIT);
+        stack.push(setLookup.key(), VISIT);
+        stack.push(setLookup, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -293,11 +342,13 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         setUpdate.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        setUpdate.base().accept(this);
+        stack.begin(setUpdate);
+        stack.push(setUpdate.base(), VISIT);
         for (Term key : setUpdate.removeSet()) {
-            key.accept(this);
+            stack.push(key, VISIT);
         }
-        setUpdate.accept(postVisitor);
+        stack.push(setUpdate, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -310,16 +361,18 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         rule.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        rule.leftHandSide().accept(this);
-        rule.rightHandSide().accept(this);
-        rule.lookups().accept(this);
+        stack.begin(rule);
+        stack.push(rule.leftHandSide(), VISIT);
+        stack.push(rule.rightHandSide(), VISIT);
+        stack.push(rule.lookups(), VISIT);
         for (Term term : rule.condition()) {
-            term.accept(this);
+            stack.push(term, VISIT);
         }
         for (Variable variable : rule.freshVariables()) {
-            variable.accept(this);
+            stack.push(variable, VISIT);
         }
-        rule.accept(postVisitor);
+        stack.push(rule, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -327,15 +380,17 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         node.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
+        stack.begin(node);
         for (Map.Entry<Variable, Term> entry : node.substitution().entrySet()) {
-            entry.getKey().accept(this);
-            entry.getValue().accept(this);
+            stack.push(entry.getKey(), VISIT);
+            stack.push(entry.getValue(), VISIT);
         }
         for (SymbolicConstraint.Equality equality : node.equalities()) {
-            equality.leftHandSide().accept(this);
-            equality.rightHandSide().accept(this);
+            stack.push(equality.leftHandSide(), VISIT);
+            stack.push(equality.rightHandSide(), VISIT);
         }
-        node.accept(postVisitor);
+        stack.push(node, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -348,9 +403,11 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         node.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        node.list().accept(this);
-        node.key().accept(this);
-        node.accept(postVisitor);
+        stack.begin(node);
+        stack.push(node.list(), VISIT);
+        stack.push(node.key(), VISIT);
+        stack.push(node, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -359,10 +416,12 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         node.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        node.term().accept(this);
-        node.lookups().accept(this);
-        node.constraint().accept(this);
-        node.accept(postVisitor);
+        stack.begin(node);
+        stack.push(node.term(), VISIT);
+        stack.push(node.lookups(), VISIT);
+        stack.push(node.constraint(), VISIT);
+        stack.push(node, POST_VISIT);
+        stack.end();
     }
 
     @Override
@@ -370,10 +429,12 @@ public class PrePostVisitor implements Visitor {
         preVisitor.resetProceed();
         node.accept(preVisitor);
         if (!preVisitor.isProceed()) return;
-        if (node.hasFrame()) node.frame().accept(this);
-        for (Term t : node.elementsLeft()) t.accept(this);
-        for (Term t : node.elementsRight()) t.accept(this);
-        node.accept(postVisitor);
+        stack.begin(node);
+        if (node.hasFrame()) stack.push(node.frame(), VISIT);
+        for (Term t : node.elementsLeft()) stack.push(t, VISIT);
+        for (Term t : node.elementsRight()) stack.push(t, VISIT);
+        stack.push(node, POST_VISIT);
+        stack.end();
     }
 
 }
@@ -21,7 +21,8 @@ import com.google.common.base.Stopwatch;
  */
 public class StepRewriter {
 
-    private final Definition definition;
+    /* the context of the terms rewritten by matching; keeps the fresh value counter */
+    private final TermContext context;
     private final Collection<Rule> rules;
     private final Stopwatch stopwatch = new Stopwatch();
     private Collection<ConstrainedTerm> constrainedTermResults = new ArrayList<ConstrainedTerm>();
@@ -30,7 +31,7 @@ public class StepRewriter {
 
     public StepRewriter(Collection<Rule> rules, Definition definition) {
         this.rules = rules;
-        this.definition = definition;
+        this.context = new TermContext(definition);
     }
 
     public Collection<Term> getAllSuccessors(Term term) {
@@ -77,7 +78,7 @@ public class StepRewriter {
             constrainedTerm.termContext());
         leftHandSideConstraint.addAll(rule.condition());
         for (Variable variable : rule.freshVariables()) {
-            leftHandSideConstraint.add(variable, IntToken.fresh());
+            leftHandSideConstraint.add(variable, IntToken.fresh(constrainedTerm.termContext()));
         }
 
         ConstrainedTerm leftHandSide = new ConstrainedTerm(
@@ -115,13 +116,12 @@ public class StepRewriter {
 
         constrainedTermResults = new ArrayList<ConstrainedTerm>();
 
-        TermContext context = new TermContext(definition);
         ConstrainedTerm constrainedTerm = new ConstrainedTerm(term, context);
 
         SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(context);
         leftHandSideConstraint.addAll(rule.condition());
         for (Variable variable : rule.freshVariables()) {
-            leftHandSideConstraint.add(variable, IntToken.fresh());
+            leftHandSideConstraint.add(variable, IntToken.fresh(context));
         }
 
         ConstrainedTerm leftHandSide = new ConstrainedTerm(
@@ -0,0 +1,170 @@
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.kil.*;
+import org.kframework.kil.ASTNode;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+
+
+/**
+ * Substitutes variables with terms according to a given substitution map and evaluates pending
+ * functions and predicates in a single bottom-up pass, using a copy-on-write strategy.
+ * <p>
+ * Subterms which contain neither variables nor pending operations are returned without being
+ * traversed (the information is cached on each term), and a node is only copied if one of its
+ * children changed. Unlike {@link SubstitutionTransformer}, the variable sets of the new nodes
+ * are not recomputed eagerly, and the terms of the substitution are not traversed: only their
+ * top is evaluated.
+ * <p>
+ * The substitution is either a map, or an array of terms indexed by the ordinals of the
+ * variables of a rule (see {@link Variable#ordinal()}).
+ */
+public class SubstituteAndEvaluateTransformer extends CopyOnWriteTransformer {
+
+    private final Map<Variable, ? extends Term> substitution;
+    private final Variable[] variables;
+    private final Term[] terms;
+    private final Transformer localEvaluator;
+
+    public SubstituteAndEvaluateTransformer(
+            Map<Variable, ? extends Term> substitution,
+            TermContext context) {
+        super(context);
+        this.substitution = substitution;
+        this.variables = null;
+        this.terms = null;
+        localEvaluator = new LocalEvaluator(context);
+    }
+
+    /**
+     * Substitutes each variable {@code variables[i]} with {@code terms[i]}; every variable
+     * occurring in the transformed term must be in {@code variables} at the index given by its
+     * ordinal.
+     */
+    public SubstituteAndEvaluateTransformer(
+            Variable[] variables,
+            Term[] terms,
+            TermContext context) {
+        super(context);
+        this.substitution = null;
+        this.variables = variables;
+        this.terms = terms;
+        localEvaluator = new LocalEvaluator(context);
+    }
+
+    private Term get(Variable variable) {
+        if (substitution != null) {
+            return substitution.get(variable);
+        }
+
+        int ordinal = variable.ordinal();
+        assert ordinal >= 0 && ordinal < variables.length && variable.equals(variables[ordinal])
+                : "variable " + variable + " is not numbered consistently";
+        return terms[ordinal];
+    }
+
+    /**
+     * Returns {@code true} if the transformation leaves the given term unchanged.
+     */
+    private static boolean isDone(Term term) {
+        return term.isGround() && !term.hasPendingOperations();
+    }
+
+    @Override
+    public ASTNode transform(Variable variable) {
+        Term term = get(variable);
+        if (term == null) {
+            return variable;
+        }
+
+        if (term instanceof KCollectionFragment) {
+            KCollectionFragment fragment = (KCollectionFragment) term;
+            ImmutableList.Builder<Term> builder = new ImmutableList.Builder<Term>();
+            builder.addAll(fragment);
+
+            if (fragment.hasFrame()) {
+                return new KSequence(builder.build(), fragment.frame());
+            } else {
+                return new KSequence(builder.build());
+            }
+        }
+
+        return term.accept(localEvaluator);
+    }
+
+    @Override
+    protected ASTNode preTransform(Term term) {
+        assert !(term instanceof KList) || !((KList) term).hasFrame()
+                : "only KList with a fixed number of elements is supported";
+
+        return isDone(term) ? null : term;
+    }
+
+    @Override
+    protected ASTNode postTransform(Term term, Term transformedTerm) {
+        return term instanceof KItem ? transformedTerm.accept(localEvaluator) : transformedTerm;
+    }
+
+    @Override
+    public ASTNode transform(CellCollection cellCollection) {
+        return isDone(cellCollection) ? cellCollection : super.transform(cellCollection);
+    }
+
+    @Override
+    public ASTNode transform(BuiltinList builtinList) {
+        return isDone(builtinList) ? builtinList : super.transform(builtinList);
+    }
+
+    @Override
+    public ASTNode transform(BuiltinMap builtinMap) {
+        return isDone(builtinMap) ? builtinMap : super.transform(builtinMap);
+    }
+
+    @Override
+    public ASTNode transform(BuiltinSet builtinSet) {
+        return isDone(builtinSet) ? builtinSet : super.transform(builtinSet);
+    }
+
+    @Override
+    public ASTNode transform(ListLookup listLookup) {
+        if (isDone(listLookup)) {
+            return listLookup;
+        }
+        return ((Term) super.transform(listLookup)).accept(localEvaluator);
+    }
+
+    @Override
+    public ASTNode transform(MapLookup mapLookup) {
+        if (isDone(mapLookup)) {
+            return mapLookup;
+        }
+        return ((Term) super.transform(mapLookup)).accept(localEvaluator);
+    }
+
+    @Override
+    public ASTNode transform(MapUpdate mapUpdate) {
+        if (isDone(mapUpdate)) {
+            return mapUpdate;
+        }
+        return ((Term) super.transform(mapUpdate)).accept(localEvaluator);
+    }
+
+    @Override
+    public ASTNode transform(SetLookup setLookup) {
+        if (isDone(setLookup)) {
+            return setLookup;
+        }
+        return ((Term) super.transform(setLookup)).accept(localEvaluator);
+    }
+
+    @Override
+    public ASTNode transform(SetUpdate setUpdate) {
+        if (isDone(setUpdate)) {
+            return setUpdate;
+        }
+        return ((Term) super.transform(setUpdate)).accept(localEvaluator);
+    }
+
+}
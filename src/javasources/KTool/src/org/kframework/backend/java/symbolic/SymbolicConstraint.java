@@ -19,6 +19,7 @@ import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.kil.Z3Term;
 import org.kframework.backend.java.util.GappaPrinter;
 import org.kframework.backend.java.util.GappaServer;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.backend.java.util.Z3Wrapper;
 import org.kframework.kil.ASTNode;
 
@@ -54,6 +55,14 @@ public class SymbolicConstraint extends JavaSymbolicObject {
         private Term leftHandSide;
         private Term rightHandSide;
 
+        /* bookkeeping of normalize(): the order in which the equality was created, the variables
+         * under which it is indexed in equalityOccurrences, and its state */
+        private final int order;
+        private Set<Variable> indexedVariables = Collections.emptySet();
+        private boolean evaluated = false;
+        private boolean queued = false;
+        private boolean removed = false;
+
         private Equality(Term leftHandSide, Term rightHandSide) {
             if (leftHandSide instanceof Bottom) rightHandSide = leftHandSide;
             if (rightHandSide instanceof Bottom) leftHandSide = rightHandSide;
@@ -75,6 +84,7 @@ public class SymbolicConstraint extends JavaSymbolicObject {
 
             this.leftHandSide = leftHandSide;
             this.rightHandSide = rightHandSide;
+            this.order = equalityCounter++;
         }
 
         public Equality evaluate() {
@@ -150,8 +160,24 @@ public class SymbolicConstraint extends JavaSymbolicObject {
             return this;
         }
 
-        private Equality substitute(Variable variable, Term term) {
-            return substitute(Collections.singletonMap(variable, term));
+        /**
+         * Applies the substitution and evaluates the sides which have changed.
+         */
+        private void substituteAndEvaluate(Map<Variable, ? extends Term> substitution) {
+            Term term = leftHandSide.substitute(substitution, context);
+            if (term != leftHandSide) {
+                leftHandSide = term.evaluate(context);
+            }
+            term = rightHandSide.substitute(substitution, context);
+            if (term != rightHandSide) {
+                rightHandSide = term.evaluate(context);
+            }
+        }
+
+        private Set<Variable> variableSet() {
+            Set<Variable> variableSet = new HashSet<Variable>(leftHandSide.variableSet());
+            variableSet.addAll(rightHandSide.variableSet());
+            return variableSet;
         }
 
         @Override
@@ -168,8 +194,14 @@ public class SymbolicConstraint extends JavaSymbolicObject {
             return leftHandSide.equals(equality.leftHandSide)
                    && rightHandSide.equals(equality.rightHandSide);
         }
-        
-        // TODO(YilongL): method hashCode needs to be overriden?
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            hash = hash * Utils.HASH_PRIME + leftHandSide.hashCode();
+            hash = hash * Utils.HASH_PRIME + rightHandSide.hashCode();
+            return hash;
+        }
 
         @Override
         public String toString() {
@@ -189,10 +221,12 @@ public class SymbolicConstraint extends JavaSymbolicObject {
      * 
      * @see SymbolicConstraint#substitution
      */
-    private final LinkedList<Equality> equalities = new LinkedList<Equality>();
-    
+    private final ArrayList<Equality> equalities = new ArrayList<Equality>();
+
     /**
-     * Specifies if this symbolic constraint is in normal form.
+     * Stores the equalities which have been added or changed since they were last checked by
+     * {@link SymbolicConstraint#normalize()}; this symbolic constraint is in normal form iff
+     * there are none.
      * <p>
      * <br>
      * A symbolic constraint is normal iff:
@@ -201,8 +235,31 @@ public class SymbolicConstraint extends JavaSymbolicObject {
      * <li>equalities between variables and terms are stored in
      * {@code substitution} rather than {@code equalities}.
      */
-    private boolean isNormal;
-    
+    private final Deque<Equality> pendingEqualities = new ArrayDeque<Equality>();
+
+    /**
+     * Maps each variable to the equalities in which it occurs (or used to occur), so that
+     * binding a variable only touches these equalities. The sets are identity-based because
+     * equalities are mutable.
+     */
+    private final Map<Variable, Set<Equality>> equalityOccurrences
+            = new HashMap<Variable, Set<Equality>>();
+
+    /**
+     * Maps each variable to the keys of {@code substitution} whose values contain it.
+     */
+    private final Map<Variable, Set<Variable>> substitutionOccurrences
+            = new HashMap<Variable, Set<Variable>>();
+
+    private int equalityCounter = 0;
+
+    private static final Comparator<Equality> CREATION_ORDER = new Comparator<Equality>() {
+        @Override
+        public int compare(Equality equality1, Equality equality2) {
+            return Integer.compare(equality1.order, equality2.order);
+        }
+    };
+
     /**
      * Stores special equalities whose left-hand sides are just variables.
      * <p>
@@ -221,7 +278,6 @@ public class SymbolicConstraint extends JavaSymbolicObject {
         this.definition = context.definition();
         unifier = new SymbolicUnifier(this, context);
         truthValue = TruthValue.TRUE;
-        isNormal = true;
     }
     
     /**
@@ -257,10 +313,12 @@ public class SymbolicConstraint extends JavaSymbolicObject {
         Equality equality = this.new Equality(normalizedLeftHandSide, normalizedRightHandSide);
         if (equality.isUnknown()){
             equalities.add(equality);
+            index(equality);
+            enqueue(equality);
             truthValue = TruthValue.UNKNOWN;
-            isNormal = false;
         } else if (equality.isFalse()) {
             equalities.add(equality);
+            index(equality);
             truthValue = TruthValue.FALSE;
         }
 
@@ -310,6 +368,7 @@ public class SymbolicConstraint extends JavaSymbolicObject {
 
         normalize();
         Boolean result = false;
+        context.profiler().enterPhase(RuleProfiler.Phase.SMT);
         try {
             com.microsoft.z3.Context context = Z3Wrapper.newContext();
             KILtoZ3 transformer = new KILtoZ3(Collections.<Variable>emptySet(), context);
@@ -326,6 +385,8 @@ public class SymbolicConstraint extends JavaSymbolicObject {
         } catch (RuntimeException e) {
             // TODO(AndreiS): fix this translation and the exceptions
             e.printStackTrace();
+        } finally {
+            context.profiler().exit();
         }
         return result;
     }
@@ -355,9 +416,10 @@ public class SymbolicConstraint extends JavaSymbolicObject {
      * longer needed at the end of a rewrite step.
      */
     public void eliminateAnonymousVariables() {
-        for (Iterator<Variable> iterator = substitution.keySet().iterator(); iterator.hasNext();) {
-            Variable variable = iterator.next();
-            if (variable.isAnonymous()) {
+        for (Iterator<Map.Entry<Variable, Term>> iterator = substitution.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<Variable, Term> entry = iterator.next();
+            if (entry.getKey().isAnonymous()) {
+                unindexSubstitutionEntry(entry.getKey(), entry.getValue());
                 iterator.remove();
             }
         }
@@ -402,6 +464,7 @@ public class SymbolicConstraint extends JavaSymbolicObject {
             Set<Variable> rightHandSideVariables = new HashSet<Variable>(constraint.variableSet());
             rightHandSideVariables.removeAll(variableSet());
 
+            context.profiler().enterPhase(RuleProfiler.Phase.SMT);
             try {
                 com.microsoft.z3.Context context = Z3Wrapper.newContext();
                 KILtoZ3 transformer = new KILtoZ3(rightHandSideVariables, context);
@@ -470,6 +533,8 @@ public class SymbolicConstraint extends JavaSymbolicObject {
                 context.Dispose();
             } catch (Z3Exception e) {
                 e.printStackTrace();
+            } finally {
+                context.profiler().exit();
             }
         }
         return result;
@@ -496,24 +561,44 @@ public class SymbolicConstraint extends JavaSymbolicObject {
     }
 
     /**
-     * TODO(YilongL):Gets solutions to this symbolic constraint?
-     * @return
+     * Returns the solutions of this symbolic constraint: one symbolic constraint for each way of
+     * choosing a disjunct from every disjunction produced by unification (e.g. the ways of
+     * matching a map pattern with symbolic keys, or of selecting cells with multiplicity '*').
      */
     public Collection<SymbolicConstraint> getMultiConstraints() {
         if (!unifier.multiConstraints.isEmpty()) {
-            assert unifier.multiConstraints.size() == 1;
-
-            List<SymbolicConstraint> multiConstraints = new ArrayList<SymbolicConstraint>();
-            for (SymbolicConstraint constraint : unifier.multiConstraints.iterator().next()) {
-                constraint.addAll(this);
-                multiConstraints.add(constraint);
-            }
-            return multiConstraints;
+            return crossProduct(this, unifier.multiConstraints, context);
         } else {
             return Collections.singletonList(this);
         }
     }
 
+    /**
+     * Returns the conjunctions of the given symbolic constraint with one disjunct of each of the
+     * given disjunctions, except the ones which are false.
+     */
+    static List<SymbolicConstraint> crossProduct(
+            SymbolicConstraint constraint,
+            Collection<? extends Collection<SymbolicConstraint>> disjunctions,
+            TermContext context) {
+        List<SymbolicConstraint> products = Collections.singletonList(constraint);
+        for (Collection<SymbolicConstraint> disjunction : disjunctions) {
+            List<SymbolicConstraint> nextProducts = new ArrayList<SymbolicConstraint>();
+            for (SymbolicConstraint product : products) {
+                for (SymbolicConstraint disjunct : disjunction) {
+                    SymbolicConstraint nextProduct = new SymbolicConstraint(context);
+                    nextProduct.addAll(disjunct);
+                    nextProduct.addAll(product);
+                    if (!nextProduct.isFalse()) {
+                        nextProducts.add(nextProduct);
+                    }
+                }
+            }
+            products = nextProducts;
+        }
+        return products;
+    }
+
     /**
      * Simplifies this symbolic constraint as much as possible. Decomposes large
      * equalities into small ones using unification.
@@ -528,47 +613,63 @@ public class SymbolicConstraint extends JavaSymbolicObject {
             change = false;
             normalize();
 
-            for (int i = 0; i < equalities.size(); ++i) {
-                Equality equality = equalities.get(i);
+            List<Equality> decomposableEqualities = new ArrayList<Equality>();
+            for (Equality equality : equalities) {
                 if (!equality.leftHandSide.isSymbolic() && !equality.rightHandSide.isSymbolic()) {
-                    // if both sides of the equality could be further
-                    // decomposed, unify them
-                    equalities.remove(i);
-                    i--;
-                    if (!unifier.unify(equality)) {
-                        truthValue = TruthValue.FALSE;
-                        break label;
-                    }
+                    decomposableEqualities.add(equality);
+                }
+            }
 
-                    change = true;
+            for (Equality equality : decomposableEqualities) {
+                // if both sides of the equality could be further
+                // decomposed, unify them
+                remove(equality);
+                if (!unifier.unify(equality)) {
+                    truthValue = TruthValue.FALSE;
+                    break label;
                 }
+
+                change = true;
             }
+            compactEqualities();
         } while (change);
+        compactEqualities();
 
         return truthValue;
     }
 
     /**
      * Converts this symbolic constraint back to normal form.
+     * <p>
+     * <br>
+     * Only the pending equalities are checked. Binding a variable applies the binding to the
+     * equalities and substitution entries in which the variable occurs, found through
+     * {@code equalityOccurrences} and {@code substitutionOccurrences}, and makes the changed
+     * equalities pending again; the other equalities are left untouched.
      */
     private void normalize() {
-        if (isNormal) {
-            return;
-        }
-        isNormal = true;
-        Set<Equality> equalitiesToRemove = new HashSet<Equality>();
-        for (Iterator<Equality> iterator = equalities.iterator(); iterator.hasNext();) {
-            Equality equality = iterator.next();
-            equality.substitute(substitution);
-            //TODO(AndreiS): Only evaluate if the term has changed
-            equality.evaluate();
+        while (!pendingEqualities.isEmpty()) {
+            Equality equality = pendingEqualities.poll();
+            equality.queued = false;
+            if (equality.removed) {
+                continue;
+            }
+
+            if (!equality.evaluated) {
+                equality.evaluate();
+                equality.evaluated = true;
+            }
 
             if (equality.isTrue()) {
-                equalitiesToRemove.add(equality);
+                remove(equality);
                 continue;
             } else if (equality.isFalse()) {
                 truthValue = TruthValue.FALSE;
-                return;
+                for (Equality pendingEquality : pendingEqualities) {
+                    pendingEquality.queued = false;
+                }
+                pendingEqualities.clear();
+                break;
             }
 
             Variable variable;
@@ -594,35 +695,144 @@ public class SymbolicConstraint extends JavaSymbolicObject {
                 continue;
             }
 
-            Map<Variable, Term> tempSubstitution = new HashMap<Variable, Term>();
-            tempSubstitution.put(variable, term);
+            remove(equality);
+            bind(variable, term);
+        }
+        compactEqualities();
+    }
 
-            SymbolicConstraint.compose(substitution, tempSubstitution, context);
-            substitution.put(variable, term);
+    /**
+     * Adds the binding of a variable (which does not occur in this symbolic constraint's
+     * substitution) to a term to the substitution, and applies it to the substitution entries
+     * and the equalities in which the variable occurs.
+     */
+    private void bind(Variable variable, Term term) {
+        Map<Variable, Term> binding = Collections.singletonMap(variable, term);
+
+        /* compose the substitution with the new binding */
+        Set<Variable> keys = substitutionOccurrences.remove(variable);
+        if (keys != null) {
+            for (Variable key : keys) {
+                Term value = substitution.get(key);
+                if (value == null) {
+                    continue;
+                }
+                /* a variable bound to the variable is simply rebound to the term */
+                substitution.put(key, value == variable ? term : value.substitute(binding, context));
+                indexSubstitutionEntry(key, term);
+            }
+        }
+        substitution.put(variable, term);
+        indexSubstitutionEntry(variable, term);
+
+        /* apply the binding to the equalities in which the variable occurs */
+        Set<Equality> occurrences = equalityOccurrences.remove(variable);
+        if (occurrences != null) {
+            List<Equality> changedEqualities = new ArrayList<Equality>(occurrences);
+            /* process the equalities in a deterministic order */
+            Collections.sort(changedEqualities, CREATION_ORDER);
+            for (Equality equality : changedEqualities) {
+                if (equality.removed) {
+                    continue;
+                }
+                unindex(equality);
+                equality.substituteAndEvaluate(binding);
+                index(equality);
+                enqueue(equality);
+            }
+        }
+    }
 
-            for (Iterator<Equality> previousIterator = equalities.iterator(); previousIterator.hasNext();) {
-                Equality previousEquality = previousIterator.next();
-                if (previousEquality == equality) {
-                    break;
+    private void enqueue(Equality equality) {
+        if (!equality.queued) {
+            equality.queued = true;
+            pendingEqualities.add(equality);
+        }
+    }
+
+    private void index(Equality equality) {
+        equality.indexedVariables = equality.variableSet();
+        for (Variable variable : equality.indexedVariables) {
+            Set<Equality> occurrences = equalityOccurrences.get(variable);
+            if (occurrences == null) {
+                occurrences = Collections.newSetFromMap(new IdentityHashMap<Equality, Boolean>());
+                equalityOccurrences.put(variable, occurrences);
+            }
+            occurrences.add(equality);
+        }
+    }
+
+    private void unindex(Equality equality) {
+        for (Variable variable : equality.indexedVariables) {
+            Set<Equality> occurrences = equalityOccurrences.get(variable);
+            if (occurrences != null) {
+                occurrences.remove(equality);
+                if (occurrences.isEmpty()) {
+                    equalityOccurrences.remove(variable);
                 }
-                previousEquality.substitute(tempSubstitution);
-                //TODO(AndreiS): Only evaluate if the term has changed
-                previousEquality.evaluate();
-                if (previousEquality.isTrue()) {
-                    equalitiesToRemove.add(previousEquality);
-                } else if (previousEquality.isFalse()) {
-                    truthValue = TruthValue.FALSE;
-                    return;
+            }
+        }
+        equality.indexedVariables = Collections.emptySet();
+    }
+
+    private void indexSubstitutionEntry(Variable key, Term value) {
+        for (Variable variable : value.variableSet()) {
+            Set<Variable> keys = substitutionOccurrences.get(variable);
+            if (keys == null) {
+                keys = new HashSet<Variable>();
+                substitutionOccurrences.put(variable, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    private void unindexSubstitutionEntry(Variable key, Term value) {
+        for (Variable variable : value.variableSet()) {
+            Set<Variable> keys = substitutionOccurrences.get(variable);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    substitutionOccurrences.remove(variable);
                 }
             }
-            equalitiesToRemove.add(equality);
         }
-        for (Iterator<Equality> iterator = equalitiesToRemove.iterator(); iterator.hasNext();) {
-            Equality equality = iterator.next();
-            equalities.remove(equality);
-            iterator.remove();
+    }
+
+    /**
+     * Marks the equality as removed; it is dropped from {@code equalities} by
+     * {@link SymbolicConstraint#compactEqualities()}.
+     */
+    private void remove(Equality equality) {
+        equality.removed = true;
+        unindex(equality);
+    }
+
+    /**
+     * Drops the removed equalities from {@code equalities} in a single pass, preserving the
+     * order of the others.
+     */
+    private void compactEqualities() {
+        int size = 0;
+        for (Equality equality : equalities) {
+            if (!equality.removed) {
+                equalities.set(size++, equality);
+            }
+        }
+        equalities.subList(size, equalities.size()).clear();
+    }
+
+    /**
+     * Rebuilds {@code equalityOccurrences} and {@code substitutionOccurrences} from scratch.
+     */
+    private void reindex() {
+        equalityOccurrences.clear();
+        substitutionOccurrences.clear();
+        for (Equality equality : equalities) {
+            index(equality);
+        }
+        for (Map.Entry<Variable, Term> entry : substitution.entrySet()) {
+            indexSubstitutionEntry(entry.getKey(), entry.getValue());
         }
-        assert equalitiesToRemove.size() == 0;
     }
 
     /**
@@ -663,11 +873,16 @@ public class SymbolicConstraint extends JavaSymbolicObject {
      */
     public Map<Variable, Variable> rename(Set<Variable> variableSet) {
         Map<Variable, Variable> freshSubstitution = Variable.getFreshSubstitution(variableSet);
+        rename(freshSubstitution);
+        return freshSubstitution;
+    }
 
+    private void rename(Map<Variable, Variable> freshSubstitution) {
         /* rename substitution keys */
-        for (Variable variable : variableSet) {
-            if (substitution.get(variable) != null) {
-                substitution.put(freshSubstitution.get(variable), substitution.remove(variable));
+        for (Map.Entry<Variable, Variable> entry : freshSubstitution.entrySet()) {
+            Term term = substitution.remove(entry.getKey());
+            if (term != null) {
+                substitution.put(entry.getValue(), term);
             }
         }
 
@@ -679,8 +894,75 @@ public class SymbolicConstraint extends JavaSymbolicObject {
         for (Equality equality : equalities) {
             equality.substitute(freshSubstitution);
         }
+        reindex();
+    }
 
-        return freshSubstitution;
+    /**
+     * Renames the variables of a rule, indexed by their ordinals (see {@link Variable#ordinal()}),
+     * like {@link #rename}, and returns the terms to which they are bound, or their fresh names if
+     * they are unbound, indexed by ordinal. The fresh names are numbered by the ordinals from one
+     * offset, so no renaming map is built.
+     * <p>
+     * The bindings of the rule variables are removed rather than renamed, since their fresh names
+     * are anonymous (see {@link #eliminateAnonymousVariables()}); the substitution values and the
+     * equalities are only renamed if rule variables occur in them.
+     *
+     * @param variables
+     *            the variables of the rule; may contain {@code null}s
+     */
+    public Term[] renameNumbered(Variable[] variables) {
+        int offset = Variable.reserveFreshNumbers(variables.length);
+        Term[] terms = new Term[variables.length];
+
+        if (occursIn(variables)) {
+            Map<Variable, Variable> freshSubstitution = new HashMap<Variable, Variable>();
+            for (int i = 0; i < variables.length; ++i) {
+                if (variables[i] != null) {
+                    freshSubstitution.put(variables[i], variables[i].getFreshCopy(offset + i));
+                }
+            }
+            rename(freshSubstitution);
+
+            for (int i = 0; i < variables.length; ++i) {
+                if (variables[i] != null) {
+                    Variable freshVariable = freshSubstitution.get(variables[i]);
+                    Term term = substitution.get(freshVariable);
+                    terms[i] = term != null ? term : freshVariable;
+                }
+            }
+            return terms;
+        }
+
+        for (int i = 0; i < variables.length; ++i) {
+            if (variables[i] != null) {
+                Term term = substitution.remove(variables[i]);
+                if (term != null) {
+                    unindexSubstitutionEntry(variables[i], term);
+                    terms[i] = term;
+                } else {
+                    terms[i] = variables[i].getFreshCopy(offset + i);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Returns {@code true} if some of the given variables occur in the substitution values or in
+     * the equalities of this symbolic constraint.
+     */
+    private boolean occursIn(Variable[] variables) {
+        if (substitutionOccurrences.isEmpty() && equalityOccurrences.isEmpty()) {
+            return false;
+        }
+
+        for (Variable variable : variables) {
+            if (variable != null && (substitutionOccurrences.containsKey(variable)
+                    || equalityOccurrences.containsKey(variable))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -16,16 +16,22 @@ import org.kframework.backend.java.kil.Rule;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.strategies.RuleBucket;
 import org.kframework.backend.java.strategies.Strategy;
 import org.kframework.backend.java.strategies.NullStrategy;
 import org.kframework.backend.java.strategies.StructuralStrategy;
 import org.kframework.backend.java.strategies.TransitionStrategy;
 import org.kframework.backend.java.util.LookupCell;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.krun.api.io.FileSystem;
 import org.kframework.utils.general.GlobalSettings;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,18 +49,41 @@ public class SymbolicRewriter {
 
     private final Definition definition;
     private Strategy strategy;
+    private final Strategy nullStrategy = new NullStrategy();
+    private final Strategy structuralStrategy = new StructuralStrategy();
+    private final Strategy transitionStrategy = new TransitionStrategy();
     private final Stopwatch stopwatch = new Stopwatch();
     private int step;
-    private final Stopwatch ruleStopwatch = new Stopwatch();
-    private final Map<IndexingPair, Set<Rule>> ruleTable;
-    private final Set<Rule> unindexedRules;
+    /**
+     * The candidate rules for a term with a single k cell, by the {@link IndexingPair} of that
+     * cell; each bucket also contains the rules without a k cell.
+     */
+    private final Map<IndexingPair, RuleBucket> ruleTable;
+    /**
+     * The candidate rules for a term without a k cell, or whose k cell has no indexed rules.
+     */
+    private final RuleBucket unindexedRules;
+    /**
+     * The candidate rules for terms with several k cells, computed on demand.
+     */
+    private final Map<Collection<IndexingPair>, RuleBucket> multiCellRuleTable
+            = new HashMap<Collection<IndexingPair>, RuleBucket>();
     private final List<ConstrainedTerm> results = new ArrayList<ConstrainedTerm>();
 
 	public SymbolicRewriter(Definition definition) {
         this.definition = definition;
 
         // Eventually the strategy will be specified in the command line.
-        strategy = new NullStrategy();
+        strategy = nullStrategy;
+
+        ImmutableSet.Builder<Rule> setBuilder = ImmutableSet.builder();
+        for (Rule rule : definition.rules()) {
+            if (!rule.containsKCell()) {
+                setBuilder.add(rule);
+            }
+        }
+        ImmutableSet<Rule> unindexedRuleSet = setBuilder.build();
+        unindexedRules = new RuleBucket(unindexedRuleSet, GlobalSettings.transition);
 
         /* populate the table of rules rewriting the top configuration */
         Set<Index> indices = new HashSet<Index>();
@@ -78,12 +107,12 @@ public class SymbolicRewriter {
             indices.add(new TokenIndex(sort));
         }
 
-        ImmutableMap.Builder<IndexingPair, Set<Rule>> mapBuilder = ImmutableMap.builder();
+        ImmutableMap.Builder<IndexingPair, RuleBucket> mapBuilder = ImmutableMap.builder();
         for (Index first : indices) {
             for (Index second : indices) {
                 IndexingPair pair = new IndexingPair(first, second);
 
-                ImmutableSet.Builder<Rule> setBuilder = ImmutableSet.builder();
+                setBuilder = ImmutableSet.builder();
                 for (Rule rule : definition.rules()) {
                     if (pair.isUnifiable(rule.indexingPair())) {
                         setBuilder.add(rule);
@@ -92,26 +121,26 @@ public class SymbolicRewriter {
 
                 ImmutableSet<Rule> rules = setBuilder.build();
                 if (!rules.isEmpty()) {
-                    mapBuilder.put(pair, rules);
+                    setBuilder = ImmutableSet.builder();
+                    setBuilder.addAll(rules);
+                    setBuilder.addAll(unindexedRuleSet);
+                    mapBuilder.put(pair, new RuleBucket(setBuilder.build(), GlobalSettings.transition));
                 }
             }
         }
 
         ruleTable = mapBuilder.build();
-
-        ImmutableSet.Builder<Rule> setBuilder = ImmutableSet.builder();
-        for (Rule rule : definition.rules()) {
-            if (!rule.containsKCell()) {
-                setBuilder.add(rule);
-            }
-        }
-        unindexedRules = setBuilder.build();
 	}
 
     public ConstrainedTerm rewrite(ConstrainedTerm constrainedTerm, int bound) {
         stopwatch.start();
 
         for (step = 0; step != bound; ++step) {
+            /* stop early if the thread running krun has been interrupted (e.g. by a ktest timeout) */
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
             /* get the first solution */
             computeRewriteStep(constrainedTerm, 1);
             ConstrainedTerm result = getTransition(0);
@@ -132,15 +161,26 @@ public class SymbolicRewriter {
         return rewrite(constrainedTerm, -1);
     }
 
-    private Set<Rule> getRules(Term term) {
-        Set<Rule> rules = new HashSet<Rule>();
-        for (IndexingPair pair : term.getIndexingPairs()) {
-            if (ruleTable.get(pair) != null) {
-                rules.addAll(ruleTable.get(pair));
+    private RuleBucket getRules(Term term) {
+        Collection<IndexingPair> pairs = term.getIndexingPairs();
+        if (pairs.size() <= 1) {
+            RuleBucket bucket = pairs.isEmpty() ? null : ruleTable.get(pairs.iterator().next());
+            return bucket != null ? bucket : unindexedRules;
+        }
+
+        RuleBucket bucket = multiCellRuleTable.get(pairs);
+        if (bucket == null) {
+            Set<Rule> rules = new LinkedHashSet<Rule>();
+            for (IndexingPair pair : pairs) {
+                if (ruleTable.get(pair) != null) {
+                    rules.addAll(Arrays.asList(ruleTable.get(pair).rules()));
+                }
             }
+            rules.addAll(Arrays.asList(unindexedRules.rules()));
+            bucket = new RuleBucket(rules, GlobalSettings.transition);
+            multiCellRuleTable.put(pairs, bucket);
         }
-        rules.addAll(unindexedRules);
-        return rules;
+        return bucket;
     }
 
     private ConstrainedTerm getTransition(int n) {
@@ -157,53 +197,55 @@ public class SymbolicRewriter {
         // Instead of iterator through all applicable rules, iterate through
         // them as dictated by the strategy.
         strategy.apply(getRules(constrainedTerm.term()));
+        RuleProfiler profiler = constrainedTerm.termContext().profiler();
         while (strategy.hasNext()) {
             Rule rule = strategy.next();
-            ruleStopwatch.reset();
-            ruleStopwatch.start();
-
-            SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(
-                constrainedTerm.termContext());
-            leftHandSideConstraint.addAll(rule.condition());
-            for (Variable variable : rule.freshVariables()) {
-                leftHandSideConstraint.add(variable, IntToken.fresh());
-            }
-
-            ConstrainedTerm leftHandSide = new ConstrainedTerm(
-                    rule.leftHandSide(),
-                    rule.lookups().getSymbolicConstraint(constrainedTerm.termContext()),
-                    leftHandSideConstraint,
+            profiler.enterRule(rule, false);
+            try {
+                SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(
                     constrainedTerm.termContext());
+                leftHandSideConstraint.addAll(rule.condition());
+                for (Variable variable : rule.freshVariables()) {
+                    leftHandSideConstraint.add(variable, IntToken.fresh(constrainedTerm.termContext()));
+                }
 
-            for (SymbolicConstraint constraint1 : constrainedTerm.unify(leftHandSide)) {
-                /* rename rule variables in the constraints */
-                Map<Variable, Variable> freshSubstitution = constraint1.rename(rule.variableSet());
+                ConstrainedTerm leftHandSide = new ConstrainedTerm(
+                        rule.leftHandSide(),
+                        rule.lookups().getSymbolicConstraint(constrainedTerm.termContext()),
+                        leftHandSideConstraint,
+                        constrainedTerm.termContext());
 
-                Term result = rule.rightHandSide();
-                /* rename rule variables in the rule RHS */
-                result = result.substitute(freshSubstitution, constrainedTerm.termContext());
-                /* apply the constraints substitution on the rule RHS */
-                result = result.substituteAndEvaluate(constraint1.substitution(),
-                    constrainedTerm.termContext());
-                /* evaluate pending functions in the rule RHS */
-//                result = result.evaluate(constrainedTerm.termContext());
-                /* eliminate anonymous variables */
-                constraint1.eliminateAnonymousVariables();
+                profiler.setPhase(RuleProfiler.Phase.UNIFY);
+                Collection<SymbolicConstraint> solutions = constrainedTerm.unify(leftHandSide, rule);
+                if (!solutions.isEmpty()) {
+                    profiler.unificationSucceeded();
+                }
+
+                for (SymbolicConstraint constraint1 : solutions) {
+                    profiler.setPhase(RuleProfiler.Phase.SUBSTITUTION);
+                    /* rename rule variables, substitute and evaluate pending functions in the rule RHS */
+                    Term result = rule.instantiateRightHandSide(constraint1,
+                        constrainedTerm.termContext());
+                    /* eliminate anonymous variables */
+                    constraint1.eliminateAnonymousVariables();
 
-                /*
-                System.err.println("rule \n\t" + rule);
-                System.err.println("result term\n\t" + result);
-                System.err.println("result constraint\n\t" + constraint1);
-                System.err.println("============================================================");
-                */
+                    /*
+                    System.err.println("rule \n\t" + rule);
+                    System.err.println("result term\n\t" + result);
+                    System.err.println("result constraint\n\t" + constraint1);
+                    System.err.println("============================================================");
+                    */
 
-                /* compute all results */
-                results.add(new ConstrainedTerm(result, constraint1,
-                    constrainedTerm.termContext()));
+                    /* compute all results */
+                    results.add(new ConstrainedTerm(result, constraint1,
+                        constrainedTerm.termContext()));
 
-                if (results.size() == successorBound) {
-                    return;
+                    if (results.size() == successorBound) {
+                        return;
+                    }
                 }
+            } finally {
+                profiler.exit();
             }
         }
         //System.out.println("Result: " + results.toString());
@@ -214,49 +256,83 @@ public class SymbolicRewriter {
         computeRewriteStep(constrainedTerm, -1);
     }
 
+    /**
+     * Returns the result of the first rule that applies to the given term, as in one step of
+     * {@link #rewrite}, or {@code null} if the term is final.
+     */
+    public ConstrainedTerm getOneSuccessor(ConstrainedTerm constrainedTerm) {
+        strategy = nullStrategy;
+        computeRewriteStep(constrainedTerm, 1);
+        return getTransition(0);
+    }
+
+    /**
+     * Returns the successors of the given term in the transition system explored by
+     * {@link #search}: the result of the first structural rule that applies, or else the results
+     * of all the transitions.
+     */
+    public List<ConstrainedTerm> getSuccessors(ConstrainedTerm constrainedTerm) {
+        strategy = structuralStrategy;
+        computeRewriteStep(constrainedTerm, 1);
+        if (results.isEmpty()) {
+            strategy = transitionStrategy;
+            computeRewriteStep(constrainedTerm);
+        }
+        return new ArrayList<ConstrainedTerm>(results);
+    }
+
     /**
      * Apply a specification rule
      */
     private ConstrainedTerm applyRule(ConstrainedTerm constrainedTerm, List<Rule> rules) {
+        RuleProfiler profiler = constrainedTerm.termContext().profiler();
         for (Rule rule : rules) {
-            ruleStopwatch.reset();
-            ruleStopwatch.start();
+            profiler.enterRule(rule, false);
+            try {
+                SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(
+                    constrainedTerm.termContext());
+                leftHandSideConstraint.addAll(rule.condition());
 
-            SymbolicConstraint leftHandSideConstraint = new SymbolicConstraint(
-                constrainedTerm.termContext());
-            leftHandSideConstraint.addAll(rule.condition());
+                ConstrainedTerm leftHandSideTerm = new ConstrainedTerm(
+                        rule.leftHandSide(),
+                        rule.lookups().getSymbolicConstraint(constrainedTerm.termContext()),
+                        leftHandSideConstraint,
+                        constrainedTerm.termContext());
 
-            ConstrainedTerm leftHandSideTerm = new ConstrainedTerm(
-                    rule.leftHandSide(),
-                    rule.lookups().getSymbolicConstraint(constrainedTerm.termContext()),
-                    leftHandSideConstraint,
-                    constrainedTerm.termContext());
+                profiler.setPhase(RuleProfiler.Phase.UNIFY);
+                SymbolicConstraint constraint = constrainedTerm.matchImplies(leftHandSideTerm);
+                if (constraint == null) {
+                    continue;
+                }
+                profiler.unificationSucceeded();
 
-            SymbolicConstraint constraint = constrainedTerm.matchImplies(leftHandSideTerm);
-            if (constraint == null) {
-                continue;
-            }
+                profiler.setPhase(RuleProfiler.Phase.SUBSTITUTION);
+                /* rename rule variables, substitute and evaluate pending functions in the rule RHS */
+                Term result = rule.instantiateRightHandSide(constraint,
+                        constrainedTerm.termContext());
+                /* eliminate anonymous variables */
+                constraint.eliminateAnonymousVariables();
 
-            /* rename rule variables in the constraints */
-            Map<Variable, Variable> freshSubstitution = constraint.rename(rule.variableSet());
-
-            Term result = rule.rightHandSide();
-            /* rename rule variables in the rule RHS */
-            result = result.substitute(freshSubstitution, constrainedTerm.termContext());
-            /* apply the constraints substitution on the rule RHS */
-            result = result.substitute(constraint.substitution(), constrainedTerm.termContext());
-            /* evaluate pending functions in the rule RHS */
-            result = result.evaluate(constrainedTerm.termContext());
-            /* eliminate anonymous variables */
-            constraint.eliminateAnonymousVariables();
-
-            /* return first solution */
-            return new ConstrainedTerm(result, constraint, constrainedTerm.termContext());
+                /* return first solution */
+                return new ConstrainedTerm(result, constraint, constrainedTerm.termContext());
+            } finally {
+                profiler.exit();
+            }
         }
 
         return null;
     }
 
+    /**
+     * Receives the results of {@link #search} as soon as they are found.
+     */
+    public interface SearchListener {
+        /**
+         * Returns {@code false} if the search should stop after the given result.
+         */
+        boolean resultFound(ConstrainedTerm result);
+    }
+
     /**
      *
      * @param initialTerm
@@ -270,17 +346,40 @@ public class SymbolicRewriter {
             ConstrainedTerm initialTerm,
             ConstrainedTerm targetTerm,
             List<Rule> rules,
-            int bound,
+            final int bound,
             int depth) {
+        final List<ConstrainedTerm> searchResults = new ArrayList<ConstrainedTerm>();
+        search(initialTerm, targetTerm, rules, depth, new SearchListener() {
+            @Override
+            public boolean resultFound(ConstrainedTerm result) {
+                searchResults.add(result);
+                return searchResults.size() != bound;
+            }
+        });
+        return searchResults;
+    }
+
+    /**
+     * Searches breadth-first for the final terms, and the terms on the depth frontier, reachable
+     * from the initial term; each result is passed to the listener as soon as it is found.
+     *
+     * @param depth a negative value specifies no bound
+     */
+    public void search(
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            List<Rule> rules,
+            int depth,
+            SearchListener listener) {
         stopwatch.start();
 
-        List<ConstrainedTerm> searchResults = new ArrayList<ConstrainedTerm>();
         Set<ConstrainedTerm> visited = new HashSet<ConstrainedTerm>();
         List<ConstrainedTerm> queue = new ArrayList<ConstrainedTerm>();
         List<ConstrainedTerm> nextQueue = new ArrayList<ConstrainedTerm>();
 
         visited.add(initialTerm);
         queue.add(initialTerm);
+        boolean stopped = false;
 
     label:
         for (step = 0; !queue.isEmpty() && step != depth; ++step) {
@@ -288,21 +387,21 @@ public class SymbolicRewriter {
                 // First, rewrite using the structural strategy, only looking
                 // for one matching rule.
                 boolean transition = false;
-                strategy = new StructuralStrategy(GlobalSettings.transition);
+                strategy = structuralStrategy;
                 computeRewriteStep(term,1);
                 // If we could not match a structural rule, then we will seach
                 // the space of possible transitions, matching all possible
                 // rules that are marked as transitions.
                 if (results.isEmpty()) {
                   transition = true;
-                  strategy = new TransitionStrategy(GlobalSettings.transition);
+                  strategy = transitionStrategy;
                   computeRewriteStep(term);
                 }
 
                 if (results.isEmpty()) {
                     /* final term */
-                    searchResults.add(term);
-                    if (searchResults.size() == bound) {
+                    if (!listener.resultFound(term)) {
+                        stopped = true;
                         break label;
                     }
 
@@ -325,14 +424,12 @@ public class SymbolicRewriter {
         }
 
         /* add the configurations on the depth frontier */
-        while (!queue.isEmpty() && searchResults.size() != bound) {
-            searchResults.add(queue.remove(0));
+        while (!stopped && !queue.isEmpty()) {
+            stopped = !listener.resultFound(queue.remove(0));
         }
 
         stopwatch.stop();
         System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
-
-        return searchResults;
     }
     
     /**
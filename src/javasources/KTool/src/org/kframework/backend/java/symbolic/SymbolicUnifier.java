@@ -27,11 +27,15 @@ import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.KSorts;
 import org.kframework.kil.matchers.MatcherException;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.ArrayListMultimap;
@@ -45,9 +49,34 @@ import com.google.common.collect.Multimap;
  */
 public class SymbolicUnifier extends AbstractUnifier {
 
+    /**
+     * The attribute of a cell declaration with multiplicity '*' giving the label of the cell
+     * which identifies its instances.
+     */
+    public static final String KEY_ATTRIBUTE = "key";
+    private static final String DEFAULT_KEY_LABEL = "id";
+
     private SymbolicConstraint constraint;
     private boolean isStarNested;
+    /**
+     * The disjunctions produced by the unification of this constraint, or of the current cell
+     * (or entry) selection; their cross product gives the solutions.
+     */
     public java.util.Collection<java.util.Collection<SymbolicConstraint>> multiConstraints;
+    /**
+     * The ground terms the variables have been bound to so far in the current unification task
+     * (or cell or entry selection), used to turn symbolic map and set keys into ground ones.
+     */
+    private Map<Variable, Term> bindings = new HashMap<Variable, Term>();
+    /**
+     * The map and set unifications of the current unification task (or cell or entry selection)
+     * whose entries with symbolic keys are paired once the rest of the task is unified.
+     */
+    private List<DeferredUnification> deferred = new ArrayList<DeferredUnification>();
+    /**
+     * The bindings of the last selection of cells or entries which succeeded.
+     */
+    private Map<Variable, Term> selectionBindings;
     private final Definition definition;
     private final TermContext context;
 
@@ -68,8 +97,10 @@ public class SymbolicUnifier extends AbstractUnifier {
     public boolean unify(SymbolicConstraint.Equality equality) {
         try {
             isStarNested = false;
-            multiConstraints.clear();
+            bindings.clear();
+            deferred.clear();
             unify(equality.leftHandSide(), equality.rightHandSide());
+            resumeDeferred();
             return true;
         } catch (MatcherException e) {
             return false;
@@ -104,6 +135,12 @@ public class SymbolicUnifier extends AbstractUnifier {
             if (constraint.isFalse()) {
                 fail();
             }
+
+            if (term instanceof Variable && otherTerm.isGround()) {
+                bindings.put((Variable) term, otherTerm);
+            } else if (otherTerm instanceof Variable && term.isGround()) {
+                bindings.put((Variable) otherTerm, term);
+            }
         } else {
             /* unify */
             term.accept(this, otherTerm);
@@ -146,9 +183,15 @@ public class SymbolicUnifier extends AbstractUnifier {
         if (!(term instanceof BuiltinMap)) {
             this.fail();
         }
+        BuiltinMap otherBuiltinMap = (BuiltinMap) term;
 
-        throw new UnsupportedOperationException(
-                "map matching is only supported when one of the maps is a variable.");
+        unifyModuloAC(
+                builtinMap.getEntries(),
+                builtinMap.hasFrame() ? builtinMap.frame() : null,
+                otherBuiltinMap.getEntries(),
+                otherBuiltinMap.hasFrame() ? otherBuiltinMap.frame() : null,
+                true,
+                false);
     }
 
     @Override
@@ -156,9 +199,389 @@ public class SymbolicUnifier extends AbstractUnifier {
         if (!(term instanceof BuiltinSet)) {
             this.fail();
         }
+        BuiltinSet otherBuiltinSet = (BuiltinSet) term;
+
+        unifyModuloAC(
+                asEntries(builtinSet.elements()),
+                builtinSet.hasFrame() ? builtinSet.frame() : null,
+                asEntries(otherBuiltinSet.elements()),
+                otherBuiltinSet.hasFrame() ? otherBuiltinSet.frame() : null,
+                false,
+                false);
+    }
+
+    /**
+     * Unifies two maps (or two sets, represented as maps with {@code null} values) modulo
+     * associativity and commutativity. Entries with equal keys are paired by hash lookup; the
+     * remaining entries are either assigned to the frame of the other side or, if they have
+     * symbolic keys, paired with the remaining entries of the other side in every possible way.
+     * <p>
+     * The pairing of entries with symbolic keys is deferred to the end of the unification task
+     * (see {@link #resumeDeferred()}), so that the keys bound meanwhile (e.g. {@code L} in
+     * {@code <env> X |-> L </env> <store> L |-> V </store>}) are looked up instead.
+     *
+     * @param resumed
+     *            {@code true} if the pairing of the entries with symbolic keys is not deferred
+     */
+    private void unifyModuloAC(
+            Map<Term, Term> entries,
+            Variable frame,
+            Map<Term, Term> otherEntries,
+            Variable otherFrame,
+            boolean isMap,
+            boolean resumed) {
+        Map<Term, Term> remainingEntries = new HashMap<Term, Term>();
+        Map<Term, Term> otherRemainingEntries = new HashMap<Term, Term>(otherEntries);
+        for (Map.Entry<Term, Term> entry : entries.entrySet()) {
+            if (otherRemainingEntries.containsKey(entry.getKey())) {
+                Term otherValue = otherRemainingEntries.remove(entry.getKey());
+                if (isMap) {
+                    unify(entry.getValue(), otherValue);
+                }
+            } else {
+                remainingEntries.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (remainingEntries.isEmpty() || otherRemainingEntries.isEmpty()
+                || hasConcreteKeys(remainingEntries) && hasConcreteKeys(otherRemainingEntries)) {
+            /* no remaining entry of one side can be paired with a remaining entry of the other */
+            unifyFrames(remainingEntries, frame, otherRemainingEntries, otherFrame, isMap);
+        } else if (!resumed) {
+            deferred.add(new DeferredUnification(
+                    remainingEntries, frame, otherRemainingEntries, otherFrame, isMap));
+        } else if (frame == null) {
+            unifyEntries(remainingEntries, otherRemainingEntries, otherFrame, isMap);
+        } else if (otherFrame == null) {
+            unifyEntries(otherRemainingEntries, remainingEntries, frame, isMap);
+        } else {
+            throw new UnsupportedOperationException(
+                    (isMap ? "map" : "set") + " unification with symbolic keys is only supported"
+                    + " when one of the " + (isMap ? "maps" : "sets") + " has no frame.");
+        }
+    }
+
+    /**
+     * A map (or set) unification whose remaining entries have symbolic keys.
+     */
+    private static class DeferredUnification {
+        final Map<Term, Term> entries;
+        final Variable frame;
+        final Map<Term, Term> otherEntries;
+        final Variable otherFrame;
+        final boolean isMap;
+
+        DeferredUnification(
+                Map<Term, Term> entries,
+                Variable frame,
+                Map<Term, Term> otherEntries,
+                Variable otherFrame,
+                boolean isMap) {
+            this.entries = entries;
+            this.frame = frame;
+            this.otherEntries = otherEntries;
+            this.otherFrame = otherFrame;
+            this.isMap = isMap;
+        }
+    }
+
+    /**
+     * Pairs the entries of the deferred map (and set) unifications, after substituting the
+     * variables bound in their keys. Resuming a unification may bind the keys of the ones
+     * deferred after it, or defer the unification of maps nested in its values.
+     */
+    private void resumeDeferred() {
+        for (int i = 0; i < deferred.size(); ++i) {
+            DeferredUnification unification = deferred.get(i);
+            unifyModuloAC(
+                    substituteKeys(unification.entries),
+                    unification.frame,
+                    substituteKeys(unification.otherEntries),
+                    unification.otherFrame,
+                    unification.isMap,
+                    true);
+        }
+        deferred.clear();
+    }
+
+    /**
+     * Returns the given entries with the bound variables substituted in their symbolic keys, or
+     * the entries themselves if two keys become equal.
+     */
+    private Map<Term, Term> substituteKeys(Map<Term, Term> entries) {
+        if (bindings.isEmpty()) {
+            return entries;
+        }
+
+        Map<Term, Term> substitutedEntries = new HashMap<Term, Term>();
+        for (Map.Entry<Term, Term> entry : entries.entrySet()) {
+            Term key = entry.getKey();
+            if (!isConcreteKey(key)) {
+                Term substitutedKey = key.substitute(bindings, context);
+                key = substitutedKey != key ? substitutedKey.evaluate(context) : key;
+            }
+            if (substitutedEntries.put(key, entry.getValue()) != null) {
+                return entries;
+            }
+        }
+        return substitutedEntries;
+    }
+
+    /**
+     * Unifies two maps (or sets) whose entries cannot be paired with each other: the entries of
+     * each side belong to the frame of the other side.
+     */
+    private void unifyFrames(
+            Map<Term, Term> entries,
+            Variable frame,
+            Map<Term, Term> otherEntries,
+            Variable otherFrame,
+            boolean isMap) {
+        if (entries.isEmpty() && otherEntries.isEmpty()) {
+            if (frame != null && otherFrame != null) {
+                if (!frame.equals(otherFrame)) {
+                    constraint.add(frame, otherFrame);
+                }
+            } else if (frame != null) {
+                constraint.add(frame, makeCollection(entries, null, isMap));
+            } else if (otherFrame != null) {
+                constraint.add(makeCollection(otherEntries, null, isMap), otherFrame);
+            }
+        } else if (otherEntries.isEmpty()) {
+            if (otherFrame == null) {
+                fail();
+            }
+            constraint.add(makeCollection(entries, frame, isMap), otherFrame);
+        } else if (entries.isEmpty()) {
+            if (frame == null) {
+                fail();
+            }
+            constraint.add(frame, makeCollection(otherEntries, otherFrame, isMap));
+        } else {
+            if (frame == null || otherFrame == null) {
+                fail();
+            }
+            /* both frames contain the entries of the other side and some common entries */
+            Variable commonFrame = Variable.getFreshVariable(isMap ? KSorts.MAP : KSorts.SET);
+            constraint.add(frame, makeCollection(otherEntries, commonFrame, isMap));
+            constraint.add(makeCollection(entries, commonFrame, isMap), otherFrame);
+        }
+
+        if (constraint.isFalse()) {
+            fail();
+        }
+    }
+
+    /**
+     * Unifies the entries of a map (or set) without frame with the entries and the frame of
+     * another map (or set), whose keys are symbolic: each entry of the latter is paired with a
+     * distinct entry of the former, and the unpaired entries belong to the frame. Entries with
+     * concrete keys on both sides are never paired, as their keys are known to be different.
+     */
+    private void unifyEntries(
+            Map<Term, Term> entries,
+            Map<Term, Term> otherEntries,
+            Variable otherFrame,
+            boolean isMap) {
+        if (entries.size() < otherEntries.size()
+                || entries.size() > otherEntries.size() && otherFrame == null) {
+            fail();
+        }
+
+        List<Map.Entry<Term, Term>> entryList = new ArrayList<Map.Entry<Term, Term>>(
+                entries.entrySet());
+        List<Map.Entry<Term, Term>> otherEntryList = new ArrayList<Map.Entry<Term, Term>>(
+                otherEntries.entrySet());
+
+        List<List<Integer>> candidates = new ArrayList<List<Integer>>(otherEntryList.size());
+        for (Map.Entry<Term, Term> otherEntry : otherEntryList) {
+            List<Integer> otherCandidates = new ArrayList<Integer>();
+            for (int i = 0; i < entryList.size(); ++i) {
+                if (!(isConcreteKey(entryList.get(i).getKey())
+                        && isConcreteKey(otherEntry.getKey()))) {
+                    otherCandidates.add(i);
+                }
+            }
+            candidates.add(otherCandidates);
+        }
+
+        java.util.Collection<SymbolicConstraint> constraints = new ArrayList<SymbolicConstraint>();
+        selectEntries(
+                0,
+                new int[otherEntryList.size()],
+                new boolean[entryList.size()],
+                candidates,
+                entryList,
+                otherEntryList,
+                otherFrame,
+                isMap,
+                constraints);
+
+        if (constraints.isEmpty()) {
+            fail();
+        }
+
+        addDisjunction(constraints);
+    }
+
+    /**
+     * Adds the given solutions of a selection of cells or entries to the current constraint:
+     * a single solution is added directly, together with its bindings; several solutions
+     * become a disjunction.
+     */
+    private void addDisjunction(java.util.Collection<SymbolicConstraint> constraints) {
+        if (constraints.size() == 1) {
+            constraint.addAll(constraints.iterator().next());
+            bindings.putAll(selectionBindings);
+        } else {
+            multiConstraints.add(constraints);
+        }
+    }
+
+    /**
+     * The state of the unification enclosing a selection of cells or entries.
+     */
+    private static class EnclosingState {
+        final SymbolicConstraint constraint;
+        final Map<Variable, Term> bindings;
+        final List<DeferredUnification> deferred;
+        final java.util.Collection<java.util.Collection<SymbolicConstraint>> multiConstraints;
+
+        EnclosingState(SymbolicUnifier unifier) {
+            constraint = unifier.constraint;
+            bindings = unifier.bindings;
+            deferred = unifier.deferred;
+            multiConstraints = unifier.multiConstraints;
+        }
+    }
+
+    /**
+     * Starts the unification of a selection of cells or entries, in a fresh constraint with its
+     * own bindings, deferred unifications and disjunctions; returns the state of the enclosing
+     * unification, to be restored by {@link #endSelection}.
+     */
+    private EnclosingState beginSelection() {
+        EnclosingState state = new EnclosingState(this);
+        constraint = new SymbolicConstraint(context);
+        bindings = new HashMap<Variable, Term>(bindings);
+        deferred = new ArrayList<DeferredUnification>();
+        multiConstraints = new ArrayList<java.util.Collection<SymbolicConstraint>>();
+        return state;
+    }
+
+    /**
+     * Ends the unification of a selection of cells or entries. If it succeeded, adds to
+     * {@code constraints} the conjunctions of its constraint with the disjuncts of its
+     * disjunctions.
+     */
+    private void endSelection(
+            EnclosingState state,
+            boolean succeeded,
+            java.util.Collection<SymbolicConstraint> constraints) {
+        SymbolicConstraint selectionConstraint = constraint;
+        Map<Variable, Term> selectionBindings = bindings;
+        java.util.Collection<java.util.Collection<SymbolicConstraint>> selectionMultiConstraints
+                = multiConstraints;
+        constraint = state.constraint;
+        bindings = state.bindings;
+        deferred = state.deferred;
+        multiConstraints = state.multiConstraints;
+
+        if (succeeded && !selectionConstraint.isFalse()) {
+            List<SymbolicConstraint> solutions = SymbolicConstraint.crossProduct(
+                    selectionConstraint, selectionMultiConstraints, context);
+            if (!solutions.isEmpty()) {
+                constraints.addAll(solutions);
+                this.selectionBindings = selectionBindings;
+            }
+        }
+    }
+
+    private void selectEntries(
+            int index,
+            int[] selection,
+            boolean[] selected,
+            List<List<Integer>> candidates,
+            List<Map.Entry<Term, Term>> entryList,
+            List<Map.Entry<Term, Term>> otherEntryList,
+            Variable otherFrame,
+            boolean isMap,
+            java.util.Collection<SymbolicConstraint> constraints) {
+        if (index == otherEntryList.size()) {
+            EnclosingState state = beginSelection();
+            boolean succeeded = false;
+            try {
+                for (int i = 0; i < otherEntryList.size(); ++i) {
+                    Map.Entry<Term, Term> entry = entryList.get(selection[i]);
+                    Map.Entry<Term, Term> otherEntry = otherEntryList.get(i);
+                    unify(entry.getKey(), otherEntry.getKey());
+                    if (isMap) {
+                        unify(entry.getValue(), otherEntry.getValue());
+                    }
+                }
+                resumeDeferred();
+
+                if (otherFrame != null) {
+                    Map<Term, Term> frameEntries = new HashMap<Term, Term>();
+                    for (int i = 0; i < entryList.size(); ++i) {
+                        if (!selected[i]) {
+                            frameEntries.put(entryList.get(i).getKey(), entryList.get(i).getValue());
+                        }
+                    }
+                    constraint.add(makeCollection(frameEntries, null, isMap), otherFrame);
+                }
+                succeeded = true;
+            } catch (MatcherException e) {
+                /* this selection does not unify */
+            } finally {
+                endSelection(state, succeeded, constraints);
+            }
+            return;
+        }
 
-        throw new UnsupportedOperationException(
-                "set matching is only supported when one of the sets is a variable.");
+        for (int candidate : candidates.get(index)) {
+            if (!selected[candidate]) {
+                selected[candidate] = true;
+                selection[index] = candidate;
+                selectEntries(index + 1, selection, selected, candidates, entryList,
+                        otherEntryList, otherFrame, isMap, constraints);
+                selected[candidate] = false;
+            }
+        }
+    }
+
+    private static boolean hasConcreteKeys(Map<Term, Term> entries) {
+        for (Term key : entries.keySet()) {
+            if (!isConcreteKey(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the given key is a token, and therefore cannot be equal to a syntactically
+     * different key.
+     */
+    private static boolean isConcreteKey(Term key) {
+        return key instanceof Token;
+    }
+
+    private static Map<Term, Term> asEntries(Set<Term> elements) {
+        Map<Term, Term> entries = new HashMap<Term, Term>();
+        for (Term element : elements) {
+            entries.put(element, null);
+        }
+        return entries;
+    }
+
+    private static Collection makeCollection(
+            Map<Term, Term> entries,
+            Variable frame,
+            boolean isMap) {
+        return isMap ?
+               new BuiltinMap(entries, frame) :
+               new BuiltinSet(entries.keySet(), frame);
     }
 
     @Override
@@ -236,104 +659,153 @@ public class SymbolicUnifier extends AbstractUnifier {
                 fail();
             }
 
-            SymbolicConstraint mainConstraint = constraint;
+            /* pair each cell of the pattern only with the cells of the subject which may have
+             * the same key */
+            List<List<Integer>> candidates = getCandidates(cells, otherCells, getKeyLabel(label));
+
             isStarNested = true;
 
             java.util.Collection<SymbolicConstraint> constraints = new ArrayList<SymbolicConstraint>();
-            SelectionGenerator generator = new SelectionGenerator(otherCells.length, cells.length);
-            do {
-                constraint = new SymbolicConstraint(context);
-
-                try {
-                    for (int i = 0; i < otherCells.length; ++i) {
-                        unify(cells[generator.selection.get(i)], otherCells[i]);
-                    }
-                } catch (MatcherException e) {
-                    continue;
-                }
+            selectCells(
+                    0,
+                    new int[otherCells.length],
+                    new boolean[cells.length],
+                    candidates,
+                    cells,
+                    otherCells,
+                    otherFrame,
+                    constraints);
 
-                Multimap<String, Cell> cellMap = ArrayListMultimap.create();
-                for (int i = 0; i < cells.length; ++i) {
-                    if (!generator.selected.contains(i)) {
-                        cellMap.put(cells[i].getLabel(), cells[i]);
-                    }
-                }
-
-                constraint.add(new CellCollection(cellMap, true), otherFrame);
-                constraints.add(constraint);
-            } while (generator.generate());
-
-            constraint = mainConstraint;
             isStarNested = false;
 
             if (constraints.isEmpty()) {
                 fail();
             }
 
-            if (constraints.size() == 1) {
-                constraint.addAll(constraints.iterator().next());
-            } else {
-                multiConstraints.add(constraints);
-            }
+            addDisjunction(constraints);
         }
     }
 
-    private class SelectionGenerator {
+    /**
+     * Returns the label of the cell whose content identifies each cell of a cell with
+     * multiplicity '*' (e.g. {@code id} for {@code thread}): the value of the attribute
+     * {@code key} in the declaration of the cell, or {@code id} by default.
+     */
+    private String getKeyLabel(String label) {
+        org.kframework.kil.Cell declaration = definition.context().cells.get(label);
+        String keyLabel = declaration != null ? declaration.getCellAttribute(KEY_ATTRIBUTE) : null;
+        return keyLabel != null ? keyLabel : DEFAULT_KEY_LABEL;
+    }
 
-        private final int size;
-        private final int coSize;
-        public List<Integer> selection;
-        public Set<Integer> selected;
-        private int index;
+    /**
+     * Returns the key of the given cell if it is a token, or null if the cell has no key or its
+     * key may be (or evaluate to) a different term.
+     */
+    private static Term getKey(Cell cell, String keyLabel) {
+        if (!(cell.getContent() instanceof CellCollection)) {
+            return null;
+        }
 
-        public SelectionGenerator(int size, int coSize) {
-            assert size <= coSize;
+        CellCollection cellCollection = (CellCollection) cell.getContent();
+        java.util.Collection<Cell> keyCells = cellCollection.get(keyLabel);
+        if (keyCells.size() != 1) {
+            return null;
+        }
 
-            this.size = size;
-            this.coSize = coSize;
-            selection = new ArrayList<Integer>();
-            selected = new HashSet<Integer>();
-            for (int i = 0; i < size; ++i) {
-                selection.add(i);
-                selected.add(i);
-            }
+        Term key = keyCells.iterator().next().getContent();
+        if (key.kind() == Kind.K || key.kind() == Kind.KLIST) {
+            key = KCollection.downKind(key);
         }
+        return key instanceof Token ? key : null;
+    }
 
-        private void pop() {
-            index = selection.remove(selection.size() - 1);
-            selected.remove(index);
-            ++index;
+    /**
+     * Computes, for each cell of the pattern, the indices of the cells of the subject it may be
+     * unified with. A pattern cell with a token key is only paired with the subject cells with
+     * the same key (found by lookup) and the subject cells without a token key; the unification
+     * of the other pairings would fail on the keys.
+     */
+    private List<List<Integer>> getCandidates(Cell[] cells, Cell[] otherCells, String keyLabel) {
+        Multimap<Term, Integer> cellsByKey = ArrayListMultimap.create();
+        List<Integer> cellsWithoutKey = new ArrayList<Integer>();
+        List<Integer> allCells = new ArrayList<Integer>();
+        for (int i = 0; i < cells.length; ++i) {
+            Term key = getKey(cells[i], keyLabel);
+            if (key != null) {
+                cellsByKey.put(key, i);
+            } else {
+                cellsWithoutKey.add(i);
+            }
+            allCells.add(i);
         }
 
-        private void push() {
-            selection.add(index);
-            selected.add(index);
-            index = 0;
+        List<List<Integer>> candidates = new ArrayList<List<Integer>>(otherCells.length);
+        for (Cell otherCell : otherCells) {
+            Term otherKey = getKey(otherCell, keyLabel);
+            if (otherKey == null || cellsByKey.isEmpty()) {
+                candidates.add(allCells);
+            } else {
+                /* keep the candidates in increasing order */
+                List<Integer> otherCandidates = new ArrayList<Integer>(cellsByKey.get(otherKey));
+                otherCandidates.addAll(cellsWithoutKey);
+                Collections.sort(otherCandidates);
+                candidates.add(otherCandidates);
+                context.addPrunedCellPairings(cells.length - otherCandidates.size());
+            }
         }
+        return candidates;
+    }
 
-        public boolean generate() {
-            pop();
-            while (selection.size() != size) {
-                if (index == coSize) {
-                    if (selection.isEmpty()) {
-                        break;
-                    } else {
-                        pop();
-                        continue;
-                    }
+    /**
+     * Enumerates the injective assignments of subject cells to the pattern cells {@code index},
+     * {@code index + 1}, ... among the candidates of each pattern cell, and adds a constraint to
+     * {@code constraints} for each assignment under which the cells unify.
+     */
+    private void selectCells(
+            int index,
+            int[] selection,
+            boolean[] selected,
+            List<List<Integer>> candidates,
+            Cell[] cells,
+            Cell[] otherCells,
+            Variable otherFrame,
+            java.util.Collection<SymbolicConstraint> constraints) {
+        if (index == otherCells.length) {
+            context.addTriedCellPairing();
+            EnclosingState state = beginSelection();
+            boolean succeeded = false;
+            try {
+                for (int i = 0; i < otherCells.length; ++i) {
+                    unify(cells[selection[i]], otherCells[i]);
                 }
+                resumeDeferred();
 
-                if (!selected.contains(index)) {
-                    push();
-                    continue;
+                Multimap<String, Cell> cellMap = ArrayListMultimap.create();
+                for (int i = 0; i < cells.length; ++i) {
+                    if (!selected[i]) {
+                        cellMap.put(cells[i].getLabel(), cells[i]);
+                    }
                 }
 
-                ++index;
+                constraint.add(new CellCollection(cellMap, true), otherFrame);
+                succeeded = true;
+            } catch (MatcherException e) {
+                /* this selection does not unify */
+            } finally {
+                endSelection(state, succeeded, constraints);
             }
-
-            return !selection.isEmpty();
+            return;
         }
 
+        for (int candidate : candidates.get(index)) {
+            if (!selected[candidate]) {
+                selected[candidate] = true;
+                selection[index] = candidate;
+                selectCells(index + 1, selection, selected, candidates, cells, otherCells,
+                        otherFrame, constraints);
+                selected[candidate] = false;
+            }
+        }
     }
 
     private void addCellCollectionConstraint(
@@ -70,8 +70,8 @@ public class TermTransformer extends CopyOnWriteTransformer {
     }
 
     @Override
-    public ASTNode transform(Cell cell) {
-        return transformTerm((Term) super.transform(cell));
+    protected ASTNode postTransform(Term term, Term transformedTerm) {
+        return transformTerm(transformedTerm);
     }
 
     @Override
@@ -99,31 +99,6 @@ public class TermTransformer extends CopyOnWriteTransformer {
         return transformTerm((Term) super.transform(kLabelConstant));
     }
 
-    @Override
-    public ASTNode transform(KLabelFreezer kLabelFreezer) {
-        return transformTerm((Term) super.transform(kLabelFreezer));
-    }
-
-    @Override
-    public ASTNode transform(KLabelInjection kLabelInjection) {
-        return transformTerm((Term) super.transform(kLabelInjection));
-    }
-
-    @Override
-    public ASTNode transform(KItem kItem) {
-        return transformTerm((Term) super.transform(kItem));
-    }
-
-    @Override
-    public ASTNode transform(KList kList) {
-        return transformTerm((Term) super.transform(kList));
-    }
-
-    @Override
-    public ASTNode transform(KSequence kSequence) {
-        return transformTerm((Term) super.transform(kSequence));
-    }
-
     @Override
     public ASTNode transform(MapLookup mapLookup) {
         return transformTerm((Term) super.transform(mapLookup));
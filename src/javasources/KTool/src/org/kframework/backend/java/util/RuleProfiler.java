@@ -0,0 +1,272 @@
+package org.kframework.backend.java.util;
+
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.utils.StringUtil;
+import org.kframework.utils.file.FileUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects per-rule execution statistics for the Java Rewrite Engine: how often each rule (rewrite
+ * or function rule) was tried, how often unification with its left-hand side succeeded, how often
+ * a unifier was discarded early by a guard of the side condition, and the time spent in each
+ * {@link Phase} while applying it.
+ * <p/>
+ * Times are exclusive: the time spent applying a function rule while evaluating the right-hand
+ * side of another rule, or the time spent in the SMT solver while unifying, is charged to the
+ * inner rule or phase only. All methods return immediately unless the profiler is enabled (krun
+ * --profile with the Java backend).
+ * <p/>
+ * A profiler collects the statistics of one rewriting session, and is reached through the
+ * {@link TermContext}s of that session (see {@link TermContext#profiler()}); like them, it is not
+ * meant to be used by several threads at once.
+ */
+public class RuleProfiler {
+
+    public enum Phase { CONDITION, UNIFY, SMT, SUBSTITUTION, EVALUATION }
+
+    /**
+     * Statistics collected for one rule.
+     */
+    public static class RuleStatistics {
+        private final String name;
+        private final boolean function;
+        private long tried = 0;
+        private long succeeded = 0;
+        private long guardFailures = 0;
+        private final long[] nanos = new long[Phase.values().length];
+
+        private RuleStatistics(Rule rule, boolean function) {
+            this.name = rule.getFilename() + ":" + rule.getLocation();
+            this.function = function;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public boolean isFunction() {
+            return function;
+        }
+
+        public long tried() {
+            return tried;
+        }
+
+        public long succeeded() {
+            return succeeded;
+        }
+
+        /**
+         * Returns how often a unifier of the left-hand side was discarded because it falsified
+         * a guard of the side condition (see {@link Rule#checkGuards}).
+         */
+        public long guardFailures() {
+            return guardFailures;
+        }
+
+        public long millis(Phase phase) {
+            return nanos[phase.ordinal()] / 1000000;
+        }
+
+        public long totalMillis() {
+            long total = 0;
+            for (long time : nanos) {
+                total += time;
+            }
+            return total / 1000000;
+        }
+    }
+
+    private static class Frame {
+        final RuleStatistics statistics;
+        Phase phase;
+
+        Frame(RuleStatistics statistics, Phase phase) {
+            this.statistics = statistics;
+            this.phase = phase;
+        }
+    }
+
+    /**
+     * The profiler of the term contexts created without one; it is disabled, so it has no state
+     * to share.
+     */
+    public static final RuleProfiler DISABLED = new RuleProfiler(false);
+
+    private final boolean enabled;
+    private final Map<Rule, RuleStatistics> statistics = new IdentityHashMap<Rule, RuleStatistics>();
+    private final List<Frame> stack = new ArrayList<Frame>();
+    private long lastTime;
+
+    public RuleProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the application of a rule; the rule is counted as tried and the time that follows
+     * is charged to its {@link Phase#CONDITION} phase.
+     */
+    public void enterRule(Rule rule, boolean function) {
+        if (!enabled)
+            return;
+
+        RuleStatistics ruleStatistics = statistics.get(rule);
+        if (ruleStatistics == null) {
+            ruleStatistics = new RuleStatistics(rule, function);
+            statistics.put(rule, ruleStatistics);
+        }
+        ruleStatistics.tried++;
+        push(new Frame(ruleStatistics, Phase.CONDITION));
+    }
+
+    /**
+     * Records that the left-hand side of the rule currently applied unified with the subject term.
+     */
+    public void unificationSucceeded() {
+        if (!enabled || stack.isEmpty())
+            return;
+
+        stack.get(stack.size() - 1).statistics.succeeded++;
+    }
+
+    /**
+     * Records that a unifier of the left-hand side of the rule currently applied was discarded
+     * because it falsified a guard of the side condition.
+     */
+    public void guardFailed() {
+        if (!enabled || stack.isEmpty())
+            return;
+
+        stack.get(stack.size() - 1).statistics.guardFailures++;
+    }
+
+    /**
+     * Charges the time that follows to the given phase of the rule currently applied.
+     */
+    public void setPhase(Phase phase) {
+        if (!enabled || stack.isEmpty())
+            return;
+
+        charge();
+        stack.get(stack.size() - 1).phase = phase;
+    }
+
+    /**
+     * Charges the time that follows to the given phase of the rule currently applied, until the
+     * matching call to {@link #exit()}.
+     */
+    public void enterPhase(Phase phase) {
+        if (!enabled || stack.isEmpty())
+            return;
+
+        push(new Frame(stack.get(stack.size() - 1).statistics, phase));
+    }
+
+    /**
+     * Ends the innermost rule application or phase started by {@link #enterRule} or
+     * {@link #enterPhase}.
+     */
+    public void exit() {
+        if (!enabled || stack.isEmpty())
+            return;
+
+        charge();
+        stack.remove(stack.size() - 1);
+    }
+
+    private void push(Frame frame) {
+        charge();
+        stack.add(frame);
+    }
+
+    private void charge() {
+        long time = System.nanoTime();
+        if (!stack.isEmpty()) {
+            Frame frame = stack.get(stack.size() - 1);
+            frame.statistics.nanos[frame.phase.ordinal()] += time - lastTime;
+        }
+        lastTime = time;
+    }
+
+    /**
+     * Returns the collected statistics sorted by decreasing total time.
+     */
+    public List<RuleStatistics> getStatistics() {
+        List<RuleStatistics> result = new ArrayList<RuleStatistics>(statistics.values());
+        Collections.sort(result, new Comparator<RuleStatistics>() {
+            @Override
+            public int compare(RuleStatistics s1, RuleStatistics s2) {
+                return Long.compare(s2.totalMillis(), s1.totalMillis());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Prints the collected statistics as a table sorted by decreasing total time, followed by the
+     * statistics of the unification of cell collections in the given term context.
+     */
+    public void printReport(TermContext context) {
+        Formatter f = new Formatter(System.err);
+        f.format("%-50s %-8s %10s %10s %10s %8s %8s %8s %8s %8s %8s%n",
+                "Rule", "Kind", "tried", "unified", "guarded",
+                "cond", "unify", "smt", "subst", "eval", "total");
+        for (RuleStatistics ruleStatistics : getStatistics()) {
+            f.format("%-50s %-8s %10d %10d %10d %8d %8d %8d %8d %8d %8d%n",
+                    ruleStatistics.name,
+                    ruleStatistics.function ? "function" : "rewrite",
+                    ruleStatistics.tried,
+                    ruleStatistics.succeeded,
+                    ruleStatistics.guardFailures,
+                    ruleStatistics.millis(Phase.CONDITION),
+                    ruleStatistics.millis(Phase.UNIFY),
+                    ruleStatistics.millis(Phase.SMT),
+                    ruleStatistics.millis(Phase.SUBSTITUTION),
+                    ruleStatistics.millis(Phase.EVALUATION),
+                    ruleStatistics.totalMillis());
+        }
+        if (context.triedCellPairings() > 0) {
+            f.format("%nCell collection unification: %d cell pairings pruned by key, %d selections tried%n",
+                    context.prunedCellPairings(),
+                    context.triedCellPairings());
+        }
+        f.flush();
+    }
+
+    /**
+     * Saves the collected statistics as a JSON array; times are in milliseconds.
+     */
+    public void saveJson(String fileName) {
+        StringBuilder json = new StringBuilder();
+        json.append("[\n");
+        List<RuleStatistics> sorted = getStatistics();
+        for (int i = 0; i < sorted.size(); i++) {
+            RuleStatistics ruleStatistics = sorted.get(i);
+            json.append("  {\"rule\": \"").append(StringUtil.escapeJson(ruleStatistics.name));
+            json.append("\", \"kind\": \"").append(ruleStatistics.function ? "function" : "rewrite");
+            json.append("\", \"tried\": ").append(ruleStatistics.tried);
+            json.append(", \"unified\": ").append(ruleStatistics.succeeded);
+            json.append(", \"guarded\": ").append(ruleStatistics.guardFailures);
+            for (Phase phase : Phase.values()) {
+                json.append(", \"").append(phase.name().toLowerCase()).append("\": ");
+                json.append(ruleStatistics.millis(phase));
+            }
+            json.append(", \"total\": ").append(ruleStatistics.totalMillis());
+            json.append(i + 1 < sorted.size() ? "},\n" : "}\n");
+        }
+        json.append("]\n");
+        FileUtil.save(fileName, json);
+    }
+}
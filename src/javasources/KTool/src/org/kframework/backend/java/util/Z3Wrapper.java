@@ -10,8 +10,17 @@ import java.io.File;
  * @author Traian
  */
 public class Z3Wrapper {
-    public static boolean initialized = false;
+    /* the native library is loaded once per JVM; Z3 contexts are not shared between threads */
+    private static volatile boolean initialized = false;
+
     public static com.microsoft.z3.Context newContext() throws Z3Exception {
+        if (!initialized) {
+            loadLibrary();
+        }
+        return new com.microsoft.z3.Context();
+    }
+
+    private static synchronized void loadLibrary() {
         if (!initialized) {
             String libz3 = "libz3";
             switch (GlobalSettings.os()) {
@@ -27,6 +36,5 @@ public class Z3Wrapper {
             System.load(KPaths.getJavaLibraryPath() + File.separator + libz3);
             initialized = true;
         }
-        return new com.microsoft.z3.Context();
     }
 }
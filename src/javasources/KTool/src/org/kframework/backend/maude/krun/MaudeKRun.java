@@ -1,6 +1,5 @@
 package org.kframework.backend.maude.krun;
 
-import org.apache.commons.collections15.Transformer;
 import org.kframework.backend.maude.MaudeFilter;
 import org.kframework.compile.utils.RuleCompilerSteps;
 import org.kframework.kil.*;
@@ -26,22 +25,16 @@ import org.w3c.dom.NodeList;
 
 import edu.uci.ics.jung.graph.DirectedGraph;
 import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
-import edu.uci.ics.jung.graph.DirectedSparseGraph;
-import edu.uci.ics.jung.io.graphml.EdgeMetadata;
-import edu.uci.ics.jung.io.graphml.GraphMetadata;
-import edu.uci.ics.jung.io.graphml.GraphMLReader2;
-import edu.uci.ics.jung.io.graphml.HyperEdgeMetadata;
-import edu.uci.ics.jung.io.graphml.NodeMetadata;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 
 
@@ -137,61 +130,82 @@ public class MaudeKRun implements KRun {
 	}
 
 	//needed for --statistics command
-	private String printStatistics(Element elem) {
+	private String printStatistics(XMLStreamReader elem) {
 		String result = "";
 		if ("search".equals(K.maude_cmd)) {
-			String totalStates = elem.getAttribute("total-states");
-			String totalRewrites = elem.getAttribute("total-rewrites");
-			String realTime = elem.getAttribute("real-time-ms");
-			String cpuTime = elem.getAttribute("cpu-time-ms");
-			String rewritesPerSecond = elem.getAttribute("rewrites-per-second");
+			String totalStates = getAttribute(elem, "total-states");
+			String totalRewrites = getAttribute(elem, "total-rewrites");
+			String realTime = getAttribute(elem, "real-time-ms");
+			String cpuTime = getAttribute(elem, "cpu-time-ms");
+			String rewritesPerSecond = getAttribute(elem, "rewrites-per-second");
 			result += "states: " + totalStates + " rewrites: " + totalRewrites + " in " + cpuTime + "ms cpu (" + realTime + "ms real) (" + rewritesPerSecond + " rewrites/second)";
 		} else if ("erewrite".equals(K.maude_cmd)){
-			String totalRewrites = elem.getAttribute("total-rewrites");
-			String realTime = elem.getAttribute("real-time-ms");
-			String cpuTime = elem.getAttribute("cpu-time-ms");
-			String rewritesPerSecond = elem.getAttribute("rewrites-per-second");
+			String totalRewrites = getAttribute(elem, "total-rewrites");
+			String realTime = getAttribute(elem, "real-time-ms");
+			String cpuTime = getAttribute(elem, "cpu-time-ms");
+			String rewritesPerSecond = getAttribute(elem, "rewrites-per-second");
 			result += "rewrites: " + totalRewrites + " in " + cpuTime + "ms cpu (" + realTime + "ms real) (" + rewritesPerSecond + " rewrites/second)";
 		}
 		return result;
 	}
 
-
+	/* the same as Element.getAttribute, which returns "" for a missing attribute */
+	private static String getAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
 
 	private KRunResult<KRunState> parseRunResult() throws IOException {
-		Document doc = XmlUtil.readXMLFromFile(K.maude_output);
-		NodeList list;
-		Node nod;
-		list = doc.getElementsByTagName("result");
-		nod = list.item(1);
-
-		assertXML(nod != null && nod.getNodeType() == Node.ELEMENT_NODE);
-		Element elem = (Element) nod;
-		List<Element> child = XmlUtil.getChildElements(elem);
-		assertXML(child.size() == 1);
+		MaudeXmlParser parser = new MaudeXmlParser(context);
+		KRunState state = null;
+		String statistics = null;
+		Term counter = null;
+		try (InputStream maudeOutput = new BufferedInputStream(new FileInputStream(K.maude_output))) {
+			XMLStreamReader reader = XmlUtil.createXMLStreamReader(maudeOutput);
+			try {
+				/* the results of setCounter, of the command and of counter */
+				int results = 0;
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT
+							&& reader.getLocalName().equals("result")) {
+						if (results == 1) {
+							statistics = printStatistics(reader);
+							state = new KRunState(parseResult(reader, parser), context);
+						} else if (results == 2) {
+							counter = parseResult(reader, parser);
+						}
+						results++;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
 
-		KRunState state = parseElement(child.get(0), context);
+		assertXML(state != null);
 		KRunResult<KRunState> ret = new KRunResult<KRunState>(state);
-		String statistics = printStatistics(elem);
 		ret.setStatistics(statistics);
         ret.setRawOutput(FileUtil.getFileContent(K.maude_out));
-		parseCounter(list.item(2));
+		parseCounter(counter);
 		return ret;
 	}
 
-	private KRunState parseElement(Element el, org.kframework.kil.loader.Context context) {
-		Term rawResult = MaudeKRun.parseXML(el, context);
-
-		return new KRunState(rawResult, context);
+	/**
+	Reads the term of the result on whose start tag the given reader is positioned. The reader is
+	left on the end tag of the result.
+	*/
+	private static Term parseResult(XMLStreamReader reader, MaudeXmlParser parser) throws XMLStreamException {
+		assertXML(reader.nextTag() == XMLStreamConstants.START_ELEMENT);
+		Term term = parser.parse(reader);
+		assertXML(reader.nextTag() == XMLStreamConstants.END_ELEMENT);
+		return term;
 	}
 
-	private void parseCounter(Node counter) {
-		assertXML(counter != null && counter.getNodeType() == Node.ELEMENT_NODE);
-		Element elem = (Element) counter;
-		List<Element> child = XmlUtil.getChildElements(elem);
-		assertXML(child.size() == 1);
-		IntBuiltin intBuiltin = (IntBuiltin) parseXML(child.get(0), context);
-		K.counter = intBuiltin.bigIntegerValue().intValue() - 1;
+	private void parseCounter(Term counter) {
+		assertXML(counter instanceof IntBuiltin);
+		K.counter = ((IntBuiltin) counter).bigIntegerValue().intValue() - 1;
 	}
 
 	private static void assertXML(boolean assertion) {
@@ -200,195 +214,11 @@ public class MaudeKRun implements KRun {
 		}
 	}
 
-	private static void assertXMLTerm(boolean assertion) throws Exception {
-		if (!assertion) {
-			throw new Exception();
-		}
-	}
-
 	public static Pattern cellPattern = Pattern.compile("<([^_>]+)>(_+)</([^_>]+)>");
 	public static Pattern emptyPattern = Pattern.compile("\\.(Map|Bag|List|Set|K)");
 
 	public static Term parseXML(Element xml, Context context) {
-		String op = xml.getAttribute("op");
-		String sort = xml.getAttribute("sort");
-		sort = sort.replaceAll("`([{}\\[\\](),])", "$1");
-		List<Element> list = XmlUtil.getChildElements(xml);
-		
-		try {
-			Matcher m;
-			if ((sort.equals("BagItem") || sort.equals("[Bag]")) && op.equals("<_>_</_>")) {
-				Cell cell = new Cell();
-				assertXMLTerm(list.size() == 3 && list.get(0).getAttribute("sort").equals("CellLabel") && list.get(2).getAttribute("sort").equals("CellLabel") && list.get(0).getAttribute("op").equals(list.get(2).getAttribute("op")));
-
-				cell.setLabel(list.get(0).getAttribute("op"));
-				cell.setContents(parseXML(list.get(1), context));
-				return cell;
-			} else if (GlobalSettings.sortedCells && sort.equals("BagItem") && 
-					   (m = cellPattern.matcher(op)).matches()) {
-				Cell cell = new Cell();
-				assertXMLTerm(list.size() == m.group(2).length() && m.group(1).equals(m.group(3)));
-				cell.setLabel(m.group(1));
-				if (m.group(2).length() > 1) {
-					Bag bag = new Bag();
-					for (Element el : list) {
-						bag.getContents().add(parseXML(el, context));
-					}
-					cell.setContents(bag);
-				} else {
-					cell.setContents(parseXML(list.get(0), context));
-				}
-				return cell;
-			} else if ((sort.equals("BagItem") || sort.equals("[Bag]")) && op.equals("BagItem")) {
-				assertXMLTerm(list.size() == 1);
-				return new BagItem(parseXML(list.get(0), context));
-			} else if ((sort.equals("MapItem") || sort.equals("[Map]")) && op.equals("_|->_")) {
-				assertXMLTerm(list.size() == 2);
-				return new MapItem(parseXML(list.get(0), context), parseXML(list.get(1), context));
-			} else if ((sort.equals("SetItem") || sort.equals("[Set]")) && op.equals("SetItem")) {
-				assertXMLTerm(list.size() == 1);
-				return new SetItem(parseXML(list.get(0), context));
-			} else if ((sort.equals("ListItem") || sort.equals("[List]")) && op.equals("ListItem")) {
-				assertXMLTerm(list.size() == 1);
-				return new ListItem(parseXML(list.get(0), context));
-			} else if (op.equals("_`,`,_") && sort.equals("NeKList")) {
-				assertXMLTerm(list.size() >= 2);
-				List<Term> l = new ArrayList<Term>();
-				for (Element elem : list) {
-					l.add(parseXML(elem, context));
-				}
-				return new KList(l);
-			} else if (sort.equals("K") && op.equals("_~>_")) {
-				assertXMLTerm(list.size() >= 2);
-				List<Term> l = new ArrayList<Term>();
-				for (Element elem : list) {
-					l.add(parseXML(elem, context));
-				}
-				return new KSequence(l);
-			} else if (op.equals("__") && (sort.equals("NeList") || sort.equals("List") || sort.equals("[List]"))) {
-				assertXMLTerm(list.size() >= 2);
-				List<Term> l = new ArrayList<Term>();
-				for (Element elem : list) {
-					l.add(parseXML(elem, context));
-				}
-				return new org.kframework.kil.List(l);
-			} else if (op.equals("__") && (sort.equals("NeBag") || sort.equals("Bag") || sort.equals("[Bag]"))) {
-				assertXMLTerm(list.size() >= 2);
-				List<Term> l = new ArrayList<Term>();
-				for (Element elem : list) {
-					l.add(parseXML(elem, context));
-				}
-				return new Bag(l);
-			} else if (op.equals("__") && (sort.equals("NeSet") || sort.equals("Set") || sort.equals("[Set]"))) {
-				assertXMLTerm(list.size() >= 2);
-				List<Term> l = new ArrayList<Term>();
-				for (Element elem : list) {
-					l.add(parseXML(elem, context));
-				}
-				return new org.kframework.kil.Set(l);
-			} else if (op.equals("__") && (sort.equals("NeMap") || sort.equals("Map") || sort.equals("[Map]"))) {
-				assertXMLTerm(list.size() >= 2);
-				List<Term> l = new ArrayList<Term>();
-				for (Element elem : list) {
-					l.add(parseXML(elem, context));
-				}
-				return new org.kframework.kil.Map(l);
-			} else if ((op.equals("#_") || op.equals("List2KLabel_") || op.equals("Map2KLabel_") || op.equals("Set2KLabel_") || op.equals("Bag2KLabel_") || op.equals("KList2KLabel_") || op.equals("KLabel2KLabel_")) && (sort.equals(KSorts.KLABEL) || sort.equals("[KLabel]"))) {
-				assertXMLTerm(list.size() == 1);
-                Term term = parseXML(list.get(0), context);
-                if (op.equals("#_") && term instanceof Token) {
-                    return term;
-                } else {
-                    return new KInjectedLabel(term);
-                }
-			} else if (sort.equals("#NzInt") && op.equals("--Int_")) {
-				assertXMLTerm(list.size() == 1);
-				return IntBuiltin.of("-" + ((IntBuiltin) parseXML(list.get(0), context)).value());
-			} else if (sort.equals("#NzNat") && op.equals("sNat_")) {
-				assertXMLTerm(list.size() == 1 && parseXML(list.get(0), context).equals(IntBuiltin.ZERO_TOKEN));
-                return IntBuiltin.of(xml.getAttribute("number"));
-			} else if (sort.equals("#Zero") && op.equals("0")) {
-				assertXMLTerm(list.size() == 0);
-				return IntBuiltin.ZERO_TOKEN;
-			} else if (sort.equals("#Bool") && (op.equals("true") || op.equals("false"))) {
-				assertXMLTerm(list.size() == 0);
-                return BoolBuiltin.of(op);
-			} else if (sort.equals("#Char") || sort.equals("#String")) {
-				assertXMLTerm(list.size() == 0);
-                assertXMLTerm(op.startsWith("\"") && op.endsWith("\""));
-				return StringBuiltin.of(StringUtil.unescape(op.substring(1, op.length() - 1)));
-            } else if (op.equals("#token") && sort.equals(KSorts.KLABEL)) {
-                // #token(String, String)
-                assertXMLTerm(list.size() == 2);
-                StringBuiltin sortString = (StringBuiltin) parseXML(list.get(0), context);
-                StringBuiltin valueString = (StringBuiltin) parseXML(list.get(1), context);
-                return GenericToken.of(sortString.stringValue(), valueString.stringValue());
-			} else if (sort.equals("#FiniteFloat")) {
-				assertXMLTerm(list.size() == 0);
-				return GenericToken.of("#Float", op);
-			} else if (emptyPattern.matcher(op).matches() && (sort.equals("Bag") || sort.equals("List") || sort.equals("Map") || sort.equals("Set") || sort.equals("K"))) {
-				assertXMLTerm(list.size() == 0);
-                if (sort.equals("Bag")) {
-                    return Bag.EMPTY;
-                } else if (sort.equals("List")) {
-                    return org.kframework.kil.List.EMPTY;
-                } else if (sort.equals("Map")) {
-                    return org.kframework.kil.Map.EMPTY;
-                } else if (sort.equals("Set")) {
-                    return org.kframework.kil.Set.EMPTY;
-                } else {
-                    // sort.equals("K")
-                    return KSequence.EMPTY;
-                }
-			} else if (op.equals(".KList") && sort.equals(KSorts.KLIST)) {
-				assertXMLTerm(list.size() == 0);
-				return KList.EMPTY;
-			} else if (op.equals("_`(_`)") && (sort.equals(KSorts.KITEM) || sort.equals("[KList]"))) {
-				assertXMLTerm(list.size() == 2);
-				Term child = parseXML(list.get(1), context);
-				if (!(child instanceof KList)) {
-					List<Term> terms = new ArrayList<Term>();
-					terms.add(child);
-					child = new KList(terms);
-				}
-				return new KApp(parseXML(list.get(0), context),child);
-			} else if (sort.equals(KSorts.KLABEL) && list.size() == 0) {
-				return KLabelConstant.of(StringUtil.unescapeMaude(op), context);
-			} else if (sort.equals(KSorts.KLABEL) && op.equals("#freezer_")) {
-				assertXMLTerm(list.size() == 1);
-				return new FreezerLabel(parseXML(list.get(0), context));
-			} else if (op.equals("HOLE")) {
-				assertXMLTerm(list.size() == 0 && sort.equals(KSorts.KITEM));
-				//return new Hole(sort);
-			    return Hole.KITEM_HOLE;
-            } else {
-				Set<String> conses = context.labels.get(StringUtil.unescapeMaude(op));
-				Set<String> validConses = new HashSet<String>();
-				List<Term> possibleTerms = new ArrayList<Term>();
-				assertXMLTerm(conses != null);
-				for (String cons : conses) {
-					Production p = context.conses.get(cons);
-					if (p.getSort().equals(sort) && p.getArity() == list.size()) {
-						validConses.add(cons);
-					}
-				}
-				assertXMLTerm(validConses.size() > 0);
-				List<Term> contents = new ArrayList<Term>();
-				for (Element elem : list) {
-					contents.add(parseXML(elem, context));
-				}
-				for (String cons : validConses) {
-					possibleTerms.add(new TermCons(sort, cons, contents, context));
-				}
-				if (possibleTerms.size() == 1) {
-					return possibleTerms.get(0);
-				} else {
-					return new Ambiguity(sort, possibleTerms);
-				}
-			}
-		} catch (Exception e) {
-			return new BackendTerm(sort, flattenXML(xml));
-		}
+		return new MaudeXmlParser(context).parse(xml);
 	}
 
 	public static String flattenXML(Element xml) {
@@ -472,135 +302,102 @@ public class MaudeKRun implements KRun {
 		}
 	}
 
-	private DirectedGraph<KRunState, Transition> parseSearchGraph() throws Exception {
-        try (
-            Scanner scanner = new Scanner(new File(K.maude_output));
-            Writer writer = new OutputStreamWriter(new BufferedOutputStream(
-                new FileOutputStream(K.processed_maude_output)))) {
-
-            scanner.useDelimiter("\n");
-            while (scanner.hasNext()) {
-                String text = scanner.next();
-                text = text.replaceAll("<data key=\"((rule)|(term))\">", "<data key=\"$1\"><![CDATA[");
-                text = text.replaceAll("</data>", "]]></data>");
-                writer.write(text, 0, text.length());
-            }
-        }
-
-		Document doc = XmlUtil.readXMLFromFile(K.processed_maude_output);
-		NodeList list;
-		Node nod;
-		list = doc.getElementsByTagName("graphml");
-		assertXML(list.getLength() == 1);
-		nod = list.item(0);
-		assertXML(nod != null && nod.getNodeType() == Node.ELEMENT_NODE);
-		XmlUtil.serializeXML(nod, K.processed_maude_output);
-			
-		Transformer<GraphMetadata, DirectedGraph<KRunState, Transition>> graphTransformer = new Transformer<GraphMetadata, DirectedGraph<KRunState, Transition>>() { 
-			public DirectedGraph<KRunState, Transition> transform(GraphMetadata g) { 
-				return new DirectedSparseGraph<KRunState, Transition>();
-			}
-		};
-		Transformer<NodeMetadata, KRunState> nodeTransformer = new Transformer<NodeMetadata, KRunState>() {
-			public KRunState transform(NodeMetadata n) {
-				String nodeXmlString = n.getProperty("term");
-				Element xmlTerm = XmlUtil.readXMLFromString(nodeXmlString).getDocumentElement();
-				KRunState ret = parseElement(xmlTerm, context);
-				String id = n.getId();
-				id = id.substring(1);
-				ret.setStateId(Integer.parseInt(id) + K.stateCounter);
-				return ret;
-			}
-		};
-		Transformer<EdgeMetadata, Transition> edgeTransformer = new Transformer<EdgeMetadata, Transition>() {
-			public Transition transform(EdgeMetadata e) {
-				String edgeXmlString = e.getProperty("rule");
-				Element elem = XmlUtil.readXMLFromString(edgeXmlString).getDocumentElement();
-				String metadataAttribute = elem.getAttribute("metadata");
-				Pattern pattern = Pattern.compile("([a-z]*)=\\((.*?)\\)");
-				Matcher matcher = pattern.matcher(metadataAttribute);
-				String location = null;
-				String filename = null;
-				while (matcher.find()) {
-					String name = matcher.group(1);
-					if (name.equals("location"))
-						location = matcher.group(2);
-					if (name.equals("filename"))
-						filename = matcher.group(2);
-				}
-				if (location == null || location.equals("generated") || filename == null) {
-					// we should avoid this wherever possible, but as a quick fix for the
-					// superheating problem and to avoid blowing things up by accident when
-					// location information is missing, I am creating non-RULE edges.
-					String labelAttribute = elem.getAttribute("label");
-					if (labelAttribute == null) {
-						return Transition.unlabelled(context);
-					} else {
-						return Transition.label(labelAttribute, context);
-					}
+	/**
+	Maude only reports the solutions at the end of the search, so they are passed to the listener
+	once the search is over.
+	*/
+	public KRunResult<SearchResults> search(Integer bound, Integer depth,
+										SearchType searchType, Rule pattern,
+										Term cfg,
+										RuleCompilerSteps compilationInfo,
+										SearchResultListener listener)
+			throws KRunExecutionException {
+		KRunResult<SearchResults> result = search(bound, depth, searchType, pattern, cfg,
+				compilationInfo);
+		if (listener != null) {
+			SearchResults results = result.getResult();
+			for (SearchResult solution : results.getSolutions()) {
+				if (!listener.solutionFound(solution, results.isDefaultPattern())) {
+					break;
 				}
-				return Transition.rule(context.locations.get(filename + ":(" + location + ")"),
-                        context);
 			}
-		};
+		}
+		return result;
+	}
 
-		Transformer<HyperEdgeMetadata, Transition> hyperEdgeTransformer = new Transformer<HyperEdgeMetadata, Transition>() {
-			public Transition transform(HyperEdgeMetadata h) {
-				throw new RuntimeException("Found a hyper-edge. Has someone been tampering with our intermediate files?");
-			}
-		};
-
-        try (Reader processedMaudeOutputReader
-                 = new BufferedReader(new FileReader(K.processed_maude_output))) {
-            GraphMLReader2<DirectedGraph<KRunState, Transition>, KRunState, Transition> graphmlParser
-                = new GraphMLReader2<>(processedMaudeOutputReader, graphTransformer, nodeTransformer,
-                edgeTransformer, hyperEdgeTransformer);
-            return graphmlParser.readGraph();
-        }
+	private DirectedGraph<KRunState, Transition> parseSearchGraph() throws Exception {
+		try (InputStream maudeOutput = new BufferedInputStream(new FileInputStream(K.maude_output))) {
+			DirectedGraph<KRunState, Transition> graph = new SearchGraphLoader(K.stateCounter, context).load(maudeOutput);
+			assertXML(graph != null);
+			return graph;
+		}
 	}
 
-	private List<SearchResult> parseSearchResults(Rule pattern, RuleCompilerSteps compilationInfo) {
+	private List<SearchResult> parseSearchResults(Rule pattern, RuleCompilerSteps compilationInfo) throws IOException, XMLStreamException {
 		List<SearchResult> results = new ArrayList<SearchResult>();
-		Document doc = XmlUtil.readXMLFromFile(K.maude_output);
-		NodeList list;
-		Node nod;
-		list = doc.getElementsByTagName("search-result");
-		for (int i = 0; i < list.getLength(); i++) {
-			nod = list.item(i);
-			assertXML(nod != null && nod.getNodeType() == Node.ELEMENT_NODE);
-			Element elem = (Element) nod;
-			if (elem.getAttribute("solution-number").equals("NONE")) {
-				continue;
-			}
-			int stateNum = Integer.parseInt(elem.getAttribute("state-number"));
-			Map<String, Term> rawSubstitution = new HashMap<String, Term>();
-			NodeList assignments = elem.getElementsByTagName("assignment");
-			for (int j = 0; j < assignments.getLength(); j++) {
-				nod = assignments.item(j);
-				assertXML(nod != null && nod.getNodeType() == Node.ELEMENT_NODE);
-				elem = (Element) nod;
-				List<Element> child = XmlUtil.getChildElements(elem);
-				assertXML(child.size() == 2);
-				Term result = parseXML(child.get(1), context);
-				rawSubstitution.put(child.get(0).getAttribute("op"), result);
-			}
-
+		MaudeXmlParser parser = new MaudeXmlParser(context);
+		Term counter = null;
+		try (InputStream maudeOutput = new BufferedInputStream(new FileInputStream(K.maude_output))) {
+			XMLStreamReader reader = XmlUtil.createXMLStreamReader(maudeOutput);
 			try {
-				Term rawResult = (Term)pattern.getBody().accept(new SubstitutionFilter(rawSubstitution,
-                        context));
-				KRunState state = new KRunState(rawResult, context);
-				state.setStateId(stateNum + K.stateCounter);
-				SearchResult result = new SearchResult(state, rawSubstitution, compilationInfo,
-                        context);
-				results.add(result);
-			} catch (TransformerException e) {
-				e.report(); //this should never happen, so I want it to blow up
+				/* the results of setCounter and of counter */
+				int resultCount = 0;
+				int stateNum = 0;
+				Map<String, Term> rawSubstitution = null;
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.END_ELEMENT && rawSubstitution != null
+							&& reader.getLocalName().equals("search-result")) {
+						SearchResult result = getSearchResult(pattern, compilationInfo, stateNum, rawSubstitution);
+						if (result != null) {
+							results.add(result);
+						}
+						rawSubstitution = null;
+						continue;
+					} else if (event != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+
+					String name = reader.getLocalName();
+					if (name.equals("search-result")) {
+						if (!getAttribute(reader, "solution-number").equals("NONE")) {
+							stateNum = Integer.parseInt(getAttribute(reader, "state-number"));
+							rawSubstitution = new HashMap<String, Term>();
+						}
+					} else if (name.equals("assignment") && rawSubstitution != null) {
+						assertXML(reader.nextTag() == XMLStreamConstants.START_ELEMENT);
+						String variable = getAttribute(reader, "op");
+						assertXML(reader.nextTag() == XMLStreamConstants.END_ELEMENT);
+						assertXML(reader.nextTag() == XMLStreamConstants.START_ELEMENT);
+						rawSubstitution.put(variable, parser.parse(reader));
+						assertXML(reader.nextTag() == XMLStreamConstants.END_ELEMENT);
+					} else if (name.equals("result")) {
+						if (resultCount == 1) {
+							counter = parseResult(reader, parser);
+						}
+						resultCount++;
+					}
+				}
+			} finally {
+				reader.close();
 			}
 		}
-		list = doc.getElementsByTagName("result");
-		nod = list.item(1);
-		parseCounter(nod);
-		return results;		
+		parseCounter(counter);
+		return results;
+	}
+
+	private SearchResult getSearchResult(Rule pattern, RuleCompilerSteps compilationInfo, int stateNum,
+			Map<String, Term> rawSubstitution) {
+		try {
+			Term rawResult = (Term)pattern.getBody().accept(new SubstitutionFilter(rawSubstitution,
+                    context));
+			KRunState state = new KRunState(rawResult, context);
+			state.setStateId(stateNum + K.stateCounter);
+			return new SearchResult(state, rawSubstitution, compilationInfo, context);
+		} catch (TransformerException e) {
+			e.report(); //this should never happen, so I want it to blow up
+			return null;
+		}
 	}
 
 	public KRunProofResult<DirectedGraph<KRunState, Transition>> modelCheck(Term formula, Term cfg) throws KRunExecutionException {
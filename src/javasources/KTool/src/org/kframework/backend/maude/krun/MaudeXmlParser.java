@@ -0,0 +1,415 @@
+package org.kframework.backend.maude.krun;
+
+import org.kframework.kil.*;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.XmlUtil;
+import org.kframework.utils.StringUtil;
+import org.kframework.utils.general.GlobalSettings;
+import org.w3c.dom.Element;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+/**
+Builds KIL terms from the terms printed by Maude in its XML output.
+<p>
+Terms are read from a {@link XMLStreamReader} in a single pass: each term is built when the end
+tag of its element is read, from the terms of its children, so deeply nested terms do not grow
+the call stack. The sorts, operators and constructors looked up for each element are cached in
+the parser, so a parser should be reused for all the terms of the same output.
+<p>
+A term which cannot be decoded is kept as a {@link BackendTerm} holding its Maude syntax. Since
+any term may end up inside such a term, the operators of the terms are kept until the whole
+term is read.
+*/
+public class MaudeXmlParser {
+
+	private final Context context;
+
+	private final Map<String, String> sorts = new HashMap<String, String>();
+	private final Map<String, String> labels = new HashMap<String, String>();
+	private final Map<String, CellOperator> cellOperators = new HashMap<String, CellOperator>();
+	private final Map<ConsesKey, List<String>> conses = new HashMap<ConsesKey, List<String>>();
+
+	public MaudeXmlParser(Context context) {
+		this.context = context;
+	}
+
+	/**
+	Reads the term on whose start tag the given reader is positioned. The reader is left on the
+	end tag of the term.
+	*/
+	public Term parse(XMLStreamReader reader) throws XMLStreamException {
+		List<XmlTerm> stack = new ArrayList<XmlTerm>();
+		while (true) {
+			if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+				stack.add(new XmlTerm(
+						reader.getAttributeValue(null, "op"),
+						getSort(reader.getAttributeValue(null, "sort")),
+						reader.getAttributeValue(null, "number")));
+			} else if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+				XmlTerm xml = stack.remove(stack.size() - 1);
+				decodeEagerly(xml);
+				if (stack.isEmpty()) {
+					return xml.getTerm();
+				}
+				stack.get(stack.size() - 1).children.add(xml);
+			}
+			reader.next();
+		}
+	}
+
+	/**
+	Reads the term held in the given element of a DOM.
+	*/
+	public Term parse(Element xml) {
+		return read(xml).getTerm();
+	}
+
+	private XmlTerm read(Element xml) {
+		XmlTerm result = new XmlTerm(
+				xml.getAttribute("op"),
+				getSort(xml.getAttribute("sort")),
+				xml.getAttribute("number"));
+		for (Element child : XmlUtil.getChildElements(xml)) {
+			result.children.add(read(child));
+		}
+		decodeEagerly(result);
+		return result;
+	}
+
+	/* cell labels are only decoded if they are used as terms, which they are not inside cells */
+	private void decodeEagerly(XmlTerm xml) {
+		if (!(xml.sort.equals("CellLabel") && xml.children.isEmpty())) {
+			xml.getTerm();
+		}
+	}
+
+	private String getSort(String rawSort) {
+		if (rawSort == null) {
+			return "";
+		}
+		String sort = sorts.get(rawSort);
+		if (sort == null) {
+			sort = rawSort.replaceAll("`([{}\\[\\](),])", "$1");
+			sorts.put(rawSort, sort);
+		}
+		return sort;
+	}
+
+	private String getLabel(String op) {
+		String label = labels.get(op);
+		if (label == null) {
+			label = StringUtil.unescapeMaude(op);
+			labels.put(op, label);
+		}
+		return label;
+	}
+
+	private CellOperator getCellOperator(String op) {
+		CellOperator cellOperator = cellOperators.get(op);
+		if (cellOperator == null) {
+			Matcher m = MaudeKRun.cellPattern.matcher(op);
+			if (m.matches() && m.group(1).equals(m.group(3))) {
+				cellOperator = new CellOperator(m.group(1), m.group(2).length());
+			} else if (m.matches()) {
+				/* a cell whose closing label differs, which cannot be decoded */
+				cellOperator = new CellOperator(null, -1);
+			} else {
+				cellOperator = CellOperator.NONE;
+			}
+			cellOperators.put(op, cellOperator);
+		}
+		return cellOperator;
+	}
+
+	/**
+	Returns the constructors of the given operator with the given sort and arity, or {@code null}
+	if there are none.
+	*/
+	private List<String> getConses(String op, String sort, int arity) {
+		ConsesKey key = new ConsesKey(op, sort, arity);
+		if (conses.containsKey(key)) {
+			return conses.get(key);
+		}
+
+		List<String> result = null;
+		Set<String> labelConses = context.labels.get(getLabel(op));
+		if (labelConses != null) {
+			Set<String> validConses = new HashSet<String>();
+			for (String cons : labelConses) {
+				Production p = context.conses.get(cons);
+				if (p.getSort().equals(sort) && p.getArity() == arity) {
+					validConses.add(cons);
+				}
+			}
+			if (validConses.size() > 0) {
+				result = new ArrayList<String>(validConses);
+			}
+		}
+		conses.put(key, result);
+		return result;
+	}
+
+	private Term decode(XmlTerm xml) {
+		try {
+			Term term = decodeTerm(xml);
+			if (term != null) {
+				return term;
+			}
+		} catch (RuntimeException e) {
+			/* e.g. a builtin with an invalid value */
+		}
+		StringBuilder flattened = new StringBuilder();
+		xml.flatten(flattened);
+		return new BackendTerm(xml.sort, flattened.toString());
+	}
+
+	/**
+	Returns the term of the given element from the terms of its children, or {@code null} if the
+	element is not a term of the definition.
+	*/
+	private Term decodeTerm(XmlTerm xml) {
+		String op = xml.op;
+		String sort = xml.sort;
+		List<XmlTerm> list = xml.children;
+
+		CellOperator cellOperator;
+		if ((sort.equals("BagItem") || sort.equals("[Bag]")) && op.equals("<_>_</_>")) {
+			if (!(list.size() == 3 && list.get(0).sort.equals("CellLabel") && list.get(2).sort.equals("CellLabel")
+					&& list.get(0).op.equals(list.get(2).op))) {
+				return null;
+			}
+			Cell cell = new Cell();
+			cell.setLabel(list.get(0).op);
+			cell.setContents(list.get(1).getTerm());
+			return cell;
+		} else if (GlobalSettings.sortedCells && sort.equals("BagItem")
+				&& (cellOperator = getCellOperator(op)) != CellOperator.NONE) {
+			if (list.size() != cellOperator.arity) {
+				return null;
+			}
+			Cell cell = new Cell();
+			cell.setLabel(cellOperator.label);
+			if (cellOperator.arity > 1) {
+				Bag bag = new Bag();
+				for (XmlTerm child : list) {
+					bag.getContents().add(child.getTerm());
+				}
+				cell.setContents(bag);
+			} else {
+				cell.setContents(list.get(0).getTerm());
+			}
+			return cell;
+		} else if ((sort.equals("BagItem") || sort.equals("[Bag]")) && op.equals("BagItem")) {
+			return list.size() == 1 ? new BagItem(list.get(0).getTerm()) : null;
+		} else if ((sort.equals("MapItem") || sort.equals("[Map]")) && op.equals("_|->_")) {
+			return list.size() == 2 ? new MapItem(list.get(0).getTerm(), list.get(1).getTerm()) : null;
+		} else if ((sort.equals("SetItem") || sort.equals("[Set]")) && op.equals("SetItem")) {
+			return list.size() == 1 ? new SetItem(list.get(0).getTerm()) : null;
+		} else if ((sort.equals("ListItem") || sort.equals("[List]")) && op.equals("ListItem")) {
+			return list.size() == 1 ? new ListItem(list.get(0).getTerm()) : null;
+		} else if (op.equals("_`,`,_") && sort.equals("NeKList")) {
+			return list.size() >= 2 ? new KList(getTerms(list)) : null;
+		} else if (sort.equals("K") && op.equals("_~>_")) {
+			return list.size() >= 2 ? new KSequence(getTerms(list)) : null;
+		} else if (op.equals("__") && (sort.equals("NeList") || sort.equals("List") || sort.equals("[List]"))) {
+			return list.size() >= 2 ? new org.kframework.kil.List(getTerms(list)) : null;
+		} else if (op.equals("__") && (sort.equals("NeBag") || sort.equals("Bag") || sort.equals("[Bag]"))) {
+			return list.size() >= 2 ? new Bag(getTerms(list)) : null;
+		} else if (op.equals("__") && (sort.equals("NeSet") || sort.equals("Set") || sort.equals("[Set]"))) {
+			return list.size() >= 2 ? new org.kframework.kil.Set(getTerms(list)) : null;
+		} else if (op.equals("__") && (sort.equals("NeMap") || sort.equals("Map") || sort.equals("[Map]"))) {
+			return list.size() >= 2 ? new org.kframework.kil.Map(getTerms(list)) : null;
+		} else if ((op.equals("#_") || op.equals("List2KLabel_") || op.equals("Map2KLabel_") || op.equals("Set2KLabel_") || op.equals("Bag2KLabel_") || op.equals("KList2KLabel_") || op.equals("KLabel2KLabel_")) && (sort.equals(KSorts.KLABEL) || sort.equals("[KLabel]"))) {
+			if (list.size() != 1) {
+				return null;
+			}
+			Term term = list.get(0).getTerm();
+			if (op.equals("#_") && term instanceof Token) {
+				return term;
+			} else {
+				return new KInjectedLabel(term);
+			}
+		} else if (sort.equals("#NzInt") && op.equals("--Int_")) {
+			if (!(list.size() == 1 && list.get(0).getTerm() instanceof IntBuiltin)) {
+				return null;
+			}
+			return IntBuiltin.of("-" + ((IntBuiltin) list.get(0).getTerm()).value());
+		} else if (sort.equals("#NzNat") && op.equals("sNat_")) {
+			if (!(list.size() == 1 && list.get(0).getTerm().equals(IntBuiltin.ZERO_TOKEN))) {
+				return null;
+			}
+			return IntBuiltin.of(xml.number);
+		} else if (sort.equals("#Zero") && op.equals("0")) {
+			return list.size() == 0 ? IntBuiltin.ZERO_TOKEN : null;
+		} else if (sort.equals("#Bool") && (op.equals("true") || op.equals("false"))) {
+			return list.size() == 0 ? BoolBuiltin.of(op) : null;
+		} else if (sort.equals("#Char") || sort.equals("#String")) {
+			if (!(list.size() == 0 && op.startsWith("\"") && op.endsWith("\""))) {
+				return null;
+			}
+			return StringBuiltin.of(StringUtil.unescape(op.substring(1, op.length() - 1)));
+		} else if (op.equals("#token") && sort.equals(KSorts.KLABEL)) {
+			// #token(String, String)
+			if (!(list.size() == 2 && list.get(0).getTerm() instanceof StringBuiltin
+					&& list.get(1).getTerm() instanceof StringBuiltin)) {
+				return null;
+			}
+			StringBuiltin sortString = (StringBuiltin) list.get(0).getTerm();
+			StringBuiltin valueString = (StringBuiltin) list.get(1).getTerm();
+			return GenericToken.of(sortString.stringValue(), valueString.stringValue());
+		} else if (sort.equals("#FiniteFloat")) {
+			return list.size() == 0 ? GenericToken.of("#Float", op) : null;
+		} else if (MaudeKRun.emptyPattern.matcher(op).matches() && (sort.equals("Bag") || sort.equals("List") || sort.equals("Map") || sort.equals("Set") || sort.equals("K"))) {
+			if (list.size() != 0) {
+				return null;
+			}
+			if (sort.equals("Bag")) {
+				return Bag.EMPTY;
+			} else if (sort.equals("List")) {
+				return org.kframework.kil.List.EMPTY;
+			} else if (sort.equals("Map")) {
+				return org.kframework.kil.Map.EMPTY;
+			} else if (sort.equals("Set")) {
+				return org.kframework.kil.Set.EMPTY;
+			} else {
+				// sort.equals("K")
+				return KSequence.EMPTY;
+			}
+		} else if (op.equals(".KList") && sort.equals(KSorts.KLIST)) {
+			return list.size() == 0 ? KList.EMPTY : null;
+		} else if (op.equals("_`(_`)") && (sort.equals(KSorts.KITEM) || sort.equals("[KList]"))) {
+			if (list.size() != 2) {
+				return null;
+			}
+			Term child = list.get(1).getTerm();
+			if (!(child instanceof KList)) {
+				List<Term> terms = new ArrayList<Term>();
+				terms.add(child);
+				child = new KList(terms);
+			}
+			return new KApp(list.get(0).getTerm(), child);
+		} else if (sort.equals(KSorts.KLABEL) && list.size() == 0) {
+			return KLabelConstant.of(getLabel(op), context);
+		} else if (sort.equals(KSorts.KLABEL) && op.equals("#freezer_")) {
+			return list.size() == 1 ? new FreezerLabel(list.get(0).getTerm()) : null;
+		} else if (op.equals("HOLE")) {
+			return list.size() == 0 && sort.equals(KSorts.KITEM) ? Hole.KITEM_HOLE : null;
+		} else {
+			List<String> validConses = getConses(op, sort, list.size());
+			if (validConses == null) {
+				return null;
+			}
+			List<Term> contents = getTerms(list);
+			if (validConses.size() == 1) {
+				return new TermCons(sort, validConses.get(0), contents, context);
+			}
+			List<Term> possibleTerms = new ArrayList<Term>();
+			for (String cons : validConses) {
+				possibleTerms.add(new TermCons(sort, cons, contents, context));
+			}
+			return new Ambiguity(sort, possibleTerms);
+		}
+	}
+
+	private static List<Term> getTerms(List<XmlTerm> list) {
+		List<Term> terms = new ArrayList<Term>(list.size());
+		for (XmlTerm xml : list) {
+			terms.add(xml.getTerm());
+		}
+		return terms;
+	}
+
+	/**
+	An element of the output, with the term built from it.
+	*/
+	private class XmlTerm {
+		final String op;
+		final String sort;
+		final String number;
+		final List<XmlTerm> children = new ArrayList<XmlTerm>();
+		private Term term;
+
+		XmlTerm(String op, String sort, String number) {
+			this.op = op == null ? "" : op;
+			this.sort = sort;
+			this.number = number == null ? "" : number;
+		}
+
+		Term getTerm() {
+			if (term == null) {
+				term = decode(this);
+			}
+			return term;
+		}
+
+		/* the same as MaudeKRun.flattenXML */
+		void flatten(StringBuilder result) {
+			result.append(op);
+			if (children.isEmpty()) {
+				return;
+			}
+			if (!number.equals("")) {
+				result.append("^").append(number);
+			}
+			String conn = "(";
+			for (XmlTerm child : children) {
+				result.append(conn);
+				conn = ",";
+				child.flatten(result);
+			}
+			result.append(")");
+		}
+	}
+
+	/**
+	The label and the number of children of a cell operator {@code <label>_..._</label>}, as
+	printed for sorted cells.
+	*/
+	private static class CellOperator {
+		static final CellOperator NONE = new CellOperator(null, 0);
+
+		final String label;
+		final int arity;
+
+		CellOperator(String label, int arity) {
+			this.label = label;
+			this.arity = arity;
+		}
+	}
+
+	private static class ConsesKey {
+		final String op;
+		final String sort;
+		final int arity;
+
+		ConsesKey(String op, String sort, int arity) {
+			this.op = op;
+			this.sort = sort;
+			this.arity = arity;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ConsesKey)) {
+				return false;
+			}
+			ConsesKey key = (ConsesKey) o;
+			return op.equals(key.op) && sort.equals(key.sort) && arity == key.arity;
+		}
+
+		@Override
+		public int hashCode() {
+			return (op.hashCode() * 31 + sort.hashCode()) * 31 + arity;
+		}
+	}
+}
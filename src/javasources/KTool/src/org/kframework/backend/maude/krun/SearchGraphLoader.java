@@ -0,0 +1,184 @@
+package org.kframework.backend.maude.krun;
+
+import org.kframework.kil.Term;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.XmlUtil;
+import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.Transition;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+Loads the search graph printed by Maude ({@code show search graph .}) in its XML output, in a
+single streaming pass over the output.
+<p>
+The graph is stored as GraphML, with the term of each state and the rule of each transition
+nested as XML in the {@code data} elements of the nodes and edges. The terms are built by a
+{@link MaudeXmlParser} as they are read, and only the attributes of the rules are read.
+*/
+public class SearchGraphLoader {
+
+	private static final Pattern metadataPattern = Pattern.compile("([a-z]*)=\\((.*?)\\)");
+
+	private final Context context;
+	private final int stateOffset;
+	private final MaudeXmlParser parser;
+
+	private final DirectedGraph<KRunState, Transition> graph = new DirectedSparseGraph<KRunState, Transition>();
+	private final Map<String, KRunState> states = new HashMap<String, KRunState>();
+	/* edges are only added once all the nodes are read, as Maude may refer to a node before it */
+	private final List<String[]> endpoints = new ArrayList<String[]>();
+	private final List<Transition> transitions = new ArrayList<Transition>();
+
+	/**
+	@param stateOffset the number added to the number of each Maude state to get its state id
+	*/
+	public SearchGraphLoader(int stateOffset, Context context) {
+		this.context = context;
+		this.stateOffset = stateOffset;
+		this.parser = new MaudeXmlParser(context);
+	}
+
+	/**
+	Reads the search graph from the given Maude output.
+	@return the search graph, or {@code null} if the output does not contain one
+	*/
+	public DirectedGraph<KRunState, Transition> load(InputStream maudeOutput) throws XMLStreamException {
+		XMLStreamReader reader = XmlUtil.createXMLStreamReader(maudeOutput);
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT
+						&& reader.getLocalName().equals("graphml")) {
+					readGraph(reader);
+					return graph;
+				}
+			}
+			return null;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void readGraph(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("graphml")) {
+				break;
+			} else if (event != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+
+			String name = reader.getLocalName();
+			if (name.equals("node")) {
+				readNode(reader);
+			} else if (name.equals("edge")) {
+				readEdge(reader);
+			} else if (name.equals("hyperedge")) {
+				throw new RuntimeException("Found a hyper-edge. Has someone been tampering with our intermediate files?");
+			}
+		}
+
+		for (int i = 0; i < transitions.size(); i++) {
+			KRunState source = states.get(endpoints.get(i)[0]);
+			KRunState target = states.get(endpoints.get(i)[1]);
+			if (source == null || target == null) {
+				throw new XMLStreamException("Edge between unknown nodes " + endpoints.get(i)[0]
+						+ " and " + endpoints.get(i)[1]);
+			}
+			graph.addEdge(transitions.get(i), source, target);
+		}
+	}
+
+	private void readNode(XMLStreamReader reader) throws XMLStreamException {
+		String id = reader.getAttributeValue(null, "id");
+		KRunState state = null;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("node")) {
+				break;
+			} else if (event == XMLStreamConstants.START_ELEMENT
+					&& reader.getLocalName().equals("data")
+					&& "term".equals(reader.getAttributeValue(null, "key"))) {
+				if (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					Term rawResult = parser.parse(reader);
+					state = new KRunState(rawResult, context);
+				}
+			}
+		}
+		if (state == null) {
+			throw new XMLStreamException("Node " + id + " has no term", reader.getLocation());
+		}
+
+		state.setStateId(Integer.parseInt(id.substring(1)) + stateOffset);
+		states.put(id, state);
+		graph.addVertex(state);
+	}
+
+	private void readEdge(XMLStreamReader reader) throws XMLStreamException {
+		String source = reader.getAttributeValue(null, "source");
+		String target = reader.getAttributeValue(null, "target");
+		Transition transition = null;
+		int depth = 0;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (depth == 2) {
+					/* the rule nested in a data element */
+					transition = getTransition(
+							reader.getAttributeValue(null, "metadata"),
+							reader.getAttributeValue(null, "label"));
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == 0) {
+					break;
+				}
+				depth--;
+			}
+		}
+		if (transition == null) {
+			throw new XMLStreamException("Edge from " + source + " to " + target + " has no rule", reader.getLocation());
+		}
+
+		endpoints.add(new String[] { source, target });
+		transitions.add(transition);
+	}
+
+	private Transition getTransition(String metadata, String label) {
+		String location = null;
+		String filename = null;
+		if (metadata != null) {
+			Matcher matcher = metadataPattern.matcher(metadata);
+			while (matcher.find()) {
+				String name = matcher.group(1);
+				if (name.equals("location"))
+					location = matcher.group(2);
+				if (name.equals("filename"))
+					filename = matcher.group(2);
+			}
+		}
+		if (location == null || location.equals("generated") || filename == null) {
+			// we should avoid this wherever possible, but as a quick fix for the
+			// superheating problem and to avoid blowing things up by accident when
+			// location information is missing, I am creating non-RULE edges.
+			if (label == null) {
+				return Transition.unlabelled(context);
+			} else {
+				return Transition.label(label, context);
+			}
+		}
+		return Transition.rule(context.locations.get(filename + ":(" + location + ")"), context);
+	}
+}
@@ -58,4 +58,14 @@ public class PromelaBuchi {
         if (states.isEmpty()) return Collections.emptySet();
         return states;
     }
+
+    /**
+     * Same as {@link #getTransitions}, except that a state whose body is {@code skip} loops on
+     * itself, which is how never claims generated by ltl2ba (e.g. {@code accept_all}) are meant.
+     */
+    public Set<BuchiState> getSuccessors(BuchiState buchiState, Evaluator atomEvaluator) {
+        Collection<PromelaTransition> transitions = transitionMap.get(buchiState);
+        if (transitions != null && transitions.isEmpty()) return Collections.singleton(buchiState);
+        return getTransitions(buchiState, atomEvaluator);
+    }
 }
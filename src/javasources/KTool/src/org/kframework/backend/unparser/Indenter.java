@@ -1,23 +1,47 @@
 package org.kframework.backend.unparser;
 
+import java.io.IOException;
+
+/**
+Writes text with indentation, breaking the lines longer than the width given by the indentation
+options. The text is kept in a {@link StringBuilder}, or written directly to an {@link Appendable}
+such as a buffered {@link java.io.Writer} or a {@link java.io.PrintStream}, in which case only the
+stack of indentations is held in memory.
+*/
 public class Indenter {
 	String endl = System.getProperty("line.separator");
 	protected java.util.Stack<Integer> indents;
 	protected java.lang.StringBuilder stringBuilder;
+	protected Appendable out;
 	protected boolean atBOL = true;
 	protected IndentationOptions indentationOptions;
 	private int lineNo;
 	private int colNo;
+	/* the number of characters written since the start of the last line separator, or since the
+	   start of the output plus one if there is none */
+	private int lineLength;
 
 	public Indenter() {
 		this(new IndentationOptions());
 	}
 
 	public Indenter(IndentationOptions indentationOptions) {
+		this(indentationOptions, new java.lang.StringBuilder());
+	}
+
+	public Indenter(Appendable out) {
+		this(new IndentationOptions(), out);
+	}
+
+	public Indenter(IndentationOptions indentationOptions, Appendable out) {
 		indents = new java.util.Stack<Integer>();
-		stringBuilder = new java.lang.StringBuilder();
+		if (out instanceof java.lang.StringBuilder) {
+			stringBuilder = (java.lang.StringBuilder) out;
+		}
+		this.out = out;
 		lineNo = 1;
 		colNo = 1;
+		lineLength = 1;
 		this.indentationOptions = indentationOptions;
 	}
 
@@ -44,37 +68,47 @@ public class Indenter {
 	public void write(String string) {
 		if (atBOL) {
 			for (int i = 0; i < indentSize(); ++i) {
-				stringBuilder.append(" ");
+				append(" ");
 				colNo++;
 			}
 		}
-		int indexEndLine = stringBuilder.lastIndexOf(endl);
-		int indexEndString = stringBuilder.length();
-		if (indexEndString - indexEndLine + string.length() > getWidth()) {
-			stringBuilder.append(endl);
+		if (lineLength + string.length() > getWidth()) {
+			append(endl);
 			lineNo++;
 			colNo = 1;
 			for (int i = 0; i < indentSize() + getAuxTabSize(); ++i) {
-				stringBuilder.append(" ");
+				append(" ");
 				colNo++;
 			}
 		}
-		stringBuilder.append(string);
+		append(string);
 		colNo += string.length();
 		atBOL = false;
 	}
 
 	public void endLine() {
 		atBOL = true;
-		stringBuilder.append(endl);
+		append(endl);
 		lineNo++;
 		colNo = 1;
 	}
 
 	public void indentToCurrent() {
-		int indexEndLine = stringBuilder.lastIndexOf(endl);
-		int indexEndString = stringBuilder.length();
-		indents.push(indexEndString - indexEndLine - indentSize());
+		indents.push(lineLength - indentSize());
+	}
+
+	private void append(String string) {
+		try {
+			out.append(string);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		int indexEndLine = string.lastIndexOf(endl);
+		if (indexEndLine >= 0) {
+			lineLength = string.length() - indexEndLine;
+		} else {
+			lineLength += string.length();
+		}
 	}
 
 	public void indent(int size) {
@@ -85,12 +119,15 @@ public class Indenter {
 		indents.pop();
 	}
 
+	/**
+	Returns the text written, or {@code null} if it is written to another {@link Appendable}.
+	*/
     public StringBuilder getResult() {
         return stringBuilder;
     }
 
 	public String toString() {
-		return stringBuilder.toString();
+		return out.toString();
 	}
 
 	public int getLineNo() {
@@ -1,6 +1,7 @@
 package org.kframework.compile.transformers;
 
 import org.kframework.compile.utils.MetaK;
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.*;
 import org.kframework.kil.visitors.CopyOnWriteTransformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
@@ -13,7 +14,7 @@ import org.kframework.utils.general.GlobalSettings;
  * Date: 12/19/12
  * Time: 3:02 PM
  */
-public class AddHeatingConditions extends CopyOnWriteTransformer {
+public class AddHeatingConditions extends CopyOnWriteTransformer implements RuleLocal {
 	public AddHeatingConditions(org.kframework.kil.loader.Context context) {
 		super("Generate Heating Conditions", context);
 	}
@@ -1,5 +1,6 @@
 package org.kframework.compile.transformers;
 
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Bracket;
 import org.kframework.kil.loader.Context;
@@ -9,7 +10,7 @@ import org.kframework.kil.visitors.exceptions.TransformerException;
 /**
  * Delete Bracket nodes
  */
-public class RemoveBrackets extends CopyOnWriteTransformer {
+public class RemoveBrackets extends CopyOnWriteTransformer implements RuleLocal {
 
 	public RemoveBrackets(Context context) {
 		super("Remove brackets", context);
@@ -1,12 +1,13 @@
 package org.kframework.compile.transformers;
 
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Cast;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.CopyOnWriteTransformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
 
-public class RemoveSyntacticCasts extends CopyOnWriteTransformer {
+public class RemoveSyntacticCasts extends CopyOnWriteTransformer implements RuleLocal {
 
 	public RemoveSyntacticCasts(Context context) {
 		super("Remove syntactic casts", context);
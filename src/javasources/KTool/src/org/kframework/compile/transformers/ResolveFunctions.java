@@ -1,6 +1,7 @@
 package org.kframework.compile.transformers;
 
 import org.kframework.compile.utils.MetaK;
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.*;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.CopyOnWriteTransformer;
@@ -11,7 +12,7 @@ import org.kframework.kil.visitors.exceptions.TransformerException;
  * a production with a function or predicate attribute,
  * or a KApp of a KLabelConstant satisfying MetaK.isPredicateLabel.
  */
-public class ResolveFunctions extends CopyOnWriteTransformer {
+public class ResolveFunctions extends CopyOnWriteTransformer implements RuleLocal {
 
 	public ResolveFunctions(Context context) {
 		super("Resolve Functions", context);
@@ -1,5 +1,6 @@
 package org.kframework.compile.transformers;
 
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.*;
 import org.kframework.kil.visitors.CopyOnWriteTransformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
@@ -12,7 +13,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 
 /* TODO: andrei adds javadoc */
-public class ResolveListOfK extends CopyOnWriteTransformer {
+public class ResolveListOfK extends CopyOnWriteTransformer implements RuleLocal {
 
 	public ResolveListOfK(org.kframework.kil.loader.Context context) {
 		super("Resolve KList", context);
@@ -1,5 +1,6 @@
 package org.kframework.compile.transformers;
 
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.*;
 import org.kframework.kil.visitors.CopyOnWriteTransformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
@@ -9,7 +10,7 @@ import org.kframework.kil.visitors.exceptions.TransformerException;
  * Date: 11/1/12
  * Time: 7:59 AM
  */
-public class ResolveRewrite extends CopyOnWriteTransformer {
+public class ResolveRewrite extends CopyOnWriteTransformer implements RuleLocal {
 
     public ResolveRewrite(org.kframework.kil.loader.Context context) {
         super("Pushing local rewrites to top", context);
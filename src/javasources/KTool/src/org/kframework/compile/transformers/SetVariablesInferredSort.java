@@ -1,5 +1,6 @@
 package org.kframework.compile.transformers;
 
+import org.kframework.compile.utils.RuleLocal;
 import org.kframework.kil.Variable;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.CopyOnWriteTransformer;
@@ -12,7 +13,7 @@ import org.kframework.kil.visitors.CopyOnWriteTransformer;
  *
  * @author AndreiS
  */
-public class SetVariablesInferredSort extends CopyOnWriteTransformer {
+public class SetVariablesInferredSort extends CopyOnWriteTransformer implements RuleLocal {
 
     public SetVariablesInferredSort(Context context) {
         super("Set the sort of each variable to the inferred sort", context);
@@ -3,6 +3,7 @@ package org.kframework.compile.utils;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.Transformer;
+import org.kframework.utils.CompilationProfiler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -32,9 +33,14 @@ public class CompilerSteps<T extends ASTNode> extends BasicCompilerStep<T> {
 
 	@Override
 	public T compile(T def, String stepName) throws CompilerStepDone {
+		CompilationProfiler.profiler.begin(def);
 		for (CompilerStep<T> step : steps) {
 			step.setSw(sw);
 			def = step.compile(def, stepName);
+			/* nested aggregated steps record each of their own steps */
+			if (!(step instanceof CompilerSteps)) {
+				CompilationProfiler.profiler.end(step.getName(), def);
+			}
 			if (step.getName().equals(stepName)) {
 				throw new CompilerStepDone(def);
 			}
@@ -1,6 +1,7 @@
 package org.kframework.compile.utils;
 
 import org.kframework.kil.ASTNode;
+import org.kframework.kil.Definition;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.Transformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
@@ -21,7 +22,11 @@ public class CompilerTransformerStep<T extends ASTNode> extends BasicCompilerSte
 	public T compile(T def, String stepName) {
 		ASTNode result = null;
 		try {
-			result = def.accept(t);
+			if (GlobalSettings.parallelSteps && t instanceof RuleLocal && def instanceof Definition) {
+				result = ParallelRuleLocalTransformer.transform((Definition) def, t);
+			} else {
+				result = def.accept(t);
+			}
 		} catch (TransformerException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,170 @@
+package org.kframework.compile.utils;
+
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.Definition;
+import org.kframework.kil.DefinitionItem;
+import org.kframework.kil.Module;
+import org.kframework.kil.ModuleItem;
+import org.kframework.kil.visitors.Transformer;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
+import org.kframework.utils.errorsystem.KException.KExceptionGroup;
+import org.kframework.utils.general.GlobalSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies a {@link RuleLocal} transformer to a {@link Definition} by transforming each module in
+ * a separate fork-join task, which in turn forks one task per module item. The results are
+ * joined back in the original order, so the resulting definition is the same as the one obtained
+ * by applying the transformer sequentially.
+ */
+public class ParallelRuleLocalTransformer {
+
+    private static ForkJoinPool pool = null;
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+    public static Definition transform(Definition definition, Transformer transformer)
+            throws TransformerException {
+        assert transformer instanceof RuleLocal;
+
+        List<DefinitionItemTask> tasks = new ArrayList<DefinitionItemTask>();
+        for (DefinitionItem item : definition.getItems()) {
+            tasks.add(new DefinitionItemTask(item, transformer));
+        }
+
+        try {
+            for (DefinitionItemTask task : tasks) {
+                getPool().execute(task);
+            }
+
+            boolean change = false;
+            List<DefinitionItem> items = new ArrayList<DefinitionItem>();
+            for (DefinitionItemTask task : tasks) {
+                ASTNode result = task.join();
+                if (result != task.item) {
+                    change = true;
+                }
+                if (result != null) {
+                    if (!(result instanceof DefinitionItem)) {
+                        GlobalSettings.kem.register(new KException(ExceptionType.ERROR,
+                                KExceptionGroup.INTERNAL,
+                                "Expecting DefinitionItem, but got " + result.getClass() + ".",
+                                transformer.getName(),
+                                task.item.getFilename(),
+                                task.item.getLocation()));
+                    }
+                    items.add((DefinitionItem) result);
+                }
+            }
+
+            if (change) {
+                definition = definition.shallowCopy();
+                definition.setItems(items);
+            }
+            return definition;
+        } catch (WrappedTransformerException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class DefinitionItemTask extends RecursiveTask<ASTNode> {
+
+        private final DefinitionItem item;
+        private final Transformer transformer;
+
+        DefinitionItemTask(DefinitionItem item, Transformer transformer) {
+            this.item = item;
+            this.transformer = transformer;
+        }
+
+        @Override
+        protected ASTNode compute() {
+            if (!(item instanceof Module)) {
+                return ModuleItemTask.accept(item, transformer);
+            }
+
+            Module module = (Module) item;
+            List<ModuleItemTask> tasks = new ArrayList<ModuleItemTask>();
+            for (ModuleItem moduleItem : module.getItems()) {
+                tasks.add(new ModuleItemTask(moduleItem, transformer));
+            }
+            invokeAll(tasks);
+
+            boolean change = false;
+            List<ModuleItem> items = new ArrayList<ModuleItem>();
+            for (ModuleItemTask task : tasks) {
+                ASTNode result = task.join();
+                if (result != task.item) {
+                    change = true;
+                }
+                if (result != null) {
+                    if (!(result instanceof ModuleItem)) {
+                        GlobalSettings.kem.register(new KException(ExceptionType.ERROR,
+                                KExceptionGroup.INTERNAL,
+                                "Expecting ModuleItem, but got " + result.getClass() + ".",
+                                transformer.getName(),
+                                task.item.getFilename(),
+                                task.item.getLocation()));
+                    }
+                    items.add((ModuleItem) result);
+                }
+            }
+
+            if (change) {
+                module = module.shallowCopy();
+                module.setItems(items);
+            }
+            return module;
+        }
+    }
+
+    private static class ModuleItemTask extends RecursiveTask<ASTNode> {
+
+        private final ModuleItem item;
+        private final Transformer transformer;
+
+        ModuleItemTask(ModuleItem item, Transformer transformer) {
+            this.item = item;
+            this.transformer = transformer;
+        }
+
+        @Override
+        protected ASTNode compute() {
+            return accept(item, transformer);
+        }
+
+        static ASTNode accept(ASTNode node, Transformer transformer) {
+            try {
+                return node.accept(transformer);
+            } catch (TransformerException e) {
+                throw new WrappedTransformerException(e);
+            }
+        }
+    }
+
+    /**
+     * Carries a {@link TransformerException} out of a fork-join task.
+     */
+    private static class WrappedTransformerException extends RuntimeException {
+
+        WrappedTransformerException(TransformerException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized TransformerException getCause() {
+            return (TransformerException) super.getCause();
+        }
+    }
+}
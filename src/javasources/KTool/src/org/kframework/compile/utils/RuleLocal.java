@@ -0,0 +1,16 @@
+package org.kframework.compile.utils;
+
+/**
+ * Marker interface for transformers whose effect on a {@link org.kframework.kil.Definition} is
+ * the independent transformation of each {@link org.kframework.kil.ModuleItem}.
+ * <p/>
+ * A rule-local transformer must not override the transformation of {@code Definition} or
+ * {@code Module} nodes, must not keep mutable state between module items, and may only read the
+ * shared {@link org.kframework.kil.loader.Context}. Under these conditions
+ * {@link CompilerTransformerStep} is allowed to run it on several module items concurrently
+ * (see {@link ParallelRuleLocalTransformer}).
+ *
+ * @see ParallelRuleLocalTransformer
+ */
+public interface RuleLocal {
+}
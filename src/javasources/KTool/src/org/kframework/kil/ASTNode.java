@@ -181,7 +181,7 @@ public abstract class ASTNode implements Visitable, Transformable, Serializable
 		if (attributes == null)
 			attributes = new Attributes();
 
-		attributes.contents.add(attr);
+		attributes.getContents().add(attr);
 	}
 
 	/**
@@ -32,14 +32,14 @@ public class Attribute extends ASTNode {
 
 	public Attribute(String key, String value) {
 		super();
-		this.key = key;
+		this.key = key.intern();
 		this.value = value;
 	}
 
 	public Attribute(Element elm) {
 		super(elm);
 
-		key = elm.getAttribute(Constants.KEY_key_ATTR);
+		key = elm.getAttribute(Constants.KEY_key_ATTR).intern();
 		value = elm.getAttribute(Constants.VALUE_value_ATTR);
 	}
 
@@ -74,7 +74,7 @@ public class Attribute extends ASTNode {
 	}
 
 	public void setKey(String key) {
-		this.key = key;
+		this.key = key.intern();
 	}
 
 	public String getKey() {
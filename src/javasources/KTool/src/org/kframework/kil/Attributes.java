@@ -7,9 +7,11 @@ import org.kframework.kil.visitors.exceptions.TransformerException;
 import org.kframework.utils.xml.XML;
 import org.w3c.dom.Element;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * class for AST Attributes.
@@ -23,29 +25,58 @@ import java.util.List;
  */
 public class Attributes extends ASTNode {
 
-	protected java.util.List<Attribute> contents;
+	public static final String LOCATION_KEY = "location";
+	public static final String FILENAME_KEY = "filename";
+
+	/*
+	 * The location and the file name, which almost every parsed node has, are kept in fields
+	 * rather than as Attribute nodes: a location of the usual form (beginLine,beginColumn,endLine,endColumn)
+	 * is stored as four ints, and file names are interned. They are still seen as the first
+	 * entries of getContents().
+	 */
+	private String filename;
+	private boolean packedLocation;
+	private int beginLine;
+	private int beginColumn;
+	private int endLine;
+	private int endColumn;
+	/** A location which is not of the usual form, if any. */
+	private String location;
+
+	/** The other attributes, or null when there are none. */
+	private java.util.List<Attribute> others;
+	private transient java.util.List<Attribute> contents;
 
 	public Attributes(Attributes c) {
 		super(c);
-		this.contents = c.contents;
+		filename = c.filename;
+		copyLocation(c);
+		if (c.others != null)
+			others = new ArrayList<Attribute>(c.others);
 	}
 
 	public Attributes(String location, String filename) {
 		super(location, filename);
-		contents = new ArrayList<Attribute>();
 	}
 
 	public Attributes(Element element) {
 		super(element);
 
-		contents = new ArrayList<Attribute>();
 		List<Element> children = XML.getChildrenElements(element);
 		for (Element e : children)
-			contents.add((Attribute) JavaClassesFactory.getTerm(e));
+			getContents().add((Attribute) JavaClassesFactory.getTerm(e));
 	}
 
 	public Attributes() {
-		contents = new ArrayList<Attribute>();
+	}
+
+	private void copyLocation(Attributes c) {
+		packedLocation = c.packedLocation;
+		beginLine = c.beginLine;
+		beginColumn = c.beginColumn;
+		endLine = c.endLine;
+		endColumn = c.endColumn;
+		location = c.location;
 	}
 
 	@Override
@@ -53,61 +84,159 @@ public class Attributes extends ASTNode {
 		if (isEmpty())
 			return "";
 		String content = "[";
-		for (Attribute t : contents)
+		for (Attribute t : getContents())
 			content += t + ", ";
 		return content.substring(0, content.length() - 2) + "]";
 	}
 
+	private static boolean isSpecial(String key) {
+		return key.equals(LOCATION_KEY) || key.equals(FILENAME_KEY);
+	}
+
+	private boolean hasLocation() {
+		return packedLocation || location != null;
+	}
+
+	private String getSpecial(String key) {
+		if (key.equals(FILENAME_KEY))
+			return filename;
+		if (packedLocation)
+			return new StringBuilder(24).append('(').append(beginLine).append(',').append(beginColumn)
+					.append(',').append(endLine).append(',').append(endColumn).append(')').toString();
+		return location;
+	}
+
+	private void setSpecial(String key, String value) {
+		if (key.equals(FILENAME_KEY)) {
+			filename = value == null ? null : value.intern();
+			return;
+		}
+		location = null;
+		packedLocation = false;
+		if (value == null)
+			return;
+		int[] parts = parseLocation(value);
+		if (parts == null) {
+			location = value;
+		} else {
+			packedLocation = true;
+			beginLine = parts[0];
+			beginColumn = parts[1];
+			endLine = parts[2];
+			endColumn = parts[3];
+		}
+	}
+
+	/**
+	 * Parses a location of the form (beginLine,beginColumn,endLine,endColumn), accepting only
+	 * numbers which are printed back the same way.
+	 * 
+	 * @return the four numbers, or null if the location is not of that form
+	 */
+	private static int[] parseLocation(String loc) {
+		if (loc.length() < 9 || loc.charAt(0) != '(' || loc.charAt(loc.length() - 1) != ')')
+			return null;
+		int[] parts = new int[4];
+		int part = 0;
+		int start = 1;
+		for (int i = 1; i < loc.length(); i++) {
+			char c = loc.charAt(i);
+			if (c == ',' || c == ')') {
+				int digits = i - start;
+				if (part == 4 || digits == 0 || digits > 9 || (digits > 1 && loc.charAt(start) == '0'))
+					return null;
+				parts[part++] = Integer.parseInt(loc.substring(start, i));
+				start = i + 1;
+			} else if (c < '0' || c > '9') {
+				return null;
+			}
+		}
+		return part == 4 ? parts : null;
+	}
+
 	public boolean containsKey(String key) {
-		if (contents == null)
+		if (isSpecial(key))
+			return getSpecial(key) != null;
+		if (others == null)
 			return false;
-		for (Attribute attr : contents)
+		for (Attribute attr : others)
 			if (attr.getKey().equals(key))
 				return true;
 		return false;
 	}
 
 	public Attribute getAttributeByKey(String key) {
-		for (Attribute attr : contents)
+		for (Attribute attr : getContents())
 			if (attr.getKey().equals(key))
 				return attr;
 		return null;
 	}
 
 	public String get(String key) {
-		for (Attribute attr : contents)
+		if (isSpecial(key))
+			return getSpecial(key);
+		if (others == null)
+			return null;
+		for (Attribute attr : others)
 			if (attr.getKey().equals(key))
 				return attr.getValue();
 		return null;
 	}
 
 	public void set(String key, String value) {
-		for (Attribute attr : contents) {
-			if (attr.getKey().equals(key)) {
-				attr.setValue(value);
-				return;
+		if (isSpecial(key)) {
+			setSpecial(key, value);
+			return;
+		}
+		if (others != null) {
+			for (Attribute attr : others) {
+				if (attr.getKey().equals(key)) {
+					attr.setValue(value);
+					return;
+				}
 			}
 		}
-		contents.add(new Attribute(key, value));
+		add(new Attribute(key, value));
 	}
 
-    public void setAll(Attributes attrs) {
-        for (Attribute attr : attrs.contents)
-            set(attr);
-    }
+	public void setAll(Attributes attrs) {
+		if (attrs.filename != null)
+			filename = attrs.filename;
+		if (attrs.hasLocation())
+			copyLocation(attrs);
+		if (attrs.others != null)
+			for (Attribute attr : attrs.others)
+				set(attr);
+	}
 
 	public void set(Attribute attr) {
+		if (isSpecial(attr.getKey())) {
+			setSpecial(attr.getKey(), attr.getValue());
+			return;
+		}
 		Attribute oldAttr = getAttributeByKey(attr.getKey());
 		if (oldAttr != null) {
 			oldAttr.setValue(attr.getValue());
 		} else {
-			contents.add(attr);
+			add(attr);
 		}
 
 	}
 
+	private void add(Attribute attr) {
+		if (others == null)
+			others = new ArrayList<Attribute>(2);
+		others.add(attr);
+	}
+
 	public void remove(String key) {
-		Iterator<Attribute> it = contents.iterator();
+		if (isSpecial(key)) {
+			setSpecial(key, null);
+			return;
+		}
+		if (others == null)
+			return;
+		Iterator<Attribute> it = others.iterator();
 		while(it.hasNext()){
 			Attribute a = (Attribute) it.next();
 			if(a.getKey().equals(key))
@@ -116,15 +245,107 @@ public class Attributes extends ASTNode {
 	}
 
 	public boolean isEmpty() {
-		return this.contents.isEmpty();
+		return filename == null && !hasLocation() && (others == null || others.isEmpty());
 	}
 
+	/**
+	 * @return a modifiable view of the attributes, starting with the location and the file name
+	 *         if they are set.
+	 */
 	public java.util.List<Attribute> getContents() {
+		if (contents == null)
+			contents = new Contents();
 		return contents;
 	}
 
 	public void setContents(java.util.List<Attribute> contents) {
-		this.contents = contents;
+		filename = null;
+		setSpecial(LOCATION_KEY, null);
+		others = null;
+		for (Attribute attr : contents) {
+			if (isSpecial(attr.getKey()))
+				setSpecial(attr.getKey(), attr.getValue());
+			else
+				add(attr);
+		}
+	}
+
+	/**
+	 * The list of attributes, in which the location and the file name are materialized as
+	 * {@link Attribute} nodes when they are read; modifying those nodes does not change this object.
+	 */
+	private class Contents extends AbstractList<Attribute> implements RandomAccess {
+
+		/** The number of entries before the other attributes. */
+		private int specials() {
+			return (hasLocation() ? 1 : 0) + (filename != null ? 1 : 0);
+		}
+
+		/** The key of the special entry at the given index. */
+		private String special(int index) {
+			return index == 0 && hasLocation() ? LOCATION_KEY : FILENAME_KEY;
+		}
+
+		@Override
+		public int size() {
+			return specials() + (others == null ? 0 : others.size());
+		}
+
+		@Override
+		public Attribute get(int index) {
+			int specials = specials();
+			if (index < specials) {
+				String key = special(index);
+				return new Attribute(key, getSpecial(key));
+			}
+			if (others == null)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+			return others.get(index - specials);
+		}
+
+		@Override
+		public Attribute set(int index, Attribute attr) {
+			Attribute old = get(index);
+			int specials = specials();
+			if (index < specials) {
+				setSpecial(old.getKey(), null);
+				if (isSpecial(attr.getKey()))
+					setSpecial(attr.getKey(), attr.getValue());
+				else
+					add(0, attr);
+			} else if (isSpecial(attr.getKey())) {
+				others.remove(index - specials);
+				setSpecial(attr.getKey(), attr.getValue());
+			} else {
+				others.set(index - specials, attr);
+			}
+			modCount++;
+			return old;
+		}
+
+		@Override
+		public void add(int index, Attribute attr) {
+			if (isSpecial(attr.getKey())) {
+				setSpecial(attr.getKey(), attr.getValue());
+			} else {
+				if (others == null)
+					others = new ArrayList<Attribute>(2);
+				others.add(Math.max(0, Math.min(index - specials(), others.size())), attr);
+			}
+			modCount++;
+		}
+
+		@Override
+		public Attribute remove(int index) {
+			Attribute old = get(index);
+			int specials = specials();
+			if (index < specials)
+				setSpecial(old.getKey(), null);
+			else
+				others.remove(index - specials);
+			modCount++;
+			return old;
+		}
 	}
 
 	@Override
@@ -140,7 +361,10 @@ public class Attributes extends ASTNode {
 	@Override
 	public Attributes shallowCopy() {
 		Attributes result = new Attributes();
-		result.contents.addAll(contents);
+		result.filename = filename;
+		result.copyLocation(this);
+		if (others != null)
+			result.others = new ArrayList<Attribute>(others);
 		return result;
 	}
 }
@@ -53,7 +53,7 @@ public class KLabelConstant extends KLabel {
 	 *            string representation of the KLabel; must not be '`' escaped;
 	 * @return AST term representation the KLabel;
 	 */
-	public static final KLabelConstant of(String label, Context context) {
+	public static synchronized KLabelConstant of(String label, Context context) {
 		assert label != null;
 
 		KLabelConstant kLabelConstant = cache.get(label);
@@ -72,7 +72,7 @@ public class KLabelConstant extends KLabel {
 	 *            string representation of the KLabel; must not be '`' escaped;
 	 * @return AST term representation the KLabel;
 	 */
-	public static KLabelConstant of(String label) {
+	public static synchronized KLabelConstant of(String label) {
 		assert label != null;
 
 		KLabelConstant kLabelConstant = cache.get(label);
@@ -1,10 +1,26 @@
 package org.kframework.kil.visitors;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 
 import org.kframework.kil.*;
 
 public class BasicVisitor implements Visitor {
+	/**
+	 * Whether the visitor class inherits {@link #visit(TermCons)} from this class, in which
+	 * case chains of TermCons can be visited in a loop.
+	 */
+	private static final ClassValue<Boolean> LOOPS_ON_TERM_CONS = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("visit", TermCons.class).getDeclaringClass() == BasicVisitor.class;
+			} catch (NoSuchMethodException e) {
+				throw new AssertionError(e);
+			}
+		}
+	};
+
 	protected org.kframework.kil.loader.Context context;
 	String name;
 	protected HashSet<Integer> visited = null;
@@ -583,10 +599,39 @@ public class BasicVisitor implements Visitor {
 	public void visit(TermCons node) {
 		if (isVisited(node))
 			return;
-		for (Term t : node.getContents()) {
-			t.accept(this);
+		/*
+		 * Visit right-nested chains of TermCons (such as cons-lists) in a loop instead of
+		 * recursively, in the same order.
+		 */
+		boolean loop = LOOPS_ON_TERM_CONS.get(getClass());
+		java.util.List<TermCons> chain = null;
+		TermCons current = node;
+		while (current != null) {
+			java.util.List<Term> contents = current.getContents();
+			int last = contents.size() - 1;
+			for (int i = 0; i < last; ++i) {
+				contents.get(i).accept(this);
+			}
+			Term tail = last >= 0 ? contents.get(last) : null;
+			if (loop && tail != null && tail.getClass() == TermCons.class) {
+				if (chain == null) {
+					chain = new ArrayList<TermCons>();
+				}
+				chain.add(current);
+				current = isVisited(tail) ? null : (TermCons) tail;
+			} else {
+				if (tail != null) {
+					tail.accept(this);
+				}
+				visit((Term) current);
+				current = null;
+			}
+		}
+		if (chain != null) {
+			for (int i = chain.size() - 1; i >= 0; --i) {
+				visit((Term) chain.get(i));
+			}
 		}
-		visit((Term) node);
 	}
 
 	@Override
@@ -16,6 +16,21 @@ import org.kframework.utils.general.GlobalSettings;
 
 
 public class CopyOnWriteTransformer implements Transformer {
+	/**
+	 * Whether the transformer class inherits {@link #transform(TermCons)} from this class, in
+	 * which case chains of TermCons can be transformed in a loop.
+	 */
+	private static final ClassValue<Boolean> LOOPS_ON_TERM_CONS = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("transform", TermCons.class).getDeclaringClass() == CopyOnWriteTransformer.class;
+			} catch (NoSuchMethodException e) {
+				throw new AssertionError(e);
+			}
+		}
+	};
+
 	String name;
 	protected Context context;
 
@@ -810,20 +825,62 @@ public class CopyOnWriteTransformer implements Transformer {
 
 	@Override
 	public ASTNode transform(TermCons node) throws TransformerException {
-		boolean change = false;
-		ArrayList<Term> terms = new ArrayList<Term>();
-		for (Term t : node.getContents()) {
-			ASTNode result = t.accept(this);
-			if (result != t)
-				change = true;
-			if (result != null) {
-				if (!(result instanceof Term)) {
-					GlobalSettings.kem.register(new KException(ExceptionType.ERROR, KExceptionGroup.INTERNAL, "Expecting Term, but got " + result.getClass() + ".", getName(), t.getFilename(), t
-							.getLocation()));
+		/*
+		 * Transform right-nested chains of TermCons (such as cons-lists) in a loop instead of
+		 * recursively, in the same order: the transformed children of the enclosing TermCons
+		 * are kept in a list of frames until the innermost one is transformed.
+		 */
+		boolean loop = LOOPS_ON_TERM_CONS.get(getClass());
+		java.util.List<TermConsFrame> chain = null;
+		ASTNode result;
+		while (true) {
+			boolean change = false;
+			ArrayList<Term> terms = new ArrayList<Term>();
+			java.util.List<Term> contents = node.getContents();
+			int last = contents.size() - 1;
+			for (int i = 0; i < last; ++i) {
+				Term t = contents.get(i);
+				change |= addTransformed(terms, t, t.accept(this));
+			}
+			Term tail = last >= 0 ? contents.get(last) : null;
+			if (loop && tail != null && tail.getClass() == TermCons.class) {
+				if (chain == null) {
+					chain = new ArrayList<TermConsFrame>();
 				}
-				terms.add((Term) result);
+				chain.add(new TermConsFrame(node, terms, change));
+				node = (TermCons) tail;
+				continue;
+			}
+			if (tail != null) {
+				change |= addTransformed(terms, tail, tail.accept(this));
+			}
+			result = rebuild(node, terms, change);
+			break;
+		}
+		if (chain != null) {
+			for (int i = chain.size() - 1; i >= 0; --i) {
+				TermConsFrame frame = chain.get(i);
+				java.util.List<Term> contents = frame.node.getContents();
+				Term tail = contents.get(contents.size() - 1);
+				boolean change = addTransformed(frame.terms, tail, result) | frame.change;
+				result = rebuild(frame.node, frame.terms, change);
+			}
+		}
+		return result;
+	}
+
+	private boolean addTransformed(ArrayList<Term> terms, Term t, ASTNode result) {
+		if (result != null) {
+			if (!(result instanceof Term)) {
+				GlobalSettings.kem.register(new KException(ExceptionType.ERROR, KExceptionGroup.INTERNAL, "Expecting Term, but got " + result.getClass() + ".", getName(), t.getFilename(), t
+						.getLocation()));
 			}
+			terms.add((Term) result);
 		}
+		return result != t;
+	}
+
+	private ASTNode rebuild(TermCons node, ArrayList<Term> terms, boolean change) throws TransformerException {
 		if (change) {
 			node = node.shallowCopy();
 			node.setContents(terms);
@@ -831,6 +888,18 @@ public class CopyOnWriteTransformer implements Transformer {
 		return transform((Term) node);
 	}
 
+	private static class TermConsFrame {
+		final TermCons node;
+		final ArrayList<Term> terms;
+		final boolean change;
+
+		TermConsFrame(TermCons node, ArrayList<Term> terms, boolean change) {
+			this.node = node;
+			this.terms = terms;
+			this.change = change;
+		}
+	}
+
 	@Override
 	public ASTNode transform(Bracket node) throws TransformerException {
 		Term term = node.getContent();
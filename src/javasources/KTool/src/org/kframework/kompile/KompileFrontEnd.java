@@ -18,6 +18,7 @@ import org.kframework.kil.loader.CountNodesVisitor;
 import org.kframework.krun.Main;
 import org.kframework.parser.DefinitionLoader;
 import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.CompilationProfiler;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.KException.ExceptionType;
@@ -116,6 +117,15 @@ public class KompileFrontEnd {
 		}
 
 
+		if (cmd.hasOption("profile"))
+			CompilationProfiler.profiler.setEnabled(true);
+
+		if (cmd.hasOption("parallel-steps"))
+			GlobalSettings.parallelSteps = true;
+
+		if (cmd.hasOption("ac-matching"))
+			GlobalSettings.acMatching = true;
+
 		if (cmd.hasOption("add-top-cell"))
 			GlobalSettings.addTopCell = true;
 
@@ -271,6 +281,10 @@ public class KompileFrontEnd {
 			Stopwatch.sw.printTotal("Total");
             context.printStatistics();
         }
+		if (CompilationProfiler.profiler.isEnabled()) {
+			CompilationProfiler.profiler.printTable();
+			CompilationProfiler.profiler.saveJson(context.dotk.getAbsolutePath() + "/kompile-profile.json");
+		}
 		GlobalSettings.kem.print();
 		if (cmd.hasOption("loud"))
 			System.out.println("Done.");
@@ -286,6 +300,7 @@ public class KompileFrontEnd {
 		org.kframework.kil.Definition javaDef;
 		try {
 			Stopwatch.sw.Start();
+			CompilationProfiler.profiler.begin(null);
 			javaDef = DefinitionLoader.loadDefinition(mainFile, lang, backend.autoinclude(), context);
             javaDef.accept(new CountNodesVisitor(context));
 
@@ -66,6 +66,9 @@ public class KompileOptionsParser {
 		addOptionE(OptionBuilder.withLongOpt("kcells").hasArg().withArgName("string").withDescription("Cells which contain komputations.").create());
 		addOptionE(OptionBuilder.withLongOpt("sort-cells").withDescription("Sort cells according to the order in the configuration.").create());
 		addOptionE(OptionBuilder.withLongOpt("smt").hasArg().withArgName("solver").withDescription("SMT solver to use for checking constraints. <solver> is one of [z3|none]. (Default: z3). This only has an effect with '--backend symbolic'.").create());
+		addOptionE(OptionBuilder.withLongOpt("profile").withDescription("Record time, allocation and AST size for each parsing phase and compilation step. The profile is printed and saved in <dir>/kompile-profile.json.").create());
+		addOptionE(OptionBuilder.withLongOpt("ac-matching").withDescription("Match map and set patterns modulo associativity and commutativity in the Java backend, instead of compiling them into lookups and updates.").create());
+		addOptionE(OptionBuilder.withLongOpt("parallel-steps").withDescription("Apply rule-local compilation steps to the sentences of each module in parallel.").create());
 		addOptionE(OptionBuilder.withLongOpt("fast-kast").withDescription("Using the (experimental) faster C SDF parser.").create());
 
 		addOptionE(OptionBuilder.withLongOpt("loud").withDescription("Prints 'Done' at the end if all is ok.").create());
@@ -95,7 +95,7 @@ public class CommandlineOptions {
 		addOptionE(OptionBuilder.withLongOpt("debug-gui").withDescription("Run an execution in debug mode with graphical interface.").create());
 		addOptionE(OptionBuilder.withLongOpt("debug-info").withDescription("Provide debugging information.").create());
 		addOptionE(OptionBuilder.withLongOpt("trace").withDescription("Turn on maude trace.").create());
-		addOptionE(OptionBuilder.withLongOpt("profile").withDescription("Turn on maude profiler.").create());
+		addOptionE(OptionBuilder.withLongOpt("profile").withDescription("Turn on the profiler (Maude's profiler, or the per-rule profiler of the Java backend).").create());
 		addOptionE(OptionBuilder.withLongOpt("ltlmc").hasArg().withArgName("file/string").withDescription("Specify the formula for model checking through a file or at commandline.").create());
 		addOptionE(OptionBuilder.withLongOpt("prove").hasArg().withArgName("file").withDescription("Prove a set of reachability rules.").create());
 		addOptionE(OptionBuilder.withLongOpt("smt").hasArg().withArgName("solver").withDescription("SMT solver to use for checking constraints. <solver> is either [z3|gappa|none]. (Default: z3).").create());
@@ -50,63 +50,120 @@ public class K {
 		krun_output = krunTempDir + fileSeparator + "krun_output";
 	}
 
-	// the default values for jkrun commandline options
+	// jkrun commandline options; their default values are set by reset()
 	public static String pgm;
-	public static String term = null;
-	public static String directory = null;
+	public static String term;
+	public static String directory;
 	public static String main_module;
 	public static String syntax_module;
 
     /**
      * The default parser
      */
-	public static String parser = "kast";
+	public static String parser;
 
     public static String customParser;
 	public static String compiled_def;
-	public static String maude_cmd = "erewrite";
-	public static String output_mode = "pretty";
+	public static String maude_cmd;
+	public static String output_mode;
 	//public static String xsearch_pattern = "=>! B:Bag";
-	public static String pattern = "<generatedTop> B:Bag </generatedTop> [anywhere]";
-	public static SearchType searchType = SearchType.FINAL;
+	public static String pattern;
+	public static SearchType searchType;
 	public static String bound;
 	public static String depth;
-	public static String model_checking = "";
-	public static String output = "";
-
-	// variables to store if that specific option was set; also set default values for options
-	public static boolean help = false;
-	public static boolean helpExperimental = false;
-	public static boolean version = false;
-	public static boolean io = true;
-	public static boolean statistics = false;
-	public static ColorSetting color = ColorSetting.ON;
-    public static Color terminalColor = ColorUtil.getColorByName("black");
-	public static boolean do_search = false;
-	public static boolean showSearchGraph = false;
-	//apply parenthesis by default
-	public static boolean parens = true;
-	public static boolean log_io = false;
-	public static boolean debug = false;
-	public static boolean guidebug = false;
-	public static boolean trace = false;
-	public static boolean profile = false;
-    public static String smt = "z3";
+	public static String model_checking;
+	public static String output;
+
+	// variables to store if that specific option was set
+	public static boolean help;
+	public static boolean helpExperimental;
+	public static boolean version;
+	public static boolean io;
+	public static boolean statistics;
+	public static ColorSetting color;
+    public static Color terminalColor;
+	public static boolean do_search;
+	public static boolean showSearchGraph;
+	public static boolean parens;
+	public static boolean log_io;
+	public static boolean debug;
+	public static boolean guidebug;
+	public static boolean trace;
+	public static boolean profile;
+    public static String smt;
     //generate tests from semantics?
-    public static boolean do_testgen = false;
+    public static boolean do_testgen;
 
 
-	public static Properties configuration_variables = new Properties();
-	public static Properties cfg_parsers = new Properties();	
+	public static Properties configuration_variables;
+	public static Properties cfg_parsers;
 
 	public static Definition definition;
 	public static Configuration kompiled_cfg;
 
-	public static int counter = 0;
-	public static int stateCounter = 0;
+	public static int counter;
+	public static int stateCounter;
 
-	public static String backend = "maude";
-    public static String prove = "";
+	public static String backend;
+    public static String prove;
+
+	static {
+		reset();
+	}
+
+	/**
+	 * Sets all the options back to their default values. krun only needs this when it is run
+	 * several times in the same JVM (see {@link Main#executeReusingDefinitions}).
+	 */
+	public static void reset() {
+		pgm = null;
+		term = null;
+		directory = null;
+		main_module = null;
+		syntax_module = null;
+		parser = "kast";
+		customParser = null;
+		compiled_def = null;
+		maude_cmd = "erewrite";
+		output_mode = "pretty";
+		pattern = "<generatedTop> B:Bag </generatedTop> [anywhere]";
+		searchType = SearchType.FINAL;
+		bound = null;
+		depth = null;
+		model_checking = "";
+		output = "";
+
+		help = false;
+		helpExperimental = false;
+		version = false;
+		io = true;
+		statistics = false;
+		color = ColorSetting.ON;
+		terminalColor = ColorUtil.getColorByName("black");
+		do_search = false;
+		showSearchGraph = false;
+		//apply parenthesis by default
+		parens = true;
+		log_io = false;
+		debug = false;
+		guidebug = false;
+		trace = false;
+		profile = false;
+		smt = "z3";
+		do_testgen = false;
+
+		configuration_variables = new Properties();
+		cfg_parsers = new Properties();
+
+		definition = null;
+		kompiled_cfg = null;
+
+		counter = 0;
+		stateCounter = 0;
+
+		backend = "maude";
+		prove = "";
+	}
 
     public static String getProgramParser() {
         return customParser != null ? customParser : parser;
@@ -2,12 +2,16 @@ package org.kframework.krun;
 
 import java.awt.*;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.Console;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -53,10 +57,14 @@ import org.kframework.krun.api.KRun;
 import org.kframework.krun.api.KRunDebugger;
 import org.kframework.krun.api.KRunResult;
 import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.SearchResult;
+import org.kframework.krun.api.SearchResultListener;
 import org.kframework.krun.api.SearchResults;
 import org.kframework.krun.api.SearchType;
 import org.kframework.krun.api.Transition;
 import org.kframework.krun.api.UnsupportedBackendOptionException;
+import org.kframework.krun.api.io.BinaryReader;
+import org.kframework.krun.api.io.BinaryWriter;
 import org.kframework.krun.gui.Controller.RunKRunCommand;
 import org.kframework.krun.gui.UIDesign.MainWindow;
 import org.kframework.parser.DefinitionLoader;
@@ -67,6 +75,7 @@ import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.KException.ExceptionType;
 import org.kframework.utils.errorsystem.KException.KExceptionGroup;
+import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.file.KPaths;
 import org.kframework.utils.general.GlobalSettings;
@@ -75,6 +84,7 @@ import org.kframework.utils.OptionComparator;
 import edu.uci.ics.jung.graph.DirectedGraph;
 
 import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.apache.commons.io.FileUtils.openOutputStream;
 import static org.apache.commons.io.FileUtils.writeStringToFile;
 
 public class Main {
@@ -106,6 +116,32 @@ public class Main {
     }
     private static Stopwatch sw = new Stopwatch();
 
+    /**
+     * A definition read from a kompiled directory, ready to be executed.
+     */
+    private static class LoadedDefinition {
+        final Context context;
+        final Definition definition;
+        final Configuration configuration;
+        final boolean sortedCells;
+
+        LoadedDefinition(Context context, Definition definition,
+                         Configuration configuration, boolean sortedCells) {
+            this.context = context;
+            this.definition = definition;
+            this.configuration = configuration;
+            this.sortedCells = sortedCells;
+        }
+    }
+
+    /**
+     * Definitions already loaded by this JVM, indexed by kompiled directory and backend; only
+     * used by {@link #executeReusingDefinitions}.
+     */
+    private static final Map<String, LoadedDefinition> loadedDefinitions
+            = new HashMap<String, LoadedDefinition>();
+    private static boolean reuseDefinitions = false;
+
     public static Term plug(Map<String, Term> args, Context context) throws TransformerException {
         Configuration cfg = K.kompiled_cfg;
         ASTNode cfgCleanedNode = null;
@@ -215,6 +251,42 @@ public class Main {
         }
     }
 
+    /**
+     * Prints the solutions of a search as soon as the backend finds them, in the format of
+     * {@link SearchResults#toString()}.
+     */
+    private static class SearchPrinter implements SearchResultListener {
+        private final Context context;
+        private int solutions = 0;
+
+        SearchPrinter(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public boolean solutionFound(SearchResult solution, boolean isDefaultPattern) {
+            try {
+                Writer out = new BufferedWriter(new OutputStreamWriter(AnsiConsole.out));
+                if (solutions == 0) {
+                    out.write("Search results:");
+                }
+                SearchResults.appendSolution(out, ++solutions, solution, isDefaultPattern, context);
+                out.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        }
+
+        void finish() {
+            if (solutions == 0) {
+                AnsiConsole.out.println("Search results:\nNo search results");
+            } else {
+                AnsiConsole.out.println();
+            }
+        }
+    }
+
     // execute krun in normal mode (i.e. not in debug mode)
     public static void normalExecution(Term KAST, String lang, RunProcess rp,
                                        CommandlineOptions cmd_options, Context context) {
@@ -223,6 +295,8 @@ public class Main {
 
             KRun krun = obtainKRun(context);
             KRunResult<?> result = null;
+            /* prints the solutions of a search while it runs, instead of at the end */
+            SearchPrinter searchPrinter = null;
             //Set<String> varNames = null;
             Rule patternRule = null;
             RuleCompilerSteps steps;
@@ -288,13 +362,17 @@ public class Main {
                                     makeConfiguration(KAST, buffer, rp,
                                             (K.term != null), context), steps);
                         } else{
+                            if ("pretty".equals(K.output_mode) && !cmd.hasOption("output")) {
+                                searchPrinter = new SearchPrinter(context);
+                            }
                             result = krun.search(
                                     bound,
                                     depth,
                                     K.searchType,
                                     patternRule,
                                     makeConfiguration(KAST, buffer, rp,
-                                            (K.term != null), context), steps);
+                                            (K.term != null), context), steps,
+                                    searchPrinter);
                         }
 
                         if (GlobalSettings.verbose)
@@ -378,11 +456,21 @@ public class Main {
             }
 
             if ("pretty".equals(K.output_mode)) {
-                String output = result.toString();
-                if (!cmd.hasOption("output")) {
-                    AnsiConsole.out.println(output);
+                if (searchPrinter != null) {
+                    searchPrinter.finish();
+                    if (K.statistics) {
+                        AnsiConsole.out.println(result.getStatistics());
+                    }
+                } else if (!cmd.hasOption("output")) {
+                    /* the result is written as it is unparsed, without building its text */
+                    Writer out = new BufferedWriter(new OutputStreamWriter(AnsiConsole.out));
+                    result.print(out);
+                    out.write(K.lineSeparator);
+                    out.flush();
                 } else {
-                    writeStringToFile(new File(K.output), output);
+                    try (Writer out = new BufferedWriter(new OutputStreamWriter(openOutputStream(new File(K.output))))) {
+                        result.print(out);
+                    }
                 }
                 // print search graph
                 if ("search".equals(K.maude_cmd) && K.do_search && K.showSearchGraph) {
@@ -431,17 +519,21 @@ public class Main {
                 System.out.print("");
             } else if ("binary".equals(K.output_mode)) {
                 Object krs = result.getResult();
-                if (krs instanceof KRunState) {
-                    Term res = ((KRunState) krs).getRawResult();
-
+                if (krs instanceof KRunState || krs instanceof SearchResults) {
+                    String fileName = K.output;
                     if (!cmd.hasOption("output")) {
                         Error.silentReport("Did not specify an output file. Cannot print output-mode binary to\nstandard out. Saving to .k/krun/krun_output");
-                        BinaryLoader.save(K.krun_output, res);
-                    } else {
-                        BinaryLoader.save(K.output, res);
+                        fileName = K.krun_output;
+                    }
+                    try (BinaryWriter writer = new BinaryWriter(openOutputStream(new File(fileName)), context)) {
+                        if (krs instanceof KRunState) {
+                            writer.writeTerm(((KRunState) krs).getRawResult());
+                        } else {
+                            writer.writeSearchResults((SearchResults) krs);
+                        }
                     }
                 } else {
-                    Error.report("binary output mode is not supported by search and model\nchecking");
+                    Error.report("binary output mode is not supported by model checking");
                 }
 
             } else {
@@ -659,12 +751,14 @@ public class Main {
 
                     DirectedGraph<KRunState, Transition> savedGraph = null;
                     if(cmd.hasOption("save")) {
-                        BinaryLoader.save(new File(cmd.getOptionValue("save")).getCanonicalPath(), debugger.getGraph()
-                        );
+                        try (BinaryWriter writer = new BinaryWriter(
+                                openOutputStream(new File(cmd.getOptionValue("save"))), context)) {
+                            writer.writeGraph(debugger.getGraph());
+                        }
                         System.out.println("File successfully saved.");
                     }
                     if (cmd.hasOption("load")) {
-                        savedGraph = (DirectedGraph<KRunState, Transition>) BinaryLoader.load(cmd.getOptionValue("load"));
+                        savedGraph = BinaryReader.loadGraph(cmd.getOptionValue("load"), context);
                         krun = new MaudeKRun(context);
                         debugger = krun.debug(savedGraph);
                         debugger.setCurrentState(1);
@@ -717,7 +811,8 @@ public class Main {
             System.exit(1);
         }
 
-        if (!cmd.hasOption("debug-info")) {
+        /* when reusing definitions, executeReusingDefinitions deletes the directory itself */
+        if (!cmd.hasOption("debug-info") && !reuseDefinitions) {
             Runtime.getRuntime().addShutdownHook(new Thread() {
                 public void run() {
                     try {
@@ -1037,7 +1132,17 @@ public class Main {
             Term KAST = null;
             RunProcess rp = new RunProcess();
 
-            if (!context.initialized) {
+            String loadedKey = K.compiled_def + File.pathSeparator + K.backend;
+            LoadedDefinition loaded = reuseDefinitions ? loadedDefinitions.get(loadedKey) : null;
+            if (loaded != null) {
+                context = loaded.context;
+                K.definition = loaded.definition;
+                K.kompiled_cfg = loaded.configuration;
+                GlobalSettings.sortedCells = loaded.sortedCells;
+
+                if (GlobalSettings.verbose)
+                    sw.printIntermediate("Reusing loaded definition");
+            } else if (!context.initialized) {
                 String path = K.compiled_def + "/defx-" + K.backend + ".bin";
                 Definition javaDef;
                 if (new File(path).exists()) {
@@ -1089,6 +1194,11 @@ public class Main {
 
                 if (GlobalSettings.verbose)
                     sw.printIntermediate("Reading configuration from binary");
+
+                if (reuseDefinitions) {
+                    loadedDefinitions.put(loadedKey, new LoadedDefinition(
+                            context, K.definition, K.kompiled_cfg, GlobalSettings.sortedCells));
+                }
             }
 
             if (!cmd.hasOption("main-module")) {
@@ -1139,6 +1249,33 @@ public class Main {
         }
     }
 
+    /**
+     * Runs krun as {@link #execute_Krun} does, but resets the options left by a previous run in
+     * this JVM and reuses the definitions that run loaded. Used by ktest to execute many programs
+     * in-process; like {@link #execute_Krun}, it ends by calling {@link System#exit}, so the
+     * caller is expected to intercept the exit.
+     */
+    public static void executeReusingDefinitions(String cmds[]) {
+        K.reset();
+        GlobalSettings.kem = new KExceptionManager();
+        GlobalSettings.verbose = false;
+        GlobalSettings.fastKast = false;
+        GlobalSettings.sortedCells = false;
+        reuseDefinitions = true;
+        JavaSymbolicKRun.setReuseDefinitions(true);
+        try {
+            execute_Krun(cmds);
+        } finally {
+            if (K.krunTempDir != null && !Arrays.asList(cmds).contains("--debug-info")) {
+                try {
+                    deleteDirectory(new File(K.krunTempDir));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     public static void main(String[] args) {
         execute_Krun(args);
     }
@@ -11,6 +11,9 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -54,6 +57,15 @@ public class XmlUtil {
         return doc;
 	}
 
+	/**
+	Creates a reader streaming the XML in the given input, without reading any DTD.
+	*/
+	public static XMLStreamReader createXMLStreamReader(InputStream input) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		return factory.createXMLStreamReader(input);
+	}
+
 	public static ArrayList<Element> getChildElements(Node node) {
 		ArrayList<Element> l = new ArrayList<Element>();
 		for (Node childNode = node.getFirstChild(); childNode != null;) {
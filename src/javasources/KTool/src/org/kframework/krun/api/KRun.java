@@ -46,6 +46,18 @@ public interface KRun {
 	*/
 	public KRunResult<SearchResults> search(Integer bound, Integer depth, SearchType searchType, Rule pattern, Term cfg, RuleCompilerSteps compilationInfo) throws KRunExecutionException;
 
+	/**
+	Perform a breadth-first search as {@link #search(Integer, Integer, SearchType, Rule, Term,
+	RuleCompilerSteps)} does, passing each solution to a listener as soon as it is found. Backends
+	which can only report the solutions at the end of the search pass them to the listener at that
+	point, in order.
+	@param listener The listener notified of each solution; the search stops early if it returns
+	false. May be null.
+	@return An object containing both metadata about krun's execution, and information about
+	the solutions passed to the listener
+	*/
+	public KRunResult<SearchResults> search(Integer bound, Integer depth, SearchType searchType, Rule pattern, Term cfg, RuleCompilerSteps compilationInfo, SearchResultListener listener) throws KRunExecutionException;
+
     /**
      Piggyback on the "search" method for test generation
      @param bound The maximum number of search results to return; null if unbounded
@@ -42,20 +42,7 @@ public class KRunApiDebugger implements KRunDebugger {
 
 	public KRunApiDebugger(KRun krun, Term cfg, Context context) throws KRunExecutionException {
 		this.context = context;
-		try { 
-			org.kframework.parser.concrete.KParser.ImportTbl(K.compiled_def + "/def/Concrete.tbl");
-			ASTNode pattern = DefinitionLoader.parsePattern(K.pattern, "Command line pattern",
-                    context);
-			CollectVariablesVisitor vars = new CollectVariablesVisitor(context);
-			pattern.accept(vars);
-			defaultVars = vars.getVars().keySet();
-			defaultPatternInfo = new RuleCompilerSteps(K.definition, context);
-			pattern = defaultPatternInfo.compile(new Rule((Sentence) pattern), null);
-
-			defaultPattern = (Rule) pattern;
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		compileDefaultPattern(context);
 
 		this.krun = krun;
 		KRunState initialState = new KRunState(cfg, K.stateCounter++, context);
@@ -81,6 +68,28 @@ public class KRunApiDebugger implements KRunDebugger {
 		}
 	}
 
+	/**
+	Compiles the default search pattern (krun --pattern) used by stepAll.
+	@return Information about the compiled pattern, needed to build {@link SearchResult}s
+	*/
+	public static RuleCompilerSteps compileDefaultPattern(Context context) {
+		try { 
+			org.kframework.parser.concrete.KParser.ImportTbl(K.compiled_def + "/def/Concrete.tbl");
+			ASTNode pattern = DefinitionLoader.parsePattern(K.pattern, "Command line pattern",
+                    context);
+			CollectVariablesVisitor vars = new CollectVariablesVisitor(context);
+			pattern.accept(vars);
+			defaultVars = vars.getVars().keySet();
+			defaultPatternInfo = new RuleCompilerSteps(K.definition, context);
+			pattern = defaultPatternInfo.compile(new Rule((Sentence) pattern), null);
+
+			defaultPattern = (Rule) pattern;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return defaultPatternInfo;
+	}
+
 	private void putState(KRunState state) {
 		states.put(state.getStateId(), state);
 	}
@@ -251,7 +260,11 @@ public class KRunApiDebugger implements KRunDebugger {
 		currentState = newState.getStateId();
 	}
 
-	private static class AppendToStdin extends CopyOnWriteTransformer {
+	/**
+	Appends a string to the stdin buffer of a configuration; {@link #getSucceeded()} tells whether
+	the configuration has such a buffer.
+	*/
+	public static class AppendToStdin extends CopyOnWriteTransformer {
 		private String str;
 		private boolean succeeded;
 		private boolean inStdin, inBuffer;
@@ -2,6 +2,8 @@ package org.kframework.krun.api;
 
 import org.kframework.krun.K;
 
+import java.io.IOException;
+
 public class KRunResult<T> {
 	private String statistics;
 	private String rawOutput;
@@ -43,4 +45,21 @@ public class KRunResult<T> {
 			return result.toString() + "\n" + statistics;
 		}
 	}
+
+	/**
+	Writes the same text as {@link #toString} to the given output. A {@link KRunState} or
+	{@link SearchResults} is written as its terms are unparsed.
+	*/
+	public void print(Appendable out) throws IOException {
+		if (result instanceof KRunState) {
+			((KRunState) result).print(out);
+		} else if (result instanceof SearchResults) {
+			((SearchResults) result).print(out);
+		} else {
+			out.append(result.toString());
+		}
+		if (K.statistics) {
+			out.append("\n").append(statistics);
+		}
+	}
 }
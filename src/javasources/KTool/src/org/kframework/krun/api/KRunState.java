@@ -2,6 +2,7 @@ package org.kframework.krun.api;
 
 import org.kframework.backend.unparser.AddBracketsFilter;
 import org.kframework.backend.unparser.AddBracketsFilter2;
+import org.kframework.backend.unparser.Indenter;
 import org.kframework.backend.unparser.UnparserFilter;
 import org.kframework.kil.Cell;
 import org.kframework.kil.Term;
@@ -94,9 +95,25 @@ public class KRunState implements Serializable{
 		}
 	}
 
+	/**
+	Writes the same text as {@link #toString} to the given output, as the term is unparsed,
+	instead of building it in memory. The pretty-printed term is not kept in this state, unless it
+	was already computed by {@link #getResult}.
+	*/
+	public void print(Appendable out) throws IOException {
+		if (stateId == null) {
+			Term term = result != null ? result : concretize(getRawResult(), context);
+			UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
+			unparser.setIndenter(new Indenter(out));
+			term.accept(unparser);
+		} else {
+			out.append("Node " + stateId);
+		}
+	}
+
 	public Term getResult() {
 		if (result == null) {
-			result = concretize(rawResult, context);
+			result = concretize(getRawResult(), context);
 		}
 		return result;
 	}
@@ -117,11 +134,11 @@ public class KRunState implements Serializable{
 	public boolean equals(Object o) {
 		if (!(o instanceof KRunState)) return false;
 		KRunState s = (KRunState)o;
-		return rawResult.equals(s.rawResult);
+		return getRawResult().equals(s.getRawResult());
 	}
 
 	@Override
 	public int hashCode() {
-		return rawResult.hashCode();
+		return getRawResult().hashCode();
 	}
 }
@@ -8,6 +8,7 @@ import org.kframework.kil.visitors.exceptions.TransformerException;
 import org.kframework.krun.SubstitutionFilter;
 import org.kframework.utils.general.GlobalSettings;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,6 +36,22 @@ public class SearchResult {
 		this.compilationInfo = compilationInfo;
 	}
 
+	/**
+	Creates a result of a search for the default pattern, which binds B:Bag to the whole
+	configuration of the state; the configuration is only requested from the state when the
+	substitution is.
+	*/
+	public SearchResult(KRunState state, RuleCompilerSteps compilationInfo, Context context) {
+		this(state, null, compilationInfo, context);
+	}
+
+	public Map<String, Term> getRawSubstitution() {
+		if (rawSubstitution == null) {
+			rawSubstitution = Collections.singletonMap("B:Bag", state.getRawResult());
+		}
+		return rawSubstitution;
+	}
+
 	public Map<String, Term> getSubstitution() {
 		if (substitution == null) {
 			substitution = new HashMap<String, Term>();
@@ -43,7 +60,7 @@ public class SearchResult {
 				if (GlobalSettings.sortedCells) {
 					Term cellFragment = compilationInfo.getCellFragment(var);
 					try {
-						rawValue = (Term)cellFragment.accept(new SubstitutionFilter(rawSubstitution, context));
+						rawValue = (Term)cellFragment.accept(new SubstitutionFilter(getRawSubstitution(), context));
 					} catch (TransformerException e) {
 						assert false; //shouldn't happen
 						rawValue = null; //for static reasons
@@ -52,13 +69,13 @@ public class SearchResult {
           String varString = "";
           // The backend doesn't keep sort information around so we want to
           // match the variable name only.
-          for (String key : rawSubstitution.keySet()) {
+          for (String key : getRawSubstitution().keySet()) {
             if (key.startsWith(var.getName() + ":")) {
               varString = key;
               break;
             }
           }
-					rawValue = rawSubstitution.get(varString);
+					rawValue = getRawSubstitution().get(varString);
 				}
 				substitution.put(var.getName() + ":" + var.getSort(), KRunState.concretize(rawValue, context));
 			}
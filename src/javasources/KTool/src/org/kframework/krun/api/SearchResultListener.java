@@ -0,0 +1,15 @@
+package org.kframework.krun.api;
+
+/**
+A callback which receives the solutions of a search as soon as the backend finds them, before
+the search goes on.
+*/
+public interface SearchResultListener {
+	/**
+	@param solution The solution found
+	@param isDefaultPattern Whether the search pattern is the default pattern, which binds the
+	whole configuration (see {@link SearchResults#toString()})
+	@return false if the search should stop after this solution
+	*/
+	public boolean solutionFound(SearchResult solution, boolean isDefaultPattern);
+}
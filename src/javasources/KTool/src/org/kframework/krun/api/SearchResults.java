@@ -1,11 +1,13 @@
 package org.kframework.krun.api;
 
 import edu.uci.ics.jung.graph.DirectedGraph;
+import org.kframework.backend.unparser.Indenter;
 import org.kframework.backend.unparser.UnparserFilter;
 import org.kframework.kil.Term;
 import org.kframework.kil.loader.Context;
 import org.kframework.krun.K;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -25,36 +27,56 @@ public class SearchResults {
 
 	@Override
 	public String toString() {
-		int i = 1;
 		StringBuilder sb = new StringBuilder();
-		sb.append("Search results:");
+		try {
+			print(sb);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	Writes the same text as {@link #toString} to the given output, as the solutions are unparsed.
+	*/
+	public void print(Appendable out) throws IOException {
+		int i = 1;
+		out.append("Search results:");
 		for (SearchResult solution : solutions) {
-			sb.append("\n\nSolution " + i + ", State " + solution.getState().getStateId() + ":");
-			Map<String, Term> substitution = solution.getSubstitution();
-			if (isDefaultPattern) {
-				UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
-				substitution.get("B:Bag").accept(unparser);
-				sb.append("\n" + unparser.getResult());
-			} else {
-				boolean empty = true;
-				
-				for (String variable : substitution.keySet()) {
-					UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
-					sb.append("\n" + variable + " -->");
-					substitution.get(variable).accept(unparser);
-					sb.append("\n" + unparser.getResult());
-					empty = false;
-				}
-				if (empty) {
-					sb.append("\nEmpty substitution");
-				}
-			}
+			appendSolution(out, i, solution, isDefaultPattern, context);
 			i++;
 		}
 		if (i == 1) {
-			sb.append("\nNo search results");
+			out.append("\nNo search results");
+		}
+	}
+
+	/**
+	Appends the pretty-printed solution number i to the given output, in the format used by
+	{@link #toString()}.
+	*/
+	public static void appendSolution(Appendable out, int i, SearchResult solution, boolean isDefaultPattern, Context context) throws IOException {
+		out.append("\n\nSolution " + i + ", State " + solution.getState().getStateId() + ":");
+		Map<String, Term> substitution = solution.getSubstitution();
+		if (isDefaultPattern) {
+			UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
+			unparser.setIndenter(new Indenter(out));
+			out.append("\n");
+			substitution.get("B:Bag").accept(unparser);
+		} else {
+			boolean empty = true;
+			
+			for (String variable : substitution.keySet()) {
+				UnparserFilter unparser = new UnparserFilter(true, K.color, K.parens, context);
+				unparser.setIndenter(new Indenter(out));
+				out.append("\n" + variable + " -->\n");
+				substitution.get(variable).accept(unparser);
+				empty = false;
+			}
+			if (empty) {
+				out.append("\nEmpty substitution");
+			}
 		}
-		return sb.toString();
 	}
 
 	public DirectedGraph<KRunState, Transition> getGraph() {
@@ -64,4 +86,8 @@ public class SearchResults {
 	public List<SearchResult> getSolutions() {
 		return solutions;
 	}
+
+	public boolean isDefaultPattern() {
+		return isDefaultPattern;
+	}
 }
@@ -84,6 +84,10 @@ public class Transition implements Serializable{
 		this.label = label;
 	}
 
+	public String getReadString() {
+		return readString;
+	}
+
 	public enum TransitionType {
 		/**
 		A transition for which the rule transforming the origin to the destination is known
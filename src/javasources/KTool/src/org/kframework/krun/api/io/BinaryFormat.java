@@ -0,0 +1,107 @@
+package org.kframework.krun.api.io;
+
+/**
+Constants shared by {@link BinaryWriter} and {@link BinaryReader}.
+
+A file starts with {@link #MAGIC} and {@link #VERSION}, followed by any number of values, each
+introduced by one of the VALUE_* kinds. Terms are written in prefix order; each node is a tag
+byte, optionally or'ed with {@link #ATTRIBUTES_FLAG}, followed by its strings, its integers and
+its children, whose number is fixed by the tag unless it is {@link #ANY}, in which case it is
+written before them. Every node other than {@link #NULL} and {@link #REF} gets the next node
+number, so that a later occurrence of an equal subterm is written as a {@link #REF} to it. Strings are pooled the same way: 0 stands for null, 1
+for a string written inline for the first time and n + 2 for the n-th string of the pool.
+*/
+final class BinaryFormat {
+
+    private BinaryFormat() {}
+
+    static final byte[] MAGIC = { 'K', 'B', 'I', 'N' };
+    static final int VERSION = 1;
+
+    static final int VALUE_TERM = 1;
+    static final int VALUE_STATE = 2;
+    static final int VALUE_GRAPH = 3;
+    static final int VALUE_SEARCH_RESULTS = 4;
+
+    static final int GRAPH_SPARSE = 0;
+    static final int GRAPH_ORDERED_MULTI = 1;
+
+    static final int RULE_BY_LOCATION = 0;
+    static final int RULE_SERIALIZED = 1;
+
+    static final int ATTRIBUTES_FLAG = 0x80;
+
+    static final int NULL = 0;
+    static final int REF = 1;
+    static final int SERIALIZED = 2;
+    static final int KLABEL_CONSTANT = 3;
+    static final int TOKEN = 4;
+    static final int STRING_TOKEN = 5;
+    static final int HOLE = 6;
+    static final int KAPP = 7;
+    static final int KLIST = 8;
+    static final int KSEQUENCE = 9;
+    static final int BAG = 10;
+    static final int LIST = 11;
+    static final int MAP = 12;
+    static final int SET = 13;
+    static final int AMBIGUITY = 14;
+    static final int BAG_ITEM = 15;
+    static final int LIST_ITEM = 16;
+    static final int SET_ITEM = 17;
+    static final int MAP_ITEM = 18;
+    static final int CELL = 19;
+    static final int KINJECTED_LABEL = 20;
+    static final int FREEZER_LABEL = 21;
+    static final int FREEZER = 22;
+    static final int FREEZER_HOLE = 23;
+    static final int VARIABLE = 24;
+    static final int EMPTY = 25;
+    static final int LIST_TERMINATOR = 26;
+    static final int TERM_CONS = 27;
+    static final int BACKEND_TERM = 28;
+    static final int BRACKET = 29;
+    static final int CAST = 30;
+
+    static final int ANY = -1;
+
+    /** The number of strings, integers and children of each tag; see {@link #ANY}. */
+    static final int[] STRINGS = new int[CAST + 1];
+    static final int[] INTS = new int[CAST + 1];
+    static final int[] CHILDREN = new int[CAST + 1];
+
+    private static void schema(int tag, int strings, int ints, int children) {
+        STRINGS[tag] = strings;
+        INTS[tag] = ints;
+        CHILDREN[tag] = children;
+    }
+
+    static {
+        schema(KLABEL_CONSTANT, 1, 0, 0);
+        schema(TOKEN, 2, 0, 0);
+        schema(STRING_TOKEN, 1, 0, 0);
+        schema(HOLE, 0, 0, 0);
+        schema(KAPP, 1, 0, 2);
+        for (int tag : new int[] { KLIST, KSEQUENCE, BAG, LIST, MAP, SET, AMBIGUITY }) {
+            schema(tag, 1, 0, ANY);
+        }
+        for (int tag : new int[] { BAG_ITEM, LIST_ITEM, SET_ITEM, KINJECTED_LABEL, FREEZER_LABEL,
+                FREEZER, BRACKET }) {
+            schema(tag, 1, 0, 1);
+        }
+        schema(MAP_ITEM, 1, 0, 2);
+        schema(CELL, ANY, 0, 1);
+        schema(FREEZER_HOLE, 1, 1, 0);
+        schema(VARIABLE, 3, 1, 0);
+        schema(EMPTY, 1, 0, 0);
+        schema(LIST_TERMINATOR, 2, 0, 0);
+        schema(TERM_CONS, 2, 0, ANY);
+        schema(BACKEND_TERM, 2, 0, 0);
+        schema(CAST, 1, 1, 1);
+    }
+
+    /** Whether nodes with the given tag are shared objects, which carry no attributes. */
+    static boolean isInterned(int tag) {
+        return tag == KLABEL_CONSTANT || tag == TOKEN || tag == STRING_TOKEN || tag == HOLE;
+    }
+}
@@ -0,0 +1,556 @@
+package org.kframework.krun.api.io;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+import org.kframework.compile.utils.RuleCompilerSteps;
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.Attributes;
+import org.kframework.kil.Bag;
+import org.kframework.kil.BagItem;
+import org.kframework.kil.BackendTerm;
+import org.kframework.kil.Bracket;
+import org.kframework.kil.Cast;
+import org.kframework.kil.Cell;
+import org.kframework.kil.Empty;
+import org.kframework.kil.Freezer;
+import org.kframework.kil.FreezerHole;
+import org.kframework.kil.FreezerLabel;
+import org.kframework.kil.Hole;
+import org.kframework.kil.KApp;
+import org.kframework.kil.KInjectedLabel;
+import org.kframework.kil.KLabelConstant;
+import org.kframework.kil.KList;
+import org.kframework.kil.KSequence;
+import org.kframework.kil.ListItem;
+import org.kframework.kil.ListTerminator;
+import org.kframework.kil.MapItem;
+import org.kframework.kil.SetItem;
+import org.kframework.kil.StringBuiltin;
+import org.kframework.kil.Term;
+import org.kframework.kil.TermCons;
+import org.kframework.kil.Token;
+import org.kframework.kil.Variable;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.SearchResult;
+import org.kframework.krun.api.SearchResults;
+import org.kframework.krun.api.Transition;
+import org.kframework.krun.api.Transition.TransitionType;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
+import org.kframework.utils.errorsystem.KException.KExceptionGroup;
+import org.kframework.utils.general.GlobalSettings;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.kframework.krun.api.io.BinaryFormat.*;
+
+/**
+Reads the values written by {@link BinaryWriter}, in the same order. A subterm written once and
+referred to afterwards is read as a new object at each occurrence, except for the interned
+labels and tokens, so that the terms read can be transformed in place like any other.
+*/
+public class BinaryReader implements Closeable {
+
+    private final DataInputStream in;
+    private final Context context;
+
+    private final List<String> strings = new ArrayList<String>();
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    public BinaryReader(InputStream in, Context context) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        this.context = context;
+        byte[] magic = new byte[MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("not a file written by krun --output-mode binary");
+        }
+        int version = readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported version " + version + " of the binary format");
+        }
+    }
+
+    /**
+    Returns whether the given file starts like a file written by {@link BinaryWriter}, rather than
+    by {@link BinaryLoader}.
+    */
+    public static boolean isBinaryFormat(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(fileName))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            return Arrays.equals(magic, MAGIC);
+        } catch (java.io.EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+    Loads the term saved in the given file by {@link BinaryWriter#writeTerm}, or by
+    {@link BinaryLoader} for files saved by older versions.
+    */
+    public static Term loadTerm(String fileName, Context context) {
+        try {
+            if (!isBinaryFormat(fileName)) {
+                return (Term) BinaryLoader.load(fileName);
+            }
+            try (BinaryReader reader = new BinaryReader(new FileInputStream(fileName), context)) {
+                return reader.readTerm();
+            }
+        } catch (IOException e) {
+            registerError(fileName, e);
+            return null;
+        }
+    }
+
+    /**
+    Loads the search graph saved in the given file by {@link BinaryWriter#writeGraph}, or by
+    {@link BinaryLoader} for files saved by older versions.
+    */
+    @SuppressWarnings("unchecked")
+    public static DirectedGraph<KRunState, Transition> loadGraph(String fileName, Context context) {
+        try {
+            if (!isBinaryFormat(fileName)) {
+                return (DirectedGraph<KRunState, Transition>) BinaryLoader.load(fileName);
+            }
+            try (BinaryReader reader = new BinaryReader(new FileInputStream(fileName), context)) {
+                return reader.readGraph();
+            }
+        } catch (IOException e) {
+            registerError(fileName, e);
+            return null;
+        }
+    }
+
+    private static void registerError(String fileName, IOException e) {
+        GlobalSettings.kem.register(new KException(ExceptionType.ERROR, KExceptionGroup.CRITICAL,
+                "Could not read " + fileName + ": " + e.getMessage()));
+    }
+
+    public Term readTerm() throws IOException {
+        expect(VALUE_TERM);
+        return term();
+    }
+
+    public KRunState readState() throws IOException {
+        expect(VALUE_STATE);
+        return state();
+    }
+
+    public DirectedGraph<KRunState, Transition> readGraph() throws IOException {
+        expect(VALUE_GRAPH);
+        return graph(new ArrayList<KRunState>());
+    }
+
+    /**
+    Reads search results written by {@link BinaryWriter#writeSearchResults}. The compiled search
+    pattern is not saved, and is needed to pretty-print the substitutions of the solutions.
+    */
+    public SearchResults readSearchResults(RuleCompilerSteps compilationInfo) throws IOException {
+        expect(VALUE_SEARCH_RESULTS);
+        boolean isDefaultPattern = in.readBoolean();
+        DirectedGraph<KRunState, Transition> graph = null;
+        List<KRunState> vertices = new ArrayList<KRunState>();
+        if (in.readBoolean()) {
+            graph = graph(vertices);
+        }
+        int size = readInt();
+        List<SearchResult> solutions = new ArrayList<SearchResult>(size);
+        for (int i = 0; i < size; i++) {
+            int vertex = readInt();
+            KRunState state = vertex == 0 ? state() : vertices.get(vertex - 1);
+            int bindings = readInt();
+            Map<String, Term> substitution = new HashMap<String, Term>();
+            for (int j = 0; j < bindings; j++) {
+                String variable = readString();
+                substitution.put(variable, term());
+            }
+            solutions.add(new SearchResult(state, substitution, compilationInfo, context));
+        }
+        return new SearchResults(solutions, graph, isDefaultPattern, context);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(int kind) throws IOException {
+        int actual = readInt();
+        if (actual != kind) {
+            throw new IOException("expected a value of kind " + kind + " but found " + actual);
+        }
+    }
+
+    private KRunState state() throws IOException {
+        int stateId = readInt();
+        KRunState state = new KRunState(term(), context);
+        if (stateId != 0) {
+            state.setStateId(stateId - 1);
+        }
+        return state;
+    }
+
+    private DirectedGraph<KRunState, Transition> graph(List<KRunState> vertices) throws IOException {
+        DirectedGraph<KRunState, Transition> graph = readInt() == GRAPH_SPARSE
+                ? new DirectedSparseGraph<KRunState, Transition>()
+                : new DirectedOrderedSparseMultigraph<KRunState, Transition>();
+        int vertexCount = readInt();
+        for (int i = 0; i < vertexCount; i++) {
+            KRunState state = state();
+            vertices.add(state);
+            graph.addVertex(state);
+        }
+        int edgeCount = readInt();
+        for (int i = 0; i < edgeCount; i++) {
+            KRunState source = vertices.get(readInt());
+            KRunState dest = vertices.get(readInt());
+            graph.addEdge(transition(), source, dest);
+        }
+        return graph;
+    }
+
+    private Transition transition() throws IOException {
+        TransitionType type = TransitionType.values()[readInt()];
+        switch (type) {
+            case RULE:
+                ASTNode rule;
+                if (readInt() == RULE_BY_LOCATION) {
+                    String key = readString() + ":" + readString();
+                    rule = context.locations.get(key);
+                    if (rule == null) {
+                        throw new IOException("no rule at " + key + " in the definition");
+                    }
+                } else {
+                    rule = (ASTNode) readObject();
+                }
+                return Transition.rule(rule, context);
+            case LABEL:
+                return Transition.label(readString(), context);
+            case UNLABELLED:
+                return Transition.unlabelled(context);
+            case DEADLOCK:
+                return Transition.deadlock(context);
+            case REDUCE:
+                return Transition.reduce(context);
+            case STDIN:
+                return Transition.stdin(readString(), context);
+            default:
+                throw new AssertionError("unknown transition type " + type);
+        }
+    }
+
+    /**
+    A node as it was read. Terms are built anew from the nodes on every read, since KIL terms are
+    mutable and a subterm written once may stand for several distinct objects.
+    */
+    private static class Node {
+        final int tag;
+        String[] attributes;
+        String[] strings;
+        int[] ints;
+        Node[] children;
+        byte[] serialized;
+
+        Node(int tag) {
+            this.tag = tag;
+        }
+    }
+
+    /** A node whose children are being read, or built. */
+    private static class Frame<T> {
+        final Node node;
+        final T[] children;
+        int read = 0;
+
+        Frame(Node node, T[] children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
+
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Term[] NO_TERMS = new Term[0];
+
+    /** Reads a term with an explicit stack of the nodes whose children are being read. */
+    private Term term() throws IOException {
+        List<Frame<Node>> stack = new ArrayList<Frame<Node>>();
+        while (true) {
+            Node value;
+            int header = in.readUnsignedByte();
+            int tag = header & ~ATTRIBUTES_FLAG;
+            if (tag == NULL) {
+                value = null;
+            } else if (tag == REF) {
+                value = nodes.get(readInt());
+            } else if (tag == SERIALIZED) {
+                value = new Node(tag);
+                value.serialized = new byte[readInt()];
+                in.readFully(value.serialized);
+                value.children = NO_NODES;
+                nodes.add(value);
+            } else {
+                if (tag >= STRINGS.length || tag < KLABEL_CONSTANT) {
+                    throw new IOException("unknown tag " + tag);
+                }
+                value = new Node(tag);
+                nodes.add(value);
+                if ((header & ATTRIBUTES_FLAG) != 0) {
+                    value.attributes = readStrings(readInt());
+                }
+                value.strings = readStrings(STRINGS[tag] == ANY ? readInt() : STRINGS[tag]);
+                value.ints = new int[INTS[tag]];
+                for (int i = 0; i < value.ints.length; i++) {
+                    value.ints[i] = readInt();
+                }
+                value.children = new Node[CHILDREN[tag] == ANY ? readInt() : CHILDREN[tag]];
+                if (value.children.length > 0) {
+                    stack.add(new Frame<Node>(value, value.children));
+                    continue;
+                }
+            }
+
+            /* pass the value to its parent, popping each parent whose children are all read */
+            while (true) {
+                if (stack.isEmpty()) {
+                    return instantiate(value);
+                }
+                Frame<Node> parent = stack.get(stack.size() - 1);
+                parent.children[parent.read++] = value;
+                if (parent.read < parent.children.length) {
+                    break;
+                }
+                stack.remove(stack.size() - 1);
+                value = parent.node;
+            }
+        }
+    }
+
+    /**
+    Builds a term from the given node, with new objects for all its subterms but the interned
+    ones, in post-order with an explicit stack.
+    */
+    private Term instantiate(Node node) throws IOException {
+        List<Frame<Term>> stack = new ArrayList<Frame<Term>>();
+        while (true) {
+            Term value;
+            if (node == null) {
+                value = null;
+            } else if (node.children.length == 0) {
+                value = build(node, NO_TERMS);
+            } else {
+                stack.add(new Frame<Term>(node, new Term[node.children.length]));
+                node = node.children[0];
+                continue;
+            }
+
+            /* pass the value to its parent, building each parent whose children are all built */
+            while (true) {
+                if (stack.isEmpty()) {
+                    return value;
+                }
+                Frame<Term> parent = stack.get(stack.size() - 1);
+                parent.children[parent.read++] = value;
+                if (parent.read < parent.children.length) {
+                    node = parent.node.children[parent.read];
+                    break;
+                }
+                stack.remove(stack.size() - 1);
+                value = build(parent.node, parent.children);
+            }
+        }
+    }
+
+    private Term build(Node node, Term[] c) throws IOException {
+        if (node.tag == SERIALIZED) {
+            return (Term) deserialize(node.serialized);
+        }
+        String[] s = node.strings;
+        Term term;
+        switch (node.tag) {
+            case KLABEL_CONSTANT:
+                term = KLabelConstant.of(s[0], context);
+                break;
+            case TOKEN:
+                term = Token.of(s[0], s[1]);
+                break;
+            case STRING_TOKEN:
+                term = StringBuiltin.of(s[0]);
+                break;
+            case HOLE:
+                term = Hole.KITEM_HOLE;
+                break;
+            case KAPP:
+                term = new KApp(c[0], c[1]);
+                break;
+            case KLIST:
+                term = new KList(list(c));
+                break;
+            case KSEQUENCE:
+                term = new KSequence(list(c));
+                break;
+            case BAG:
+                term = new Bag(list(c));
+                break;
+            case LIST:
+                term = new org.kframework.kil.List(list(c));
+                break;
+            case MAP:
+                term = new org.kframework.kil.Map(list(c));
+                break;
+            case SET:
+                term = new org.kframework.kil.Set(list(c));
+                break;
+            case AMBIGUITY:
+                term = new Ambiguity(s[0], list(c));
+                break;
+            case BAG_ITEM:
+                term = new BagItem(c[0]);
+                break;
+            case LIST_ITEM:
+                term = new ListItem(c[0]);
+                break;
+            case SET_ITEM:
+                term = new SetItem(c[0]);
+                break;
+            case MAP_ITEM:
+                term = new MapItem(c[0], c[1]);
+                break;
+            case CELL:
+                Cell cell = new Cell();
+                cell.setLabel(s[1]);
+                cell.setEndLabel(s[2]);
+                for (int i = 3; i + 1 < s.length; i += 2) {
+                    cell.getCellAttributes().put(s[i], s[i + 1]);
+                }
+                cell.setContents(c[0]);
+                term = cell;
+                break;
+            case KINJECTED_LABEL:
+                term = new KInjectedLabel(c[0]);
+                break;
+            case FREEZER_LABEL:
+                term = new FreezerLabel(c[0]);
+                break;
+            case FREEZER:
+                term = new Freezer(c[0]);
+                break;
+            case FREEZER_HOLE:
+                term = new FreezerHole(node.ints[0]);
+                break;
+            case VARIABLE:
+                Variable variable = new Variable(s[1], s[0]);
+                variable.setExpectedSort(s[2]);
+                variable.setUserTyped((node.ints[0] & 1) != 0);
+                variable.setFresh((node.ints[0] & 2) != 0);
+                variable.setSyntactic((node.ints[0] & 4) != 0);
+                term = variable;
+                break;
+            case EMPTY:
+                term = new Empty(s[0]);
+                break;
+            case LIST_TERMINATOR:
+                term = new ListTerminator(s[0], s[1]);
+                break;
+            case TERM_CONS:
+                term = new TermCons(s[0], s[1], list(c), context);
+                break;
+            case BACKEND_TERM:
+                term = new BackendTerm(s[0], s[1]);
+                break;
+            case BRACKET:
+                Bracket bracket = new Bracket(s[0]);
+                bracket.setContent(c[0]);
+                term = bracket;
+                break;
+            case CAST:
+                Cast cast = new Cast(s[0]);
+                cast.setContent(c[0]);
+                cast.setSyntactic(node.ints[0] != 0);
+                term = cast;
+                break;
+            default:
+                throw new IOException("unknown tag " + node.tag);
+        }
+        if (!isInterned(node.tag)) {
+            term.setSort(s[0]);
+            if (node.attributes != null) {
+                Attributes attributes = new Attributes();
+                for (int i = 0; i + 1 < node.attributes.length; i += 2) {
+                    attributes.set(node.attributes[i], node.attributes[i + 1]);
+                }
+                term.setAttributes(attributes);
+            }
+        }
+        return term;
+    }
+
+    private static List<Term> list(Term[] children) {
+        return new ArrayList<Term>(Arrays.asList(children));
+    }
+
+    private Object readObject() throws IOException {
+        byte[] bytes = new byte[readInt()];
+        in.readFully(bytes);
+        return deserialize(bytes);
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream deserializer = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return deserializer.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private String[] readStrings(int count) throws IOException {
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = readString();
+        }
+        return result;
+    }
+
+    private String readString() throws IOException {
+        int ref = readInt();
+        if (ref == 0) {
+            return null;
+        } else if (ref == 1) {
+            byte[] bytes = new byte[readInt()];
+            in.readFully(bytes);
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(string);
+            return string;
+        } else {
+            return strings.get(ref - 2);
+        }
+    }
+
+    private int readInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
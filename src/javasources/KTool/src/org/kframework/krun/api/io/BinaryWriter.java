@@ -0,0 +1,500 @@
+package org.kframework.krun.api.io;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.kil.Bag;
+import org.kframework.kil.BagItem;
+import org.kframework.kil.BackendTerm;
+import org.kframework.kil.Bracket;
+import org.kframework.kil.Cast;
+import org.kframework.kil.Cell;
+import org.kframework.kil.Collection;
+import org.kframework.kil.CollectionItem;
+import org.kframework.kil.Empty;
+import org.kframework.kil.Freezer;
+import org.kframework.kil.FreezerHole;
+import org.kframework.kil.FreezerLabel;
+import org.kframework.kil.GenericToken;
+import org.kframework.kil.Hole;
+import org.kframework.kil.IntBuiltin;
+import org.kframework.kil.BoolBuiltin;
+import org.kframework.kil.KApp;
+import org.kframework.kil.KInjectedLabel;
+import org.kframework.kil.KLabelConstant;
+import org.kframework.kil.KList;
+import org.kframework.kil.KSequence;
+import org.kframework.kil.ListItem;
+import org.kframework.kil.ListTerminator;
+import org.kframework.kil.MapItem;
+import org.kframework.kil.SetItem;
+import org.kframework.kil.StringBuiltin;
+import org.kframework.kil.Term;
+import org.kframework.kil.TermCons;
+import org.kframework.kil.Token;
+import org.kframework.kil.Variable;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.SearchResult;
+import org.kframework.krun.api.SearchResults;
+import org.kframework.krun.api.Transition;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.kframework.krun.api.io.BinaryFormat.*;
+
+/**
+Writes terms, krun states, search graphs and search results in the format described in
+{@link BinaryFormat}, to be read back by {@link BinaryReader}.
+
+Values are written to the stream as soon as they are given, but the string pool and the
+dictionary of subterms are kept for the lifetime of the writer, so that a subterm or a string
+already written as part of an earlier value is only referred to. The dictionary is keyed by the
+structure of each node and the numbers of its children, so equal subterms are written once even
+when they are different objects; {@link BinaryReader} builds a new object for each occurrence.
+*/
+public class BinaryWriter implements Closeable, Flushable {
+
+    private final DataOutputStream out;
+    private final Context context;
+
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+    private final Map<Key, Integer> keys = new HashMap<Key, Integer>();
+
+    /** The number each distinct node was written with, indexed by its key, or -1. */
+    private int[] numbers = new int[1024];
+    private int keyCount = 0;
+    private int nodeCount = 0;
+
+    public BinaryWriter(OutputStream out, Context context) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.context = context;
+        this.out.write(MAGIC);
+        writeInt(VERSION);
+    }
+
+    public void writeTerm(Term term) throws IOException {
+        writeInt(VALUE_TERM);
+        term(term);
+    }
+
+    public void writeState(KRunState state) throws IOException {
+        writeInt(VALUE_STATE);
+        state(state);
+    }
+
+    public void writeGraph(DirectedGraph<KRunState, Transition> graph) throws IOException {
+        writeInt(VALUE_GRAPH);
+        graph(graph);
+    }
+
+    /**
+    Writes the solutions of a search, with their raw substitutions, and the search graph if there
+    is one. The states of the solutions which are vertices of the graph are only referred to.
+    */
+    public void writeSearchResults(SearchResults results) throws IOException {
+        writeInt(VALUE_SEARCH_RESULTS);
+        out.writeBoolean(results.isDefaultPattern());
+        Map<KRunState, Integer> vertices = new IdentityHashMap<KRunState, Integer>();
+        out.writeBoolean(results.getGraph() != null);
+        if (results.getGraph() != null) {
+            vertices = graph(results.getGraph());
+        }
+        writeInt(results.getSolutions().size());
+        for (SearchResult solution : results.getSolutions()) {
+            Integer vertex = vertices.get(solution.getState());
+            writeInt(vertex == null ? 0 : vertex + 1);
+            if (vertex == null) {
+                state(solution.getState());
+            }
+            Map<String, Term> substitution = solution.getRawSubstitution();
+            writeInt(substitution.size());
+            for (Map.Entry<String, Term> entry : substitution.entrySet()) {
+                writeString(entry.getKey());
+                term(entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void state(KRunState state) throws IOException {
+        writeInt(state.getStateId() == null ? 0 : state.getStateId() + 1);
+        term(state.getRawResult());
+    }
+
+    private Map<KRunState, Integer> graph(DirectedGraph<KRunState, Transition> graph) throws IOException {
+        writeInt(graph instanceof DirectedSparseGraph ? GRAPH_SPARSE : GRAPH_ORDERED_MULTI);
+        Map<KRunState, Integer> vertices = new IdentityHashMap<KRunState, Integer>();
+        writeInt(graph.getVertexCount());
+        for (KRunState state : graph.getVertices()) {
+            vertices.put(state, vertices.size());
+            state(state);
+        }
+        writeInt(graph.getEdgeCount());
+        for (Transition edge : graph.getEdges()) {
+            writeInt(vertices.get(graph.getSource(edge)));
+            writeInt(vertices.get(graph.getDest(edge)));
+            transition(edge);
+        }
+        return vertices;
+    }
+
+    private void transition(Transition transition) throws IOException {
+        writeInt(transition.getType().ordinal());
+        switch (transition.getType()) {
+            case RULE:
+                ASTNode rule = transition.getRule();
+                if (rule != null
+                        && context.locations.get(rule.getFilename() + ":" + rule.getLocation()) == rule) {
+                    writeInt(RULE_BY_LOCATION);
+                    writeString(rule.getFilename());
+                    writeString(rule.getLocation());
+                } else {
+                    writeInt(RULE_SERIALIZED);
+                    writeObject(rule);
+                }
+                break;
+            case LABEL:
+                writeString(transition.getLabel());
+                break;
+            case STDIN:
+                writeString(transition.getReadString());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void term(Term term) throws IOException {
+        Map<Term, Integer> ids = index(term);
+
+        /* write the nodes in prefix order, referring to the ones already written */
+        List<Term> stack = new ArrayList<Term>();
+        stack.add(term);
+        while (!stack.isEmpty()) {
+            Term current = stack.remove(stack.size() - 1);
+            if (current == null) {
+                out.writeByte(NULL);
+                continue;
+            }
+            int id = ids.get(current);
+            if (numbers[id] >= 0) {
+                out.writeByte(REF);
+                writeInt(numbers[id]);
+                continue;
+            }
+            numbers[id] = nodeCount++;
+
+            Node node = describe(current);
+            if (node.tag == SERIALIZED) {
+                out.writeByte(SERIALIZED);
+                writeObject(current);
+                continue;
+            }
+            out.writeByte(node.attributes == null ? node.tag : node.tag | ATTRIBUTES_FLAG);
+            if (node.attributes != null) {
+                writeInt(node.attributes.length);
+                for (String string : node.attributes) {
+                    writeString(string);
+                }
+            }
+            if (STRINGS[node.tag] == ANY) {
+                writeInt(node.strings.length);
+            }
+            for (String string : node.strings) {
+                writeString(string);
+            }
+            for (int value : node.ints) {
+                writeInt(value);
+            }
+            if (CHILDREN[node.tag] == ANY) {
+                writeInt(node.children.length);
+            }
+            for (int i = node.children.length - 1; i >= 0; i--) {
+                stack.add(node.children[i]);
+            }
+        }
+    }
+
+    /**
+    Assigns a key number to every node of the given term, children first, so that equal subterms
+    get the same number.
+    */
+    private Map<Term, Integer> index(Term term) {
+        Map<Term, Integer> ids = new IdentityHashMap<Term, Integer>();
+        Map<Term, Node> pending = new IdentityHashMap<Term, Node>();
+        List<Term> stack = new ArrayList<Term>();
+        if (term != null) {
+            stack.add(term);
+        }
+        while (!stack.isEmpty()) {
+            Term current = stack.get(stack.size() - 1);
+            if (ids.containsKey(current)) {
+                stack.remove(stack.size() - 1);
+                continue;
+            }
+            Node node = pending.get(current);
+            if (node == null) {
+                node = describe(current);
+                pending.put(current, node);
+                for (Term child : node.children) {
+                    if (child != null && !ids.containsKey(child)) {
+                        stack.add(child);
+                    }
+                }
+                continue;
+            }
+            stack.remove(stack.size() - 1);
+            pending.remove(current);
+
+            Integer id = null;
+            Key key = null;
+            if (node.tag != SERIALIZED) {
+                int[] children = new int[node.children.length];
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = node.children[i] == null ? -1 : ids.get(node.children[i]);
+                }
+                key = new Key(node, children);
+                id = keys.get(key);
+            }
+            if (id == null) {
+                id = keyCount++;
+                if (id == numbers.length) {
+                    numbers = Arrays.copyOf(numbers, numbers.length * 2);
+                }
+                numbers[id] = -1;
+                if (key != null) {
+                    keys.put(key, id);
+                }
+            }
+            ids.put(current, id);
+        }
+        return ids;
+    }
+
+    private static final String[] NO_STRINGS = new String[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final Term[] NO_CHILDREN = new Term[0];
+
+    private static Node describe(Term term) {
+        Class<?> c = term.getClass();
+        String sort = term.getSort();
+        if (c == KLabelConstant.class) {
+            return new Node(KLABEL_CONSTANT, ((KLabelConstant) term).getLabel());
+        } else if (c == StringBuiltin.class) {
+            return new Node(STRING_TOKEN, ((StringBuiltin) term).stringValue());
+        } else if (c == IntBuiltin.class || c == BoolBuiltin.class || c == GenericToken.class) {
+            return new Node(TOKEN, ((Token) term).tokenSort(), ((Token) term).value());
+        } else if (term == Hole.KITEM_HOLE) {
+            return new Node(HOLE);
+        } else if (c == KApp.class) {
+            return new Node(KAPP, term, new String[] { sort }, NO_INTS,
+                    ((KApp) term).getLabel(), ((KApp) term).getChild());
+        } else if (c == KList.class || c == KSequence.class || c == Bag.class
+                || c == org.kframework.kil.List.class || c == org.kframework.kil.Map.class
+                || c == org.kframework.kil.Set.class || c == Ambiguity.class) {
+            int tag = c == KList.class ? KLIST
+                    : c == KSequence.class ? KSEQUENCE
+                    : c == Bag.class ? BAG
+                    : c == org.kframework.kil.List.class ? LIST
+                    : c == org.kframework.kil.Map.class ? MAP
+                    : c == org.kframework.kil.Set.class ? SET
+                    : AMBIGUITY;
+            List<Term> contents = ((Collection) term).getContents();
+            return new Node(tag, term, new String[] { sort }, NO_INTS,
+                    contents.toArray(new Term[contents.size()]));
+        } else if (c == BagItem.class || c == ListItem.class || c == SetItem.class) {
+            int tag = c == BagItem.class ? BAG_ITEM : c == ListItem.class ? LIST_ITEM : SET_ITEM;
+            return new Node(tag, term, new String[] { sort }, NO_INTS,
+                    ((CollectionItem) term).getItem());
+        } else if (c == MapItem.class) {
+            return new Node(MAP_ITEM, term, new String[] { sort }, NO_INTS,
+                    ((MapItem) term).getKey(), ((MapItem) term).getValue());
+        } else if (c == Cell.class) {
+            Cell cell = (Cell) term;
+            List<String> strings = new ArrayList<String>();
+            strings.add(sort);
+            strings.add(cell.getLabel());
+            strings.add(cell.getEndLabel());
+            if (cell.getCellAttributes() != null) {
+                for (Map.Entry<String, String> entry : cell.getCellAttributes().entrySet()) {
+                    strings.add(entry.getKey());
+                    strings.add(entry.getValue());
+                }
+            }
+            return new Node(CELL, term, strings.toArray(new String[strings.size()]), NO_INTS,
+                    cell.getContents());
+        } else if (c == KInjectedLabel.class || c == FreezerLabel.class) {
+            return new Node(c == KInjectedLabel.class ? KINJECTED_LABEL : FREEZER_LABEL, term,
+                    new String[] { sort }, NO_INTS, ((KInjectedLabel) term).getTerm());
+        } else if (c == Freezer.class) {
+            return new Node(FREEZER, term, new String[] { sort }, NO_INTS, ((Freezer) term).getTerm());
+        } else if (c == FreezerHole.class) {
+            return new Node(FREEZER_HOLE, term, new String[] { sort },
+                    new int[] { ((FreezerHole) term).getIndex() });
+        } else if (c == Variable.class) {
+            Variable variable = (Variable) term;
+            int flags = (variable.isUserTyped() ? 1 : 0) | (variable.isFresh() ? 2 : 0)
+                    | (variable.isSyntactic() ? 4 : 0);
+            return new Node(VARIABLE, term,
+                    new String[] { sort, variable.getName(), variable.getExpectedSort() },
+                    new int[] { flags });
+        } else if (c == Empty.class) {
+            return new Node(EMPTY, term, new String[] { sort }, NO_INTS);
+        } else if (c == ListTerminator.class) {
+            return new Node(LIST_TERMINATOR, term,
+                    new String[] { sort, ((ListTerminator) term).getSeparator() }, NO_INTS);
+        } else if (c == TermCons.class) {
+            List<Term> contents = ((TermCons) term).getContents();
+            return new Node(TERM_CONS, term, new String[] { sort, ((TermCons) term).getCons() },
+                    NO_INTS, contents.toArray(new Term[contents.size()]));
+        } else if (c == BackendTerm.class) {
+            return new Node(BACKEND_TERM, term,
+                    new String[] { sort, ((BackendTerm) term).getValue() }, NO_INTS);
+        } else if (c == Bracket.class) {
+            return new Node(BRACKET, term, new String[] { sort }, NO_INTS, ((Bracket) term).getContent());
+        } else if (c == Cast.class) {
+            return new Node(CAST, term, new String[] { sort },
+                    new int[] { ((Cast) term).isSyntactic() ? 1 : 0 }, ((Cast) term).getContent());
+        } else {
+            return new Node(SERIALIZED);
+        }
+    }
+
+    private void writeObject(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream serializer = new ObjectOutputStream(bytes)) {
+            serializer.writeObject(object);
+        }
+        writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private void writeString(String string) throws IOException {
+        if (string == null) {
+            writeInt(0);
+            return;
+        }
+        Integer id = strings.get(string);
+        if (id != null) {
+            writeInt(id + 2);
+            return;
+        }
+        strings.put(string, strings.size());
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeInt(1);
+        writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Writes a non-negative integer in 7-bit groups, lowest first. */
+    private void writeInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /** The decomposition of a node into the parts written for it. */
+    private static class Node {
+        final int tag;
+        final String[] attributes;
+        final String[] strings;
+        final int[] ints;
+        final Term[] children;
+
+        /** An interned node, or one written with Java serialization. */
+        Node(int tag, String... strings) {
+            this.tag = tag;
+            this.attributes = null;
+            this.strings = strings;
+            this.ints = NO_INTS;
+            this.children = NO_CHILDREN;
+        }
+
+        Node(int tag, Term term, String[] strings, int[] ints, Term... children) {
+            this.tag = tag;
+            this.attributes = attributes(term.getAttributes());
+            this.strings = strings;
+            this.ints = ints;
+            this.children = children;
+        }
+
+        private static String[] attributes(Attributes attributes) {
+            if (attributes == null || attributes.isEmpty()) {
+                return null;
+            }
+            List<Attribute> contents = attributes.getContents();
+            String[] result = new String[2 * contents.size()];
+            for (int i = 0; i < contents.size(); i++) {
+                result[2 * i] = contents.get(i).getKey();
+                result[2 * i + 1] = contents.get(i).getValue();
+            }
+            return result;
+        }
+    }
+
+    /** A node with its children replaced by their key numbers. */
+    private static class Key {
+        final int tag;
+        final String[] attributes;
+        final String[] strings;
+        final int[] ints;
+        final int[] children;
+        final int hashCode;
+
+        Key(Node node, int[] children) {
+            this.tag = node.tag;
+            this.attributes = node.attributes;
+            this.strings = node.strings;
+            this.ints = node.ints;
+            this.children = children;
+            this.hashCode = ((tag * 31 + Arrays.hashCode(attributes)) * 31
+                    + Arrays.hashCode(strings)) * 31
+                    + Arrays.hashCode(ints) * 17 + Arrays.hashCode(children);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode && tag == key.tag
+                    && Arrays.equals(children, key.children)
+                    && Arrays.equals(strings, key.strings)
+                    && Arrays.equals(ints, key.ints)
+                    && Arrays.equals(attributes, key.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -17,6 +17,12 @@ public class Configuration {
     // timeout in miliseconds - this is mostly used by Jenkins
 	public static long KOMPILE_ALL_TIMEOUT = 60 * 60; //60 minutes
 
+	// time limit in seconds for running a single program; 0 means no limit
+	public static long PROGRAM_TIMEOUT = 0;
+
+	// run krun inside the ktest JVM instead of starting a process for each program
+	public static boolean IN_PROCESS = false;
+
 	// jenkins junit reports directory
 	public static String JR = "junit-reports";
 
@@ -89,6 +95,8 @@ public class Configuration {
     public static final String SKIP_OPTION = "skip";
 	public static final String VERBOSE_OPTION = "verbose";
     public static final String TIMEOUT_OPTION = "timeout";
+    public static final String PROGRAM_TIMEOUT_OPTION = "program-timeout";
+    public static final String IN_PROCESS_OPTION = "in-process";
 
 	// program name
 	public static final String KOMPILE_STEP = "kompile";
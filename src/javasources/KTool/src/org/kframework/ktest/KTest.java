@@ -89,6 +89,16 @@ public class KTest {
             Configuration.KOMPILE_ALL_TIMEOUT = Long.parseLong(cmd.getOptionValue(Configuration.TIMEOUT_OPTION));
         }
 
+        // Program timeout
+        if (cmd.hasOption(Configuration.PROGRAM_TIMEOUT_OPTION)) {
+            Configuration.PROGRAM_TIMEOUT = Long.parseLong(cmd.getOptionValue(Configuration.PROGRAM_TIMEOUT_OPTION));
+        }
+
+        // In-process execution of programs
+        if (cmd.hasOption(Configuration.IN_PROCESS_OPTION)) {
+            Configuration.IN_PROCESS = true;
+        }
+
         // Input argument
         String input = null;
         String[] remainingArgs = cmd.getArgs();
@@ -55,6 +55,8 @@ public class KTestOptionsParser {
         addOptionS(OptionBuilder.withLongOpt(Configuration.TIMEOUT_OPTION).hasArg().withArgName("num").withDescription("The testing time limit (seconds).").create());
 
 		addOptionE(OptionBuilder.withLongOpt("config").withDescription("Just for backward compatibility.").create());
+		addOptionE(OptionBuilder.withLongOpt(Configuration.PROGRAM_TIMEOUT_OPTION).hasArg().withArgName("num").withDescription("The time limit (seconds) for running a single program.").create());
+		addOptionE(OptionBuilder.withLongOpt(Configuration.IN_PROCESS_OPTION).withDescription("Run krun inside the ktest JVM, on a pool of workers which load each definition once, instead of starting a process for each program.").create());
 		addOptionE(OptionBuilder.withLongOpt("dry").withDescription("Dry run: print out the commend to be executed without actual execution.").create());
 	}
 	
@@ -1,8 +1,12 @@
 package org.kframework.ktest.execution;
 
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.kframework.ktest.Configuration;
 
@@ -11,13 +15,53 @@ public class Execution {
 			.availableProcessors());
 	private static ThreadPoolExecutor tpe = getThreadPoolExecutor();
 
+	// interrupts the tasks which run out of time
+	private static final ScheduledExecutorService watchdog = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ktest-watchdog");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	private static ThreadPoolExecutor getThreadPoolExecutor() {
 		return (ThreadPoolExecutor) Executors
 				.newFixedThreadPool(POOL_SIZE);
 	}
 
-	public static void execute(Task definitionTask) {
-		tpe.execute(definitionTask);
+	public static void execute(final Task task) {
+		if (task.getTimeout() <= 0) {
+			tpe.execute(task);
+			return;
+		}
+
+		tpe.execute(new Runnable() {
+			@Override
+			public void run() {
+				final Thread worker = Thread.currentThread();
+				// set by whichever comes first: the end of the task or the alarm
+				final AtomicBoolean done = new AtomicBoolean(false);
+				ScheduledFuture<?> alarm = watchdog.schedule(new Runnable() {
+					@Override
+					public void run() {
+						if (done.compareAndSet(false, true)) {
+							task.timedOut();
+							worker.interrupt();
+						}
+					}
+				}, task.getTimeout(), TimeUnit.SECONDS);
+				try {
+					task.run();
+				} finally {
+					done.set(true);
+					alarm.cancel(false);
+					// clear an interruption which came after the task finished
+					Thread.interrupted();
+				}
+			}
+		});
 	}
 
 	public static void finish() { 
@@ -39,6 +83,7 @@ public class Execution {
 			e.printStackTrace();
 		}
 		//System.out.println("Exiting normally...");
+		KrunWorker.closeAll();
 		Execution.tpe = getThreadPoolExecutor();
 	}
 
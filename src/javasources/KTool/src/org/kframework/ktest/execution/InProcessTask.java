@@ -0,0 +1,47 @@
+package org.kframework.ktest.execution;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.kframework.ktest.Configuration;
+
+/**
+ * A krun task run inside the ktest JVM by the worker of the current thread (see
+ * {@link KrunWorker}) instead of in a separate process. The first argument (the krun executable)
+ * is only kept for reporting the command; the task runs in the working directory of ktest.
+ */
+public class InProcessTask extends Task {
+
+	public InProcessTask(String[] arguments, String stdin, File homeDir, long timeout) {
+		super(arguments, stdin, homeDir, timeout);
+	}
+
+	@Override
+	public void run() {
+		String message = "";
+		if (Configuration.VERBOSE) {
+			message = "Done with [" + arguments[1];
+		}
+		elapsed = System.currentTimeMillis();
+
+		try {
+			KrunWorker.Result result = KrunWorker.current().run(
+					Arrays.copyOfRange(arguments, 1, arguments.length), stdin);
+			stdout = result.stdout;
+			stderr = result.stderr;
+			exit = result.exit;
+		} catch (ReflectiveOperationException e) {
+			stderr = "Cannot load krun in-process: " + e;
+			exit = Integer.MAX_VALUE;
+		}
+
+		// time
+		elapsed = (System.currentTimeMillis() - elapsed);
+
+		if (Configuration.VERBOSE) {
+			System.out.println(message + "] (time: " + elapsed + " ms)");
+		}
+	}
+}
+
+// vim: noexpandtab
@@ -0,0 +1,264 @@
+package org.kframework.ktest.execution;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs krun inside the ktest JVM. Each thread of the Execution pool gets its own worker, that is
+ * its own class loader over the K classpath: the static state of krun (options, loaded
+ * definitions) is private to the worker, and a definition is loaded once per worker and reused
+ * by all the programs the worker runs.
+ * <p/>
+ * krun reads System.in, writes to System.out and System.err and ends with System.exit. While a
+ * worker runs krun, these are redirected, for the worker thread and the threads it starts, to
+ * buffers of the task, and the exit is turned into an exception carrying the exit status.
+ */
+class KrunWorker {
+
+	private static final String KRUN_MAIN = "org.kframework.krun.Main";
+	private static final String KRUN_ENTRY = "executeReusingDefinitions";
+
+	/**
+	 * The result of running krun once.
+	 */
+	static class Result {
+		final String stdout, stderr;
+		final int exit;
+
+		Result(String stdout, String stderr, int exit) {
+			this.stdout = stdout;
+			this.stderr = stderr;
+			this.exit = exit;
+		}
+	}
+
+	// the standard streams of the task run by the current thread, if any
+	private static class Capture {
+		final InputStream in;
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		Capture(String stdin) {
+			in = new ByteArrayInputStream(stdin == null ? new byte[0] : stdin.getBytes());
+		}
+	}
+
+	private static class ExitException extends SecurityException {
+		final int status;
+
+		ExitException(int status) {
+			super("System.exit(" + status + ")");
+			this.status = status;
+		}
+	}
+
+	private static final InheritableThreadLocal<Capture> capture = new InheritableThreadLocal<Capture>();
+	private static final ThreadLocal<KrunWorker> worker = new ThreadLocal<KrunWorker>();
+	private static final List<KrunWorker> workers = new ArrayList<KrunWorker>();
+	private static boolean installed = false;
+
+	private final URLClassLoader loader;
+	private final Method entry;
+
+	private KrunWorker() throws ReflectiveOperationException {
+		String[] classpath = System.getProperty("java.class.path").split(File.pathSeparator);
+		URL[] urls = new URL[classpath.length];
+		for (int i = 0; i < classpath.length; i++) {
+			try {
+				urls[i] = new File(classpath[i]).toURI().toURL();
+			} catch (MalformedURLException e) {
+				throw new AssertionError(e);
+			}
+		}
+		// the parent is the extension class loader, so that K classes are not shared
+		loader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+		entry = loader.loadClass(KRUN_MAIN).getMethod(KRUN_ENTRY, String[].class);
+	}
+
+	/**
+	 * Returns the worker of the current thread, creating it if needed.
+	 */
+	static KrunWorker current() throws ReflectiveOperationException {
+		KrunWorker current = worker.get();
+		if (current == null) {
+			install();
+			current = new KrunWorker();
+			worker.set(current);
+			synchronized (workers) {
+				workers.add(current);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Releases the class loaders of all workers; called once the threads using them are done.
+	 */
+	static void closeAll() {
+		synchronized (workers) {
+			for (KrunWorker w : workers) {
+				try {
+					w.loader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			workers.clear();
+		}
+	}
+
+	/**
+	 * Runs krun with the given arguments and standard input on the current thread.
+	 */
+	Result run(String[] arguments, String stdin) {
+		Thread thread = Thread.currentThread();
+		ClassLoader contextLoader = thread.getContextClassLoader();
+		Capture c = new Capture(stdin);
+		PrintStream err = new PrintStream(c.err, true);
+		int exit = 0;
+
+		capture.set(c);
+		thread.setContextClassLoader(loader);
+		try {
+			entry.invoke(null, (Object) arguments);
+		} catch (InvocationTargetException e) {
+			ExitException exitException = getExitException(e.getCause());
+			if (exitException != null) {
+				exit = exitException.status;
+			} else {
+				e.getCause().printStackTrace(err);
+				exit = Integer.MAX_VALUE;
+			}
+		} catch (IllegalAccessException e) {
+			e.printStackTrace(err);
+			exit = Integer.MAX_VALUE;
+		} finally {
+			thread.setContextClassLoader(contextLoader);
+			capture.remove();
+		}
+
+		return new Result(c.out.toString(), c.err.toString(), exit);
+	}
+
+	private static ExitException getExitException(Throwable throwable) {
+		for (Throwable t = throwable; t != null; t = t.getCause()) {
+			if (t instanceof ExitException) {
+				return (ExitException) t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Replaces the standard streams by streams which forward to the task run by the current
+	 * thread, or to the original streams, and traps System.exit in the threads running a task.
+	 * This is done before the first worker class loader is created, so that krun classes which
+	 * keep a reference to System.out (e.g. AnsiConsole) get the forwarding stream.
+	 */
+	private static synchronized void install() {
+		if (installed)
+			return;
+		installed = true;
+
+		final PrintStream out = System.out;
+		final PrintStream err = System.err;
+		final InputStream in = System.in;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				target().write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				target().write(b, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				target().flush();
+			}
+
+			private OutputStream target() {
+				Capture c = capture.get();
+				return c == null ? out : c.out;
+			}
+		}, true));
+		System.setErr(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				target().write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				target().write(b, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				target().flush();
+			}
+
+			private OutputStream target() {
+				Capture c = capture.get();
+				return c == null ? err : c.err;
+			}
+		}, true));
+		System.setIn(new InputStream() {
+			@Override
+			public int read() throws IOException {
+				return source().read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return source().read(b, off, len);
+			}
+
+			@Override
+			public int available() throws IOException {
+				return source().available();
+			}
+
+			private InputStream source() {
+				Capture c = capture.get();
+				return c == null ? in : c.in;
+			}
+		});
+
+		System.setSecurityManager(new SecurityManager() {
+			@Override
+			public void checkExit(int status) {
+				if (capture.get() != null) {
+					throw new ExitException(status);
+				}
+			}
+
+			@Override
+			public void checkPermission(Permission perm) {
+				// everything else is allowed
+			}
+
+			@Override
+			public void checkPermission(Permission perm, Object context) {
+				// everything else is allowed
+			}
+		});
+	}
+}
+
+// vim: noexpandtab
@@ -18,14 +18,22 @@ import org.kframework.ktest.Configuration;
 public class Task extends Thread {
 
 	// standard
-	private String stderr, stdout;
-	private String[] arguments;
-	private int exit;
-	private String stdin;
-	private long elapsed;
-	private File homeDir;
+	protected String stderr, stdout;
+	protected String[] arguments;
+	protected int exit;
+	protected String stdin;
+	protected long elapsed;
+	protected File homeDir;
+
+	// time limit in seconds, enforced by Execution by interrupting the task; 0 means no limit
+	private long timeout;
+	private volatile boolean timedOut = false;
 
 	public Task(String[] arguments, String stdin, File homeDir) {
+		this(arguments, stdin, homeDir, 0);
+	}
+
+	public Task(String[] arguments, String stdin, File homeDir, long timeout) {
 		super();
 		this.arguments = arguments;
 		this.stdin = stdin;
@@ -33,6 +41,7 @@ public class Task extends Thread {
 		this.stdout = "";
 		this.exit = 0;
 		this.homeDir = homeDir;
+		this.timeout = timeout;
 	}
 
 	@Override
@@ -50,9 +59,9 @@ public class Task extends Thread {
 			Process p = pb.start();
 			//System.out.println("Start process...");
 
+			// asynchronous output reader
+			final ExecutorService service = Executors.newFixedThreadPool(2);
 			try {
-				// asynchronous output reader
-				final ExecutorService service = Executors.newFixedThreadPool(2);
 				final Future<String> outputGobbler = service.submit(new StreamGobbler(p.getInputStream()));
 				final Future<String> errorGobbler  = service.submit(new StreamGobbler(p.getErrorStream()));
 
@@ -63,12 +72,10 @@ public class Task extends Thread {
 					p.getOutputStream().close();
 				}
 
-				// wait output reader
+				// wait output reader; an interruption (timeout) is handled below
 				try {
 					stdout = outputGobbler.get();
 					stderr = errorGobbler.get();
-				} catch(final InterruptedException ie) {
-					ie.printStackTrace();
 				} catch(final ExecutionException ee) {
 					ee.printStackTrace();
 				}
@@ -90,6 +97,7 @@ public class Task extends Thread {
 			} catch (InterruptedException e) {
 				exit = Integer.MAX_VALUE;
 				p.destroy();
+				service.shutdownNow();
 			}
 
 			// time
@@ -110,7 +118,24 @@ public class Task extends Thread {
 		}
 	}
 
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Called by Execution when the task ran out of time and has been interrupted.
+	 */
+	void timedOut() {
+		timedOut = true;
+	}
+
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
 	public String getStderr() {
+		if (timedOut)
+			return (stderr == null ? "" : stderr) + "Timed out after " + timeout + " seconds.";
 		if (stderr == null)
 			return "";
 		return stderr;
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.kframework.ktest.Configuration;
+import org.kframework.ktest.execution.InProcessTask;
 import org.kframework.ktest.execution.Task;
 
 public class Program implements Comparable<Program> {
@@ -53,7 +54,10 @@ public class Program implements Comparable<Program> {
 			i++;
 		}
 
-		return new Task(arguments, input, homeDir);
+		if (Configuration.IN_PROCESS) {
+			return new InProcessTask(arguments, input, homeDir, Configuration.PROGRAM_TIMEOUT);
+		}
+		return new Task(arguments, input, homeDir, Configuration.PROGRAM_TIMEOUT);
 	}
 
 	public boolean success(Task task) {
@@ -23,7 +23,6 @@ import org.kframework.kil.loader.JavaClassesFactory;
 import org.kframework.kil.visitors.exceptions.TransformerException;
 import org.kframework.parser.basic.Basic;
 import org.kframework.parser.concrete.disambiguate.AmbDuplicateFilter;
-import org.kframework.parser.concrete.disambiguate.AmbFilter;
 import org.kframework.parser.concrete.disambiguate.BestFitFilter;
 import org.kframework.parser.concrete.disambiguate.CellEndLabelFilter;
 import org.kframework.parser.concrete.disambiguate.CellTypesFilter;
@@ -33,9 +32,8 @@ import org.kframework.parser.concrete.disambiguate.CorrectRewritePriorityFilter;
 import org.kframework.parser.concrete.disambiguate.FlattenListsFilter;
 import org.kframework.parser.concrete.disambiguate.GetFitnessUnitKCheckVisitor;
 import org.kframework.parser.concrete.disambiguate.GetFitnessUnitTypeCheckVisitor;
-import org.kframework.parser.concrete.disambiguate.MergeAmbFilter;
-import org.kframework.parser.concrete.disambiguate.PreferAvoidFilter;
 import org.kframework.parser.concrete.disambiguate.PriorityFilter;
+import org.kframework.parser.concrete.disambiguate.SentenceDisambiguation;
 import org.kframework.parser.concrete.disambiguate.SentenceVariablesFilter;
 import org.kframework.parser.concrete.disambiguate.TypeInferenceSupremumFilter;
 import org.kframework.parser.concrete.disambiguate.TypeSystemFilter;
@@ -49,6 +47,7 @@ import org.kframework.parser.generator.ProgramSDF;
 import org.kframework.parser.utils.ResourceExtractor;
 import org.kframework.parser.utils.Sdf2Table;
 import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.CompilationProfiler;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.XmlLoader;
 import org.kframework.utils.errorsystem.KException;
@@ -71,11 +70,13 @@ public class DefinitionLoader {
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Load definition from binary");
+			CompilationProfiler.profiler.end("Load definition from binary", javaDef);
 
 			javaDef.preprocess(context);
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Preprocess");
+			CompilationProfiler.profiler.end("Preprocess", javaDef);
 
 		} else {
 			javaDef = parseDefinition(mainFile, lang, autoinclude, context);
@@ -127,6 +128,7 @@ public class DefinitionLoader {
 			}
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Basic Parsing");
+			CompilationProfiler.profiler.end("Basic Parsing", def);
 
 			new CheckVisitorStep<Definition>(new CheckListOfKDeprecation(context), context).check(def);
 			// HERE: add labels to sorts
@@ -135,6 +137,7 @@ public class DefinitionLoader {
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Preprocess");
+			CompilationProfiler.profiler.end("Preprocess", def);
 
 			new CheckVisitorStep<Definition>(new CheckSyntaxDecl(context), context).check(def);
 			new CheckVisitorStep<Definition>(new CheckListDecl(context), context).check(def);
@@ -142,6 +145,7 @@ public class DefinitionLoader {
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Checks");
+			CompilationProfiler.profiler.end("Checks", def);
 
 			// ------------------------------------- generate files
 			ResourceExtractor.ExtractDefSDF(new File(context.dotk + "/def"));
@@ -163,11 +167,13 @@ public class DefinitionLoader {
 
 				if (GlobalSettings.verbose)
 					Stopwatch.sw.printIntermediate("File Gen Pgm");
+				CompilationProfiler.profiler.end("File Gen Pgm", null);
 
 				if (!oldSdfPgm.equals(newSdfPgm) || !new File(context.dotk.getAbsoluteFile() + "/pgm/Program.tbl").exists()) {
 					Sdf2Table.run_sdf2table(new File(context.dotk.getAbsoluteFile() + "/pgm"), "Program");
 					if (GlobalSettings.verbose)
 						Stopwatch.sw.printIntermediate("Generate TBLPgm");
+					CompilationProfiler.profiler.end("Generate TBLPgm", null);
 				}
 			}
 
@@ -186,6 +192,7 @@ public class DefinitionLoader {
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("File Gen Def");
+			CompilationProfiler.profiler.end("File Gen Def", null);
 
 			if (!oldSdf.equals(newSdf) || !new File(context.dotk.getAbsoluteFile() + "/def/Concrete.tbl").exists()
 					|| !new File(context.dotk.getAbsoluteFile() + "/ground/Concrete.tbl").exists()) {
@@ -198,12 +205,14 @@ public class DefinitionLoader {
 				t1.join();
 				if (GlobalSettings.verbose)
 					Stopwatch.sw.printIntermediate("Generate TBLDef");
+				CompilationProfiler.profiler.end("Generate TBLDef", null);
 			}
 			if (!GlobalSettings.fastKast) { // ------------------------------------- import files in Stratego
 				org.kframework.parser.concrete.KParser.ImportTbl(context.dotk.getAbsolutePath() + "/def/Concrete.tbl");
 
 				if (GlobalSettings.verbose)
 					Stopwatch.sw.printIntermediate("Importing Files");
+				CompilationProfiler.profiler.end("Importing Files", null);
 			}
 			// ------------------------------------- parse configs
 			JavaClassesFactory.startConstruction(context);
@@ -216,6 +225,7 @@ public class DefinitionLoader {
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Parsing Configs");
+			CompilationProfiler.profiler.end("Parsing Configs", def);
 
 			// ----------------------------------- parse rules
 			JavaClassesFactory.startConstruction(context);
@@ -224,6 +234,7 @@ public class DefinitionLoader {
 
 			if (GlobalSettings.verbose)
 				Stopwatch.sw.printIntermediate("Parsing Rules");
+			CompilationProfiler.profiler.end("Parsing Rules", def);
 
 			return def;
 		} catch (IOException e1) {
@@ -290,30 +301,7 @@ public class DefinitionLoader {
 		JavaClassesFactory.endConstruction();
 
 		// TODO: reject rewrites
-		new CheckVisitorStep<ASTNode>(new CheckListOfKDeprecation(context), context).check(config);
-		config = config.accept(new SentenceVariablesFilter(context));
-		config = config.accept(new CellEndLabelFilter(context));
-		//if (checkInclusion)
-		//	config = config.accept(new InclusionFilter(localModule, context));
-		config = config.accept(new CellTypesFilter(context));
-		config = config.accept(new CorrectRewritePriorityFilter(context));
-		config = config.accept(new CorrectKSeqFilter(context));
-		config = config.accept(new CorrectCastPriorityFilter(context));
-		// config = config.accept(new CheckBinaryPrecedenceFilter());
-		config = config.accept(new PriorityFilter(context));
-		if (GlobalSettings.fastKast)
-			config = config.accept(new MergeAmbFilter(context));
-		config = config.accept(new VariableTypeInferenceFilter(context));
-		// config = config.accept(new AmbDuplicateFilter(context));
-		// config = config.accept(new TypeSystemFilter(context));
-		// config = config.accept(new BestFitFilter(new GetFitnessUnitTypeCheckVisitor(context), context));
-		// config = config.accept(new TypeInferenceSupremumFilter(context));
-		config = config.accept(new BestFitFilter(new GetFitnessUnitKCheckVisitor(context), context));
-		config = config.accept(new PreferAvoidFilter(context));
-		config = config.accept(new FlattenListsFilter(context));
-		config = config.accept(new AmbDuplicateFilter(context));
-		// last resort disambiguation
-		config = config.accept(new AmbFilter(context));
+		config = new SentenceDisambiguation(false, null, context).disambiguate(config);
 
 		return (Term) config;
 	}
@@ -337,30 +325,7 @@ public class DefinitionLoader {
 		JavaClassesFactory.endConstruction();
 
 		// TODO: reject rewrites
-		new CheckVisitorStep<ASTNode>(new CheckListOfKDeprecation(context), context).check(config);
-		config = config.accept(new SentenceVariablesFilter(context));
-		config = config.accept(new CellEndLabelFilter(context));
-		//if (checkInclusion)
-		//	config = config.accept(new InclusionFilter(localModule, context));
-		config = config.accept(new CellTypesFilter(context));
-		config = config.accept(new CorrectRewritePriorityFilter(context));
-		config = config.accept(new CorrectKSeqFilter(context));
-		config = config.accept(new CorrectCastPriorityFilter(context));
-		// config = config.accept(new CheckBinaryPrecedenceFilter());
-		config = config.accept(new PriorityFilter(context));
-		if (GlobalSettings.fastKast)
-			config = config.accept(new MergeAmbFilter(context));
-		config = config.accept(new VariableTypeInferenceFilter(context));
-		// config = config.accept(new AmbDuplicateFilter(context));
-		// config = config.accept(new TypeSystemFilter(context));
-		// config = config.accept(new BestFitFilter(new GetFitnessUnitTypeCheckVisitor(context), context));
-		// config = config.accept(new TypeInferenceSupremumFilter(context));
-		config = config.accept(new BestFitFilter(new GetFitnessUnitKCheckVisitor(context), context));
-		config = config.accept(new PreferAvoidFilter(context));
-		config = config.accept(new FlattenListsFilter(context));
-		config = config.accept(new AmbDuplicateFilter(context));
-		// last resort disambiguation
-		config = config.accept(new AmbFilter(context));
+		config = new SentenceDisambiguation(false, null, context).disambiguate(config);
 
 		return config;
 	}
@@ -391,30 +356,7 @@ public class DefinitionLoader {
 		ASTNode config = JavaClassesFactory.getTerm((Element) doc.getDocumentElement().getFirstChild().getNextSibling());
 		JavaClassesFactory.endConstruction();
 
-		new CheckVisitorStep<ASTNode>(new CheckListOfKDeprecation(context), context).check(config);
-		config = config.accept(new SentenceVariablesFilter(context));
-		config = config.accept(new CellEndLabelFilter(context));
-		//if (checkInclusion)
-		//	config = config.accept(new InclusionFilter(localModule, context));
-		config = config.accept(new CellTypesFilter(context));
-		config = config.accept(new CorrectRewritePriorityFilter(context));
-		config = config.accept(new CorrectKSeqFilter(context));
-		config = config.accept(new CorrectCastPriorityFilter(context));
-		// config = config.accept(new CheckBinaryPrecedenceFilter());
-		config = config.accept(new PriorityFilter(context));
-		if (GlobalSettings.fastKast)
-			config = config.accept(new MergeAmbFilter(context));
-		config = config.accept(new VariableTypeInferenceFilter(context));
-		// config = config.accept(new AmbDuplicateFilter(context));
-		// config = config.accept(new TypeSystemFilter(context));
-		// config = config.accept(new BestFitFilter(new GetFitnessUnitTypeCheckVisitor(context), context));
-		// config = config.accept(new TypeInferenceSupremumFilter(context));
-		config = config.accept(new BestFitFilter(new GetFitnessUnitKCheckVisitor(context), context));
-		config = config.accept(new PreferAvoidFilter(context));
-		config = config.accept(new FlattenListsFilter(context));
-		config = config.accept(new AmbDuplicateFilter(context));
-		// last resort disambiguation
-		config = config.accept(new AmbFilter(context));
+		config = new SentenceDisambiguation(false, null, context).disambiguate(config);
 
 		return config;
 	}
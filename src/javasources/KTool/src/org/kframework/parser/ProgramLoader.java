@@ -17,12 +17,13 @@ import org.kframework.kil.Term;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.loader.JavaClassesFactory;
 import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.krun.api.io.BinaryReader;
 import org.kframework.parser.concrete.disambiguate.AmbFilter;
+import org.kframework.parser.concrete.disambiguate.LocalDisambiguationFilter;
 import org.kframework.parser.concrete.disambiguate.PreferAvoidFilter;
 import org.kframework.parser.concrete.disambiguate.PriorityFilter;
 import org.kframework.parser.utils.ReportErrorsVisitor;
 import org.kframework.parser.utils.Sglr;
-import org.kframework.utils.BinaryLoader;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.XmlLoader;
 import org.kframework.utils.errorsystem.KException;
@@ -70,8 +71,10 @@ public class ProgramLoader {
 		}
 
 		out = out.accept(new PriorityFilter(context));
-		out = out.accept(new PreferAvoidFilter(context));
-		out = out.accept(new AmbFilter(context));
+		// prefer/avoid and last resort disambiguation
+		out = out.accept(new LocalDisambiguationFilter(false, context,
+				new PreferAvoidFilter(context),
+				new AmbFilter(context)));
 		out = out.accept(new RemoveBrackets(context));
 
 		if (kappize)
@@ -128,7 +131,7 @@ public class ProgramLoader {
 				}
 				out = ((Rule) out).getBody();
 			} else if (whatParser == GlobalSettings.ParserType.BINARY) {
-                out = (org.kframework.kil.Cell) BinaryLoader.load(filename);
+                out = BinaryReader.loadTerm(filename, context);
 			} else {
 				out = loadPgmAst(content, filename, startSymbol, context);
 			}
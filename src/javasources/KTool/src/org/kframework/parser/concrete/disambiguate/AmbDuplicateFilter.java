@@ -9,13 +9,23 @@ import org.kframework.kil.visitors.exceptions.TransformerException;
 
 import java.util.ArrayList;
 
-public class AmbDuplicateFilter extends BasicTransformer {
+public class AmbDuplicateFilter extends BasicTransformer implements LocalAmbiguityFilter {
 	public AmbDuplicateFilter(Context context) {
 		super("Remove ambiguity duplicates", context);
 	}
 
 	public ASTNode transform(Ambiguity amb) throws TransformerException {
+		java.util.List<Term> children = filter(amb);
 
+		if (children.size() > 1) {
+			amb.setContents(children);
+			return super.transform(amb);
+		} else
+			return children.get(0).accept(this);
+	}
+
+	@Override
+	public java.util.List<Term> filter(Ambiguity amb) {
 		// remove duplicate ambiguities
 		// should be applied after updating something like variable declarations
 		java.util.List<Term> children = new ArrayList<Term>();
@@ -27,11 +37,11 @@ public class AmbDuplicateFilter extends BasicTransformer {
 			if (unique)
 				children.add(t1);
 		}
+		return children;
+	}
 
-		if (children.size() > 1) {
-			amb.setContents(children);
-			return super.transform(amb);
-		} else
-			return super.transform(children.get(0));
+	@Override
+	public boolean isShallow() {
+		return false;
 	}
 }
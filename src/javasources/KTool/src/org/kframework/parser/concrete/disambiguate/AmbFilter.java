@@ -3,6 +3,7 @@ package org.kframework.parser.concrete.disambiguate;
 import org.kframework.backend.unparser.UnparserFilter;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Ambiguity;
+import org.kframework.kil.Term;
 import org.kframework.kil.TermCons;
 import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.BasicTransformer;
@@ -12,12 +13,22 @@ import org.kframework.utils.errorsystem.KException.ExceptionType;
 import org.kframework.utils.errorsystem.KException.KExceptionGroup;
 import org.kframework.utils.general.GlobalSettings;
 
-public class AmbFilter extends BasicTransformer {
+import java.util.Collections;
+
+public class AmbFilter extends BasicTransformer implements LocalAmbiguityFilter {
 	public AmbFilter(Context context) {
 		super("Ambiguity filter", context);
 	}
 
 	public ASTNode transform(Ambiguity amb) throws TransformerException {
+		return filter(amb).get(0).accept(this);
+	}
+
+	/**
+	 * Reports the ambiguity as a warning and keeps its first alternative.
+	 */
+	@Override
+	public java.util.List<Term> filter(Ambiguity amb) {
 		String msg = "Parsing ambiguity. Arbitrarily choosing the first.";
 
 		for (int i = 0; i < amb.getContents().size(); i++) {
@@ -33,6 +44,11 @@ public class AmbFilter extends BasicTransformer {
 		}
 		GlobalSettings.kem.register(new KException(ExceptionType.WARNING, KExceptionGroup.PARSER, msg, getName(), amb.getFilename(), amb.getLocation()));
 
-		return amb.getContents().get(0).accept(this);
+		return Collections.singletonList(amb.getContents().get(0));
+	}
+
+	@Override
+	public boolean isShallow() {
+		return false;
 	}
 }
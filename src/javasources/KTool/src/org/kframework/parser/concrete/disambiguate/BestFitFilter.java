@@ -21,21 +21,7 @@ public class BestFitFilter extends BasicTransformer {
 	public ASTNode transform(Ambiguity amb) throws TransformerException {
 		amb = (Ambiguity) super.transform(amb);
 
-		int maximum = getFitnessUnit(amb.getContents().get(0));
-
-		// choose the maximums from the list of ambiguities
-		java.util.List<Term> terms = new ArrayList<Term>();
-		for (Term trm1 : amb.getContents()) {
-			int temp = getFitnessUnit(trm1);
-			if (temp > maximum)
-				maximum = temp;
-		}
-
-		for (Term trm1 : amb.getContents()) {
-			if (getFitnessUnit(trm1) == maximum)
-				terms.add(trm1);
-		}
-
+		java.util.List<Term> terms = filter(amb);
 		if (terms.size() == 1)
 			return terms.get(0);
 		else
@@ -44,6 +30,25 @@ public class BestFitFilter extends BasicTransformer {
 		return amb;
 	}
 
+	private java.util.List<Term> filter(Ambiguity amb) {
+		// compute the fitness of each alternative only once
+		int[] fitness = new int[amb.getContents().size()];
+		int maximum = Integer.MIN_VALUE;
+		for (int i = 0; i < fitness.length; i++) {
+			fitness[i] = getFitnessUnit(amb.getContents().get(i));
+			if (fitness[i] > maximum)
+				maximum = fitness[i];
+		}
+
+		// choose the maximums from the list of ambiguities
+		java.util.List<Term> terms = new ArrayList<Term>();
+		for (int i = 0; i < fitness.length; i++) {
+			if (fitness[i] == maximum)
+				terms.add(amb.getContents().get(i));
+		}
+		return terms;
+	}
+
 	private int getFitnessUnit(Term t) {
 		GetFitnessUnitBasicVisitor fitnessVisitor = getFitnessUnit.getInstance();
 		t.accept(fitnessVisitor);
@@ -17,6 +17,15 @@ public class FlattenListsFilter extends BasicTransformer {
 	}
 
 	public ASTNode transform(Collection c) throws TransformerException {
+		flatten(c);
+		return super.transform(c);
+	}
+
+	/**
+	 * Splices the contents of the elements of the given collection which are collections of the
+	 * same class into it, in place.
+	 */
+	public static void flatten(Collection c) {
 		boolean found;
 		do {
 			found = false;
@@ -31,7 +40,5 @@ public class FlattenListsFilter extends BasicTransformer {
 			}
 			c.setContents(contents);
 		} while (found);
-
-		return super.transform(c);
 	}
 }
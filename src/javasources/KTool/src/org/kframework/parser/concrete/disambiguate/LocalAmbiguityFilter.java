@@ -0,0 +1,22 @@
+package org.kframework.parser.concrete.disambiguate;
+
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.Term;
+
+/**
+ * A disambiguation step which chooses among the alternatives of a single ambiguity by looking
+ * only at the alternatives themselves. Such steps do not depend on the context of the ambiguity,
+ * so several of them can be applied in one traversal by {@link LocalDisambiguationFilter}.
+ */
+public interface LocalAmbiguityFilter {
+	/**
+	 * Returns the alternatives of the given ambiguity which should be kept; never empty.
+	 */
+	public java.util.List<Term> filter(Ambiguity amb);
+
+	/**
+	 * Returns true if this filter chooses among the alternatives by looking only at their
+	 * outermost node (e.g. its production), and not at the ambiguities inside them.
+	 */
+	public boolean isShallow();
+}
@@ -0,0 +1,115 @@
+package org.kframework.parser.concrete.disambiguate;
+
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.Collection;
+import org.kframework.kil.Term;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.BasicTransformer;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies a sequence of {@link LocalAmbiguityFilter}s, and optionally list flattening after them,
+ * in a single top-down traversal, with the same result as a separate top-down pass for each
+ * filter followed by {@link FlattenListsFilter}.
+ * <p>
+ * The filters are applied to each ambiguity, in order, until a single alternative is left, and
+ * the traversal then continues into the alternatives which are kept. A filter which looks into
+ * the alternatives (see {@link LocalAmbiguityFilter#isShallow()}), or at alternatives which are
+ * ambiguities themselves, would see them before the preceding filters have disambiguated them;
+ * so before such a filter is applied to an ambiguity, the preceding filters are first applied to
+ * its alternatives, as their own passes would have, and only the remaining filters are applied
+ * below it afterwards.
+ * List flattening comes after all the filters, so each list is flattened once its elements are
+ * disambiguated.
+ * <p>
+ * Filters which depend on the context of an ambiguity, such as the priority and type inference
+ * filters, must still be applied as separate passes before this one.
+ */
+public class LocalDisambiguationFilter extends BasicTransformer {
+
+	private final boolean flattenLists;
+	private final List<LocalAmbiguityFilter> filters;
+
+	public LocalDisambiguationFilter(boolean flattenLists, Context context, LocalAmbiguityFilter... filters) {
+		this(flattenLists, context, Arrays.asList(filters));
+	}
+
+	private LocalDisambiguationFilter(boolean flattenLists, Context context, List<LocalAmbiguityFilter> filters) {
+		super("Local disambiguation", context);
+		this.flattenLists = flattenLists;
+		this.filters = filters;
+	}
+
+	/**
+	 * Returns the filter replacing the passes of {@link PreferAvoidFilter} and
+	 * {@link FlattenListsFilter} in the disambiguation of sentences.
+	 */
+	public static LocalDisambiguationFilter preferAvoidFilter(Context context) {
+		return new LocalDisambiguationFilter(true, context,
+				new PreferAvoidFilter(context));
+	}
+
+	/**
+	 * Returns the filter replacing the passes of {@link AmbDuplicateFilter} and {@link AmbFilter}
+	 * (as last resort), which end the disambiguation of sentences.
+	 */
+	public static LocalDisambiguationFilter lastResortFilter(Context context) {
+		return new LocalDisambiguationFilter(false, context,
+				new AmbDuplicateFilter(context),
+				new AmbFilter(context));
+	}
+
+	@Override
+	public ASTNode transform(Ambiguity amb) throws TransformerException {
+		for (int i = 0; i < filters.size(); i++) {
+			if (i > 0 && (!filters.get(i).isShallow() || hasNestedAmbiguity(amb))) {
+				finish(amb, filters.subList(0, i));
+				// the alternatives now need only the remaining filters
+				LocalDisambiguationFilter remaining = new LocalDisambiguationFilter(flattenLists, context,
+						filters.subList(i, filters.size()));
+				return remaining.transform(amb);
+			}
+			amb.setContents(filters.get(i).filter(amb));
+			if (amb.getContents().size() == 1) {
+				return amb.getContents().get(0).accept(this);
+			}
+		}
+		return super.transform(amb);
+	}
+
+	/**
+	 * Applies the given filters, which have already been applied to the given ambiguity, to its
+	 * alternatives, as their separate passes would have before the next filter is applied to it.
+	 */
+	private void finish(Ambiguity amb, List<LocalAmbiguityFilter> preceding) throws TransformerException {
+		LocalDisambiguationFilter filter = new LocalDisambiguationFilter(false, context, preceding);
+		List<Term> contents = new ArrayList<Term>();
+		for (Term term : amb.getContents()) {
+			contents.add((Term) term.accept(filter));
+		}
+		amb.setContents(contents);
+	}
+
+	private static boolean hasNestedAmbiguity(Ambiguity amb) {
+		for (Term term : amb.getContents()) {
+			if (term instanceof Ambiguity) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public ASTNode transform(Collection c) throws TransformerException {
+		ASTNode node = super.transform(c);
+		if (flattenLists && node instanceof Collection) {
+			FlattenListsFilter.flatten((Collection) node);
+		}
+		return node;
+	}
+}
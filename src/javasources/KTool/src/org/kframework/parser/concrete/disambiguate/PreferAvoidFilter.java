@@ -10,12 +10,24 @@ import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.BasicTransformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
 
-public class PreferAvoidFilter extends BasicTransformer {
+public class PreferAvoidFilter extends BasicTransformer implements LocalAmbiguityFilter {
 	public PreferAvoidFilter(Context context) {
 		super("Ambiguity filter", context);
 	}
 
 	public ASTNode transform(Ambiguity amb) throws TransformerException {
+		java.util.List<Term> contents = filter(amb);
+
+		if (contents.size() == 1)
+			return contents.get(0).accept(this);
+		else {
+			amb.setContents(contents);
+			return super.transform(amb);
+		}
+	}
+
+	@Override
+	public java.util.List<Term> filter(Ambiguity amb) {
 		java.util.List<Term> prefer = new ArrayList<Term>();
 		java.util.List<Term> avoid = new ArrayList<Term>();
 
@@ -29,25 +41,18 @@ public class PreferAvoidFilter extends BasicTransformer {
 			}
 		}
 
-		ASTNode result = amb;
-
 		if (!prefer.isEmpty()) {
-			if (prefer.size() == 1)
-				result = prefer.get(0);
-			else {
-				amb.setContents(prefer);
-			}
-		} else if (!avoid.isEmpty()) {
-			if (avoid.size() < amb.getContents().size()) {
-				amb.getContents().removeAll(avoid);
-				if (amb.getContents().size() == 1)
-					result = amb.getContents().get(0);
-			}
+			return prefer;
+		} else if (!avoid.isEmpty() && avoid.size() < amb.getContents().size()) {
+			java.util.List<Term> contents = new ArrayList<Term>(amb.getContents());
+			contents.removeAll(avoid);
+			return contents;
 		}
+		return amb.getContents();
+	}
 
-		if (result == amb)
-			return super.transform(result);
-		else
-			return result.accept(this);
+	@Override
+	public boolean isShallow() {
+		return true;
 	}
 }
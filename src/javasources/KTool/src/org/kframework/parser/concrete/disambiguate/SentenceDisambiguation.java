@@ -0,0 +1,71 @@
+package org.kframework.parser.concrete.disambiguate;
+
+import org.kframework.compile.checks.CheckListOfKDeprecation;
+import org.kframework.compile.utils.CheckVisitorStep;
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.utils.general.GlobalSettings;
+
+/**
+ * Disambiguates a parsed configuration, rule, context or pattern.
+ * <p>
+ * The filters which look past the ambiguity they disambiguate, to the variables of the sentence,
+ * to the enclosing cell or production, or through nested ambiguities, are applied as separate
+ * passes, each on the result of the previous ones. Best fit scores whole alternatives bottom-up,
+ * so it is a pass of its own as well. The filters which only look at the alternatives of one
+ * ambiguity are then fused by {@link LocalDisambiguationFilter}.
+ */
+public class SentenceDisambiguation {
+
+	private final Context context;
+	private final boolean configuration;
+	private final String inclusionModule;
+	private long inferenceTime = 0;
+
+	/**
+	 * @param configuration
+	 *            whether the sentences are configurations, whose cells and rewrites are not checked
+	 * @param inclusionModule
+	 *            the module whose imports are checked by {@link InclusionFilter}, or null
+	 */
+	public SentenceDisambiguation(boolean configuration, String inclusionModule, Context context) {
+		this.context = context;
+		this.configuration = configuration;
+		this.inclusionModule = inclusionModule;
+	}
+
+	public ASTNode disambiguate(ASTNode sentence) throws TransformerException {
+		new CheckVisitorStep<ASTNode>(new CheckListOfKDeprecation(context), context).check(sentence);
+		sentence = sentence.accept(new SentenceVariablesFilter(context));
+		sentence = sentence.accept(new CellEndLabelFilter(context));
+		if (inclusionModule != null)
+			sentence = sentence.accept(new InclusionFilter(inclusionModule, context));
+		if (!configuration) {
+			sentence = sentence.accept(new CellTypesFilter(context));
+			sentence = sentence.accept(new CorrectRewritePriorityFilter(context));
+		}
+		sentence = sentence.accept(new CorrectKSeqFilter(context));
+		sentence = sentence.accept(new CorrectCastPriorityFilter(context));
+		sentence = sentence.accept(new PriorityFilter(context));
+		if (GlobalSettings.fastKast)
+			sentence = sentence.accept(new MergeAmbFilter(context));
+		VariableTypeInferenceFilter variableTypeInference = new VariableTypeInferenceFilter(context);
+		sentence = sentence.accept(variableTypeInference);
+		inferenceTime = variableTypeInference.getInferenceTime();
+		sentence = sentence.accept(new BestFitFilter(new GetFitnessUnitKCheckVisitor(context), context));
+		// prefer/avoid and list flattening
+		sentence = sentence.accept(LocalDisambiguationFilter.preferAvoidFilter(context));
+		// duplicates and last resort disambiguation
+		sentence = sentence.accept(LocalDisambiguationFilter.lastResortFilter(context));
+		return sentence;
+	}
+
+	/**
+	 * Returns the time spent in {@link VariableSortInference} by the last sentence disambiguated,
+	 * in milliseconds.
+	 */
+	public long getInferenceTime() {
+		return inferenceTime;
+	}
+}
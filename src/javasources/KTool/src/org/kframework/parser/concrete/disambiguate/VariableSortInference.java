@@ -0,0 +1,369 @@
+package org.kframework.parser.concrete.disambiguate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.kframework.compile.utils.MetaK;
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.Term;
+import org.kframework.kil.Variable;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.BasicVisitor;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
+import org.kframework.utils.errorsystem.KException.KExceptionGroup;
+
+/**
+ * Infers the sorts of the undeclared variables of a sentence from the sorts expected at their
+ * occurrences, without enumerating the variants of the ambiguities of the sentence as
+ * {@link CollectExpectedVariablesVisitor} does.
+ * <p>
+ * In each variant, a variable may have any sort which is subsorted to all its expected sorts;
+ * these sorts are kept as a bitset over the defined sorts, so adding an occurrence is an
+ * intersection. The variants of a term are the products of the variants of its subterms, and the
+ * variants of an ambiguity are the union of the variants of its alternatives. They are
+ * represented as a product of factors which share no variables, and equal variants or variants
+ * in which a variable has no sort left are discarded as soon as they are built, so ambiguities
+ * over unrelated variables do not multiply each other.
+ * <p>
+ * The solution of a variant maps each variable to the greatest of its sorts; the sentence has a
+ * unique solution if all the variants which have a solution agree on it. Otherwise, the error
+ * reported depends on the order in which the variants are enumerated, so the variants are then
+ * enumerated as before to report the same error.
+ */
+public class VariableSortInference {
+
+	private final Context context;
+	/* the defined sorts, indexed by their position in the bitsets */
+	private final List<String> sorts;
+	/* the sorts subsorted to each expected sort */
+	private final Map<String, BitSet> subsorts = new HashMap<String, BitSet>();
+
+	public VariableSortInference(Context context) {
+		this.context = context;
+		this.sorts = new ArrayList<String>(context.definedSorts);
+	}
+
+	/**
+	 * A set of variants over a set of variables which do not occur in any other factor.
+	 */
+	private static class Factor {
+		final Set<String> variables = new HashSet<String>();
+		final Set<Map<String, BitSet>> variants = new LinkedHashSet<Map<String, BitSet>>();
+	}
+
+	/**
+	 * The variants of a term, as the product of its factors; a term without variables to infer
+	 * has no factors, and a term in which no variant has a solution is dead.
+	 */
+	private static class Domain {
+		final List<Factor> factors = new ArrayList<Factor>();
+		boolean dead = false;
+
+		boolean isEmpty() {
+			return factors.isEmpty() && !dead;
+		}
+	}
+
+	/**
+	 * Returns the sort inferred for each undeclared variable of the given sentence, or
+	 * {@code null} if there are no such variables or the solution cannot be determined.
+	 *
+	 * @throws TransformerException if no sort, or no unique sort, can be inferred for a variable
+	 */
+	public Map<String, String> infer(ASTNode r) throws TransformerException {
+		DomainCollector collector = new DomainCollector();
+		r.accept(collector);
+		Domain domain = collector.domain;
+		if (domain.isEmpty()) {
+			return null;
+		}
+
+		List<Set<Map<String, String>>> solutions = new ArrayList<Set<Map<String, String>>>();
+		boolean unique = !domain.dead;
+		for (int i = 0; unique && i < domain.factors.size(); i++) {
+			Set<Map<String, String>> factorSolutions = new LinkedHashSet<Map<String, String>>();
+			for (Map<String, BitSet> variant : domain.factors.get(i).variants) {
+				Map<String, String> solution = new HashMap<String, String>();
+				for (Map.Entry<String, BitSet> entry : variant.entrySet()) {
+					Set<String> maxSorts = getMaximalSorts(entry.getValue());
+					if (maxSorts.size() == 1) {
+						solution.put(entry.getKey(), maxSorts.iterator().next());
+					} else {
+						solution = null;
+						break;
+					}
+				}
+				if (solution != null)
+					factorSolutions.add(solution);
+			}
+			if (factorSolutions.size() != 1)
+				unique = false;
+			solutions.add(factorSolutions);
+		}
+		if (!unique) {
+			String msg = getErrorMessage(r);
+			if (msg == null)
+				return null;
+			throw new TransformerException(new KException(ExceptionType.ERROR, KExceptionGroup.CRITICAL, msg, r.getFilename(), r.getLocation()));
+		}
+
+		Map<String, String> result = new HashMap<String, String>();
+		for (Set<Map<String, String>> factorSolutions : solutions)
+			result.putAll(factorSolutions.iterator().next());
+		return result;
+	}
+
+	/**
+	 * Returns the error reported by the enumeration of the variants of the given sentence, which
+	 * has no unique solution, or {@code null} if its solutions only differ in the variables they
+	 * contain. The error found depends on the order of the variants, so they are enumerated by
+	 * {@link CollectExpectedVariablesVisitor} as before; this only happens when the inference fails.
+	 */
+	private String getErrorMessage(ASTNode r) {
+		CollectExpectedVariablesVisitor vars = new CollectExpectedVariablesVisitor(context);
+		r.accept(vars);
+
+		Set<VarHashMap> solutions = new HashSet<VarHashMap>();
+		String fails = null;
+		Set<String> failsAmb = null;
+		String failsAmbName = null;
+		for (VarHashMap variant : vars.vars) {
+			// take each solution and do GLB on every variable
+			VarHashMap solution = new VarHashMap();
+			for (Map.Entry<String, Set<String>> entry : variant.entrySet()) {
+				BitSet bits = new BitSet(sorts.size());
+				bits.set(0, sorts.size());
+				for (String expectedSort : entry.getValue())
+					bits.and(getSubsorts(expectedSort));
+				if (bits.isEmpty()) {
+					fails = entry.getKey();
+					solution.clear();
+					break;
+				}
+				Set<String> maxSorts = getMaximalSorts(bits);
+				if (maxSorts.size() == 1) {
+					solution.put(entry.getKey(), maxSorts);
+				} else {
+					failsAmb = maxSorts;
+					failsAmbName = entry.getKey();
+					solution.clear();
+					break;
+				}
+			}
+			// I found a solution that fits everywhere, then store it for disambiguation
+			if (!solution.isEmpty())
+				solutions.add(solution);
+		}
+
+		if (solutions.isEmpty()) {
+			if (fails != null)
+				return "Could not infer a sort for variable '" + fails + "' to match every location.";
+			// Failure when in the same solution I can't find a unique sort for a specific variable.
+			return getAmbiguousSortsMessage(failsAmbName, failsAmb);
+		}
+		Map<String, Set<String>> collect = new HashMap<String, Set<String>>();
+		for (VarHashMap sol : solutions) {
+			for (Map.Entry<String, Set<String>> s : sol.entrySet())
+				if (collect.containsKey(s.getKey())) {
+					collect.get(s.getKey()).addAll(s.getValue());
+				} else {
+					collect.put(s.getKey(), new HashSet<String>(s.getValue()));
+				}
+		}
+		for (Map.Entry<String, Set<String>> s : collect.entrySet()) {
+			if (s.getValue().size() > 1)
+				return getAmbiguousSortsMessage(s.getKey(), s.getValue());
+		}
+		// the solutions may only differ in the variables they contain
+		return null;
+	}
+
+	private static String getAmbiguousSortsMessage(String variable, Set<String> sorts) {
+		String msg = "Could not infer a unique sort for variable '" + variable + "'.";
+		msg += " Possible sorts: ";
+		for (String vv1 : sorts)
+			msg += vv1 + ", ";
+		return msg.substring(0, msg.length() - 2);
+	}
+
+	private BitSet getSubsorts(String expectedSort) {
+		BitSet result = subsorts.get(expectedSort);
+		if (result == null) {
+			result = new BitSet(sorts.size());
+			for (int i = 0; i < sorts.size(); i++) {
+				if (context.isSubsortedEq(expectedSort, sorts.get(i)))
+					result.set(i);
+			}
+			subsorts.put(expectedSort, result);
+		}
+		return result;
+	}
+
+	private Set<String> getMaximalSorts(BitSet bits) {
+		Set<String> maxSorts = new HashSet<String>();
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			boolean maxSort = true;
+			for (int j = bits.nextSetBit(0); j >= 0; j = bits.nextSetBit(j + 1)) {
+				if (context.isSubsorted(sorts.get(j), sorts.get(i))) {
+					maxSort = false;
+					break;
+				}
+			}
+			if (maxSort)
+				maxSorts.add(sorts.get(i));
+		}
+		return maxSorts;
+	}
+
+	/**
+	 * Returns the variant containing the constraints of both given variants, or {@code null} if
+	 * a variable has no sort left in it.
+	 */
+	private Map<String, BitSet> merge(Map<String, BitSet> variant1, Map<String, BitSet> variant2) {
+		Map<String, BitSet> result = new LinkedHashMap<String, BitSet>(variant1);
+		for (Map.Entry<String, BitSet> entry : variant2.entrySet()) {
+			BitSet bits = result.get(entry.getKey());
+			if (bits != null) {
+				bits = (BitSet) bits.clone();
+				bits.and(entry.getValue());
+				if (bits.isEmpty())
+					return null;
+				result.put(entry.getKey(), bits);
+			} else {
+				result.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the product of two factors, or {@code null} if none of its variants has a solution.
+	 */
+	private Factor multiply(Factor factor1, Factor factor2) {
+		Factor result = new Factor();
+		result.variables.addAll(factor1.variables);
+		result.variables.addAll(factor2.variables);
+		for (Map<String, BitSet> variant1 : factor1.variants) {
+			for (Map<String, BitSet> variant2 : factor2.variants) {
+				Map<String, BitSet> variant = merge(variant1, variant2);
+				if (variant != null)
+					result.variants.add(variant);
+			}
+		}
+		return result.variants.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Adds the given factor to the domain, multiplying it with the factors it shares variables
+	 * with.
+	 */
+	private void multiply(Domain domain, Factor factor) {
+		if (domain.dead)
+			return;
+		List<Factor> factors = new ArrayList<Factor>();
+		for (Factor other : domain.factors) {
+			boolean shared = false;
+			for (String variable : factor.variables) {
+				if (other.variables.contains(variable)) {
+					shared = true;
+					break;
+				}
+			}
+			if (shared) {
+				factor = multiply(other, factor);
+				if (factor == null) {
+					domain.dead = true;
+					domain.factors.clear();
+					return;
+				}
+			} else {
+				factors.add(other);
+			}
+		}
+		factors.add(factor);
+		domain.factors.clear();
+		domain.factors.addAll(factors);
+	}
+
+	private void multiply(Domain domain1, Domain domain2) {
+		if (domain2.dead) {
+			domain1.dead = true;
+			domain1.factors.clear();
+			return;
+		}
+		for (Factor factor : domain2.factors)
+			multiply(domain1, factor);
+	}
+
+	/**
+	 * Builds the domain of a term, with the same traversal as
+	 * {@link CollectExpectedVariablesVisitor}.
+	 */
+	private class DomainCollector extends BasicVisitor {
+		Domain domain = new Domain();
+
+		DomainCollector() {
+			super(VariableSortInference.this.context);
+		}
+
+		@Override
+		public void visit(Ambiguity node) {
+			// the union of the alternatives which have variables to infer
+			Factor union = null;
+			boolean dead = false;
+			for (Term t : node.getContents()) {
+				DomainCollector viz = new DomainCollector();
+				t.accept(viz);
+				if (viz.domain.dead) {
+					dead = true;
+				} else if (!viz.domain.isEmpty()) {
+					Factor factor = viz.domain.factors.get(0);
+					for (int i = 1; factor != null && i < viz.domain.factors.size(); i++)
+						factor = multiply(factor, viz.domain.factors.get(i));
+					if (factor != null) {
+						if (union == null)
+							union = new Factor();
+						union.variables.addAll(factor.variables);
+						union.variants.addAll(factor.variants);
+					} else {
+						dead = true;
+					}
+				}
+			}
+			if (union != null) {
+				multiply(domain, union);
+			} else if (dead) {
+				domain.dead = true;
+				domain.factors.clear();
+			}
+			visit((Term) node);
+		}
+
+		@Override
+		public void visit(Variable var) {
+			if (!var.isUserTyped() && !var.getName().equals(MetaK.Constants.anyVarSymbol)) {
+				Map<String, BitSet> variant = new LinkedHashMap<String, BitSet>();
+				variant.put(var.getName(), getSubsorts(var.getExpectedSort()));
+				Factor factor = new Factor();
+				factor.variables.add(var.getName());
+				factor.variants.add(variant);
+				if (variant.get(var.getName()).isEmpty()) {
+					domain.dead = true;
+					domain.factors.clear();
+				} else {
+					multiply(domain, factor);
+				}
+			}
+		}
+	}
+}
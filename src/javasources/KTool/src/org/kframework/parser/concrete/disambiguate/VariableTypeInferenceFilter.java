@@ -17,6 +17,7 @@ import org.kframework.kil.loader.Context;
 import org.kframework.kil.visitors.BasicTransformer;
 import org.kframework.kil.visitors.BasicVisitor;
 import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.KException.ExceptionType;
 import org.kframework.utils.errorsystem.KException.KExceptionGroup;
@@ -24,10 +25,20 @@ import org.kframework.utils.general.GlobalSettings;
 
 public class VariableTypeInferenceFilter extends BasicTransformer {
 
+	/* time spent inferring the sorts of undeclared variables, in milliseconds */
+	private long inferenceTime = 0;
+
 	public VariableTypeInferenceFilter(Context context) {
 		super("Variable type inference", context);
 	}
 
+	/**
+	 * Returns the time spent by this filter in {@link VariableSortInference}, in milliseconds.
+	 */
+	public long getInferenceTime() {
+		return inferenceTime;
+	}
+
 	@Override
 	public ASTNode transform(Sentence r) throws TransformerException {
 		r = (Sentence) r.accept(new RemoveDuplicateVariables(context));
@@ -71,166 +82,78 @@ public class VariableTypeInferenceFilter extends BasicTransformer {
 
 		boolean varTypeInference = true;
 		if (varTypeInference) {
-			CollectExpectedVariablesVisitor vars2 = new CollectExpectedVariablesVisitor(context);
-			r.accept(vars2);
-
-			Set<VarHashMap> solutions = new HashSet<VarHashMap>();
-			String fails = null;
-			Set<String> failsAmb = null;
-			String failsAmbName = null;
-			for (VarHashMap variant : vars2.vars) {
-				// take each solution and do GLB on every variable
-				VarHashMap solution = new VarHashMap();
-				for (Map.Entry<String, Set<String>> entry : variant.entrySet()) {
-					Set<String> mins = new HashSet<String>();
-					for (String sort : context.definedSorts) { // for every declared sort
-						boolean min = true;
-						for (String var : entry.getValue()) {
-							if (!context.isSubsortedEq(var, sort)) {
-								min = false;
-								break;
-							}
+			Stopwatch sw = new Stopwatch();
+			Map<String, String> solution;
+			try {
+				solution = new VariableSortInference(context).infer(r);
+			} finally {
+				inferenceTime += sw.getTotalMilliseconds();
+			}
+			if (solution != null) {
+				for (Map.Entry<String, String> entry : solution.entrySet()) {
+					Variable var = new Variable(entry.getKey(), null);
+					var.setUserTyped(false);
+					var.setExpectedSort(entry.getValue());
+					var.setSyntactic(false);
+					varDeclMap.put(entry.getKey(), var);
+				}
+				try {
+					r = (Sentence) r.accept(new VariableTypeFilter(varDeclMap, true, context));
+				} catch (TransformerException e) {
+					e.report();
+				}
+				// correct the sorts for each variable after type inference
+				CollectRemainingVarsVisitor vars3 = new CollectRemainingVarsVisitor(context);
+				r.accept(vars3);
+
+				varDeclMap.clear();
+				// for each variable name do checks or type inference
+				for (Entry<String, java.util.List<Variable>> varEntry : vars3.vars.entrySet()) {
+					java.util.List<Variable> varList = varEntry.getValue();
+
+					// divide into locations
+					Map<String, java.util.Set<Variable>> varLoc = new HashMap<String, java.util.Set<Variable>>();
+					for (Variable var : varList) {
+						if (varLoc.containsKey(var.getLocation()))
+							varLoc.get(var.getLocation()).add(var);
+						else {
+							java.util.Set<Variable> varss = new HashSet<Variable>();
+							varss.add(var);
+							varLoc.put(var.getLocation(), varss);
 						}
-						if (min)
-							mins.add(sort);
 					}
-					if (mins.size() == 0) {
-						fails = entry.getKey();
-						solution.clear();
-						break;
-					} else if (mins.size() > 1) {
-						java.util.Set<String> maxSorts = new HashSet<String>();
-
-						for (String vv1 : mins) {
-							boolean maxSort = true;
-							for (String vv2 : mins)
-								if (context.isSubsorted(vv2, vv1))
-									maxSort = false;
-							if (maxSort)
-								maxSorts.add(vv1);
-						}
 
-						if (maxSorts.size() == 1)
-							solution.put(entry.getKey(), maxSorts);
-						else {
-							failsAmb = maxSorts;
-							failsAmbName = entry.getKey();
-							solution.clear();
-							break;
+					// choose maximum on each location
+					for (Map.Entry<String, Set<Variable>> ent : varLoc.entrySet()) {
+						Variable vmax = ent.getValue().iterator().next();
+						for (Variable vv1 : ent.getValue()) {
+							if (context.isSubsorted(vv1.getSort(), vmax.getSort()))
+								vmax = vv1;
 						}
-					} else {
-						solution.put(entry.getKey(), mins);
+						ent.getValue().clear();
+						ent.getValue().add(vmax);
 					}
-				}
-				// I found a solution that fits everywhere, then store it for disambiguation
-				if (!solution.isEmpty())
-					solutions.add(solution);
-			}
-			if (!vars2.vars.isEmpty()) {
-				if (solutions.size() == 0) {
-					if (fails != null) {
-						String msg = "Could not infer a sort for variable '" + fails + "' to match every location.";
-						throw new TransformerException(new KException(ExceptionType.ERROR, KExceptionGroup.CRITICAL, msg, r.getFilename(), r.getLocation()));
-					} else {
-						// Failure when in the same solution I can't find a unique sort for a specific variable.
-						String msg = "Could not infer a unique sort for variable '" + failsAmbName + "'.";
-						msg += " Possible sorts: ";
-						for (String vv1 : failsAmb)
-							msg += vv1 + ", ";
-						msg = msg.substring(0, msg.length() - 2);
-						throw new TransformerException(new KException(ExceptionType.ERROR, KExceptionGroup.CRITICAL, msg, r.getFilename(), r.getLocation()));
 
+					// choose minimum on all locations
+					Variable vmin = varLoc.entrySet().iterator().next().getValue().iterator().next();
+					for (Map.Entry<String, Set<Variable>> ent : varLoc.entrySet()) {
+						Variable vloc = ent.getValue().iterator().next();
+						if (context.isSubsorted(vmin.getSort(), vloc.getSort()))
+							vmin = vloc;
 					}
-				} else if (solutions.size() == 1) {
-					for (Map.Entry<String, Set<String>> entry : solutions.iterator().next().entrySet()) {
-						Variable var = new Variable(entry.getKey(), null);
-						var.setUserTyped(false);
-						var.setExpectedSort(entry.getValue().iterator().next());
-						var.setSyntactic(false);
-						varDeclMap.put(entry.getKey(), var);
-					}
+
+					// store the solution for later disambiguation
+					varDeclMap.put(vmin.getName(), vmin);
+					String msg = "Variable '" + vmin.getName() + "' was not declared. Assuming sort " + vmin.getSort() + " and expected sort " + vmin.getExpectedSort() + ".";
+					GlobalSettings.kem.register(new KException(ExceptionType.HIDDENWARNING, KExceptionGroup.COMPILER, msg, vmin.getFilename(), vmin.getLocation()));
+				}
+				// after type inference for concrete sorts, reject erroneous branches
+				if (!varDeclMap.isEmpty()) {
 					try {
-						r = (Sentence) r.accept(new VariableTypeFilter(varDeclMap, true, context));
+						r = (Sentence) r.accept(new VariableTypeFilter(varDeclMap, false, context));
 					} catch (TransformerException e) {
 						e.report();
 					}
-					// correct the sorts for each variable after type inference
-					CollectRemainingVarsVisitor vars3 = new CollectRemainingVarsVisitor(context);
-					r.accept(vars3);
-
-					varDeclMap.clear();
-					// for each variable name do checks or type inference
-					for (Entry<String, java.util.List<Variable>> varEntry : vars3.vars.entrySet()) {
-						java.util.List<Variable> varList = varEntry.getValue();
-
-						// divide into locations
-						Map<String, java.util.Set<Variable>> varLoc = new HashMap<String, java.util.Set<Variable>>();
-						for (Variable var : varList) {
-							if (varLoc.containsKey(var.getLocation()))
-								varLoc.get(var.getLocation()).add(var);
-							else {
-								java.util.Set<Variable> varss = new HashSet<Variable>();
-								varss.add(var);
-								varLoc.put(var.getLocation(), varss);
-							}
-						}
-
-						// choose maximum on each location
-						for (Map.Entry<String, Set<Variable>> ent : varLoc.entrySet()) {
-							Variable vmax = ent.getValue().iterator().next();
-							for (Variable vv1 : ent.getValue()) {
-								if (context.isSubsorted(vv1.getSort(), vmax.getSort()))
-									vmax = vv1;
-							}
-							ent.getValue().clear();
-							ent.getValue().add(vmax);
-						}
-
-						// choose minimum on all locations
-						Variable vmin = varLoc.entrySet().iterator().next().getValue().iterator().next();
-						for (Map.Entry<String, Set<Variable>> ent : varLoc.entrySet()) {
-							Variable vloc = ent.getValue().iterator().next();
-							if (context.isSubsorted(vmin.getSort(), vloc.getSort()))
-								vmin = vloc;
-						}
-
-						// store the solution for later disambiguation
-						varDeclMap.put(vmin.getName(), vmin);
-						String msg = "Variable '" + vmin.getName() + "' was not declared. Assuming sort " + vmin.getSort() + " and expected sort " + vmin.getExpectedSort() + ".";
-						GlobalSettings.kem.register(new KException(ExceptionType.HIDDENWARNING, KExceptionGroup.COMPILER, msg, vmin.getFilename(), vmin.getLocation()));
-					}
-					// after type inference for concrete sorts, reject erroneous branches
-					if (!varDeclMap.isEmpty()) {
-						try {
-							r = (Sentence) r.accept(new VariableTypeFilter(varDeclMap, false, context));
-						} catch (TransformerException e) {
-							e.report();
-						}
-					}
-				} else {
-					Map<String, Set<String>> collect = new HashMap<String, Set<String>>();
-					for (VarHashMap sol : solutions) {
-						for (Map.Entry<String, Set<String>> s : sol.entrySet())
-							if (collect.containsKey(s.getKey())) {
-								collect.get(s.getKey()).addAll(s.getValue());
-							} else {
-								collect.put(s.getKey(), new HashSet<String>(s.getValue()));
-							}
-					}
-					for (Map.Entry<String, Set<String>> s : collect.entrySet()) {
-						if (s.getValue().size() > 1) {
-							String msg = "Could not infer a unique sort for variable '" + s.getKey() + "'.";
-							msg += " Possible sorts: ";
-							for (String vv1 : s.getValue())
-								msg += vv1 + ", ";
-							msg = msg.substring(0, msg.length() - 2);
-							throw new TransformerException(new KException(ExceptionType.ERROR, KExceptionGroup.CRITICAL, msg, r.getFilename(), r.getLocation()));
-						}
-					}
-					// The above loop looks for variables that can have multiple sorts, collected from multiple solutions.
-					// In rare cases (couldn't think of one right now) it may be that the
-					// solution may be different because of different variable names
-					assert false : "An error message should have been thrown here in the above loop.";
 				}
 			}
 		}
@@ -4,8 +4,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Formatter;
 
-import org.kframework.compile.checks.CheckListOfKDeprecation;
-import org.kframework.compile.utils.CheckVisitorStep;
 import org.kframework.kil.ASTNode;
 import org.kframework.kil.Module;
 import org.kframework.kil.Rule;
@@ -16,22 +14,7 @@ import org.kframework.kil.loader.Context;
 import org.kframework.kil.loader.JavaClassesFactory;
 import org.kframework.kil.visitors.BasicTransformer;
 import org.kframework.kil.visitors.exceptions.TransformerException;
-import org.kframework.parser.concrete.disambiguate.AmbDuplicateFilter;
-import org.kframework.parser.concrete.disambiguate.AmbFilter;
-import org.kframework.parser.concrete.disambiguate.BestFitFilter;
-import org.kframework.parser.concrete.disambiguate.CellEndLabelFilter;
-import org.kframework.parser.concrete.disambiguate.CellTypesFilter;
-import org.kframework.parser.concrete.disambiguate.CorrectCastPriorityFilter;
-import org.kframework.parser.concrete.disambiguate.CorrectKSeqFilter;
-import org.kframework.parser.concrete.disambiguate.CorrectRewritePriorityFilter;
-import org.kframework.parser.concrete.disambiguate.FlattenListsFilter;
-import org.kframework.parser.concrete.disambiguate.GetFitnessUnitKCheckVisitor;
-import org.kframework.parser.concrete.disambiguate.InclusionFilter;
-import org.kframework.parser.concrete.disambiguate.MergeAmbFilter;
-import org.kframework.parser.concrete.disambiguate.PreferAvoidFilter;
-import org.kframework.parser.concrete.disambiguate.PriorityFilter;
-import org.kframework.parser.concrete.disambiguate.SentenceVariablesFilter;
-import org.kframework.parser.concrete.disambiguate.VariableTypeInferenceFilter;
+import org.kframework.parser.concrete.disambiguate.SentenceDisambiguation;
 import org.kframework.parser.utils.ReportErrorsVisitor;
 import org.kframework.parser.utils.Sglr;
 import org.kframework.utils.Stopwatch;
@@ -146,33 +129,11 @@ public class ParseRulesFilter extends BasicTransformer {
 					a = a + 1;
 				}
 
-				new CheckVisitorStep<ASTNode>(new CheckListOfKDeprecation(context), context).check(config);
-				config = config.accept(new SentenceVariablesFilter(context));
-				config = config.accept(new CellEndLabelFilter(context));
-				if (checkInclusion)
-					config = config.accept(new InclusionFilter(localModule, context));
-				config = config.accept(new CellTypesFilter(context));
-				config = config.accept(new CorrectRewritePriorityFilter(context));
-				config = config.accept(new CorrectKSeqFilter(context));
-				config = config.accept(new CorrectCastPriorityFilter(context));
-				// config = config.accept(new CheckBinaryPrecedenceFilter());
-				config = config.accept(new PriorityFilter(context));
-				if (GlobalSettings.fastKast)
-					config = config.accept(new MergeAmbFilter(context));
-				config = config.accept(new VariableTypeInferenceFilter(context));
-				// config = config.accept(new AmbDuplicateFilter(context));
-				// config = config.accept(new TypeSystemFilter(context));
-				// config = config.accept(new BestFitFilter(new GetFitnessUnitTypeCheckVisitor(context), context));
-				// config = config.accept(new TypeInferenceSupremumFilter(context));
-				config = config.accept(new BestFitFilter(new GetFitnessUnitKCheckVisitor(context), context));
-				config = config.accept(new PreferAvoidFilter(context));
-				config = config.accept(new FlattenListsFilter(context));
-				config = config.accept(new AmbDuplicateFilter(context));
-				// last resort disambiguation
-				config = config.accept(new AmbFilter(context));
+				SentenceDisambiguation disambiguation = new SentenceDisambiguation(false, checkInclusion ? localModule : null, context);
+				config = disambiguation.disambiguate(config);
 
 				if (GlobalSettings.verbose) {
-					f.format("Parsing rule: Time: %6d Location: %s:%s\n", sw.getTotalMilliseconds(), ss.getFilename(), ss.getLocation());
+					f.format("Parsing rule: Time: %6d Sort inference: %6d Location: %s:%s\n", sw.getTotalMilliseconds(), disambiguation.getInferenceTime(), ss.getFilename(), ss.getLocation());
 					f.flush();
 				}
 				return config;
@@ -0,0 +1,180 @@
+package org.kframework.utils;
+
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.visitors.BasicVisitor;
+import org.kframework.utils.file.FileUtil;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Records, for each phase of kompile (parsing phases, SDF generation and compiler steps), the
+ * wall time, the bytes allocated by the compiling thread and the number of AST nodes before and
+ * after the phase. Phases are delimited by checkpoints: {@link #begin(ASTNode)} sets a checkpoint
+ * and {@link #end(String, ASTNode)} records a phase since the last checkpoint and sets a new one.
+ * <p/>
+ * Profiling is off by default (kompile --profile); when disabled both methods return immediately.
+ * Allocation is only measured on the calling thread, so work done by worker threads (e.g. by
+ * parallel rule-local steps) is not accounted for.
+ */
+public class CompilationProfiler {
+	public static final CompilationProfiler profiler = new CompilationProfiler();
+
+	public static class Phase {
+		public final String name;
+		public final long millis;
+		public final long allocatedBytes;
+		public final int nodesBefore;
+		public final int nodesAfter;
+
+		Phase(String name, long millis, long allocatedBytes, int nodesBefore, int nodesAfter) {
+			this.name = name;
+			this.millis = millis;
+			this.allocatedBytes = allocatedBytes;
+			this.nodesBefore = nodesBefore;
+			this.nodesAfter = nodesAfter;
+		}
+	}
+
+	private boolean enabled = false;
+	private final List<Phase> phases = new ArrayList<Phase>();
+
+	private long lastTime;
+	private long lastAllocated;
+	private int lastNodes = -1;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public List<Phase> getPhases() {
+		return Collections.unmodifiableList(phases);
+	}
+
+	/**
+	 * Sets a checkpoint; {@code node} is the AST the next phase starts from, or {@code null} if
+	 * there is none yet.
+	 */
+	public void begin(ASTNode node) {
+		if (!enabled)
+			return;
+		lastNodes = countNodes(node);
+		lastAllocated = allocatedBytes();
+		lastTime = System.nanoTime();
+	}
+
+	/**
+	 * Records the phase {@code name} as everything done since the last checkpoint; {@code node}
+	 * is the AST the phase produced, or {@code null} if the phase does not produce one.
+	 */
+	public void end(String name, ASTNode node) {
+		if (!enabled)
+			return;
+		long time = System.nanoTime();
+		long allocated = allocatedBytes();
+		int nodes = node == null ? lastNodes : countNodes(node);
+		phases.add(new Phase(
+				name,
+				(time - lastTime) / 1000000,
+				allocated < 0 ? -1 : allocated - lastAllocated,
+				lastNodes,
+				nodes));
+		/* reset the checkpoint after counting, so the profiler does not measure itself */
+		lastNodes = nodes;
+		lastAllocated = allocatedBytes();
+		lastTime = System.nanoTime();
+	}
+
+	/**
+	 * Prints the recorded phases sorted by decreasing wall time.
+	 */
+	public void printTable() {
+		List<Phase> sorted = new ArrayList<Phase>(phases);
+		Collections.sort(sorted, new Comparator<Phase>() {
+			@Override
+			public int compare(Phase p1, Phase p2) {
+				return Long.compare(p2.millis, p1.millis);
+			}
+		});
+
+		Formatter f = new Formatter(System.out);
+		f.format("%-60s %8s %12s %10s %10s%n", "Phase", "ms", "alloc (KB)", "nodes in", "nodes out");
+		for (Phase phase : sorted) {
+			f.format("%-60s %8d %12d %10d %10d%n",
+					firstLine(phase.name),
+					phase.millis,
+					phase.allocatedBytes < 0 ? -1 : phase.allocatedBytes / 1024,
+					phase.nodesBefore,
+					phase.nodesAfter);
+		}
+		f.flush();
+	}
+
+	/**
+	 * Saves the recorded phases, in execution order, as a JSON array.
+	 */
+	public void saveJson(String fileName) {
+		StringBuilder json = new StringBuilder();
+		json.append("[\n");
+		for (int i = 0; i < phases.size(); i++) {
+			Phase phase = phases.get(i);
+			json.append("  {\"phase\": \"").append(StringUtil.escapeJson(firstLine(phase.name)));
+			json.append("\", \"ms\": ").append(phase.millis);
+			json.append(", \"allocatedBytes\": ").append(phase.allocatedBytes);
+			json.append(", \"nodesBefore\": ").append(phase.nodesBefore);
+			json.append(", \"nodesAfter\": ").append(phase.nodesAfter);
+			json.append(i + 1 < phases.size() ? "},\n" : "}\n");
+		}
+		json.append("]\n");
+		FileUtil.save(fileName, json);
+	}
+
+	private static String firstLine(String name) {
+		int index = name.indexOf('\n');
+		return index < 0 ? name : name.substring(0, index);
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	private static int countNodes(ASTNode node) {
+		if (node == null)
+			return -1;
+		NodeCounter counter = new NodeCounter();
+		node.accept(counter);
+		return counter.count;
+	}
+
+	private static class NodeCounter extends BasicVisitor {
+		int count = 0;
+
+		NodeCounter() {
+			super("Count AST nodes", null);
+		}
+
+		@Override
+		public void visit(ASTNode node) {
+			if (isVisited(node))
+				return;
+			count++;
+			super.visit(node);
+		}
+	}
+}
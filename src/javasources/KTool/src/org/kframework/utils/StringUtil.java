@@ -52,6 +52,32 @@ public class StringUtil {
         return result.toString();
 	}
 
+    /**
+     * Escapes a string so that it can be placed between double quotes in a JSON document.
+     */
+    public static String escapeJson(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                result.append("\\\"");
+            } else if (c == '\\') {
+                result.append("\\\\");
+            } else if (c == '\n') {
+                result.append("\\n");
+            } else if (c == '\t') {
+                result.append("\\t");
+            } else if (c == '\r') {
+                result.append("\\r");
+            } else if (c < 32) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
     public static void throwIfSurrogatePair(int codePoint) {
         if (codePoint >= 0xd800 && codePoint <= 0xdfff) {
             //we are trying to encode a surrogate pair, which the unicode
@@ -0,0 +1,155 @@
+package org.kframework.utils;
+
+/**
+ * Explicit work stack for traversing deep terms without recursing on the Java stack.
+ * <p>
+ * A traversal method which wants to visit the children of {@code node} calls
+ * {@link #begin(Object)}, schedules the children (and any action to be performed
+ * after them) with {@link #push(Object, int)} in the order in which they should be
+ * processed, and then calls {@link #end()}. When the method was invoked by the
+ * {@link #run} loop of this stack, the scheduled entries are processed once the method
+ * returns; otherwise {@link #end()} processes them before returning, so that a call from
+ * outside the loop behaves exactly like a recursive traversal. Entries are processed by
+ * the {@link Handler} of the stack, in depth-first order.
+ * <p>
+ * Entries are stored in parallel arrays, so scheduling a node does not allocate.
+ * Besides the work entries, the stack also holds a stack of values, used by traversals
+ * which compute a result for each node from the results of its children.
+ */
+public final class TraversalStack {
+
+    /**
+     * Processes the entries popped from a {@link TraversalStack}.
+     */
+    public interface Handler {
+        void handle(Object node, int action);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Handler handler;
+
+    /* the arrays are allocated on first use, as many traversals never need them */
+    private Object[] nodes = null;
+    private int[] actions = null;
+    private int size = 0;
+
+    private Object[] values = null;
+    private int valueCount = 0;
+
+    /**
+     * The node of the entry the {@link #run} loop is processing, until a traversal method
+     * claims it in {@link #begin(Object)}.
+     */
+    private Object current = null;
+    private boolean driven = false;
+    private int segment = 0;
+
+    public TraversalStack(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Starts scheduling the children of the given node.
+     */
+    public void begin(Object node) {
+        driven = node == current;
+        current = null;
+        segment = size;
+    }
+
+    public void push(Object node, int action) {
+        if (nodes == null) {
+            nodes = new Object[INITIAL_CAPACITY];
+            actions = new int[INITIAL_CAPACITY];
+        } else if (size == nodes.length) {
+            int capacity = size << 1;
+            Object[] newNodes = new Object[capacity];
+            System.arraycopy(nodes, 0, newNodes, 0, size);
+            nodes = newNodes;
+            int[] newActions = new int[capacity];
+            System.arraycopy(actions, 0, newActions, 0, size);
+            actions = newActions;
+        }
+        nodes[size] = node;
+        actions[size] = action;
+        size++;
+    }
+
+    /**
+     * Finishes scheduling the entries pushed since the last call to {@link #begin(Object)};
+     * processes them immediately unless the current traversal method was invoked by the
+     * {@link #run} loop.
+     */
+    public void end() {
+        int base = segment;
+        for (int i = base, j = size - 1; i < j; ++i, --j) {
+            Object node = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = node;
+            int action = actions[i];
+            actions[i] = actions[j];
+            actions[j] = action;
+        }
+        if (!driven) {
+            run(base);
+        }
+        driven = false;
+    }
+
+    /**
+     * Processes entries until the stack shrinks back to the given size.
+     */
+    public void run(int base) {
+        while (size > base) {
+            --size;
+            Object node = nodes[size];
+            int action = actions[size];
+            nodes[size] = null;
+            current = node;
+            handler.handle(node, action);
+            current = null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void pushValue(Object value) {
+        if (values == null) {
+            values = new Object[INITIAL_CAPACITY];
+        } else if (valueCount == values.length) {
+            Object[] newValues = new Object[valueCount << 1];
+            System.arraycopy(values, 0, newValues, 0, valueCount);
+            values = newValues;
+        }
+        values[valueCount++] = value;
+    }
+
+    public Object popValue() {
+        Object value = values[--valueCount];
+        values[valueCount] = null;
+        return value;
+    }
+
+    /**
+     * Returns the value at the given depth below the top of the value stack.
+     */
+    public Object peekValue(int depth) {
+        return values[valueCount - 1 - depth];
+    }
+
+    /**
+     * Removes the given number of values from the top of the value stack.
+     */
+    public void dropValues(int count) {
+        for (int i = 0; i < count; ++i) {
+            values[--valueCount] = null;
+        }
+    }
+
+    public int valueCount() {
+        return valueCount;
+    }
+}
@@ -10,13 +10,13 @@ import java.util.List;
 public class KExceptionManager {
 	private final List<KException> exceptions = new ArrayList<KException>();
 
-	public void register(KException exception) {
+	public synchronized void register(KException exception) {
 		exceptions.add(exception);
 		if (exception.type == ExceptionType.ERROR)
 			print();
 	}
 
-	public void print() {
+	public synchronized void print() {
 		boolean errors = false;
 		for (KException e : exceptions) {
 			if (!GlobalSettings.warnings.equals("all") && e.type == ExceptionType.HIDDENWARNING)
@@ -62,6 +62,8 @@ public class GlobalSettings {
 	// this is used by kast to know what parser to use fort the input string
 	public static ParserType whatParser = ParserType.PROGRAM;
 	public static boolean sortedCells = false;
+	public static boolean parallelSteps = false;
+	public static boolean acMatching = false;
 
     public static OS os() {
         if (os == null) {
@@ -0,0 +1,107 @@
+package org.kframework.backend.java.kil;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.builtins.StringToken;
+import org.kframework.backend.java.symbolic.UninterpretedConstraint;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.kil.Production;
+import org.kframework.kil.ProductionItem;
+import org.kframework.kil.Sort;
+import org.kframework.kil.loader.Context;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RuleGuardTest {
+
+    private final Context context = new Context();
+    private final Definition definition = new Definition(context);
+    private final TermContext termContext = new TermContext(definition);
+    private final Map<KLabelConstant, Method> builtins = new HashMap<KLabelConstant, Method>();
+    private final Variable x = new Variable("X", "K");
+    private final Variable y = new Variable("Y", "K");
+
+    private KItem apply(String label, Term... arguments) {
+        return new KItem(
+                KLabelConstant.of(label, context),
+                new KList(ImmutableList.copyOf(arguments)),
+                context);
+    }
+
+    private static int calls = 0;
+
+    /** The implementation of the builtin operations of the test, which counts its calls. */
+    public static Term builtin(Term term, TermContext context) {
+        ++calls;
+        return BoolToken.FALSE;
+    }
+
+    /** Declares a builtin operation of the given sort with the given hook. */
+    private void hook(String label, String sort, String hook) throws NoSuchMethodException {
+        Production production = new Production(new Sort(sort), Collections.<ProductionItem>emptyList());
+        production.putAttribute(Attribute.FUNCTION_KEY, "");
+        production.putAttribute(Attribute.HOOK_KEY, hook);
+        context.conses.put(label, production);
+        context.labels.put(label, ImmutableSet.of(label));
+        builtins.put(KLabelConstant.of(label, context),
+                RuleGuardTest.class.getMethod("builtin", Term.class, TermContext.class));
+        definition.setBuiltinFunctions(builtins);
+    }
+
+    private Rule rule(Term... condition) {
+        return new Rule(
+                x,
+                y,
+                ImmutableList.copyOf(condition),
+                Collections.<Variable>emptyList(),
+                new UninterpretedConstraint(),
+                new Attributes());
+    }
+
+    @Test
+    public void testGuards() {
+        Rule rule = rule(apply("isInt", x));
+        Assert.assertTrue(rule.checkGuards(
+                ImmutableMap.<Variable, Term>of(x, IntToken.of(1)), termContext));
+        Assert.assertFalse(rule.checkGuards(
+                ImmutableMap.<Variable, Term>of(x, StringToken.of("a")), termContext));
+        /* the guard is not checked until its variables are bound */
+        Assert.assertTrue(rule.checkGuards(
+                ImmutableMap.<Variable, Term>of(y, StringToken.of("a")), termContext));
+    }
+
+    @Test
+    public void testNonGuards() {
+        Map<Variable, Term> substitution = ImmutableMap.<Variable, Term>of(x, StringToken.of("a"));
+        /* nested applications are left to the side condition */
+        Assert.assertTrue(rule(apply("isInt", apply("isInt", x))).checkGuards(substitution, termContext));
+        /* so are operations which are neither sort predicates nor builtins */
+        Assert.assertTrue(rule(apply("'foo", x)).checkGuards(substitution, termContext));
+    }
+
+    @Test
+    public void testBuiltinGuards() throws NoSuchMethodException {
+        Map<Variable, Term> substitution = ImmutableMap.<Variable, Term>of(x, IntToken.of(0));
+        hook("'notBool_", BoolToken.SORT_NAME, "#BOOL:notBool_");
+        hook("'#getc", IntToken.SORT_NAME, "#IO:#getc");
+        hook("'#eof", BoolToken.SORT_NAME, "#IO:#eof");
+
+        calls = 0;
+        Assert.assertFalse(rule(apply("'notBool_", x)).checkGuards(substitution, termContext));
+        Assert.assertEquals(1, calls);
+        /* operations which do not return a Bool, or have side effects, are left to the side condition */
+        Assert.assertTrue(rule(apply("'#getc", x)).checkGuards(substitution, termContext));
+        Assert.assertTrue(rule(apply("'#eof", x)).checkGuards(substitution, termContext));
+        Assert.assertEquals(1, calls);
+    }
+}
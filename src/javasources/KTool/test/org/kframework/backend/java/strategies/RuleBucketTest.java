@@ -0,0 +1,61 @@
+package org.kframework.backend.java.strategies;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.UninterpretedConstraint;
+import org.kframework.kil.Attributes;
+
+import java.util.Collections;
+import java.util.List;
+
+public class RuleBucketTest {
+
+    private static Rule rule(int n, String... tags) {
+        Attributes attributes = new Attributes();
+        for (String tag : tags) {
+            attributes.set(tag, "");
+        }
+        return new Rule(
+                IntToken.of(n),
+                IntToken.of(n + 1),
+                Collections.<Term>emptyList(),
+                Collections.<Variable>emptyList(),
+                new UninterpretedConstraint(),
+                attributes);
+    }
+
+    private static List<Rule> drain(Strategy strategy, RuleBucket bucket) {
+        ImmutableList.Builder<Rule> builder = ImmutableList.builder();
+        strategy.apply(bucket);
+        while (strategy.hasNext()) {
+            builder.add(strategy.next());
+        }
+        Assert.assertNull(strategy.next());
+        return builder.build();
+    }
+
+    @Test
+    public void testPartitions() {
+        Rule structural = rule(0);
+        Rule transition = rule(1, "transition");
+        Rule both = rule(2, "transition", "other");
+        Rule tagged = rule(3, "transition", "computational");
+        List<Rule> rules = ImmutableList.of(structural, transition, both, tagged);
+        RuleBucket bucket = new RuleBucket(rules, ImmutableList.of("transition", "computational"));
+
+        Assert.assertEquals(rules, drain(new NullStrategy(), bucket));
+        Assert.assertEquals(ImmutableList.of(structural, transition, both),
+                drain(new StructuralStrategy(), bucket));
+        Strategy strategy = new TransitionStrategy();
+        Assert.assertEquals(ImmutableList.of(transition, both, tagged), drain(strategy, bucket));
+
+        /* applying a strategy again restarts the iteration */
+        Assert.assertEquals(ImmutableList.of(transition, both, tagged), drain(strategy, bucket));
+    }
+}
@@ -0,0 +1,151 @@
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Cell;
+import org.kframework.backend.java.kil.CellCollection;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.RuleProfiler;
+import org.kframework.kil.Attributes;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.K;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs several rewriting sessions concurrently on the same {@link Definition}, with the rule
+ * {@code <count> s(X) => X </count> <out> L => cons(F, L) </out>} where {@code F} is fresh.
+ */
+public class ConcurrentRewriteTest {
+
+    private static final int SESSIONS = 8;
+    private static final int STEPS = 200;
+
+    private final Context context = new Context();
+    private final Definition definition = new Definition(context);
+
+    public ConcurrentRewriteTest() {
+        /* the side conditions are trivial, as with krun --smt none */
+        K.smt = "none";
+
+        Variable x = new Variable("X", "K");
+        Variable l = new Variable("L", "K");
+        Variable f = new Variable("F", IntToken.SORT_NAME);
+        definition.addRule(new Rule(
+                configuration(apply("'s", x), l),
+                configuration(x, apply("'cons", f, l)),
+                Collections.<Term>emptyList(),
+                Collections.singletonList(f),
+                new UninterpretedConstraint(),
+                new Attributes()));
+    }
+
+    private KItem apply(String label, Term... arguments) {
+        return new KItem(
+                KLabelConstant.of(label, context),
+                new KList(ImmutableList.copyOf(arguments)),
+                context);
+    }
+
+    private static Cell<CellCollection> configuration(Term count, Term out) {
+        Multimap<String, Cell> cells = HashMultimap.create();
+        cells.put("count", new Cell<Term>("count", count));
+        cells.put("out", new Cell<Term>("out", out));
+        return new Cell<CellCollection>("T", new CellCollection(cells, false));
+    }
+
+    private Term initialTerm() {
+        Term count = apply("'zero");
+        for (int i = 0; i < STEPS; ++i) {
+            count = apply("'s", count);
+        }
+        return configuration(count, apply("'nil"));
+    }
+
+    private Term rewrite(TermContext termContext) {
+        SymbolicRewriter rewriter = new SymbolicRewriter(definition);
+        return rewriter.rewrite(new ConstrainedTerm(initialTerm(), termContext)).term();
+    }
+
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        Term expected = rewrite(new TermContext(definition, new PortableFileSystem()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(SESSIONS);
+        try {
+            List<Future<Term>> results = new ArrayList<Future<Term>>();
+            for (int i = 0; i < SESSIONS; ++i) {
+                results.add(executor.submit(new Callable<Term>() {
+                    @Override
+                    public Term call() {
+                        return rewrite(new TermContext(definition, new PortableFileSystem()));
+                    }
+                }));
+            }
+            /* each session generates the same fresh values as a session running alone */
+            for (Future<Term> result : results) {
+                Assert.assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFreshValuesOfSession() {
+        AtomicLong freshValue = new AtomicLong();
+        Term first = rewrite(new TermContext(definition, new PortableFileSystem(), freshValue, RuleProfiler.DISABLED));
+        /* a later run of the same session does not reuse the fresh values of the first one */
+        Term second = rewrite(new TermContext(definition, new PortableFileSystem(), freshValue, RuleProfiler.DISABLED));
+        Assert.assertFalse(first.equals(second));
+        Assert.assertEquals(2 * (STEPS + 1), freshValue.get());
+    }
+
+    @Test
+    public void testProfilesOfSessions() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SESSIONS);
+        try {
+            List<Future<RuleProfiler>> results = new ArrayList<Future<RuleProfiler>>();
+            for (int i = 0; i < SESSIONS; ++i) {
+                results.add(executor.submit(new Callable<RuleProfiler>() {
+                    @Override
+                    public RuleProfiler call() {
+                        RuleProfiler profiler = new RuleProfiler(true);
+                        rewrite(new TermContext(definition, new PortableFileSystem(), new AtomicLong(), profiler));
+                        return profiler;
+                    }
+                }));
+            }
+            /* each profile only counts the rules applied in its own session */
+            for (Future<RuleProfiler> result : results) {
+                List<RuleProfiler.RuleStatistics> statistics = result.get().getStatistics();
+                Assert.assertEquals(1, statistics.size());
+                Assert.assertEquals(STEPS + 1, statistics.get(0).tried());
+                Assert.assertEquals(STEPS, statistics.get(0).succeeded());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Cell;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.JavaSymbolicObject;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.kil.loader.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class DeepTermTraversalTest {
+
+    private static final int DEPTH = 100000;
+
+    private final Context context = new Context();
+    private final TermContext termContext = new TermContext(new Definition(context));
+    private final KLabelConstant cons = KLabelConstant.of("'_,_", context);
+    private final Variable variable = new Variable("X", "Int");
+
+    private Term list(int length, Term tail) {
+        Term term = tail;
+        for (int i = length - 1; i >= 0; --i) {
+            term = new KItem(cons, new KList(ImmutableList.<Term>of(IntToken.of(i), term)), context);
+        }
+        return term;
+    }
+
+    private Term configuration(int length, Term tail) {
+        return new Cell<Term>("k", new KSequence(ImmutableList.<Term>of(list(length, tail), IntToken.of(0))));
+    }
+
+    @Test
+    public void testVisitors() {
+        Term term = configuration(DEPTH, variable);
+        Assert.assertEquals(Collections.singleton(variable), term.variableSet());
+
+        final int[] count = new int[2];
+        term.accept(new BottomUpVisitor() {
+            @Override
+            public void visit(KItem kItem) {
+                count[0]++;
+                super.visit(kItem);
+            }
+
+            @Override
+            public void visit(Variable variable) {
+                count[1]++;
+            }
+        });
+        Assert.assertEquals(DEPTH, count[0]);
+        Assert.assertEquals(1, count[1]);
+    }
+
+    @Test
+    public void testTransformers() {
+        Term term = configuration(DEPTH, variable);
+        Map<Variable, Term> substitution = Collections.<Variable, Term>singletonMap(
+                variable, IntToken.of(DEPTH));
+
+        assertSubstituted((Term) term.substitute(substitution, termContext));
+        assertSubstituted((Term) term.accept(
+                new SubstituteAndEvaluateTransformer(substitution, termContext)));
+        Assert.assertSame(term, term.substitute(Collections.<Variable, Term>emptyMap(), termContext));
+    }
+
+    private static void assertSubstituted(Term term) {
+        term = ((KSequence) ((Cell) term).getContent()).get(0);
+        for (int i = 0; i < DEPTH; ++i) {
+            KList kList = ((KItem) term).kList();
+            Assert.assertEquals(IntToken.of(i), kList.get(0));
+            term = kList.get(1);
+        }
+        Assert.assertEquals(IntToken.of(DEPTH), term);
+    }
+
+    @Test
+    public void testOrder() {
+        final List<String> events = new ArrayList<String>();
+        PrePostVisitor visitor = new PrePostVisitor();
+        visitor.getPreVisitor().addVisitor(new LocalVisitor() {
+            @Override
+            public void visit(JavaSymbolicObject object) {
+                events.add("pre " + object.getClass().getSimpleName());
+            }
+        });
+        visitor.getPostVisitor().addVisitor(new LocalVisitor() {
+            @Override
+            public void visit(JavaSymbolicObject object) {
+                events.add("post " + object.getClass().getSimpleName());
+            }
+        });
+        list(1, variable).accept(visitor);
+
+        Assert.assertEquals(ImmutableList.of(
+                "pre KItem",
+                "pre KLabelConstant", "post KLabelConstant",
+                "pre KList",
+                "pre IntToken", "post IntToken",
+                "pre Variable", "post Variable",
+                "post KList",
+                "post KItem"), events);
+    }
+}
@@ -0,0 +1,120 @@
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.builtins.StringToken;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.Cell;
+import org.kframework.backend.java.kil.CellCollection;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Kind;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.KSorts;
+import org.kframework.kil.loader.Context;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unification of environment and store patterns modulo AC, as in the variable lookup rule of
+ * KOOL: {@code <thread> <k> X => V ...</k> <env>... X |-> L ...</env> </thread>* <store>... L |-> V
+ * ...</store>}.
+ */
+public class MapUnificationTest {
+
+    private final TermContext termContext = new TermContext(new Definition(new Context()));
+
+    private final Variable x = new Variable("X", StringToken.SORT_NAME);
+    private final Variable l = new Variable("L", IntToken.SORT_NAME);
+    private final Variable v = new Variable("V", IntToken.SORT_NAME);
+
+    private static Cell<CellCollection> cells(String label, boolean star, Cell<?>... cells) {
+        return cells(label, star, null, cells);
+    }
+
+    private static Cell<CellCollection> cells(String label, boolean star, Variable frame, Cell<?>... cells) {
+        Multimap<String, Cell> cellMap = HashMultimap.create();
+        for (Cell<?> cell : cells) {
+            cellMap.put(cell.getLabel(), cell);
+        }
+        return new Cell<CellCollection>(label, new CellCollection(cellMap, frame, star));
+    }
+
+    private static Cell<Term> cell(String label, Term content) {
+        return new Cell<Term>(label, content);
+    }
+
+    private static Cell<CellCollection> thread(Term id, Term k, Term env) {
+        return cells("thread", false, cell("id", id), cell("k", k), cell("env", env));
+    }
+
+    private Term subject() {
+        Map<Term, Term> env0 = ImmutableMap.<Term, Term>of(
+                StringToken.of("x"), IntToken.of(0),
+                StringToken.of("y"), IntToken.of(1));
+        Map<Term, Term> env1 = ImmutableMap.<Term, Term>of(
+                StringToken.of("x"), IntToken.of(2));
+        Map<Term, Term> store = ImmutableMap.<Term, Term>of(
+                IntToken.of(0), IntToken.of(10),
+                IntToken.of(1), IntToken.of(11),
+                IntToken.of(2), IntToken.of(12));
+        return cells("T", false,
+                cells("threads", true,
+                        thread(IntToken.of(0), StringToken.of("x"), new BuiltinMap(env0)),
+                        thread(IntToken.of(1), StringToken.of("x"), new BuiltinMap(env1))),
+                cell("store", new BuiltinMap(store)));
+    }
+
+    private Term pattern(Term id) {
+        return cells("T", false,
+                cells("threads", true, new Variable("Threads", Kind.CELL_COLLECTION.toString()),
+                        thread(id, x, new BuiltinMap(
+                                ImmutableMap.<Term, Term>of(x, l),
+                                new Variable("Env", KSorts.MAP)))),
+                cell("store", new BuiltinMap(
+                        ImmutableMap.<Term, Term>of(l, v),
+                        new Variable("Store", KSorts.MAP))));
+    }
+
+    private Set<Term> values(Term pattern) {
+        SymbolicConstraint constraint = new SymbolicConstraint(termContext);
+        constraint.add(subject(), pattern);
+        constraint.simplify();
+        Assert.assertFalse(constraint.isFalse());
+
+        Set<Term> values = new HashSet<Term>();
+        Collection<SymbolicConstraint> solutions = constraint.getMultiConstraints();
+        for (SymbolicConstraint solution : solutions) {
+            solution.simplify();
+            if (!solution.isFalse()) {
+                values.add(solution.substitution().get(v));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void testLookupInEveryThread() {
+        Assert.assertEquals(ImmutableSet.of(IntToken.of(10), IntToken.of(12)), values(pattern(new Variable("Id", IntToken.SORT_NAME))));
+    }
+
+    @Test
+    public void testLookupInThreadSelectedById() {
+        SymbolicConstraint constraint = new SymbolicConstraint(termContext);
+        constraint.add(subject(), pattern(IntToken.of(1)));
+        constraint.simplify();
+        /* the thread, the environment entry and the store entry are all found by key */
+        Assert.assertEquals(1, constraint.getMultiConstraints().size());
+        Assert.assertEquals(ImmutableSet.of(IntToken.of(12)), values(pattern(IntToken.of(1))));
+    }
+}
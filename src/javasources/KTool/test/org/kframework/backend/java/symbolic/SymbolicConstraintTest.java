@@ -0,0 +1,70 @@
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.kil.loader.Context;
+
+/**
+ * Renaming of the numbered variables of a rule in the constraint of one of its applications.
+ */
+public class SymbolicConstraintTest {
+
+    private final Context context = new Context();
+    private final TermContext termContext = new TermContext(new Definition(context));
+
+    /* the variables of a rule, numbered by Rule.getFreshRule */
+    private final Variable x = new Variable("X", "K").getNumberedCopy(0);
+    private final Variable y = new Variable("Y", "K").getNumberedCopy(1);
+    private final Variable[] variables = new Variable[] {x, y};
+
+    private KItem apply(String label, Term... arguments) {
+        return new KItem(
+                KLabelConstant.of(label, context),
+                new KList(ImmutableList.copyOf(arguments)),
+                context);
+    }
+
+    @Test
+    public void testRenameGround() {
+        SymbolicConstraint constraint = new SymbolicConstraint(termContext);
+        constraint.add(x, apply("'a"));
+        constraint.simplify();
+
+        Term[] terms = constraint.renameNumbered(variables);
+        Assert.assertEquals(apply("'a"), terms[0]);
+        Assert.assertTrue(terms[1] instanceof Variable);
+        Assert.assertTrue(((Variable) terms[1]).isAnonymous());
+        Assert.assertEquals("K", ((Variable) terms[1]).sort());
+        /* the bindings of the rule variables are dropped */
+        Assert.assertTrue(constraint.substitution().isEmpty());
+    }
+
+    @Test
+    public void testRenameOccurrences() {
+        Variable z = new Variable("Z", "K");
+        SymbolicConstraint constraint = new SymbolicConstraint(termContext);
+        constraint.add(x, apply("'g", y));
+        constraint.add(z, apply("'f", y));
+        constraint.simplify();
+
+        Term[] terms = constraint.renameNumbered(variables);
+        Variable freshY = (Variable) terms[1];
+        Assert.assertTrue(freshY.isAnonymous());
+        Assert.assertEquals(apply("'g", freshY), terms[0]);
+
+        /* the rule variables occurring in the constraint are renamed as by rename */
+        constraint.eliminateAnonymousVariables();
+        Assert.assertEquals(1, constraint.substitution().size());
+        Assert.assertEquals(apply("'f", freshY), constraint.substitution().get(z));
+        Assert.assertFalse(constraint.variableSet().contains(y));
+    }
+}
@@ -0,0 +1,97 @@
+package org.kframework.backend.maude.krun;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.BackendTerm;
+import org.kframework.kil.Cell;
+import org.kframework.kil.IntBuiltin;
+import org.kframework.kil.ListItem;
+import org.kframework.kil.Term;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.XmlUtil;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+
+public class MaudeXmlParserTest {
+
+    private static final String ZERO = "<term op=\"0\" sort=\"#Zero\"/>";
+
+    private static String nat(int n) {
+        return "<term op=\"sNat_\" sort=\"#NzNat\" number=\"" + n + "\">" + ZERO + "</term>";
+    }
+
+    /**
+     * Parses the given term with a stream reader, and checks that the reader is left on its end
+     * tag and that the term is the same as the one parsed from a DOM.
+     */
+    private static Term parse(String xml) throws Exception {
+        Context context = new Context();
+        String output = "<result>" + xml + "</result>";
+        XMLStreamReader reader = XmlUtil.createXMLStreamReader(new ByteArrayInputStream(output.getBytes("UTF-8")));
+        reader.nextTag();
+        reader.nextTag();
+        Term term = new MaudeXmlParser(context).parse(reader);
+        Assert.assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+        Assert.assertEquals("term", reader.getLocalName());
+        Assert.assertEquals(XMLStreamConstants.END_ELEMENT, reader.nextTag());
+        Assert.assertEquals("result", reader.getLocalName());
+
+        Term domTerm = MaudeKRun.parseXML(XmlUtil.readXMLFromString(xml).getDocumentElement(), context);
+        Assert.assertEquals(domTerm, term);
+        return term;
+    }
+
+    @Test
+    public void testCell() throws Exception {
+        Term term = parse("<term op=\"&lt;_&gt;_&lt;/_&gt;\" sort=\"BagItem\">" +
+                "<term op=\"k\" sort=\"CellLabel\"/>" + nat(3) + "<term op=\"k\" sort=\"CellLabel\"/>" +
+                "</term>");
+        Cell cell = new Cell();
+        cell.setLabel("k");
+        cell.setContents(IntBuiltin.of(3));
+        Assert.assertEquals(cell, term);
+    }
+
+    @Test
+    public void testUnknownLabel() throws Exception {
+        Term term = parse("<term op=\"foo\" sort=\"KItem\">" + ZERO + nat(2) + "</term>");
+        Assert.assertTrue(term instanceof BackendTerm);
+        Assert.assertEquals("foo(0,sNat_^2(0))", ((BackendTerm) term).getValue());
+    }
+
+    @Test
+    public void testMismatchedCellLabels() throws Exception {
+        Term term = parse("<term op=\"&lt;_&gt;_&lt;/_&gt;\" sort=\"BagItem\">" +
+                "<term op=\"k\" sort=\"CellLabel\"/>" + ZERO + "<term op=\"env\" sort=\"CellLabel\"/>" +
+                "</term>");
+        Assert.assertTrue(term instanceof BackendTerm);
+        Assert.assertEquals("<_>_</_>(k,0,env)", ((BackendTerm) term).getValue());
+    }
+
+    @Test
+    public void testDeepTerm() throws Exception {
+        int depth = 100000;
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            xml.append("<term op=\"ListItem\" sort=\"ListItem\">");
+        }
+        xml.append(ZERO);
+        for (int i = 0; i < depth; i++) {
+            xml.append("</term>");
+        }
+
+        XMLStreamReader reader = XmlUtil.createXMLStreamReader(
+                new ByteArrayInputStream(xml.toString().getBytes("UTF-8")));
+        reader.nextTag();
+        Term term = new MaudeXmlParser(new Context()).parse(reader);
+        for (int i = 0; i < depth; i++) {
+            Assert.assertTrue(term instanceof ListItem);
+            term = ((ListItem) term).getItem();
+        }
+        Assert.assertEquals(IntBuiltin.ZERO_TOKEN, term);
+    }
+
+}
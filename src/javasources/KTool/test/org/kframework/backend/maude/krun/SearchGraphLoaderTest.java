@@ -0,0 +1,113 @@
+package org.kframework.backend.maude.krun;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.Transition;
+import org.kframework.krun.api.Transition.TransitionType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Loads the output of krun with the Maude backend for a search with the search graph, stored in
+ * {@code search-graph.xml}, and checks the graph against the GraphML of the output.
+ */
+public class SearchGraphLoaderTest {
+
+    private static final String SEARCH_OUTPUT_RESOURCE = "search-graph.xml";
+    private static final int STATE_OFFSET = 10;
+
+    private static byte[] searchOutput() throws Exception {
+        InputStream output = SearchGraphLoaderTest.class.getResourceAsStream(SEARCH_OUTPUT_RESOURCE);
+        Assert.assertNotNull("missing test resource " + SEARCH_OUTPUT_RESOURCE, output);
+        try {
+            return ByteStreams.toByteArray(output);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static DirectedGraph<KRunState, Transition> load(byte[] maudeOutput, int stateOffset)
+            throws Exception {
+        return new SearchGraphLoader(stateOffset, new Context())
+                .load(new ByteArrayInputStream(maudeOutput));
+    }
+
+    private static KRunState getState(DirectedGraph<KRunState, Transition> graph, int stateId) {
+        for (KRunState state : graph.getVertices()) {
+            if (state.getStateId() == stateId) {
+                return state;
+            }
+        }
+        Assert.fail("no state " + stateId);
+        return null;
+    }
+
+    /**
+     * Returns the state id of the given GraphML node id ({@code n<number>}).
+     */
+    private static int stateId(String nodeId) {
+        return STATE_OFFSET + Integer.parseInt(nodeId.substring(1));
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        byte[] output = searchOutput();
+        DirectedGraph<KRunState, Transition> graph = load(output, STATE_OFFSET);
+        Assert.assertNotNull(graph);
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(output));
+
+        NodeList nodes = document.getElementsByTagNameNS("*", "node");
+        Assert.assertEquals(nodes.getLength(), graph.getVertexCount());
+        Map<String, KRunState> states = new HashMap<String, KRunState>();
+        for (int i = 0; i < nodes.getLength(); ++i) {
+            String id = ((Element) nodes.item(i)).getAttribute("id");
+            KRunState state = getState(graph, stateId(id));
+            Assert.assertNotNull(state.getRawResult());
+            states.put(id, state);
+        }
+
+        NodeList edges = document.getElementsByTagNameNS("*", "edge");
+        Assert.assertEquals(edges.getLength(), graph.getEdgeCount());
+        for (int i = 0; i < edges.getLength(); ++i) {
+            Element edge = (Element) edges.item(i);
+            Transition transition = graph.findEdge(
+                    states.get(edge.getAttribute("source")),
+                    states.get(edge.getAttribute("target")));
+            Assert.assertNotNull(transition);
+
+            Element rule = (Element) edge.getElementsByTagName("rl").item(0);
+            if (rule != null && rule.hasAttribute("label")) {
+                Assert.assertEquals(TransitionType.LABEL, transition.getType());
+                Assert.assertEquals(rule.getAttribute("label"), transition.getLabel());
+            } else if (rule != null) {
+                Assert.assertEquals(TransitionType.UNLABELLED, transition.getType());
+            }
+        }
+    }
+
+    @Test
+    public void testNoGraph() throws Exception {
+        String output = new String(searchOutput(), Charsets.UTF_8);
+        output = output.substring(0, output.indexOf("<graphml")) + "</maudeml>\n";
+        Assert.assertNull(load(output.getBytes(Charsets.UTF_8), 0));
+    }
+
+}
@@ -3,9 +3,13 @@ package org.kframework.backend.pdmc.pda.buchi.parser;
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.kframework.backend.pdmc.pda.buchi.BuchiState;
+import org.kframework.backend.pdmc.pda.buchi.Evaluator;
+import org.kframework.backend.pdmc.pda.buchi.Identifier;
 import org.kframework.backend.pdmc.pda.buchi.PromelaBuchi;
 
 import java.io.ByteArrayInputStream;
+import java.util.Set;
 
 /**
  * @author Traian
@@ -33,4 +37,36 @@ public class PromelaBuchiParserTest {
         Assert.assertTrue(automaton.initialState().isStart());
 
     }
+
+    @Test
+    public void testSkipLoops() throws Exception {
+        String promelaString = "" +
+                "never { /* F p */\n" +
+                "T0_init :    /* init */\n" +
+                "\tif\n" +
+                "\t:: (!p) -> goto T0_init\n" +
+                "\t:: (p) -> goto accept_all\n" +
+                "\tfi;\n" +
+                "accept_all :    /* 1 */\n" +
+                "\tskip\n" +
+                "}\n";
+        PromelaBuchi automaton = PromelaBuchiParser.parse(new ByteArrayInputStream(promelaString.getBytes("UTF-8")));
+        Evaluator evaluator = new Evaluator() {
+            @Override
+            public boolean evaluate(Identifier id) {
+                return true;
+            }
+
+            @Override
+            public void setState(Object state) {
+            }
+        };
+
+        Set<BuchiState> states = automaton.getSuccessors(automaton.initialState(), evaluator);
+        Assert.assertEquals(1, states.size());
+        BuchiState acceptAll = states.iterator().next();
+        Assert.assertTrue(acceptAll.isFinal());
+        Assert.assertEquals(states, automaton.getSuccessors(acceptAll, evaluator));
+        Assert.assertTrue(automaton.getTransitions(acceptAll, evaluator).isEmpty());
+    }
 }
@@ -0,0 +1,49 @@
+package org.kframework.backend.unparser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+public class IndenterTest {
+
+    private static final String endl = System.getProperty("line.separator");
+
+    /**
+     * Writes a few indented lines, some longer than the width, with the given indenter.
+     */
+    private static void write(Indenter indenter) {
+        indenter.write("<k>");
+        indenter.endLine();
+        indenter.indent(4);
+        for (int i = 0; i < 30; i++) {
+            indenter.write("x" + i + " ~>");
+        }
+        indenter.write("a" + endl + "b");
+        indenter.indentToCurrent();
+        indenter.write(" c");
+        indenter.endLine();
+        indenter.write("d");
+        indenter.unindent();
+        indenter.unindent();
+        indenter.endLine();
+        indenter.write("</k>");
+    }
+
+    @Test
+    public void testStreaming() {
+        Indenter buffered = new Indenter(new IndentationOptions(20, 2, 1));
+        write(buffered);
+
+        StringWriter out = new StringWriter();
+        Indenter streaming = new Indenter(new IndentationOptions(20, 2, 1), out);
+        write(streaming);
+
+        Assert.assertNull(streaming.getResult());
+        Assert.assertEquals(buffered.toString(), out.toString());
+        Assert.assertEquals(buffered.getLineNo(), streaming.getLineNo());
+        Assert.assertEquals(buffered.getColNo(), streaming.getColNo());
+        Assert.assertTrue(out.toString().startsWith("<k>" + endl + "    x0 ~>x1 ~>x2 ~>" + endl + "      x3 ~>"));
+    }
+
+}
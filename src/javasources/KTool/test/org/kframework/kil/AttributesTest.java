@@ -0,0 +1,81 @@
+package org.kframework.kil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.loader.Constants;
+
+import java.util.Iterator;
+import java.util.List;
+
+public class AttributesTest {
+
+    @Test
+    public void testLocation() {
+        Variable variable = new Variable("X", "K");
+        Assert.assertNull(variable.getAttributes());
+        Assert.assertEquals(Constants.GENERATED_LOCATION, variable.getLocation());
+
+        variable.setLocation("(1,2,30,4)");
+        variable.setFilename(new String("a.k"));
+        Assert.assertEquals("(1,2,30,4)", variable.getLocation());
+        Assert.assertSame("a.k", variable.getFilename());
+
+        variable.setLocation("(01,2,30,4)");
+        Assert.assertEquals("(01,2,30,4)", variable.getLocation());
+
+        variable.setLocation(Constants.GENERATED_LOCATION);
+        Assert.assertFalse(variable.containsAttribute("location"));
+        Assert.assertEquals(Constants.GENERATED_LOCATION, variable.getLocation());
+    }
+
+    @Test
+    public void testContents() {
+        Variable variable = new Variable("X", "K");
+        variable.setLocation("(1,2,3,4)");
+        variable.setFilename("a.k");
+        variable.addAttribute("cons", "C1");
+        List<Attribute> contents = variable.getAttributes().getContents();
+        Assert.assertEquals(3, contents.size());
+        Assert.assertEquals("location", contents.get(0).getKey());
+        Assert.assertEquals("(1,2,3,4)", contents.get(0).getValue());
+        Assert.assertEquals("filename", contents.get(1).getKey());
+        Assert.assertEquals("cons", contents.get(2).getKey());
+
+        contents.set(2, new Attribute("cons", "C2"));
+        Assert.assertEquals("C2", variable.getAttribute("cons"));
+        for (Iterator<Attribute> it = contents.iterator(); it.hasNext(); ) {
+            if (it.next().getKey().equals("filename")) {
+                it.remove();
+            }
+        }
+        Assert.assertEquals(Constants.GENERATED_FILENAME, variable.getFilename());
+        Assert.assertEquals(2, contents.size());
+
+        Attributes copy = variable.getAttributes().shallowCopy();
+        copy.set("location", "(9,9,9,9)");
+        Assert.assertEquals("(9,9,9,9)", copy.get("location"));
+        Assert.assertEquals("(1,2,3,4)", variable.getLocation());
+    }
+
+    @Test
+    public void testCopy() {
+        Attributes attributes = new Attributes();
+        attributes.set("location", "(1,2,3,4)");
+        Attributes copy = new Attributes(attributes);
+        /* neither the location nor the other attributes are shared with the copy */
+        attributes.set("cons", "C1");
+        Assert.assertFalse(copy.containsKey("cons"));
+
+        copy = new Attributes(attributes);
+        copy.remove("cons");
+        copy.set("klabel", "'f");
+        copy.set("location", "(5,6,7,8)");
+        Assert.assertEquals("C1", attributes.get("cons"));
+        Assert.assertFalse(attributes.containsKey("klabel"));
+        Assert.assertEquals("(1,2,3,4)", attributes.get("location"));
+        Assert.assertFalse(copy.containsKey("cons"));
+        Assert.assertEquals("(5,6,7,8)", copy.get("location"));
+    }
+
+}
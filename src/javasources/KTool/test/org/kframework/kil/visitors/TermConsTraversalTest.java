@@ -0,0 +1,89 @@
+package org.kframework.kil.visitors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.IntBuiltin;
+import org.kframework.kil.Production;
+import org.kframework.kil.ProductionItem;
+import org.kframework.kil.Sort;
+import org.kframework.kil.Term;
+import org.kframework.kil.TermCons;
+import org.kframework.kil.Variable;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TermConsTraversalTest {
+
+    private static final int DEPTH = 100000;
+
+    private final Context context = new Context();
+
+    public TermConsTraversalTest() {
+        context.conses.put("ListCons", new Production(
+                new Sort("List"), Collections.<ProductionItem>emptyList()));
+    }
+
+    private Term list(int length, Term tail) {
+        Term term = tail;
+        for (int i = length - 1; i >= 0; --i) {
+            List<Term> contents = new ArrayList<Term>();
+            contents.add(IntBuiltin.of(i));
+            contents.add(term);
+            term = new TermCons("List", "ListCons", contents, context);
+        }
+        return term;
+    }
+
+    @Test
+    public void testVisitor() {
+        final List<Integer> heads = new ArrayList<Integer>();
+        final int[] variables = new int[1];
+        list(DEPTH, new Variable("X", "Int")).accept(new BasicVisitor(context) {
+            @Override
+            public void visit(Term node) {
+                if (node instanceof TermCons) {
+                    Term head = ((TermCons) node).getContents().get(0);
+                    heads.add(((IntBuiltin) head).bigIntegerValue().intValue());
+                }
+            }
+
+            @Override
+            public void visit(Variable node) {
+                variables[0]++;
+            }
+        });
+
+        Assert.assertEquals(1, variables[0]);
+        Assert.assertEquals(DEPTH, heads.size());
+        for (int i = 0; i < DEPTH; ++i) {
+            Assert.assertEquals(DEPTH - 1 - i, (int) heads.get(i));
+        }
+    }
+
+    @Test
+    public void testTransformer() throws TransformerException {
+        CopyOnWriteTransformer transformer = new CopyOnWriteTransformer("substitute", context) {
+            @Override
+            public ASTNode transform(Variable node) {
+                return IntBuiltin.of(DEPTH);
+            }
+        };
+
+        ASTNode node = list(DEPTH, new Variable("X", "Int")).accept(transformer);
+        for (int i = 0; i < DEPTH; ++i) {
+            List<Term> contents = ((TermCons) node).getContents();
+            Assert.assertEquals(IntBuiltin.of(i), contents.get(0));
+            node = contents.get(1);
+        }
+        Assert.assertEquals(IntBuiltin.of(DEPTH), node);
+
+        Term term = list(DEPTH, IntBuiltin.of(DEPTH));
+        Assert.assertSame(term, term.accept(transformer));
+    }
+}
@@ -0,0 +1,135 @@
+package org.kframework.krun.api.io;
+
+import edu.uci.ics.jung.graph.DirectedGraph;
+import edu.uci.ics.jung.graph.DirectedSparseGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.Bag;
+import org.kframework.kil.Cell;
+import org.kframework.kil.IntBuiltin;
+import org.kframework.kil.KApp;
+import org.kframework.kil.KLabelConstant;
+import org.kframework.kil.KSequence;
+import org.kframework.kil.ListItem;
+import org.kframework.kil.StringBuiltin;
+import org.kframework.kil.Term;
+import org.kframework.kil.loader.Context;
+import org.kframework.krun.api.KRunState;
+import org.kframework.krun.api.Transition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryWriterTest {
+
+    private final Context context = new Context();
+
+    private static Cell cell(String label, Term contents) {
+        Cell cell = new Cell();
+        cell.setLabel(label);
+        cell.setEndLabel(label);
+        cell.setContents(contents);
+        return cell;
+    }
+
+    private static Term configuration(int n) {
+        List<Term> items = new ArrayList<Term>();
+        for (int i = 0; i < n; i++) {
+            items.add(KApp.of(KLabelConstant.of("'foo"), IntBuiltin.of(i), StringBuiltin.of("bar")));
+        }
+        List<Term> cells = new ArrayList<Term>();
+        cells.add(cell("k", new KSequence(items)));
+        cells.add(cell("out", new KSequence(new ArrayList<Term>(items))));
+        return cell("T", new Bag(cells));
+    }
+
+    private byte[] write(Term... terms) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryWriter writer = new BinaryWriter(bytes, context)) {
+            for (Term term : terms) {
+                writer.writeTerm(term);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private BinaryReader reader(byte[] bytes) throws IOException {
+        return new BinaryReader(new ByteArrayInputStream(bytes), context);
+    }
+
+    @Test
+    public void testTerm() throws IOException {
+        Term term = configuration(10);
+        Assert.assertEquals(term, reader(write(term)).readTerm());
+    }
+
+    @Test
+    public void testSharedSubterms() throws IOException {
+        int once = write(configuration(100)).length;
+        int twice = write(configuration(100), configuration(100)).length;
+        Assert.assertTrue(twice - once < 8);
+
+        BinaryReader reader = reader(write(configuration(100), configuration(100)));
+        Cell first = (Cell) reader.readTerm();
+        Cell second = (Cell) reader.readTerm();
+        Assert.assertEquals(configuration(100), first);
+        Assert.assertEquals(configuration(100), second);
+
+        /* subterms written once are read as independent objects, which may be changed in place */
+        Assert.assertNotSame(first, second);
+        Bag cells = (Bag) first.getContents();
+        KSequence k = (KSequence) ((Cell) cells.getContents().get(0)).getContents();
+        KSequence out = (KSequence) ((Cell) cells.getContents().get(1)).getContents();
+        Assert.assertNotSame(k.getContents().get(0), out.getContents().get(0));
+        k.getContents().set(0, IntBuiltin.ZERO_TOKEN);
+        ((KApp) out.getContents().get(1)).setLabel(KLabelConstant.of("'baz"));
+        Assert.assertEquals(configuration(100), second);
+        Assert.assertEquals(KApp.of(KLabelConstant.of("'foo"), IntBuiltin.of(1), StringBuiltin.of("bar")),
+                k.getContents().get(1));
+    }
+
+    @Test
+    public void testGraph() throws IOException {
+        DirectedGraph<KRunState, Transition> graph = new DirectedSparseGraph<KRunState, Transition>();
+        KRunState initial = new KRunState(configuration(2), 0, context);
+        KRunState next = new KRunState(configuration(3), 1, context);
+        graph.addVertex(initial);
+        graph.addVertex(next);
+        graph.addEdge(Transition.label("step", context), initial, next);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryWriter writer = new BinaryWriter(bytes, context)) {
+            writer.writeGraph(graph);
+        }
+        DirectedGraph<KRunState, Transition> result = reader(bytes.toByteArray()).readGraph();
+
+        Assert.assertEquals(2, result.getVertexCount());
+        Assert.assertTrue(result.containsVertex(initial));
+        Assert.assertTrue(result.containsVertex(next));
+        Transition edge = result.getOutEdges(initial).iterator().next();
+        Assert.assertEquals("step", edge.getLabel());
+        Assert.assertEquals(next, result.getDest(edge));
+        Assert.assertEquals(Integer.valueOf(1), result.getDest(edge).getStateId());
+    }
+
+    @Test
+    public void testDeepTerm() throws IOException {
+        int depth = 100000;
+        Term term = IntBuiltin.ZERO_TOKEN;
+        for (int i = 0; i < depth; i++) {
+            term = new ListItem(term);
+        }
+
+        term = reader(write(term)).readTerm();
+        for (int i = 0; i < depth; i++) {
+            Assert.assertTrue(term instanceof ListItem);
+            term = ((ListItem) term).getItem();
+        }
+        Assert.assertEquals(IntBuiltin.ZERO_TOKEN, term);
+    }
+
+}
@@ -0,0 +1,151 @@
+package org.kframework.parser.concrete.disambiguate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.ASTNode;
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.KSequence;
+import org.kframework.kil.Production;
+import org.kframework.kil.ProductionItem;
+import org.kframework.kil.Sort;
+import org.kframework.kil.Term;
+import org.kframework.kil.TermCons;
+import org.kframework.kil.Terminal;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.Transformer;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.general.GlobalSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class LocalDisambiguationFilterTest {
+
+    private final Context context = new Context();
+
+    public LocalDisambiguationFilterTest() {
+        production("A", null, new Terminal("a"), new Sort("K"));
+        production("B", null, new Terminal("b"), new Sort("K"));
+        production("P", "prefer", new Terminal("p"));
+        production("Q", null, new Terminal("q"));
+        production("V", "avoid", new Terminal("v"));
+    }
+
+    private void production(String cons, String attribute, ProductionItem... items) {
+        Production production = new Production(new Sort("K"), Arrays.asList(items));
+        if (attribute != null) {
+            production.putAttribute(attribute, "");
+        }
+        context.conses.put(cons, production);
+    }
+
+    private Term term(String cons, Term... contents) {
+        return new TermCons("K", cons, new ArrayList<Term>(Arrays.asList(contents)), context);
+    }
+
+    private static Term amb(Term... contents) {
+        return new Ambiguity("K", new ArrayList<Term>(Arrays.asList(contents)));
+    }
+
+    private static class Warnings extends KExceptionManager {
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public synchronized void register(KException exception) {
+            messages.add(exception.toString());
+        }
+    }
+
+    /**
+     * Applies the given filters in sequence to the given term, and returns the result followed by
+     * the warnings reported.
+     */
+    private static List<Object> disambiguate(Term term, Transformer... filters) throws TransformerException {
+        KExceptionManager kem = GlobalSettings.kem;
+        Warnings warnings = new Warnings();
+        GlobalSettings.kem = warnings;
+        try {
+            ASTNode result = term;
+            for (Transformer filter : filters) {
+                result = result.accept(filter);
+            }
+            List<Object> output = new ArrayList<Object>();
+            output.add(result);
+            output.addAll(warnings.messages);
+            return output;
+        } finally {
+            GlobalSettings.kem = kem;
+        }
+    }
+
+    /** The separate top-down passes which end the disambiguation of sentences. */
+    private List<Object> separatePasses(Term term) throws TransformerException {
+        return disambiguate(term,
+                new PreferAvoidFilter(context),
+                new FlattenListsFilter(context),
+                new AmbDuplicateFilter(context),
+                new AmbFilter(context));
+    }
+
+    private List<Object> fusedPasses(Term term) throws TransformerException {
+        return disambiguate(term,
+                LocalDisambiguationFilter.preferAvoidFilter(context),
+                LocalDisambiguationFilter.lastResortFilter(context));
+    }
+
+    @Test
+    public void testNestedAmbiguity() throws TransformerException {
+        /* the inner ambiguity is resolved by prefer, which makes the two outer alternatives equal */
+        List<Object> output = fusedPasses(amb(term("A", amb(term("P"), term("Q"))), term("A", term("P"))));
+        Assert.assertEquals(Collections.<Object>singletonList(term("A", term("P"))), output);
+
+        output = fusedPasses(amb(term("A", amb(term("Q"), term("V"))), term("B", term("Q"))));
+        Assert.assertEquals(2, output.size());
+        Assert.assertEquals(term("A", term("Q")), output.get(0));
+        Assert.assertTrue(output.get(1).toString().contains("Parsing ambiguity"));
+        Assert.assertFalse(output.get(1).toString().contains("v"));
+    }
+
+    private Term random(Random random, int depth) {
+        switch (depth == 0 ? random.nextInt(3) : random.nextInt(7)) {
+        case 0:
+            return term("P");
+        case 1:
+            return term("Q");
+        case 2:
+            return term("V");
+        case 3:
+            return term("A", random(random, depth - 1));
+        case 4:
+            return term("B", random(random, depth - 1));
+        case 5:
+            List<Term> items = new ArrayList<Term>();
+            for (int i = random.nextInt(3) + 1; i > 0; i--) {
+                items.add(random(random, depth - 1));
+            }
+            return new KSequence(items);
+        default:
+            List<Term> alternatives = new ArrayList<Term>();
+            for (int i = random.nextInt(3) + 2; i > 0; i--) {
+                alternatives.add(random(random, depth - 1));
+            }
+            return new Ambiguity("K", alternatives);
+        }
+    }
+
+    @Test
+    public void testSeparatePasses() throws TransformerException {
+        for (int seed = 0; seed < 1000; seed++) {
+            /* the filters change ambiguities in place, so each pipeline gets its own copy */
+            List<Object> expected = separatePasses(random(new Random(seed), 5));
+            List<Object> actual = fusedPasses(random(new Random(seed), 5));
+            Assert.assertEquals("seed " + seed, expected, actual);
+        }
+    }
+}
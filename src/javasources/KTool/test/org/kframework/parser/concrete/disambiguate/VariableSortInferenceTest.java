@@ -0,0 +1,211 @@
+package org.kframework.parser.concrete.disambiguate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.kframework.kil.Ambiguity;
+import org.kframework.kil.KSequence;
+import org.kframework.kil.Term;
+import org.kframework.kil.Variable;
+import org.kframework.kil.loader.Context;
+import org.kframework.kil.visitors.exceptions.TransformerException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class VariableSortInferenceTest {
+
+    private static final int SORTS = 6;
+    private static final String[] VARIABLES = {"X", "Y", "Z"};
+
+    /**
+     * Returns a context whose sorts S0, ..., S5 are subsorted at random; Si may be a subsort of Sj
+     * only if j < i.
+     */
+    private static Context context(Random random) {
+        Context context = new Context();
+        for (int i = 0; i < SORTS; i++) {
+            context.definedSorts.add("S" + i);
+            for (int j = 0; j < i; j++) {
+                if (random.nextInt(3) == 0) {
+                    context.addSubsort("S" + j, "S" + i);
+                }
+            }
+        }
+        context.finalizeSubsorts();
+        return context;
+    }
+
+    private static Term random(Random random, int depth) {
+        switch (depth == 0 ? random.nextInt(2) : random.nextInt(5)) {
+        case 0:
+            return new KSequence();
+        case 1:
+            Variable variable = new Variable(VARIABLES[random.nextInt(VARIABLES.length)], "K");
+            variable.setExpectedSort("S" + random.nextInt(SORTS));
+            return variable;
+        case 2:
+        case 3:
+            List<Term> items = new ArrayList<Term>();
+            for (int i = random.nextInt(3) + 1; i > 0; i--) {
+                items.add(random(random, depth - 1));
+            }
+            return new KSequence(items);
+        default:
+            List<Term> alternatives = new ArrayList<Term>();
+            for (int i = random.nextInt(2) + 2; i > 0; i--) {
+                alternatives.add(random(random, depth - 1));
+            }
+            return new Ambiguity("K", alternatives);
+        }
+    }
+
+    /**
+     * Returns the sorts inferred by {@link VariableSortInference}, or the message of the error it
+     * reports.
+     */
+    private static Object infer(Term term, Context context) {
+        try {
+            return new VariableSortInference(context).infer(term);
+        } catch (TransformerException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String getAmbiguousSortsMessage(String variable, Set<String> sorts) {
+        String msg = "Could not infer a unique sort for variable '" + variable + "'.";
+        msg += " Possible sorts: ";
+        for (String vv1 : sorts)
+            msg += vv1 + ", ";
+        return msg.substring(0, msg.length() - 2);
+    }
+
+    /**
+     * Returns the sorts inferred by the enumeration of all the variants of the term, as
+     * {@link VariableTypeInferenceFilter} used to, or the message of the error it reported.
+     */
+    private static Object enumerate(Term term, Context context) {
+        CollectExpectedVariablesVisitor vars2 = new CollectExpectedVariablesVisitor(context);
+        term.accept(vars2);
+
+        Set<VarHashMap> solutions = new HashSet<VarHashMap>();
+        String fails = null;
+        Set<String> failsAmb = null;
+        String failsAmbName = null;
+        for (VarHashMap variant : vars2.vars) {
+            VarHashMap solution = new VarHashMap();
+            for (Map.Entry<String, Set<String>> entry : variant.entrySet()) {
+                Set<String> mins = new HashSet<String>();
+                for (String sort : context.definedSorts) {
+                    boolean min = true;
+                    for (String var : entry.getValue()) {
+                        if (!context.isSubsortedEq(var, sort)) {
+                            min = false;
+                            break;
+                        }
+                    }
+                    if (min)
+                        mins.add(sort);
+                }
+                if (mins.size() == 0) {
+                    fails = entry.getKey();
+                    solution.clear();
+                    break;
+                } else if (mins.size() > 1) {
+                    Set<String> maxSorts = new HashSet<String>();
+                    for (String vv1 : mins) {
+                        boolean maxSort = true;
+                        for (String vv2 : mins)
+                            if (context.isSubsorted(vv2, vv1))
+                                maxSort = false;
+                        if (maxSort)
+                            maxSorts.add(vv1);
+                    }
+                    if (maxSorts.size() == 1)
+                        solution.put(entry.getKey(), maxSorts);
+                    else {
+                        failsAmb = maxSorts;
+                        failsAmbName = entry.getKey();
+                        solution.clear();
+                        break;
+                    }
+                } else {
+                    solution.put(entry.getKey(), mins);
+                }
+            }
+            if (!solution.isEmpty())
+                solutions.add(solution);
+        }
+        if (vars2.vars.isEmpty()) {
+            return null;
+        } else if (solutions.size() == 0) {
+            if (fails != null)
+                return "Could not infer a sort for variable '" + fails + "' to match every location.";
+            return getAmbiguousSortsMessage(failsAmbName, failsAmb);
+        } else if (solutions.size() == 1) {
+            Map<String, String> result = new HashMap<String, String>();
+            for (Map.Entry<String, Set<String>> entry : solutions.iterator().next().entrySet())
+                result.put(entry.getKey(), entry.getValue().iterator().next());
+            return result;
+        } else {
+            Map<String, Set<String>> collect = new HashMap<String, Set<String>>();
+            for (VarHashMap sol : solutions) {
+                for (Map.Entry<String, Set<String>> s : sol.entrySet())
+                    if (collect.containsKey(s.getKey())) {
+                        collect.get(s.getKey()).addAll(s.getValue());
+                    } else {
+                        collect.put(s.getKey(), new HashSet<String>(s.getValue()));
+                    }
+            }
+            for (Map.Entry<String, Set<String>> s : collect.entrySet()) {
+                if (s.getValue().size() > 1)
+                    return getAmbiguousSortsMessage(s.getKey(), s.getValue());
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void testNoCommonSubsort() {
+        Context context = new Context();
+        context.definedSorts.add("A");
+        context.definedSorts.add("B");
+        context.finalizeSubsorts();
+        Variable x = new Variable("X", "K");
+        x.setExpectedSort("A");
+        Variable y = new Variable("X", "K");
+        y.setExpectedSort("B");
+        List<Term> items = new ArrayList<Term>();
+        items.add(x);
+        items.add(y);
+
+        Assert.assertEquals("Could not infer a sort for variable 'X' to match every location.",
+                infer(new KSequence(items), context));
+    }
+
+    @Test
+    public void testEnumeration() {
+        int solved = 0;
+        int failed = 0;
+        for (int seed = 0; seed < 2000; seed++) {
+            Random random = new Random(seed);
+            Context context = context(random);
+            Term term = random(random, 4);
+            Object expected = enumerate(term, context);
+            Assert.assertEquals("seed " + seed, expected, infer(term, context));
+            if (expected instanceof Map) {
+                solved++;
+            } else if (expected instanceof String) {
+                failed++;
+            }
+        }
+        /* both the solutions and the errors are compared */
+        Assert.assertTrue(solved > 100);
+        Assert.assertTrue(failed > 100);
+    }
+}